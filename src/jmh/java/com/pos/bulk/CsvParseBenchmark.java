@@ -0,0 +1,100 @@
+package com.pos.bulk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk-upload CSV parsing: {@link CsvRowReader} on {@link CsvTokenizer} against the line-based
+ * parser it replaced, over a generated product file in the upload template's layout. Run with
+ * {@code ./gradlew jmh}; add {@code -prof gc} through {@code jmh.profilers} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvParseBenchmark {
+
+    @Param("1000000")
+    private int rows;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("bulk-bench", ".csv");
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n");
+            for (int i = 0; i < rows; i++) {
+                // Every tenth name is quoted with an embedded comma and escaped quotes.
+                String name = i % 10 == 0 ? "\"Cola, \"\"Zero\"\" " + i + "\"" : "Product " + i;
+                w.write(name + ",SKU-" + i + "," + (4000000000000L + i) + "," + (i % 500) + ".99,Drinks,"
+                        + (i % 40) + ",5\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole bh) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            CsvRowReader.read(in, (rowNum, cells) -> bh.consume(cells));
+        }
+    }
+
+    @Benchmark
+    public void legacyLineParser(Blackhole bh) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                bh.consume(legacyParseLine(line));
+            }
+        }
+    }
+
+    /** The parser CsvRowReader used before CsvTokenizer, kept verbatim as the baseline. */
+    static String[] legacyParseLine(String line) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == ',' && !inQuotes) {
+                out.add(cur.toString().trim().replace("\"\"", "\""));
+                cur = new StringBuilder();
+            } else if (c == '\n' || c == '\r') {
+                break;
+            } else {
+                cur.append(c);
+            }
+        }
+        out.add(cur.toString().trim().replace("\"\"", "\""));
+        return out.toArray(new String[0]);
+    }
+}
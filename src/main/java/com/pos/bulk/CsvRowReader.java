@@ -0,0 +1,25 @@
+package com.pos.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV reader on top of {@link CsvTokenizer}: one {@link RowHandler#row} call per record, header
+ * included. Cells are trimmed, blank cells are {@code null}, and a record spanning several lines
+ * (a quoted field with line breaks) still counts as one row.
+ */
+public final class CsvRowReader {
+
+    private CsvRowReader() {}
+
+    public static void read(InputStream in, RowHandler handler) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer(new InputStreamReader(in, StandardCharsets.UTF_8));
+        while (tokenizer.next()) {
+            String[] cells = new String[tokenizer.fieldCount()];
+            for (int i = 0; i < cells.length; i++) cells[i] = tokenizer.trimmedField(i);
+            handler.row(tokenizer.recordNum(), cells);
+        }
+    }
+}
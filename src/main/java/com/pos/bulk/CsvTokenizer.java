@@ -0,0 +1,234 @@
+package com.pos.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streaming RFC 4180 tokenizer. Characters are pulled from the {@link Reader} through one reusable
+ * buffer and each record's unescaped text is written into a second reusable buffer, so reading a
+ * record allocates nothing; fields are exposed as {@link CharSequence} slices over that buffer
+ * and only become {@code String}s when the caller materialises them.
+ * <p>
+ * Quoted fields may contain delimiters, doubled quotes and line breaks; records end at
+ * {@code \n}, {@code \r\n} or {@code \r}. Input is read leniently the way spreadsheet apps write
+ * it: a quote inside an unquoted field is literal, and text after a closing quote is kept. A
+ * leading byte-order mark is skipped and the delimiter — comma, semicolon, tab or pipe — is taken
+ * from whichever occurs most in the first line outside quotes, comma on a tie.
+ * <p>
+ * Not thread-safe; slices and field positions are only valid until the next {@link #next()}.
+ */
+public final class CsvTokenizer {
+
+    private static final char[] DELIMITERS = {',', ';', '\t', '|'};
+
+    private final Reader reader;
+    private final char[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean skipLf;
+    private char delimiter;
+
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private Slice[] slices = new Slice[0];
+    private int fieldCount;
+    private int recordNum;
+
+    public CsvTokenizer(Reader reader) throws IOException {
+        this(reader, 64 * 1024);
+    }
+
+    CsvTokenizer(Reader reader, int bufferSize) throws IOException {
+        this.reader = reader;
+        this.buf = new char[bufferSize];
+        fill();
+        if (limit > 0 && buf[0] == '\uFEFF') pos = 1;
+        this.delimiter = detectDelimiter();
+    }
+
+    public char delimiter() {
+        return delimiter;
+    }
+
+    /** 1-based number of the current record, counting the header and blank lines. */
+    public int recordNum() {
+        return recordNum;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return false at end of input
+     */
+    public boolean next() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        boolean any = false;
+        boolean quoted = false;     // inside a quoted section
+        boolean afterQuote = false; // just read a quote inside a quoted section
+        int fieldStart = 0;
+
+        while (true) {
+            if (pos >= limit && !fill()) {
+                if (!any) return false;
+                endField(fieldStart);
+                recordNum++;
+                return true;
+            }
+            char c = buf[pos++];
+            if (skipLf) {
+                skipLf = false;
+                if (c == '\n') continue;
+            }
+            any = true;
+
+            if (quoted) {
+                if (afterQuote) {
+                    afterQuote = false;
+                    if (c == '"') {         // "" is an escaped quote
+                        append(c);
+                        continue;
+                    }
+                    quoted = false;         // closing quote; fall through to unquoted handling
+                } else {
+                    if (c == '"') {
+                        afterQuote = true;
+                    } else {
+                        append(c);
+                    }
+                    continue;
+                }
+            }
+
+            if (c == delimiter) {
+                endField(fieldStart);
+                fieldStart = recordLength;
+            } else if (c == '\n' || c == '\r') {
+                skipLf = c == '\r';
+                endField(fieldStart);
+                recordNum++;
+                return true;
+            } else if (c == '"' && recordLength == fieldStart) {
+                quoted = true;
+            } else {
+                append(c);
+            }
+        }
+    }
+
+    /** Field {@code i} as a view over the record buffer; empty when the record is shorter. */
+    public CharSequence slice(int i) {
+        if (i >= slices.length) {
+            int from = slices.length;
+            slices = Arrays.copyOf(slices, Math.max(i + 1, starts.length));
+            for (int j = from; j < slices.length; j++) slices[j] = new Slice(j);
+        }
+        return slices[i];
+    }
+
+    /** Field {@code i} as a new string, or null when absent. */
+    public String field(int i) {
+        return i < fieldCount ? new String(record, starts[i], ends[i] - starts[i]) : null;
+    }
+
+    /** Field {@code i} without surrounding whitespace, or null when absent or blank. */
+    public String trimmedField(int i) {
+        if (i >= fieldCount) return null;
+        int s = starts[i];
+        int e = ends[i];
+        while (s < e && record[s] <= ' ') s++;
+        while (e > s && record[e - 1] <= ' ') e--;
+        return s == e ? null : new String(record, s, e - s);
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) record = Arrays.copyOf(record, record.length * 2);
+        record[recordLength++] = c;
+    }
+
+    private void endField(int fieldStart) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = fieldStart;
+        ends[fieldCount] = recordLength;
+        fieldCount++;
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        int n;
+        do {
+            n = reader.read(buf, 0, buf.length);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            limit = pos = 0;
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    /** Most frequent candidate in the first line (within the initial buffer), outside quotes. */
+    private char detectDelimiter() {
+        int[] counts = new int[DELIMITERS.length];
+        boolean quoted = false;
+        for (int i = pos; i < limit; i++) {
+            char c = buf[i];
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted) {
+                if (c == '\n' || c == '\r') break;
+                for (int d = 0; d < DELIMITERS.length; d++) {
+                    if (c == DELIMITERS[d]) counts[d]++;
+                }
+            }
+        }
+        int best = 0;
+        for (int d = 1; d < DELIMITERS.length; d++) {
+            if (counts[d] > counts[best]) best = d;
+        }
+        return DELIMITERS[best];
+    }
+
+    private final class Slice implements CharSequence {
+
+        private final int index;
+
+        Slice(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int length() {
+            return index < fieldCount ? ends[index] - starts[index] : 0;
+        }
+
+        @Override
+        public char charAt(int i) {
+            if (i < 0 || i >= length()) throw new IndexOutOfBoundsException(i);
+            return record[starts[index] + i];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return index < fieldCount ? new String(record, starts[index], length()) : "";
+        }
+    }
+}
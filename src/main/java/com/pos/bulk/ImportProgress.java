@@ -0,0 +1,32 @@
+package com.pos.bulk;
+
+import com.pos.dto.response.BulkUploadResult;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lets a caller resume a bulk import and record its progress. {@link #chunkCommitted} runs inside
+ * the chunk's transaction, so whatever it writes commits or rolls back together with the chunk.
+ */
+public interface ImportProgress {
+
+    /** No resume point and nothing to record. */
+    ImportProgress NONE = chunk -> { };
+
+    /** One committed chunk; counts are for this chunk only, {@code rowsProcessed} is cumulative. */
+    record Chunk(int throughRow, int rowsProcessed, int created, int updated,
+                 List<BulkUploadResult.RowError> errors) {}
+
+    /** Sheet row (1-based) up to which an earlier run already committed; those rows are skipped. */
+    default int resumeAfterRow() {
+        return 0;
+    }
+
+    /** Rows an earlier run rejected, so their SKUs and barcodes do not count as used in the file. */
+    default Set<Integer> rejectedRows() {
+        return Set.of();
+    }
+
+    void chunkCommitted(Chunk chunk);
+}
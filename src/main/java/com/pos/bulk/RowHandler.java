@@ -0,0 +1,16 @@
+package com.pos.bulk;
+
+/**
+ * Receives spreadsheet rows one at a time as a reader streams them, so callers never hold a whole
+ * file in memory.
+ */
+@FunctionalInterface
+public interface RowHandler {
+
+    /**
+     * @param rowNum 1-based row number in the source file, header included; for CSV this counts
+     *               records, so a quoted field spanning lines does not shift later rows
+     * @param cells  cell text by column index; missing or empty cells are {@code null} or blank
+     */
+    void row(int rowNum, String[] cells);
+}
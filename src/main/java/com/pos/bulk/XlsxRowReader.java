@@ -0,0 +1,162 @@
+package com.pos.bulk;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Streaming reader for the first sheet of an .xlsx file, built on POI's event model instead of the
+ * {@code XSSFWorkbook} DOM (which needs roughly 50x the file size in heap).
+ * <p>
+ * The package is opened from a file, so zip entries are read on demand rather than buffered, and
+ * the sheet XML is SAX-parsed with one row's cells in memory at a time. Shared strings are held by
+ * {@link ReadOnlySharedStringsTable} — a flat list of the distinct strings with no per-cell objects.
+ * <p>
+ * Cell text follows what a user sees in a general-format cell: numbers are written out in plain
+ * notation without trailing zeros (so EAN barcodes stay intact and {@code 100.0} becomes
+ * {@code 100}), booleans are {@code true}/{@code false}, formulas yield their cached result and
+ * error cells are {@code null}. Only the first {@code columns} columns are kept.
+ */
+public final class XlsxRowReader {
+
+    private XlsxRowReader() {}
+
+    public static void read(Path file, int columns, RowHandler handler) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Not a readable .xlsx file: " + e.getMessage(), e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) return;
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(strings, columns, handler));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Not a readable .xlsx file: " + e.getMessage(), e);
+        } finally {
+            pkg.revert(); // read-only: release the file without the save that close() attempts
+        }
+    }
+
+    private static final class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable strings;
+        private final int columns;
+        private final RowHandler handler;
+        private final StringBuilder value = new StringBuilder();
+
+        private int rowNum;
+        private String[] cells;
+        private int column;
+        private String type;
+        private boolean inCell;
+        private boolean inValue;
+
+        SheetHandler(ReadOnlySharedStringsTable strings, int columns, RowHandler handler) {
+            this.strings = strings;
+            this.columns = columns;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs) {
+            switch (name(localName, qName)) {
+                case "row" -> {
+                    String r = attrs.getValue("r");
+                    rowNum = r != null ? Integer.parseInt(r) : rowNum + 1;
+                    cells = new String[columns];
+                    column = 0;
+                }
+                case "c" -> {
+                    String ref = attrs.getValue("r");
+                    if (ref != null) column = columnIndex(ref);
+                    type = attrs.getValue("t");
+                    value.setLength(0);
+                    inCell = true;
+                }
+                // <v> holds the value; <t> runs inside <is> hold inline string text.
+                case "v", "t" -> inValue = inCell;
+                default -> { }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) value.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (name(localName, qName)) {
+                case "v", "t" -> inValue = false;
+                case "c" -> {
+                    if (column >= 0 && column < columns && cells != null) cells[column] = cellText();
+                    column++;
+                    inCell = false;
+                }
+                case "row" -> {
+                    if (cells != null) handler.row(rowNum, cells);
+                    cells = null;
+                }
+                default -> { }
+            }
+        }
+
+        private String cellText() {
+            if (value.isEmpty()) return null;
+            String raw = value.toString();
+            if (type == null || type.equals("n")) return plainNumber(raw);
+            return switch (type) {
+                case "s" -> strings.getItemAt(Integer.parseInt(raw.trim())).getString();
+                case "b" -> raw.equals("1") ? "true" : "false";
+                case "e" -> null;
+                default -> raw; // "str" (formula result) and "inlineStr"
+            };
+        }
+
+        private static String plainNumber(String raw) {
+            try {
+                return BigDecimal.valueOf(Double.parseDouble(raw)).stripTrailingZeros().toPlainString();
+            } catch (NumberFormatException e) {
+                return raw;
+            }
+        }
+
+        /** Zero-based column index from a cell reference such as {@code "AB12"}. */
+        private static int columnIndex(String ref) {
+            int col = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') break;
+                col = col * 26 + (c - 'A' + 1);
+            }
+            return col - 1;
+        }
+
+        private static String name(String localName, String qName) {
+            return localName == null || localName.isEmpty() ? qName : localName;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.pos.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * The database's clock, which stamps every change the delta readers look for: entity saves take
+ * {@link #transactionNow} (through {@code DatabaseStampListener}), bulk statements use
+ * {@code CURRENT_TIMESTAMP} and the COPY merge {@code LOCALTIMESTAMP}. On PostgreSQL all three are
+ * the writing transaction's start time, so a row can become visible with a stamp well in the past.
+ * <p>
+ * {@link #committedUpTo} is the latest time a reader can treat as settled: every change stamped at
+ * or before it is already committed. It is the clock minus a lag, and on PostgreSQL no later than
+ * the start of the oldest transaction still open, so a long import holds the bound back instead of
+ * having its rows skipped. Elsewhere the lag alone must exceed the longest writing transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class DatabaseClock {
+
+    private static final String NOW = "SELECT LOCALTIMESTAMP";
+
+    private static final String COMMITTED_UP_TO_POSTGRES =
+            "SELECT LEAST(LOCALTIMESTAMP - make_interval(secs => ?), " +
+            "(SELECT min(xact_start)::timestamp FROM pg_stat_activity " +
+            "WHERE datname = current_database() AND backend_type = 'client backend' " +
+            "AND pid <> pg_backend_pid() AND xact_start IS NOT NULL))";
+
+    private final DataSource      dataSource;
+    private final DatabaseDialect databaseDialect;
+
+    public LocalDateTime now() {
+        return query(NOW, null);
+    }
+
+    /**
+     * The clock as the current transaction sees it, read on the transaction's own connection once
+     * and reused for every entity it saves. Outside a transaction this is {@link #now}.
+     */
+    public LocalDateTime transactionNow() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return now();
+        LocalDateTime stamp = (LocalDateTime) TransactionSynchronizationManager.getResource(this);
+        if (stamp == null) {
+            stamp = now();
+            TransactionSynchronizationManager.bindResource(this, stamp);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DatabaseClock.this);
+                }
+            });
+        }
+        return stamp;
+    }
+
+    public LocalDateTime committedUpTo(Duration lag) {
+        if (databaseDialect.isPostgres()) return query(COMMITTED_UP_TO_POSTGRES, lag.toMillis() / 1000.0);
+        return now().minus(lag);
+    }
+
+    /** Runs on the current transaction's connection when there is one, so it sees that transaction's time. */
+    private LocalDateTime query(String sql, Double lagSeconds) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            if (lagSeconds != null) ps.setDouble(1, lagSeconds);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getObject(1, LocalDateTime.class);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read the database clock: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.pos.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Component;
+
+/**
+ * The few database differences that plain JDBC code needs to know about, read from the dialect
+ * Hibernate resolved at startup rather than sniffed from a connection on each caller's first use.
+ * PostgreSQL in dev and prod, H2 in tests.
+ */
+@Component
+public class DatabaseDialect {
+
+    private final Dialect dialect;
+
+    public DatabaseDialect(EntityManagerFactory entityManagerFactory) {
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    /** True for PostgreSQL, which enables the COPY import and the startup schema fix-ups. */
+    public boolean isPostgres() {
+        return dialect instanceof PostgreSQLDialect;
+    }
+
+    /** A query returning the next value of {@code sequence} as its single column. */
+    public String nextValueQuery(String sequence) {
+        return dialect.getSequenceSupport().getSequenceNextValString(sequence);
+    }
+}
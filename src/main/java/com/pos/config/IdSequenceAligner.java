@@ -0,0 +1,97 @@
+package com.pos.config;
+
+import com.pos.service.BarcodeAllocator;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * One-off migration from IDENTITY columns to the pooled id sequences declared with
+ * {@code @SequenceGenerator} on the high-volume entities. {@code ddl-auto=update} creates the
+ * sequences starting at 1, so on a PostgreSQL database that already holds rows each sequence is
+ * moved past {@code MAX(id)} plus one allocation block, and the old identity default is dropped so
+ * ids only ever come from the sequence.
+ * <p>
+ * It also creates the standalone sequences no entity id maps, which {@code ddl-auto} therefore
+ * leaves out — currently the {@link BarcodeAllocator} block sequence — on every database.
+ * <p>
+ * Runs while the context starts, after the schema update and before the web server or
+ * {@link DataInitializer} insert anything. Sequences are only ever moved forward, so it is a no-op
+ * on later starts. The alignment is skipped on other databases (H2 in tests) — their schema is
+ * created fresh.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdSequenceAligner {
+
+    /** Sequences read directly over JDBC rather than through an entity's id generator. */
+    private static final List<String> STANDALONE_SEQUENCES = List.of(BarcodeAllocator.BLOCK_SEQUENCE);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final DataSource           dataSource;
+    private final DatabaseDialect      databaseDialect;
+
+    @PostConstruct
+    void align() {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement st = connection.createStatement()) {
+                for (String sequence : STANDALONE_SEQUENCES) st.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence);
+            }
+            if (!databaseDialect.isPostgres()) return;
+            for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+                Table table = entity.getJavaType().getAnnotation(Table.class);
+                SequenceGenerator generator = idSequence(entity.getJavaType());
+                if (table == null || generator == null) continue;
+                align(connection, table.name(), generator.sequenceName(), generator.allocationSize());
+            }
+        } catch (SQLException e) {
+            log.error("Could not align id sequences: {}", e.getMessage());
+        }
+    }
+
+    private static void align(Connection connection, String table, String sequence, int allocationSize) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE " + table + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+
+            long maxId;
+            try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+                rs.next();
+                maxId = rs.getLong(1);
+            }
+            long nextValue;
+            try (ResultSet rs = st.executeQuery("SELECT last_value, is_called FROM " + sequence)) {
+                rs.next();
+                nextValue = rs.getBoolean(2) ? rs.getLong(1) + allocationSize : rs.getLong(1);
+            }
+            // The pooled optimizer hands out (value - allocationSize, value], so the next value must
+            // cover a whole block above the highest existing id.
+            long floor = maxId + allocationSize;
+            if (nextValue < floor) {
+                st.execute("SELECT setval('" + sequence + "', " + floor + ", false)");
+                log.info("Id sequence {} moved to {} (max {}.id = {})", sequence, floor, table, maxId);
+            }
+        }
+    }
+
+    private static SequenceGenerator idSequence(Class<?> type) {
+        for (Field field : type.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Id.class)) return field.getAnnotation(SequenceGenerator.class);
+        }
+        return null;
+    }
+}
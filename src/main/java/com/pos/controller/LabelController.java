@@ -1,18 +1,23 @@
 package com.pos.controller;
 
+import com.pos.dto.request.LabelPrintRequest;
 import com.pos.dto.request.LabelRequest;
 import com.pos.dto.response.ApiResponse;
 import com.pos.dto.response.LabelResponse;
 import com.pos.dto.response.ProductResponse;
+import com.pos.service.LabelPrintService;
 import com.pos.service.LabelService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/labels")
@@ -20,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 public class LabelController {
 
     private final LabelService labelService;
+    private final LabelPrintService labelPrintService;
 
     @GetMapping
     @PreAuthorize("hasAnyAuthority('ADMIN', 'MANAGER')")
@@ -51,6 +57,20 @@ public class LabelController {
                 .body(ApiResponse.ok("Labels created", labelService.createBulk(requests)));
     }
 
+    /**
+     * Printer-ready ZPL or EPL for the given labels and products, streamed as it is rendered. The
+     * request is validated before the first byte is sent.
+     */
+    @PostMapping("/print")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'MANAGER')")
+    public ResponseEntity<StreamingResponseBody> print(@Valid @RequestBody LabelPrintRequest request) {
+        LabelPrintService.PrintJob job = labelPrintService.prepare(request);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.fileName() + "\"")
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, job.template().charset()))
+                .body(out -> labelPrintService.write(job, out));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyAuthority('ADMIN', 'MANAGER')")
     public ResponseEntity<ApiResponse<LabelResponse>> update(
@@ -1,7 +1,9 @@
 package com.pos.controller;
 
+import com.pos.dto.request.OrderBatchRequest;
 import com.pos.dto.request.OrderRequest;
 import com.pos.dto.response.ApiResponse;
+import com.pos.dto.response.OrderBatchResponse;
 import com.pos.dto.response.OrderResponse;
 import com.pos.service.OrderService;
 import jakarta.validation.Valid;
@@ -38,9 +40,21 @@ public class OrderController {
     }
 
     @PostMapping
-    public ResponseEntity<ApiResponse<OrderResponse>> create(@Valid @RequestBody OrderRequest request) {
+    public ResponseEntity<ApiResponse<OrderResponse>> create(
+            @Valid @RequestBody OrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.ok("Order placed successfully", orderService.create(request)));
+                .body(ApiResponse.ok("Order placed successfully", orderService.create(request, idempotencyKey)));
+    }
+
+    /** Replays sales captured while a till was offline; each order succeeds or fails on its own. */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<OrderBatchResponse>> createBatch(@Valid @RequestBody OrderBatchRequest request) {
+        OrderBatchResponse result = orderService.createBatch(request.getOrders());
+        return ResponseEntity.ok(ApiResponse.ok(
+                "Processed " + result.getTotalOrders() + " orders: " + result.getCreatedCount() + " created, "
+                        + result.getReplayedCount() + " already recorded, " + result.getFailCount() + " failed",
+                result));
     }
 
     @PutMapping("/{id}/cancel")
@@ -2,12 +2,24 @@ package com.pos.controller;
 
 import com.pos.dto.request.ProductRequest;
 import com.pos.dto.response.ApiResponse;
+import com.pos.dto.response.BarcodeFilterStats;
+import com.pos.dto.response.BulkUploadJobResponse;
 import com.pos.dto.response.BulkUploadResult;
+import com.pos.dto.response.CatalogChangesResponse;
 import com.pos.dto.response.ProductResponse;
+import com.pos.dto.response.ProductSuggestion;
+import com.pos.dto.response.SuggestStats;
+import com.pos.service.BarcodeFilterService;
+import com.pos.service.CatalogSnapshotService;
+import com.pos.service.BulkUploadJobService;
+import com.pos.service.CatalogSyncService;
 import com.pos.service.ProductBulkService;
 import com.pos.service.ProductService;
+import com.pos.service.ProductSuggestService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -19,6 +31,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/products")
 @RequiredArgsConstructor
@@ -26,6 +40,11 @@ public class ProductController {
 
     private final ProductService    productService;
     private final ProductBulkService productBulkService;
+    private final BulkUploadJobService bulkUploadJobService;
+    private final ProductSuggestService productSuggestService;
+    private final CatalogSyncService catalogSyncService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final BarcodeFilterService barcodeFilterService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<Page<ProductResponse>>> getAll(
@@ -35,6 +54,58 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.ok(productService.getAll(search, categoryId, pageable)));
     }
 
+    /** Type-ahead for the POS search box — answered from memory, no count query. */
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<ProductSuggestion>>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.ok(productSuggestService.suggest(q, limit)));
+    }
+
+    /** Delta catalogue sync for tills; omit {@code since} for a full sync. */
+    @GetMapping("/changes")
+    public ResponseEntity<ApiResponse<CatalogChangesResponse>> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(ApiResponse.ok(catalogSyncService.getChanges(since, limit)));
+    }
+
+    /**
+     * Whole active catalogue as gzip'd NDJSON for bootstrapping a till. Honours If-None-Match; the
+     * X-Sync-Cursor header is the {@code since} to pass to {@code /changes} afterwards. A 304 carries
+     * no cursor — the till keeps syncing from its own.
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<Resource> snapshot(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        CatalogSnapshotService.Snapshot current = catalogSnapshotService.getSnapshot();
+        if (current.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current.etag()).build();
+        }
+        // The stream holds the file until the response is written, even if a rebuild replaces it.
+        CatalogSnapshotService.Download download = catalogSnapshotService.open();
+        CatalogSnapshotService.Snapshot snapshot = download.snapshot();
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .header("X-Sync-Cursor", snapshot.syncCursor())
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .contentLength(snapshot.sizeBytes())
+                .body(new InputStreamResource(download.body()));
+    }
+
+    @GetMapping("/suggest/stats")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<SuggestStats>> suggestStats() {
+        return ResponseEntity.ok(ApiResponse.ok(productSuggestService.getStats()));
+    }
+
+    @GetMapping("/barcode-filter/stats")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<BarcodeFilterStats>> barcodeFilterStats() {
+        return ResponseEntity.ok(ApiResponse.ok(barcodeFilterService.getStats()));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<ProductResponse>> getById(@PathVariable Long id) {
         return ResponseEntity.ok(ApiResponse.ok(productService.getById(id)));
@@ -110,10 +181,24 @@ public class ProductController {
 
     @PostMapping(value = "/bulk-upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasAnyAuthority('ADMIN', 'MANAGER')")
-    public ResponseEntity<ApiResponse<BulkUploadResult>> bulkUpload(
+    public ResponseEntity<ApiResponse<BulkUploadJobResponse>> bulkUpload(
             @RequestParam("file") MultipartFile file,
             Authentication auth) {
         String username = auth != null ? auth.getName() : "system";
-        return ResponseEntity.ok(ApiResponse.ok("Bulk upload completed", productBulkService.processUpload(file, username)));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.ok("Bulk upload queued", bulkUploadJobService.submit(file, username)));
+    }
+
+    /** Dry run: the full row-by-row result of an upload without saving anything. */
+    @PostMapping(value = "/bulk-upload/validate", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<BulkUploadResult>> bulkUploadValidate(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(ApiResponse.ok(bulkUploadJobService.validate(file)));
+    }
+
+    @GetMapping("/bulk-upload/{jobId}")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<BulkUploadJobResponse>> bulkUploadStatus(@PathVariable Long jobId) {
+        return ResponseEntity.ok(ApiResponse.ok(bulkUploadJobService.getJob(jobId)));
     }
 }
@@ -0,0 +1,25 @@
+package com.pos.dto.request;
+
+import com.pos.enums.LabelPrintFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class LabelPrintRequest {
+
+    /** Labels to print, in order; printed before {@link #productIds}. */
+    private List<Long> labelIds = new ArrayList<>();
+
+    /** Products to print shelf labels for, in order. */
+    private List<Long> productIds = new ArrayList<>();
+
+    private LabelPrintFormat format = LabelPrintFormat.ZPL;
+
+    @Min(value = 1, message = "Copies must be at least 1")
+    @Max(value = 100, message = "Copies may be at most 100")
+    private int copies = 1;
+}
@@ -0,0 +1,24 @@
+package com.pos.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/** A sale captured by a till while offline and replayed through POST /api/orders/batch. */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class OfflineOrderRequest extends OrderRequest {
+
+    /** Till-generated id for the sale; used as its idempotency key so a replayed batch is safe. */
+    @NotBlank(message = "Client order ID is required")
+    @Size(max = 100, message = "Client order ID must be at most 100 characters")
+    private String clientOrderId;
+
+    /** When the sale happened on the till; stored as the order's createdAt. */
+    @NotNull(message = "Sale timestamp is required")
+    private LocalDateTime soldAt;
+}
@@ -0,0 +1,17 @@
+package com.pos.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class OrderBatchRequest {
+
+    @NotEmpty(message = "Batch must contain at least one order")
+    @Size(max = 500, message = "Batch may contain at most 500 orders")
+    @Valid
+    private List<OfflineOrderRequest> orders;
+}
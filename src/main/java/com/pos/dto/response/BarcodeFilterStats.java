@@ -0,0 +1,12 @@
+package com.pos.dto.response;
+
+import java.time.Instant;
+
+/**
+ * State of the barcode existence filter. {@code expectedFalsePositiveRate} follows from the fill
+ * ratio; {@code observedFalsePositiveRate} is the share of single-check possible hits the database
+ * then found absent. Counters restart with each rebuild.
+ */
+public record BarcodeFilterStats(boolean ready, long barcodes, long bits, int hashFunctions, long sizeBytes,
+                                 double expectedFalsePositiveRate, long checks, long definiteMisses,
+                                 long falsePositives, double observedFalsePositiveRate, Instant builtAt) {}
@@ -0,0 +1,65 @@
+package com.pos.dto.response;
+
+import com.pos.entity.BulkUploadJob;
+import com.pos.enums.BulkUploadJobStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Status of a bulk upload job, polled via {@code GET /api/products/bulk-upload/{jobId}}. Counts and
+ * errors cover committed chunks only; {@code errors} lists the first rejected rows, {@code errorCount}
+ * all of them.
+ */
+@Data
+@Builder
+public class BulkUploadJobResponse {
+    private Long id;
+    private String fileName;
+    private BulkUploadJobStatus status;
+    private String submittedBy;
+    private int rowsProcessed;
+    private int lastCommittedRow;
+    private int createdCount;
+    private int updatedCount;
+    private int errorCount;
+    /** Sheet rows committed per second in the current (or last) run. */
+    private double rowsPerSecond;
+    private String message;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private List<BulkUploadResult.RowError> errors;
+
+    public static BulkUploadJobResponse from(BulkUploadJob job, List<BulkUploadResult.RowError> errors) {
+        return BulkUploadJobResponse.builder()
+                .id(job.getId())
+                .fileName(job.getFileName())
+                .status(job.getStatus())
+                .submittedBy(job.getSubmittedBy())
+                .rowsProcessed(job.getRowsProcessed())
+                .lastCommittedRow(job.getLastCommittedRow())
+                .createdCount(job.getCreatedCount())
+                .updatedCount(job.getUpdatedCount())
+                .errorCount(job.getErrorCount())
+                .rowsPerSecond(rowsPerSecond(job))
+                .message(job.getMessage())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .errors(errors)
+                .build();
+    }
+
+    private static double rowsPerSecond(BulkUploadJob job) {
+        if (job.getStartedAt() == null) return 0;
+        LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+        long millis = Duration.between(job.getStartedAt(), end).toMillis();
+        int rows = job.getLastCommittedRow() - job.getResumedFromRow();
+        if (millis <= 0 || rows <= 0) return 0;
+        return Math.round(rows * 10_000.0 / millis) / 10.0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.pos.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of catalogue changes for a till. Items include deactivated products ({@code active=false})
+ * so terminals can drop them. Pass {@code nextCursor} back as {@code since}; when {@code hasMore} is
+ * false the terminal is up to date and should keep the cursor for its next sync.
+ */
+@Data
+@Builder
+public class CatalogChangesResponse {
+    private List<ProductResponse> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
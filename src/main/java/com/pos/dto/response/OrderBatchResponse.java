@@ -0,0 +1,38 @@
+package com.pos.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class OrderBatchResponse {
+    private int totalOrders;
+    private int createdCount;
+    private int replayedCount;
+    private int failCount;
+    private List<OrderResult> results;
+
+    public enum Outcome { CREATED, REPLAYED, FAILED }
+
+    @Data
+    @Builder
+    public static class OrderResult {
+        private String clientOrderId;
+        private Outcome outcome;
+        private OrderResponse order;     // null when the order failed
+        private String errorCode;
+        private String message;
+    }
+
+    public static OrderBatchResponse of(List<OrderResult> results) {
+        return OrderBatchResponse.builder()
+                .totalOrders(results.size())
+                .createdCount((int) results.stream().filter(r -> r.getOutcome() == Outcome.CREATED).count())
+                .replayedCount((int) results.stream().filter(r -> r.getOutcome() == Outcome.REPLAYED).count())
+                .failCount((int) results.stream().filter(r -> r.getOutcome() == Outcome.FAILED).count())
+                .results(results)
+                .build();
+    }
+}
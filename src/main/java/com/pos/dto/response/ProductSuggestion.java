@@ -0,0 +1,6 @@
+package com.pos.dto.response;
+
+import java.math.BigDecimal;
+
+/** Type-ahead entry for the POS search box; served from memory, so it carries no stock figure. */
+public record ProductSuggestion(Long id, String name, String sku, String barcode, BigDecimal price) {}
@@ -0,0 +1,4 @@
+package com.pos.dto.response;
+
+/** Size of the in-memory product suggestion trie; {@code estimatedBytes} covers trie nodes and cached entries. */
+public record SuggestStats(int products, int keys, int nodes, long estimatedBytes) {}
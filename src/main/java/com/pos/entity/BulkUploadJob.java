@@ -0,0 +1,83 @@
+package com.pos.entity;
+
+import com.pos.enums.BulkUploadJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A product bulk upload processed in the background by {@link com.pos.service.BulkUploadJobService}.
+ * Progress columns are updated in the same transaction as each committed chunk, so after a restart
+ * the job resumes from {@code lastCommittedRow} without re-applying or skipping rows.
+ */
+@Entity
+@Table(name = "bulk_upload_jobs",
+       indexes = @Index(name = "idx_bulk_upload_jobs_status_id", columnList = "status, id"))
+@Getter @Setter @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class BulkUploadJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    /** Where the uploaded file is kept until the job finishes. */
+    @Column(nullable = false, length = 500)
+    private String storedPath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private BulkUploadJobStatus status = BulkUploadJobStatus.QUEUED;
+
+    @Column(length = 50)
+    private String submittedBy;
+
+    /** Data rows read so far (header excluded). */
+    @Builder.Default
+    private int rowsProcessed = 0;
+
+    /** 1-based sheet row up to which everything is committed; rows after it are still to do. */
+    @Builder.Default
+    private int lastCommittedRow = 0;
+
+    /** {@code lastCommittedRow} when the current run started, for throughput. */
+    @Builder.Default
+    private int resumedFromRow = 0;
+
+    @Builder.Default
+    private int createdCount = 0;
+
+    @Builder.Default
+    private int updatedCount = 0;
+
+    @Builder.Default
+    private int errorCount = 0;
+
+    @Builder.Default
+    private int attempts = 0;
+
+    /** Failure reason, or a short summary once completed. */
+    @Column(length = 500)
+    private String message;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    /** When the current run started (reset on resume). */
+    private LocalDateTime startedAt;
+
+    /** Refreshed by the worker's timer and on every committed chunk; a RUNNING job with a stale heartbeat is resumed. */
+    private LocalDateTime heartbeatAt;
+
+    private LocalDateTime finishedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,31 @@
+package com.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/** A row rejected by a {@link BulkUploadJob}, saved with the chunk it belongs to. */
+@Entity
+@Table(name = "bulk_upload_job_errors",
+       indexes = @Index(name = "idx_bulk_upload_job_errors_job_row", columnList = "job_id, rowNum"))
+@Getter @Setter @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class BulkUploadJobError {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bulk_upload_job_errors_seq")
+    @SequenceGenerator(name = "bulk_upload_job_errors_seq", sequenceName = "bulk_upload_job_errors_seq", allocationSize = 100)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "job_id", nullable = false)
+    private BulkUploadJob job;
+
+    /** 1-based sheet row. */
+    private int rowNum;
+
+    @Column(length = 50)
+    private String field;
+
+    @Column(length = 500)
+    private String message;
+}
@@ -6,10 +6,11 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(DatabaseStampListener.class)
 @Table(name = "categories")
 @Getter @Setter @Builder
 @NoArgsConstructor @AllArgsConstructor
-public class Category {
+public class Category implements DatabaseStamped {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,13 +21,8 @@ public class Category {
 
     private String description;
 
+    /** Database time of the last save; renames reach tills through the delta sync. */
     private LocalDateTime updatedAt;
 
     private String updatedBy;
-
-    @PrePersist
-    @PreUpdate
-    protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
-    }
 }
@@ -0,0 +1,30 @@
+package com.pos.entity;
+
+import com.pos.config.DatabaseClock;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Sets {@code updatedAt} from {@link DatabaseClock#transactionNow} on insert and update — the clock
+ * the bulk UPDATEs and the COPY merge stamp with, read once per transaction. The value is bound
+ * like any other column, so inserts still batch and nothing is re-selected after a write, as it
+ * would be with a database-generated timestamp.
+ * <p>
+ * Created by Hibernate through Spring's bean container. The clock is looked up on first use: it
+ * depends on the entity manager factory this listener is created for.
+ */
+public class DatabaseStampListener {
+
+    private final ObjectProvider<DatabaseClock> databaseClock;
+
+    public DatabaseStampListener(ObjectProvider<DatabaseClock> databaseClock) {
+        this.databaseClock = databaseClock;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void stamp(Object entity) {
+        ((DatabaseStamped) entity).setUpdatedAt(databaseClock.getObject().transactionNow());
+    }
+}
@@ -0,0 +1,9 @@
+package com.pos.entity;
+
+import java.time.LocalDateTime;
+
+/** An entity whose {@code updatedAt} the delta sync reads; stamped by {@link DatabaseStampListener}. */
+public interface DatabaseStamped {
+
+    void setUpdatedAt(LocalDateTime updatedAt);
+}
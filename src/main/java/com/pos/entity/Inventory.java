@@ -6,13 +6,16 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "inventory")
+@EntityListeners(DatabaseStampListener.class)
+@Table(name = "inventory",
+       indexes = @Index(name = "idx_inventory_updated_at", columnList = "updatedAt"))
 @Getter @Setter @Builder
 @NoArgsConstructor @AllArgsConstructor
-public class Inventory {
+public class Inventory implements DatabaseStamped {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_seq")
+    @SequenceGenerator(name = "inventory_seq", sequenceName = "inventory_seq", allocationSize = 50)
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
@@ -25,13 +28,8 @@ public class Inventory {
     @Builder.Default
     private int lowStockThreshold = 10;
 
+    /** Database time, as set by the stock UPDATEs in {@code InventoryRepository}; read by the delta sync. */
     private LocalDateTime updatedAt;
 
     private String updatedBy;
-
-    @PrePersist
-    @PreUpdate
-    protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
-    }
 }
@@ -20,7 +20,8 @@ import java.time.LocalDateTime;
 public class Label {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "labels_seq")
+    @SequenceGenerator(name = "labels_seq", sequenceName = "labels_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -17,7 +17,8 @@ import java.util.List;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 20)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -58,6 +59,7 @@ public class Order {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // Offline sales replayed in a batch arrive with their original sale time already set.
+        if (createdAt == null) createdAt = LocalDateTime.now();
     }
 }
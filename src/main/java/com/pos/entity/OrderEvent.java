@@ -0,0 +1,55 @@
+package com.pos.entity;
+
+import com.pos.enums.OrderEventStatus;
+import com.pos.enums.OrderEventType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row written in the checkout transaction. Post-sale work (payment record, reward accrual)
+ * is applied from these rows by {@link com.pos.service.OrderEventDispatcher} after the order has
+ * committed, so the checkout transaction only holds locks for the order, its items and stock.
+ */
+@Entity
+@Table(name = "order_events",
+       indexes = @Index(name = "idx_order_events_status_id", columnList = "status, id"))
+@Getter @Setter @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class OrderEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_events_seq")
+    @SequenceGenerator(name = "order_events_seq", sequenceName = "order_events_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private OrderEventType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private OrderEventStatus status = OrderEventStatus.PENDING;
+
+    @Builder.Default
+    private int attempts = 0;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime processedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
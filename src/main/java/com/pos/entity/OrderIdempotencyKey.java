@@ -0,0 +1,49 @@
+package com.pos.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Client-supplied Idempotency-Key for POST /api/orders. Keys are scoped to the cashier who sent
+ * them, and remember a hash of the request body they were first used with. The row is claimed
+ * before the order is built (so a concurrent retry blocks on the unique index) and linked to the
+ * order in the same transaction. Rows older than the retention window are purged.
+ */
+@Entity
+@Table(name = "order_idempotency_keys",
+       uniqueConstraints = @UniqueConstraint(name = "uk_order_idempotency_keys_username_key",
+                                             columnNames = {"username", "idempotency_key"}),
+       indexes = @Index(name = "idx_order_idempotency_keys_created_at", columnList = "createdAt"))
+@Getter @Setter @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class OrderIdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Cashier whose key this is. */
+    @Column(name = "username", nullable = false)
+    private String username;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    /** SHA-256 of the order request the key was claimed for. */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", unique = true)
+    private Order order;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -7,13 +7,16 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@EntityListeners(DatabaseStampListener.class)
+@Table(name = "products",
+       indexes = @Index(name = "idx_products_updated_at", columnList = "updatedAt"))
 @Getter @Setter @Builder
 @NoArgsConstructor @AllArgsConstructor
-public class Product {
+public class Product implements DatabaseStamped {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -46,6 +49,7 @@ public class Product {
     @Column(updatable = false)
     private LocalDateTime createdAt;
 
+    /** Database time of the last save, as the COPY merge stamps its rows; the delta sync reads it. */
     private LocalDateTime updatedAt;
 
     private String updatedBy;
@@ -53,11 +57,5 @@ public class Product {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
-    }
-
-    @PreUpdate
-    protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
     }
 }
@@ -0,0 +1,54 @@
+package com.pos.entity;
+
+import com.pos.enums.RewardReason;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Append-only reward-points movement. {@link Customer#getRewardPoints()} is the compacted
+ * snapshot: entries with {@code compacted = false} have not been folded into it yet, so a
+ * customer's balance is the snapshot plus the sum of their pending deltas.
+ */
+@Entity
+@Table(name = "reward_ledger",
+       uniqueConstraints = @UniqueConstraint(name = "uk_reward_ledger_order_reason", columnNames = {"order_id", "reason"}),
+       indexes = @Index(name = "idx_reward_ledger_customer_compacted", columnList = "customer_id, compacted"))
+@Getter @Setter @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class RewardLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reward_ledger_seq")
+    @SequenceGenerator(name = "reward_ledger_seq", sequenceName = "reward_ledger_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id", nullable = false)
+    private Customer customer;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id")
+    private Order order;
+
+    /** Positive for points earned, negative for points redeemed. */
+    @Column(nullable = false)
+    private int delta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RewardReason reason;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private boolean compacted = false;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
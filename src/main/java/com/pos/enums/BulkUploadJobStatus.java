@@ -0,0 +1,5 @@
+package com.pos.enums;
+
+public enum BulkUploadJobStatus {
+    QUEUED, RUNNING, COMPLETED, FAILED
+}
@@ -0,0 +1,5 @@
+package com.pos.enums;
+
+public enum LabelPrintFormat {
+    ZPL, EPL
+}
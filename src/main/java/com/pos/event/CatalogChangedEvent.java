@@ -0,0 +1,19 @@
+package com.pos.event;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published when products are created, edited, deactivated or re-linked to labels. Listeners that
+ * keep in-memory copies of the catalogue reload the listed products once the change has committed.
+ */
+public record CatalogChangedEvent(Set<Long> productIds) {
+
+    public static CatalogChangedEvent of(Long productId) {
+        return new CatalogChangedEvent(Set.of(productId));
+    }
+
+    public static CatalogChangedEvent of(Collection<Long> productIds) {
+        return new CatalogChangedEvent(Set.copyOf(productIds));
+    }
+}
@@ -0,0 +1,4 @@
+package com.pos.event;
+
+/** Published when a customer is created, edited, issued a member card or removed. */
+public record CustomerChangedEvent(Long customerId) {}
@@ -0,0 +1,16 @@
+package com.pos.event;
+
+import java.util.Collection;
+import java.util.Set;
+
+/** Published when labels are created, edited, deleted or linked to a product. */
+public record LabelChangedEvent(Set<Long> labelIds) {
+
+    public static LabelChangedEvent of(Long labelId) {
+        return new LabelChangedEvent(Set.of(labelId));
+    }
+
+    public static LabelChangedEvent of(Collection<Long> labelIds) {
+        return new LabelChangedEvent(Set.copyOf(labelIds));
+    }
+}
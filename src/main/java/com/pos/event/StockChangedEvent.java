@@ -0,0 +1,18 @@
+package com.pos.event;
+
+import java.util.Map;
+
+/**
+ * Published when stock levels change. {@code absolute} events carry the new quantity for each
+ * product (manual stock updates); otherwise the values are deltas (sales, cancellations).
+ */
+public record StockChangedEvent(Map<Long, Integer> quantities, boolean absolute) {
+
+    public static StockChangedEvent adjusted(Map<Long, Integer> deltas) {
+        return new StockChangedEvent(Map.copyOf(deltas), false);
+    }
+
+    public static StockChangedEvent set(Long productId, int quantity) {
+        return new StockChangedEvent(Map.of(productId, quantity), true);
+    }
+}
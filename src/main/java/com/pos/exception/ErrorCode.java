@@ -40,6 +40,10 @@ public enum ErrorCode {
     PR004("PR004", "Product is not available for sale"),
     PR005("PR005", "Image file is required"),
     PR006("PR006", "File must be an image (JPEG, PNG, GIF or WebP)"),
+    PR007("PR007", "Invalid catalogue sync cursor"),
+    PR008("PR008", "Bulk upload job not found"),
+    PR009("PR009", "Bulk upload file must be a non-empty .csv or .xlsx file"),
+    PR010("PR010", "Bulk upload file could not be read"),
 
     // ── Category ──────────────────────────────────────────────────────────────
     CT001("CT001", "Category not found"),
@@ -54,6 +58,9 @@ public enum ErrorCode {
     OR002("OR002", "Insufficient stock"),
     OR003("OR003", "Order is already cancelled"),
     OR004("OR004", "Cannot cancel a refunded order"),
+    OR005("OR005", "An order with this idempotency key is already being processed"),
+    OR006("OR006", "Idempotency key must be at most 100 characters"),
+    OR007("OR007", "Idempotency key was already used for a different order"),
 
     // ── Inventory ─────────────────────────────────────────────────────────────
     IN001("IN001", "Inventory record not found for this product"),
@@ -61,6 +68,8 @@ public enum ErrorCode {
     // ── Label ─────────────────────────────────────────────────────────────────
     LB001("LB001", "Label not found"),
     LB002("LB002", "Barcode already exists for a label or product"),
+    LB003("LB003", "Select at least one label or product to print"),
+    LB004("LB004", "Print job has too many labels"),
 
     // ── Member rewards ───────────────────────────────────────────────────────
     RW001("RW001", "Insufficient reward points for redemption"),
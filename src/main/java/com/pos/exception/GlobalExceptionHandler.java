@@ -39,6 +39,14 @@ public class GlobalExceptionHandler {
                         : ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiResponse<Void>> handleConflict(ConflictException ex) {
+        ErrorCode code = ex.getErrorCode();
+        log.warn("[{}] Conflict: {}", code.getCode(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(code));
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ApiResponse<Void>> handleBadCredentials(BadCredentialsException ex) {
         log.warn("[AU001] Authentication failed: invalid credentials");
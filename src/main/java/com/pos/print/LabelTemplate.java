@@ -0,0 +1,197 @@
+package com.pos.print;
+
+import com.pos.enums.LabelPrintFormat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Printer-ready layout for one shelf label — name, price and barcode — in ZPL II (Zebra) or EPL2
+ * (Eltron/Zebra desktop). Every coordinate, font size and the fixed command text are worked out once
+ * from the label size and printer resolution, so {@link #render} only fills in the fields.
+ * <p>
+ * The printer draws the barcode itself. The symbology follows the data: EAN-13, EAN-8 or UPC-A when
+ * it is all digits of that length with a valid check digit, otherwise Code 128. Immutable and
+ * thread-safe, so one instance renders labels in parallel.
+ */
+public final class LabelTemplate {
+
+    /** One label's printable fields. */
+    public record Item(String name, String barcode, BigDecimal price) {}
+
+    private enum Symbology { EAN13, EAN8, UPCA, CODE128 }
+
+    private final LabelPrintFormat format;
+    private final int width;
+    private final int height;
+    private final int margin;
+    private final int nameHeight;
+    private final int nameMaxChars;
+    private final int priceY;
+    private final int priceHeight;
+    private final int barcodeY;
+    private final int barcodeHeight;
+    private final int module;
+    private final String header;
+
+    private LabelTemplate(LabelPrintFormat format, double widthMm, double heightMm, int dpi) {
+        this.format = format;
+        this.width = dots(widthMm, dpi);
+        this.height = dots(heightMm, dpi);
+        this.margin = Math.max(8, height * 6 / 100);
+        this.nameHeight = Math.max(16, height * 13 / 100);
+        this.priceY = margin + 2 * nameHeight + margin / 2;
+        this.priceHeight = Math.max(20, height * 16 / 100);
+        this.barcodeY = priceY + priceHeight + margin / 2;
+        // Leave room under the bars for the human-readable digits.
+        this.barcodeHeight = Math.max(30, height - barcodeY - margin - nameHeight);
+        // EAN-13 is 95 modules plus quiet zones; the widest module that still fits.
+        this.module = Math.max(1, Math.min(4, (width - 2 * margin) / 113));
+        if (format == LabelPrintFormat.ZPL) {
+            this.nameMaxChars = 80;
+            this.header = "^XA\n^CI28\n^PW" + width + "\n^LL" + height + "\n^LH0,0\n";
+        } else {
+            // EPL font 3 is 12 × 20 dots plus 2 dots of spacing at 203 dpi.
+            this.nameMaxChars = Math.max(8, (width - 2 * margin) / 14);
+            this.header = "\nN\nI8,A,001\nq" + width + "\nQ" + height + ",24\n";
+        }
+    }
+
+    public static LabelTemplate of(LabelPrintFormat format, double widthMm, double heightMm, int dpi) {
+        return new LabelTemplate(format, widthMm, heightMm, dpi);
+    }
+
+    public LabelPrintFormat format() {
+        return format;
+    }
+
+    /** ZPL is sent as UTF-8 ({@code ^CI28}); EPL uses the Latin-1 code page ({@code I8,A}). */
+    public Charset charset() {
+        return format == LabelPrintFormat.ZPL ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+    }
+
+    public String fileExtension() {
+        return format == LabelPrintFormat.ZPL ? "zpl" : "epl";
+    }
+
+    /** Commands for {@code copies} copies of one label. */
+    public byte[] render(Item item, int copies) {
+        String text = format == LabelPrintFormat.ZPL ? zpl(item, copies) : epl(item, copies);
+        return text.getBytes(charset());
+    }
+
+    // ── ZPL II ─────────────────────────────────────────────────────────────────
+
+    private String zpl(Item item, int copies) {
+        StringBuilder sb = new StringBuilder(header.length() + 256).append(header);
+        sb.append("^FO").append(margin).append(',').append(margin)
+          .append("^A0N,").append(nameHeight).append(',').append(nameHeight)
+          .append("^FB").append(width - 2 * margin).append(",2,0,L")
+          .append("^FH\\^FD").append(zplField(truncate(item.name(), nameMaxChars))).append("^FS\n");
+        if (item.price() != null) {
+            sb.append("^FO").append(margin).append(',').append(priceY)
+              .append("^A0N,").append(priceHeight).append(',').append(priceHeight)
+              .append("^FD").append(price(item.price())).append("^FS\n");
+        }
+        String data = item.barcode();
+        sb.append("^FO").append(margin).append(',').append(barcodeY).append("^BY").append(module);
+        switch (symbology(data)) {
+            case EAN13 -> sb.append("^BEN,").append(barcodeHeight).append(",Y,N^FD").append(data, 0, 12);
+            case EAN8  -> sb.append("^B8N,").append(barcodeHeight).append(",Y,N^FD").append(data, 0, 7);
+            case UPCA  -> sb.append("^BUN,").append(barcodeHeight).append(",Y,N,Y^FD").append(data, 0, 11);
+            case CODE128 -> sb.append("^BCN,").append(barcodeHeight).append(",Y,N,N^FH\\^FD").append(zplField(data));
+        }
+        sb.append("^FS\n");
+        if (copies > 1) sb.append("^PQ").append(copies).append('\n');
+        return sb.append("^XZ\n").toString();
+    }
+
+    /** Hex-escapes the characters ZPL would read as commands or as the {@code ^FH} indicator. */
+    private static String zplField(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '^' -> sb.append("\\5E");
+                case '~' -> sb.append("\\7E");
+                case '\\' -> sb.append("\\5C");
+                default -> sb.append(c < ' ' ? ' ' : c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // ── EPL2 ───────────────────────────────────────────────────────────────────
+
+    private String epl(Item item, int copies) {
+        StringBuilder sb = new StringBuilder(header.length() + 192).append(header);
+        sb.append('A').append(margin).append(',').append(margin).append(",0,3,1,1,N,\"")
+          .append(eplField(truncate(item.name(), nameMaxChars))).append("\"\n");
+        if (item.price() != null) {
+            sb.append('A').append(margin).append(',').append(priceY).append(",0,4,1,1,N,\"")
+              .append(price(item.price())).append("\"\n");
+        }
+        String data = item.barcode();
+        sb.append('B').append(margin).append(',').append(barcodeY).append(",0,");
+        switch (symbology(data)) {
+            case EAN13 -> sb.append("E30,").append(module).append(',').append(module * 2).append(',')
+                            .append(barcodeHeight).append(",B,\"").append(data, 0, 12);
+            case EAN8  -> sb.append("E80,").append(module).append(',').append(module * 2).append(',')
+                            .append(barcodeHeight).append(",B,\"").append(data, 0, 7);
+            case UPCA  -> sb.append("UA0,").append(module).append(',').append(module * 2).append(',')
+                            .append(barcodeHeight).append(",B,\"").append(data, 0, 11);
+            case CODE128 -> sb.append("1,").append(module).append(',').append(module * 2).append(',')
+                            .append(barcodeHeight).append(",B,\"").append(eplField(data));
+        }
+        sb.append("\"\n");
+        return sb.append('P').append(copies).append('\n').toString();
+    }
+
+    private static String eplField(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\');
+            sb.append(c < ' ' ? ' ' : c);
+        }
+        return sb.toString();
+    }
+
+    // ── Shared ─────────────────────────────────────────────────────────────────
+
+    private static Symbology symbology(String data) {
+        if (!data.chars().allMatch(c -> c >= '0' && c <= '9') || !hasValidCheckDigit(data)) return Symbology.CODE128;
+        return switch (data.length()) {
+            case 13 -> Symbology.EAN13;
+            case 8  -> Symbology.EAN8;
+            case 12 -> Symbology.UPCA;
+            default -> Symbology.CODE128;
+        };
+    }
+
+    /** GS1 mod-10 check: data digits weighted 3, 1, 3, … from the right. */
+    static boolean hasValidCheckDigit(String digits) {
+        if (digits.length() < 2) return false;
+        int sum = 0;
+        int last = digits.length() - 1;
+        for (int i = last - 1, w = 3; i >= 0; i--, w = 4 - w) {
+            sum += (digits.charAt(i) - '0') * w;
+        }
+        return (10 - sum % 10) % 10 == digits.charAt(last) - '0';
+    }
+
+    private static String price(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static String truncate(String s, int max) {
+        if (s == null) return "";
+        return s.length() <= max ? s : s.substring(0, max - 3) + "...";
+    }
+
+    private static int dots(double mm, int dpi) {
+        return (int) Math.round(mm / 25.4 * dpi);
+    }
+}
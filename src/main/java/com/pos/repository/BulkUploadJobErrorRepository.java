@@ -0,0 +1,17 @@
+package com.pos.repository;
+
+import com.pos.entity.BulkUploadJobError;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface BulkUploadJobErrorRepository extends JpaRepository<BulkUploadJobError, Long> {
+
+    List<BulkUploadJobError> findByJobIdOrderByRowNumAscIdAsc(Long jobId, Pageable pageable);
+
+    @Query("SELECT e.rowNum FROM BulkUploadJobError e WHERE e.job.id = :jobId")
+    List<Integer> findRowNumsByJobId(@Param("jobId") Long jobId);
+}
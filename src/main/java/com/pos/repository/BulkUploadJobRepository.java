@@ -0,0 +1,44 @@
+package com.pos.repository;
+
+import com.pos.entity.BulkUploadJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BulkUploadJobRepository extends JpaRepository<BulkUploadJob, Long> {
+
+    /** Queued jobs, and running jobs whose worker stopped sending heartbeats (e.g. a restart). */
+    @Query("SELECT j.id FROM BulkUploadJob j WHERE j.status = com.pos.enums.BulkUploadJobStatus.QUEUED " +
+           "OR (j.status = com.pos.enums.BulkUploadJobStatus.RUNNING AND j.heartbeatAt < :staleBefore) " +
+           "ORDER BY j.id")
+    List<Long> findRunnableIds(@Param("staleBefore") LocalDateTime staleBefore, Pageable pageable);
+
+    /** Claims a runnable job for this worker; returns 0 when another worker got there first. */
+    @Modifying
+    @Query("UPDATE BulkUploadJob j SET j.status = com.pos.enums.BulkUploadJobStatus.RUNNING, " +
+           "j.startedAt = :now, j.heartbeatAt = :now, j.resumedFromRow = j.lastCommittedRow, " +
+           "j.attempts = j.attempts + 1 " +
+           "WHERE j.id = :id AND (j.status = com.pos.enums.BulkUploadJobStatus.QUEUED " +
+           "OR (j.status = com.pos.enums.BulkUploadJobStatus.RUNNING AND j.heartbeatAt < :staleBefore))")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    /** Refreshes a running job's heartbeat; called by the worker's timer while the import runs. */
+    @Modifying
+    @Query("UPDATE BulkUploadJob j SET j.heartbeatAt = :now " +
+           "WHERE j.id = :id AND j.status = com.pos.enums.BulkUploadJobStatus.RUNNING")
+    int heartbeat(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /** Records a committed chunk; runs inside that chunk's transaction. */
+    @Modifying
+    @Query("UPDATE BulkUploadJob j SET j.lastCommittedRow = :throughRow, j.rowsProcessed = :rowsProcessed, " +
+           "j.createdCount = j.createdCount + :created, j.updatedCount = j.updatedCount + :updated, " +
+           "j.errorCount = j.errorCount + :errors, j.heartbeatAt = :now WHERE j.id = :id")
+    int recordChunk(@Param("id") Long id, @Param("throughRow") int throughRow, @Param("rowsProcessed") int rowsProcessed,
+                    @Param("created") int created, @Param("updated") int updated, @Param("errors") int errors,
+                    @Param("now") LocalDateTime now);
+}
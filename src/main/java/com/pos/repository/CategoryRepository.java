@@ -2,10 +2,18 @@ package com.pos.repository;
 
 import com.pos.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByName(String name);
+    List<Category> findByNameIn(Collection<String> names);
     boolean existsByName(String name);
+
+    @Query("SELECT MAX(c.updatedAt) FROM Category c")
+    LocalDateTime findMaxUpdatedAt();
 }
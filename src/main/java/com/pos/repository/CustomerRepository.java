@@ -1,12 +1,17 @@
 package com.pos.repository;
 
 import com.pos.entity.Customer;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
@@ -14,9 +19,34 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByMemberCardBarcode(String memberCardBarcode);
     boolean existsByEmail(String email);
 
+    @Query("SELECT c.memberCardBarcode, c.id FROM Customer c WHERE c.memberCardBarcode IS NOT NULL")
+    List<Object[]> findMemberCardBarcodes();
+
     @Query("SELECT c FROM Customer c WHERE " +
            "LOWER(c.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
            "LOWER(c.email) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
            "c.phone LIKE CONCAT('%', :query, '%')")
     Page<Customer> search(@Param("query") String query, Pageable pageable);
+
+    // ── Search index loading: [id, name, email, phone] ──────────────────────────
+    @Query("SELECT c.id, c.name, c.email, c.phone FROM Customer c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findSearchFieldsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT c.id, c.name, c.email, c.phone FROM Customer c WHERE c.id IN :ids")
+    List<Object[]> findSearchFieldsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Customer c SET c.rewardPoints = COALESCE(c.rewardPoints, 0) + :points, " +
+           "c.updatedAt = CURRENT_TIMESTAMP WHERE c.id = :id")
+    int addRewardPoints(@Param("id") Long id, @Param("points") int points);
+
+    /** Deducts points only if the snapshot covers them; returns 0 when it does not. */
+    @Modifying
+    @Query("UPDATE Customer c SET c.rewardPoints = c.rewardPoints - :points, " +
+           "c.updatedAt = CURRENT_TIMESTAMP WHERE c.id = :id AND c.rewardPoints >= :points")
+    int deductRewardPoints(@Param("id") Long id, @Param("points") int points);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.id = :id")
+    Optional<Customer> findByIdForUpdate(@Param("id") Long id);
 }
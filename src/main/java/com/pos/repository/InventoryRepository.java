@@ -4,30 +4,72 @@ import com.pos.entity.Inventory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     Optional<Inventory> findByProductId(Long productId);
 
+    @Query("SELECT i FROM Inventory i WHERE i.product.id IN :productIds")
+    List<Inventory> findByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Reserves stock in a single conditional UPDATE so concurrent tills cannot oversell.
+     * Returns 0 when the product has no inventory row or fewer than {@code quantity} units left.
+     */
+    @Modifying
+    @Query("UPDATE Inventory i SET i.quantity = i.quantity - :quantity, i.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE i.product.id = :productId AND i.quantity >= :quantity")
+    int decrementStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Inventory i SET i.quantity = i.quantity + :quantity, i.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE i.product.id = :productId")
+    int incrementStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
     @Query(value = "SELECT i FROM Inventory i JOIN FETCH i.product", countQuery = "SELECT COUNT(i) FROM Inventory i")
     Page<Inventory> findAllWithProduct(Pageable pageable);
 
+    /** Barcode index reconciliation: [product id, quantity] of rows changed in {@code (since, until]}. */
+    @Query("SELECT i.product.id, i.quantity FROM Inventory i WHERE i.updatedAt > :since AND i.updatedAt <= :until")
+    List<Object[]> findQuantitiesUpdatedBetween(@Param("since") LocalDateTime since, @Param("until") LocalDateTime until);
+
+    /** Delta sync: products whose stock changed in {@code (since, until]}, keyset-paged by product id. */
+    @Query("SELECT i.product.id FROM Inventory i WHERE i.updatedAt > :since AND i.updatedAt <= :until " +
+           "AND i.product.id > :afterId ORDER BY i.product.id")
+    List<Long> findProductIdsUpdatedBetween(@Param("since") LocalDateTime since, @Param("until") LocalDateTime until,
+                                            @Param("afterId") Long afterId, Pageable pageable);
+
     @Query("SELECT i FROM Inventory i WHERE i.quantity <= i.lowStockThreshold")
     List<Inventory> findLowStockItems();
 
-    @Query("SELECT i FROM Inventory i WHERE i.quantity = 0")
+    @Query("SELECT i FROM Inventory i JOIN FETCH i.product WHERE i.product.id IN :productIds")
+    List<Inventory> findWithProductByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    // ── Stock status index: [product id, quantity, low-stock threshold] ────────
+    @Query("SELECT i.product.id, i.quantity, i.lowStockThreshold FROM Inventory i " +
+           "WHERE i.product.id > :afterId ORDER BY i.product.id")
+    List<Object[]> findLevelsAfterProductId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT i.product.id, i.quantity, i.lowStockThreshold FROM Inventory i WHERE i.product.id IN :productIds")
+    List<Object[]> findLevelsByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT i FROM Inventory i WHERE i.quantity <= 0")
     List<Inventory> findOutOfStockItems();
 
-    // ── Stats ──────────────────────────────────────────────────────────────────
-    @Query("SELECT COUNT(i) FROM Inventory i WHERE i.quantity > i.lowStockThreshold")
+    // ── Stats: out is quantity <= 0, low is 1..threshold, in stock is above both ──
+    @Query("SELECT COUNT(i) FROM Inventory i WHERE i.quantity > 0 AND i.quantity > i.lowStockThreshold")
     long countInStock();
 
     @Query("SELECT COUNT(i) FROM Inventory i WHERE i.quantity > 0 AND i.quantity <= i.lowStockThreshold")
     long countLowStock();
 
-    @Query("SELECT COUNT(i) FROM Inventory i WHERE i.quantity = 0")
+    @Query("SELECT COUNT(i) FROM Inventory i WHERE i.quantity <= 0")
     long countOutOfStock();
 }
@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface LabelRepository extends JpaRepository<Label, Long> {
@@ -17,12 +19,45 @@ public interface LabelRepository extends JpaRepository<Label, Long> {
 
     boolean existsByBarcodeAndIdNot(String barcode, Long id);
 
+    @Query("SELECT l.barcode FROM Label l WHERE l.barcode IN :barcodes")
+    List<String> findBarcodesByBarcodeIn(@Param("barcodes") Collection<String> barcodes);
+
+    /** Rows: [id, name, barcode, sku, price] for label printing. */
+    @Query("SELECT l.id, l.name, l.barcode, l.sku, l.price FROM Label l WHERE l.id IN :ids")
+    List<Object[]> findPrintRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** Rows: [id, barcode], keyset-paged by id for the barcode filter. */
+    @Query("SELECT l.id, l.barcode FROM Label l WHERE l.id > :afterId ORDER BY l.id")
+    List<Object[]> findBarcodesAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // ── Barcode index: [label id, barcode, product id] of linked labels ────────
+    @Query("SELECT l.id, l.barcode, l.product.id FROM Label l WHERE l.product IS NOT NULL")
+    List<Object[]> findLinkedBarcodes();
+
+    @Query("SELECT l.id, l.barcode, l.product.id FROM Label l WHERE l.product.id IN :productIds")
+    List<Object[]> findLinkedBarcodesByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT l.product.id FROM Label l WHERE l.id IN :ids AND l.product IS NOT NULL")
+    List<Long> findLinkedProductIdsByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT l FROM Label l WHERE l.product IS NULL AND " +
            "(LOWER(l.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
            "LOWER(l.barcode) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
            "LOWER(COALESCE(l.sku, '')) LIKE LOWER(CONCAT('%', :query, '%')))")
     Page<Label> searchUnlinked(@Param("query") String query, Pageable pageable);
 
+    @Query("SELECT l FROM Label l LEFT JOIN FETCH l.category WHERE l.id IN :ids")
+    List<Label> findWithCategoryByIdIn(@Param("ids") Collection<Long> ids);
+
+    // ── Search index loading: [id, name, barcode, sku, categoryId, productId] ──
+    @Query("SELECT l.id, l.name, l.barcode, l.sku, c.id, p.id FROM Label l " +
+           "LEFT JOIN l.category c LEFT JOIN l.product p WHERE l.id > :afterId ORDER BY l.id")
+    List<Object[]> findSearchFieldsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT l.id, l.name, l.barcode, l.sku, c.id, p.id FROM Label l " +
+           "LEFT JOIN l.category c LEFT JOIN l.product p WHERE l.id IN :ids")
+    List<Object[]> findSearchFieldsByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT l FROM Label l WHERE l.product IS NULL")
     Page<Label> findAllUnlinked(Pageable pageable);
 
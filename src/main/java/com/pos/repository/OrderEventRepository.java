@@ -0,0 +1,24 @@
+package com.pos.repository;
+
+import com.pos.entity.OrderEvent;
+import com.pos.enums.OrderEventStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+
+    @Query("SELECT e.id FROM OrderEvent e WHERE e.status = :status ORDER BY e.id")
+    List<Long> findIdsByStatus(@Param("status") OrderEventStatus status, Pageable pageable);
+
+    /** Claims a pending event; returns 0 when another dispatcher already handled it. */
+    @Modifying
+    @Query("UPDATE OrderEvent e SET e.status = com.pos.enums.OrderEventStatus.PROCESSED, " +
+           "e.processedAt = CURRENT_TIMESTAMP " +
+           "WHERE e.id = :id AND e.status = com.pos.enums.OrderEventStatus.PENDING")
+    int markProcessed(@Param("id") Long id);
+}
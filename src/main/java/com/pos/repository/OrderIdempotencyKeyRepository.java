@@ -0,0 +1,22 @@
+package com.pos.repository;
+
+import com.pos.entity.OrderIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderIdempotencyKeyRepository extends JpaRepository<OrderIdempotencyKey, Long> {
+
+    /** Order id and request hash for a cashier's key whose order has been committed. */
+    @Query("SELECT k.order.id, k.requestHash FROM OrderIdempotencyKey k " +
+           "WHERE k.username = :username AND k.idempotencyKey = :key AND k.order IS NOT NULL")
+    List<Object[]> findCompleted(@Param("username") String username, @Param("key") String key);
+
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
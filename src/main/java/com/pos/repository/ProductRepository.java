@@ -1,14 +1,21 @@
 package com.pos.repository;
 
 import com.pos.entity.Product;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
@@ -18,16 +25,82 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findBySku(String sku);
     boolean existsBySku(String sku);
     boolean existsByBarcode(String barcode);
+    List<Product> findBySkuIn(Collection<String> skus);
+
+    /** Rows: [barcode, product id]. */
+    @Query("SELECT p.barcode, p.id FROM Product p WHERE p.barcode IN :barcodes")
+    List<Object[]> findIdsByBarcodeIn(@Param("barcodes") Collection<String> barcodes);
 
-    @Query("SELECT p FROM Product p WHERE p.active = true AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(p.sku) LIKE LOWER(CONCAT('%', :query, '%')))")
-    Page<Product> searchActive(@Param("query") String query, Pageable pageable);
+    /** Rows: [id, name, barcode, sku, price] for label printing. */
+    @Query("SELECT p.id, p.name, p.barcode, p.sku, p.price FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findPrintRowsByIdIn(@Param("ids") Collection<Long> ids);
 
-    Page<Product> findByActiveTrue(Pageable pageable);
-    Page<Product> findByCategoryIdAndActiveTrue(Long categoryId, Pageable pageable);
+    /** Rows: [id, barcode], keyset-paged by id for the barcode filter. */
+    @Query("SELECT p.id, p.barcode FROM Product p WHERE p.id > :afterId AND p.barcode IS NOT NULL ORDER BY p.id")
+    List<Object[]> findBarcodesAfterId(@Param("afterId") Long afterId, Pageable pageable);
     List<Product> findByCategoryId(Long categoryId);
 
+    // ── Listing projections: [Product (category fetched), Integer stock quantity] ──
+    @Query(value = "SELECT p, COALESCE(i.quantity, 0) FROM Product p LEFT JOIN FETCH p.category " +
+                   "LEFT JOIN Inventory i ON i.product = p WHERE p.active = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true")
+    Page<Object[]> findActiveWithStock(Pageable pageable);
+
+    @Query(value = "SELECT p, COALESCE(i.quantity, 0) FROM Product p LEFT JOIN FETCH p.category " +
+                   "LEFT JOIN Inventory i ON i.product = p WHERE p.active = true AND p.category.id = :categoryId",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND p.category.id = :categoryId")
+    Page<Object[]> findActiveWithStockByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    @Query(value = "SELECT p, COALESCE(i.quantity, 0) FROM Product p LEFT JOIN FETCH p.category " +
+                   "LEFT JOIN Inventory i ON i.product = p WHERE p.active = true AND " +
+                   "(LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+                   "LOWER(p.sku) LIKE LOWER(CONCAT('%', :query, '%')))",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND " +
+                        "(LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+                        "LOWER(p.sku) LIKE LOWER(CONCAT('%', :query, '%')))")
+    Page<Object[]> searchActiveWithStock(@Param("query") String query, Pageable pageable);
+
+    @Query("SELECT p, COALESCE(i.quantity, 0) FROM Product p LEFT JOIN FETCH p.category " +
+           "LEFT JOIN Inventory i ON i.product = p WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findWithStockAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p, COALESCE(i.quantity, 0) FROM Product p LEFT JOIN FETCH p.category " +
+           "LEFT JOIN Inventory i ON i.product = p WHERE p.id IN :ids")
+    List<Object[]> findWithStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    // ── Search index loading: [id, name, sku, active, barcode, price] ──────────
+    @Query("SELECT p.id, p.name, p.sku, p.active, p.barcode, p.price FROM Product p " +
+           "WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findSearchFieldsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id, p.name, p.sku, p.active, p.barcode, p.price FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findSearchFieldsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // ── Delta sync: ids changed in (since, until], keyset-paged by id ─────────
+    @Query("SELECT p.id FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p WHERE p.updatedAt > :since AND p.updatedAt <= :until AND p.id > :afterId " +
+           "ORDER BY p.id")
+    List<Long> findIdsUpdatedBetween(@Param("since") LocalDateTime since, @Param("until") LocalDateTime until,
+                                     @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p JOIN p.category c WHERE c.updatedAt > :since AND c.updatedAt <= :until " +
+           "AND p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsWithCategoryUpdatedBetween(@Param("since") LocalDateTime since, @Param("until") LocalDateTime until,
+                                                 @Param("afterId") Long afterId, Pageable pageable);
+
+    // ── Catalogue snapshot: streamed scalar rows, no entities in the persistence context ──
+    // [id, name, sku, barcode, size, color, price, categoryId, categoryName, imageUrl, quantity, updatedAt]
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.id, p.name, p.sku, p.barcode, p.size, p.color, p.price, c.id, c.name, p.imageUrl, " +
+           "COALESCE(i.quantity, 0), p.updatedAt FROM Product p LEFT JOIN p.category c " +
+           "LEFT JOIN Inventory i ON i.product = p WHERE p.active = true ORDER BY p.id")
+    Stream<Object[]> streamActiveCatalog();
+
+    @Query("SELECT MAX(p.updatedAt) FROM Product p")
+    LocalDateTime findMaxUpdatedAt();
+
     // ── Stats ──────────────────────────────────────────────────────────────────
     long countByActiveTrue();
     long countByActiveFalse();
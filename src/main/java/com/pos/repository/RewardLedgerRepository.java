@@ -0,0 +1,34 @@
+package com.pos.repository;
+
+import com.pos.entity.RewardLedgerEntry;
+import com.pos.enums.RewardReason;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RewardLedgerRepository extends JpaRepository<RewardLedgerEntry, Long> {
+
+    boolean existsByOrderIdAndReason(Long orderId, RewardReason reason);
+
+    List<RewardLedgerEntry> findByCustomerIdAndCompactedFalse(Long customerId);
+
+    @Query("SELECT COALESCE(SUM(e.delta), 0) FROM RewardLedgerEntry e " +
+           "WHERE e.customer.id = :customerId AND e.compacted = false")
+    Long sumPending(@Param("customerId") Long customerId);
+
+    @Query("SELECT e.customer.id, SUM(e.delta) FROM RewardLedgerEntry e " +
+           "WHERE e.compacted = false AND e.customer.id IN :customerIds GROUP BY e.customer.id")
+    List<Object[]> sumPendingByCustomerIds(@Param("customerIds") Collection<Long> customerIds);
+
+    @Query("SELECT DISTINCT e.customer.id FROM RewardLedgerEntry e WHERE e.compacted = false")
+    List<Long> findCustomerIdsWithPending(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE RewardLedgerEntry e SET e.compacted = true WHERE e.id IN :ids")
+    int markCompacted(@Param("ids") Collection<Long> ids);
+}
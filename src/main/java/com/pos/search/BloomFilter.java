@@ -0,0 +1,177 @@
+package com.pos.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over strings for "definitely absent" answers without touching the database.
+ * <p>
+ * Sized from the expected number of entries and a target false-positive rate; each key sets
+ * {@code k} bits chosen by double hashing two halves of a 128-bit MurmurHash3 of its UTF-8 bytes.
+ * {@link #mightContain} never gives a false negative, and a false positive only costs the caller
+ * the query it would have run anyway. Entries cannot be removed, so owners rebuild the filter from
+ * the source of truth to shed deleted keys.
+ * <p>
+ * Adds and lookups are lock-free ({@link AtomicLongArray} compare-and-set), so a filter can be read
+ * and written concurrently.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong setBits = new AtomicLong();
+    private final AtomicLong entries = new AtomicLong();
+
+    private BloomFilter(long bitCount, int hashCount) {
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bitCount + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount << 6;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Filter holding about {@code expectedEntries} keys at {@code falsePositiveRate}: the optimal
+     * {@code m = -n ln p / (ln 2)^2} bits and {@code k = (m / n) ln 2} hash functions.
+     */
+    public static BloomFilter create(long expectedEntries, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long n = Math.max(1, expectedEntries);
+        long m = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new BloomFilter(m, k);
+    }
+
+    public void add(String key) {
+        long[] h = hash(key);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            changed |= setBit(index(h, i));
+        }
+        if (changed) entries.incrementAndGet();
+    }
+
+    /** False only when {@code key} was certainly never added. */
+    public boolean mightContain(String key) {
+        long[] h = hash(key);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** Keys added that set at least one new bit — a close lower bound on distinct keys. */
+    public long entries() {
+        return entries.get();
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public long sizeBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /** Current false-positive probability from the fill ratio: {@code (setBits / m)^k}. */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) setBits.get() / bitCount, hashCount);
+    }
+
+    private long index(long[] h, int i) {
+        long combined = h[0] + i * h[1];
+        return (combined & Long.MAX_VALUE) % bitCount;
+    }
+
+    private boolean setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0) return false;
+            if (words.compareAndSet(word, current, current | mask)) {
+                setBits.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    // ── MurmurHash3 x64 128-bit ────────────────────────────────────────────────
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    static long[] hash(String key) {
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        int length = data.length;
+        int blocks = length >>> 4;
+        long h1 = 0;
+        long h2 = 0;
+
+        for (int b = 0; b < blocks; b++) {
+            long k1 = littleEndianLong(data, b << 4);
+            long k2 = littleEndianLong(data, (b << 4) + 8);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks << 4;
+        for (int i = length - 1; i >= tail; i--) {
+            int shift = ((i - tail) & 7) << 3;
+            if (i - tail >= 8) {
+                k2 |= (data[i] & 0xffL) << shift;
+            } else {
+                k1 |= (data[i] & 0xffL) << shift;
+            }
+        }
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long mixK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long littleEndianLong(byte[] data, int offset) {
+        long v = 0;
+        for (int i = 7; i >= 0; i--) v = (v << 8) | (data[offset + i] & 0xffL);
+        return v;
+    }
+}
@@ -0,0 +1,180 @@
+package com.pos.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The live generation of an in-memory index over database rows keyed by id. Committed changes are
+ * applied to the live generation in place; a rebuild loads a fresh generation and swaps it in.
+ * <p>
+ * A rebuild can read past a row before a concurrent change to it commits, so ids changed while a
+ * rebuild is running are recorded and re-read into the new generation once it is live. Changes hold
+ * a shared lock and the swap an exclusive one: a change either completes against the old generation
+ * with its ids already recorded, or starts against the new one — none lands in a discarded
+ * generation unnoticed. In-memory deltas ({@link #adjust}) are turned into re-reads while a rebuild
+ * is running, since the generation being loaded may or may not include them.
+ * <p>
+ * Rebuilds asked for by large changes run on one background thread per index, so a bulk commit does
+ * not reload whole tables on the thread that committed it. Requests made while one is already
+ * queued are coalesced.
+ *
+ * @param <G> one generation of the index
+ */
+@Slf4j
+public final class LiveIndex<G> {
+
+    private final String name;
+    private final Supplier<G> loader;
+    private final BiConsumer<G, Collection<Long>> refresher;
+
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    /** Ids changed while a rebuild was reading; re-read into the new generation once it is live. */
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private final ExecutorService rebuilder;
+
+    private volatile G current;
+
+    /**
+     * @param name      used in log lines and the rebuild thread's name
+     * @param initial   the generation served before the first rebuild; {@code null} for none
+     * @param loader    reads every row into a fresh generation
+     * @param refresher re-reads the given ids into a generation, dropping those that no longer exist
+     */
+    public LiveIndex(String name, G initial, Supplier<G> loader, BiConsumer<G, Collection<Long>> refresher) {
+        this.name      = name;
+        this.current   = initial;
+        this.loader    = loader;
+        this.refresher = refresher;
+        this.rebuilder = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name.toLowerCase().replace(' ', '-') + "-rebuild");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** The live generation, or {@code null} before the first rebuild when there was no initial one. */
+    public G current() {
+        return current;
+    }
+
+    /** Re-reads the given ids into the live generation. */
+    public void refresh(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        update(ids, generation -> refresher.accept(generation, ids));
+    }
+
+    /** Applies a change to the given ids to the live generation, if there is one yet. */
+    public void update(Collection<Long> ids, Consumer<G> change) {
+        if (ids.isEmpty()) return;
+        swapLock.readLock().lock();
+        try {
+            if (rebuilding.get()) {
+                synchronized (changedDuringRebuild) {
+                    changedDuringRebuild.addAll(ids);
+                }
+            }
+            G generation = current;
+            if (generation != null) change.accept(generation);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies an in-memory delta to the given ids. The delta returns the ids it could not apply —
+     * rows the generation does not hold yet — which are re-read instead. During a rebuild the whole
+     * change is re-read, so the replay does not count a delta the new generation already loaded.
+     */
+    public void adjust(Collection<Long> ids, Function<G, Collection<Long>> delta) {
+        if (ids.isEmpty()) return;
+        if (rebuilding.get()) {
+            refresh(ids);
+            return;
+        }
+        Set<Long> missed = new HashSet<>();
+        update(ids, generation -> missed.addAll(delta.apply(generation)));
+        refresh(missed);
+    }
+
+    /** Re-reads the given ids, or rebuilds in the background when there are more than {@code threshold}. */
+    public void changed(Collection<Long> ids, int threshold) {
+        if (ids.size() > threshold) {
+            log.info("Change touched {} rows — rebuilding {} in the background", ids.size(), name);
+            rebuildInBackground();
+        } else {
+            refresh(ids);
+        }
+    }
+
+    /**
+     * Loads a fresh generation, swaps it in and re-reads whatever changed meanwhile. Returns the new
+     * generation, or {@code null} when a rebuild was already running or the load failed — the
+     * previous generation is kept in that case.
+     */
+    public G rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return null;
+        G next;
+        Set<Long> replay;
+        try {
+            next = loader.get();
+        } catch (RuntimeException ex) {
+            log.warn("{} rebuild failed, keeping previous index: {}", name, ex.getMessage());
+            swapLock.writeLock().lock();
+            try {
+                rebuilding.set(false);
+                synchronized (changedDuringRebuild) {
+                    changedDuringRebuild.clear();
+                }
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            return null;
+        }
+        swapLock.writeLock().lock();
+        try {
+            current = next;
+            rebuilding.set(false);
+            synchronized (changedDuringRebuild) {
+                replay = new HashSet<>(changedDuringRebuild);
+                changedDuringRebuild.clear();
+            }
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        refresh(replay);
+        return next;
+    }
+
+    /** Queues a rebuild on this index's background thread unless one is already waiting. */
+    public void rebuildInBackground() {
+        if (!rebuildQueued.compareAndSet(false, true)) return;
+        try {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        } catch (RejectedExecutionException ex) {
+            rebuildQueued.set(false);
+            log.debug("{} rebuild not queued — shutting down", name);
+        }
+    }
+
+    /** Stops the background rebuild thread; called when the owning bean is destroyed. */
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+}
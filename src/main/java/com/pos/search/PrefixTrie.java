@@ -0,0 +1,327 @@
+package com.pos.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed (radix) prefix trie mapping normalised keys to document ids, for type-ahead.
+ * <p>
+ * Each edge carries a run of characters, so chains of single-child nodes collapse into one node.
+ * {@link #complete} walks to the node covering the prefix and then expands its subtree best-first by
+ * key length, stopping as soon as {@code limit} distinct ids are found — shorter (closer) completions
+ * come first and the cost is bounded by the result size rather than the subtree size.
+ * <p>
+ * Keys are normalised as in {@link TrigramIndex}; a document may have several keys (e.g. every word
+ * suffix of its name, its SKU and its barcode). Reads take a shared lock and writes an exclusive one.
+ */
+public final class PrefixTrie {
+
+    /** Rough per-object sizes (compressed oops) used by {@link #estimatedBytes()}. */
+    private static final int OBJECT_HEADER = 16;
+    private static final int ARRAY_HEADER  = 16;
+    private static final int REFERENCE     = 4;
+
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final long[] NO_IDS   = new long[0];
+
+    private static final class Node {
+        /** Characters on the edge leading into this node. */
+        char[] label;
+        /** First character of each child's label, sorted; parallel to {@link #children}. */
+        char[] firstChars = NO_CHARS;
+        Node[] children = NO_NODES;
+        /** Ids whose key ends exactly here, sorted. */
+        long[] ids = NO_IDS;
+
+        Node(char[] label) {
+            this.label = label;
+        }
+
+        int childIndex(char c) {
+            return Arrays.binarySearch(firstChars, c);
+        }
+
+        void addChild(Node child) {
+            int at = -childIndex(child.label[0]) - 1;
+            firstChars = insert(firstChars, at, child.label[0]);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = child;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+        }
+
+        void removeChild(int at) {
+            char[] chars = new char[firstChars.length - 1];
+            System.arraycopy(firstChars, 0, chars, 0, at);
+            System.arraycopy(firstChars, at + 1, chars, at, chars.length - at);
+            firstChars = chars;
+            Node[] nodes = new Node[children.length - 1];
+            System.arraycopy(children, 0, nodes, 0, at);
+            System.arraycopy(children, at + 1, nodes, at, nodes.length - at);
+            children = nodes;
+        }
+    }
+
+    /** A node reached during completion, with the length of the key spelled out to get there. */
+    private record Frontier(Node node, int depth) {}
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node(NO_CHARS);
+    private final Map<Long, Set<String>> keysById = new HashMap<>();
+    private int keyCount;
+    private int nodeCount = 1;
+
+    // ── Writes ─────────────────────────────────────────────────────────────────
+
+    /** Replaces the keys of {@code id}; blank keys are ignored. */
+    public void put(long id, Iterable<String> keys) {
+        Set<String> normalised = new LinkedHashSet<>();
+        for (String key : keys) {
+            String n = TrigramIndex.normalise(key);
+            if (!n.isEmpty()) normalised.add(n);
+        }
+        lock.writeLock().lock();
+        try {
+            Set<String> previous = keysById.remove(id);
+            if (previous != null) previous.forEach(key -> delete(key, id));
+            if (normalised.isEmpty()) return;
+            normalised.forEach(key -> insert(key, id));
+            keysById.put(id, normalised);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Set<String> previous = keysById.remove(id);
+            if (previous != null) previous.forEach(key -> delete(key, id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(String key, long id) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int at = node.childIndex(key.charAt(i));
+            if (at < 0) {
+                node.addChild(leaf(key.substring(i).toCharArray(), id));
+                return;
+            }
+            Node child = node.children[at];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length) {
+                split(node, at, common);
+                child = node.children[at];
+            }
+            node = child;
+            i += common;
+        }
+        addId(node, id);
+    }
+
+    private void delete(String key, long id) {
+        List<Node> path = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int at = node.childIndex(key.charAt(i));
+            if (at < 0) return;
+            Node child = node.children[at];
+            if (commonPrefix(child.label, key, i) < child.label.length) return;
+            path.add(node);
+            slots.add(at);
+            node = child;
+            i += child.label.length;
+        }
+        int found = Arrays.binarySearch(node.ids, id);
+        if (found < 0) return;
+        node.ids = removeAt(node.ids, found);
+        keyCount--;
+
+        // Prune empty leaves and re-merge pass-through nodes on the way back up.
+        for (int level = path.size() - 1; level >= 0; level--) {
+            Node parent = path.get(level);
+            int at = slots.get(level);
+            Node current = parent.children[at];
+            if (current.ids.length == 0 && current.children.length == 0) {
+                parent.removeChild(at);
+                nodeCount--;
+            } else if (current.ids.length == 0 && current.children.length == 1) {
+                Node only = current.children[0];
+                only.label = concat(current.label, only.label);
+                parent.children[at] = only;
+                nodeCount--;
+                break;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private Node leaf(char[] label, long id) {
+        Node leaf = new Node(label);
+        leaf.ids = new long[]{id};
+        nodeCount++;
+        keyCount++;
+        return leaf;
+    }
+
+    /** Splits {@code parent.children[at]} after {@code length} label characters. */
+    private void split(Node parent, int at, int length) {
+        Node child = parent.children[at];
+        Node middle = new Node(Arrays.copyOf(child.label, length));
+        child.label = Arrays.copyOfRange(child.label, length, child.label.length);
+        middle.firstChars = new char[]{child.label[0]};
+        middle.children = new Node[]{child};
+        parent.children[at] = middle;
+        nodeCount++;
+    }
+
+    private void addId(Node node, long id) {
+        int at = Arrays.binarySearch(node.ids, id);
+        if (at >= 0) return;
+        at = -at - 1;
+        long[] grown = new long[node.ids.length + 1];
+        System.arraycopy(node.ids, 0, grown, 0, at);
+        grown[at] = id;
+        System.arraycopy(node.ids, at, grown, at + 1, node.ids.length - at);
+        node.ids = grown;
+        keyCount++;
+    }
+
+    // ── Reads ──────────────────────────────────────────────────────────────────
+
+    /** Up to {@code limit} distinct ids with a key starting with {@code prefix}, shortest keys first. */
+    public List<Long> complete(String prefix, int limit) {
+        String key = TrigramIndex.normalise(prefix);
+        if (key.isEmpty() || limit <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                int at = node.childIndex(key.charAt(i));
+                if (at < 0) return List.of();
+                Node child = node.children[at];
+                int common = commonPrefix(child.label, key, i);
+                if (i + common < key.length() && common < child.label.length) return List.of();
+                node = child;
+                i += child.label.length;
+            }
+
+            Set<Long> found = new LinkedHashSet<>();
+            PriorityQueue<Frontier> queue = new PriorityQueue<>(Comparator.comparingInt(Frontier::depth));
+            queue.add(new Frontier(node, i));
+            while (!queue.isEmpty() && found.size() < limit) {
+                Frontier next = queue.poll();
+                for (long id : next.node().ids) {
+                    found.add(id);
+                    if (found.size() == limit) break;
+                }
+                for (Node child : next.node().children) {
+                    queue.add(new Frontier(child, next.depth() + child.label.length));
+                }
+            }
+            return new ArrayList<>(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return keysById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int keyCount() {
+        lock.readLock().lock();
+        try {
+            return keyCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Approximate retained size of the trie nodes, in bytes (excludes the id → keys map). */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            List<Node> stack = new ArrayList<>();
+            stack.add(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.remove(stack.size() - 1);
+                bytes += OBJECT_HEADER + 4L * REFERENCE
+                        + ARRAY_HEADER + 2L * node.label.length
+                        + (node.firstChars.length == 0 ? 0 : ARRAY_HEADER + 2L * node.firstChars.length)
+                        + (node.children.length == 0 ? 0 : ARRAY_HEADER + (long) REFERENCE * node.children.length)
+                        + (node.ids.length == 0 ? 0 : ARRAY_HEADER + 8L * node.ids.length);
+                stack.addAll(Arrays.asList(node.children));
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ── Array helpers ──────────────────────────────────────────────────────────
+
+    /** Length of the common prefix of {@code label} and {@code key} starting at {@code from}. */
+    private static int commonPrefix(char[] label, String key, int from) {
+        int n = Math.min(label.length, key.length() - from);
+        int i = 0;
+        while (i < n && label[i] == key.charAt(from + i)) i++;
+        return i;
+    }
+
+    private static char[] insert(char[] chars, int at, char c) {
+        char[] grown = new char[chars.length + 1];
+        System.arraycopy(chars, 0, grown, 0, at);
+        grown[at] = c;
+        System.arraycopy(chars, at, grown, at + 1, chars.length - at);
+        return grown;
+    }
+
+    private static char[] concat(char[] a, char[] b) {
+        char[] joined = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, joined, a.length, b.length);
+        return joined;
+    }
+
+    private static long[] removeAt(long[] ids, int at) {
+        if (ids.length == 1) return NO_IDS;
+        long[] shrunk = new long[ids.length - 1];
+        System.arraycopy(ids, 0, shrunk, 0, at);
+        System.arraycopy(ids, at + 1, shrunk, at, shrunk.length - at);
+        return shrunk;
+    }
+}
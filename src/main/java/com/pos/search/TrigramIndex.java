@@ -0,0 +1,225 @@
+package com.pos.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over trigrams of normalised text, used in place of
+ * {@code LOWER(col) LIKE '%q%'} scans.
+ * <p>
+ * Every word is indexed as the trigrams of {@code "  " + word + " "}, so a query token of three or
+ * more characters is looked up by its inner trigrams (substring match) and a shorter token by its
+ * padded leading trigram (word-prefix match). Candidates from the posting-list intersection are
+ * verified against the stored text and ranked: exact word &gt; word prefix &gt; substring, with the
+ * first field (the name) weighted above the others.
+ * <p>
+ * Reads take a shared lock and writes an exclusive one, so single-document updates can be applied
+ * while searches run.
+ */
+public final class TrigramIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD   = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** A searchable record; {@code filterKey} narrows a search (e.g. category id) and may be null. */
+    public record Document(long id, Long filterKey, List<String> fields) {
+        public Document(long id, Long filterKey, String... fields) {
+            this(id, filterKey, Arrays.asList(fields));
+        }
+    }
+
+    private record Entry(Long filterKey, String[] fields) {}
+
+    private record Scored(long id, int score, int nameLength) {}
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // ── Writes ─────────────────────────────────────────────────────────────────
+
+    /** Adds or replaces a document. */
+    public void put(Document document) {
+        String[] fields = document.fields().stream().map(TrigramIndex::normalise).toArray(String[]::new);
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.put(document.id(), new Entry(document.filterKey(), fields));
+            if (previous != null) unindex(document.id(), previous);
+            for (String gram : grams(fields)) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(document.id());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.remove(id);
+            if (previous != null) unindex(id, previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(long id, Entry entry) {
+        for (String gram : grams(entry.fields())) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) postings.remove(gram);
+        }
+    }
+
+    // ── Reads ──────────────────────────────────────────────────────────────────
+
+    /**
+     * Ids of documents matching every token of {@code query}, best match first. A non-null
+     * {@code filterKey} restricts results to documents carrying that key.
+     */
+    public long[] search(String query, Long filterKey) {
+        String[] tokens = tokens(normalise(query));
+        if (tokens.length == 0) return new long[0];
+        Set<String> queryGrams = new LinkedHashSet<>();
+        for (String token : tokens) queryGrams.addAll(queryGrams(token));
+
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[queryGrams.size()];
+            int n = 0;
+            for (String gram : queryGrams) {
+                Postings list = postings.get(gram);
+                if (list == null) return new long[0];
+                lists[n++] = list;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+            List<Scored> hits = new ArrayList<>();
+            Postings smallest = lists[0];
+            candidates:
+            for (int i = 0; i < smallest.size; i++) {
+                long id = smallest.ids[i];
+                for (int l = 1; l < lists.length; l++) {
+                    if (!lists[l].contains(id)) continue candidates;
+                }
+                Entry entry = entries.get(id);
+                if (filterKey != null && !filterKey.equals(entry.filterKey())) continue;
+                int score = score(entry.fields(), tokens);
+                if (score > 0) hits.add(new Scored(id, score, entry.fields()[0].length()));
+            }
+            hits.sort(Comparator.comparingInt(Scored::score).reversed()
+                    .thenComparingInt(Scored::nameLength)
+                    .thenComparingLong(Scored::id));
+            return hits.stream().mapToLong(Scored::id).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 0 when a token matches nothing; otherwise higher for exact and prefix matches in the name. */
+    private static int score(String[] fields, String[] tokens) {
+        int total = 0;
+        for (String token : tokens) {
+            int best = 0;
+            for (int f = 0; f < fields.length; f++) {
+                int weight = f == 0 ? 2 : 1;
+                for (String word : tokens(fields[f])) {
+                    int quality = word.equals(token) ? 4
+                            : word.startsWith(token) ? 3
+                            : token.length() >= 3 && word.contains(token) ? 1
+                            : 0;
+                    best = Math.max(best, quality * weight);
+                }
+            }
+            if (best == 0) return 0;
+            total += best;
+        }
+        return total;
+    }
+
+    // ── Text handling ──────────────────────────────────────────────────────────
+
+    static String normalise(String text) {
+        if (text == null) return "";
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_WORD.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static String[] tokens(String normalised) {
+        return normalised.isEmpty() ? new String[0] : normalised.split(" ");
+    }
+
+    private static Set<String> grams(String[] fields) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String field : fields) {
+            for (String word : tokens(field)) {
+                String padded = "  " + word + " ";
+                for (int i = 0; i + 3 <= padded.length(); i++) grams.add(padded.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    private static List<String> queryGrams(String token) {
+        if (token.length() < 3) return List.of(("  " + token).substring(token.length() - 1));
+        List<String> grams = new ArrayList<>(token.length() - 2);
+        for (int i = 0; i + 3 <= token.length(); i++) grams.add(token.substring(i, i + 3));
+        return grams;
+    }
+
+    /** Sorted, growable list of document ids. */
+    private static final class Postings {
+        long[] ids = new long[4];
+        int size;
+
+        void add(long id) {
+            if (size == 0 || id > ids[size - 1]) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) return;
+            at = -at - 1;
+            ensureCapacity();
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) return false;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.pos.service;
+
+import com.pos.config.DatabaseDialect;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out in-store EAN-13 barcodes for labels and member cards without probing the database.
+ * <p>
+ * Each node reserves a block of {@value #BLOCK_SIZE} serial numbers at a time from the
+ * {@code barcode_block_seq} sequence — block {@code n} owns serials {@code n * BLOCK_SIZE} up to
+ * the next block — and hands them out from memory with an atomic counter; only taking a new block
+ * touches the database. The sequence is created with the rest of the schema by
+ * {@link com.pos.config.IdSequenceAligner}, so this class only ever reads it. Sequence values are
+ * never reused, so two nodes (or a restart) can never hand out the same serial; a restart just
+ * abandons the rest of its block.
+ * <p>
+ * Codes are the two-digit prefix, the 10-digit serial and the EAN-13 check digit. Prefixes 20–29
+ * are reserved by GS1 for restricted in-store use, so they never clash with manufacturer barcodes:
+ * {@code 20} for labels, {@code 29} for member cards. Legacy {@code LBL…} and {@code MC…} codes
+ * are left as they are.
+ */
+@Slf4j
+@Service
+public class BarcodeAllocator {
+
+    public static final String BLOCK_SEQUENCE = "barcode_block_seq";
+
+    static final int BLOCK_SIZE = 1000;
+    static final String LABEL_PREFIX = "20";
+    static final String MEMBER_CARD_PREFIX = "29";
+
+    private static final long MAX_SERIAL = 9_999_999_999L;
+
+    private final DataSource      dataSource;
+    private final DatabaseDialect databaseDialect;
+
+    private volatile Block current;
+
+    public BarcodeAllocator(DataSource dataSource, DatabaseDialect databaseDialect) {
+        this.dataSource      = dataSource;
+        this.databaseDialect = databaseDialect;
+    }
+
+    public List<String> nextLabelBarcodes(int count) {
+        List<String> barcodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) barcodes.add(ean13(LABEL_PREFIX, nextSerial()));
+        return barcodes;
+    }
+
+    public String nextMemberCardBarcode() {
+        return ean13(MEMBER_CARD_PREFIX, nextSerial());
+    }
+
+    private long nextSerial() {
+        while (true) {
+            Block block = current;
+            if (block != null) {
+                long serial = block.next.getAndIncrement();
+                if (serial < block.end) return serial;
+            }
+            refill(block);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (current != exhausted) return; // another thread already took a new block
+        long blockNum = reserveBlock();
+        long start = blockNum * BLOCK_SIZE;
+        if (start + BLOCK_SIZE - 1 > MAX_SERIAL) {
+            throw new IllegalStateException("In-store barcode range exhausted (block " + blockNum + ")");
+        }
+        current = new Block(start, start + BLOCK_SIZE);
+        log.debug("Reserved barcode block {} — serials {}..{}", blockNum, start, start + BLOCK_SIZE - 1);
+    }
+
+    private long reserveBlock() {
+        try (Connection connection = dataSource.getConnection();
+             Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(databaseDialect.nextValueQuery(BLOCK_SEQUENCE))) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not reserve a barcode block: " + e.getMessage(), e);
+        }
+    }
+
+    /** The prefix, the zero-padded serial and the EAN-13 check digit. */
+    static String ean13(String prefix, long serial) {
+        String digits = prefix + String.format("%0" + (12 - prefix.length()) + "d", serial);
+        return digits + checkDigit(digits);
+    }
+
+    /** EAN-13 check digit of the first 12 digits: weights 1 and 3 alternating from the left. */
+    static int checkDigit(String twelveDigits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int d = twelveDigits.charAt(i) - '0';
+            sum += i % 2 == 0 ? d : d * 3;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static final class Block {
+        final long end;
+        final AtomicLong next;
+
+        Block(long start, long end) {
+            this.end  = end;
+            this.next = new AtomicLong(start);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.pos.service;
+
+import com.pos.dto.response.BarcodeFilterStats;
+import com.pos.repository.LabelRepository;
+import com.pos.repository.ProductRepository;
+import com.pos.search.BloomFilter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Guards barcode existence checks with a {@link BloomFilter} over every product and label barcode,
+ * so the common case — a barcode nobody uses — is answered without a query. Only a possible hit
+ * goes to the database, and the outcome is counted so the observed false-positive rate can be
+ * compared with the filter's expected one.
+ * <p>
+ * A "definitely absent" answer is only as fresh as this node: the filter holds the last rebuild plus
+ * the barcodes this node has committed since, and picks up other nodes' writes only at the next
+ * rebuild ({@code barcode-filter.refresh-interval-ms}). It is therefore only used to skip a query the
+ * database backs anyway — the unique constraint on {@code products.barcode} or
+ * {@code labels.barcode} — and callers flush the insert and turn a violation
+ * ({@link #isDuplicateBarcode}) into their usual error code. Nothing enforces uniqueness across the
+ * two tables, so the product side of {@link #barcodeInUse} always queries. On a single node the
+ * filter adds no window beyond the check-then-insert race a plain query has.
+ * <p>
+ * Services call {@link #record} for every barcode they write; it is added once the transaction
+ * commits, so a rolled-back write leaves nothing behind. A rebuild publishes the filter it is
+ * filling before reading any rows, so a barcode committed after the load read past it is added to
+ * the new filter as well. Until the first build completes every check goes to the database.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BarcodeFilterService {
+
+    private final ProductRepository productRepository;
+    private final LabelRepository   labelRepository;
+
+    @Value("${barcode-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    /** Lower bound for the sizing, so a small catalogue has room to grow between rebuilds. */
+    @Value("${barcode-filter.min-expected-entries:100000}")
+    private long minExpectedEntries = 100_000;
+
+    @Value("${barcode-filter.load-chunk-size:5000}")
+    private int loadChunkSize = 5000;
+
+    private volatile BloomFilter filter;
+    /** Filter being filled by a rebuild; writes go to it as well so the swap loses nothing. */
+    private volatile BloomFilter building;
+    private volatile Instant builtAt;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final AtomicLong checks         = new AtomicLong();
+    private final AtomicLong definiteMisses = new AtomicLong();
+    /** Possible hits on single checks that were then looked up — the base of the observed rate. */
+    private final AtomicLong confirmations  = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    // ── Checks ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Whether a product already has {@code barcode}. May miss another node's recent write; the
+     * products' unique constraint catches that when the new row is flushed.
+     */
+    public boolean productBarcodeExists(String barcode) {
+        return exists(barcode, productRepository::existsByBarcode);
+    }
+
+    /**
+     * Whether a label or a product already uses {@code barcode}. Only the label side can be
+     * answered by the filter, since the labels' unique constraint backs it; the product side is
+     * always queried.
+     */
+    public boolean barcodeInUse(String barcode) {
+        return exists(barcode, labelRepository::existsByBarcode) || productRepository.existsByBarcode(barcode);
+    }
+
+    /**
+     * The barcodes from {@code candidates} the filter cannot rule out, in their original order —
+     * the only ones worth passing to a label {@code IN} lookup. Empty when none can exist. Like the
+     * single checks this may miss another node's recent write, so it is only used where the labels'
+     * unique constraint backs the answer. Lookups made from the result are not fed back, so only
+     * single checks count towards the observed rate.
+     */
+    public Set<String> possiblyPresent(Collection<String> candidates) {
+        Set<String> possible = new LinkedHashSet<>();
+        BloomFilter current = filter;
+        for (String barcode : candidates) {
+            if (current == null || current.mightContain(barcode)) possible.add(barcode);
+        }
+        checks.addAndGet(candidates.size());
+        definiteMisses.addAndGet(candidates.size() - possible.size());
+        return possible;
+    }
+
+    /** Notes a barcode written by a product or label; it is added once the caller's transaction commits. */
+    public void record(String barcode) {
+        if (barcode == null || barcode.isBlank()) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(barcode);
+                }
+            });
+        } else {
+            add(barcode);
+        }
+    }
+
+    /**
+     * Whether a failed insert or update hit a barcode unique constraint — a duplicate the filter let
+     * through because another node wrote it since the last rebuild.
+     */
+    public static boolean isDuplicateBarcode(DataIntegrityViolationException ex) {
+        String message = ex.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains("barcode");
+    }
+
+    private void add(String barcode) {
+        // Building first: if it is already gone, the swap has happened and filter is the new one.
+        BloomFilter next = building;
+        if (next != null) next.add(barcode);
+        BloomFilter current = filter;
+        if (current != null && current != next) current.add(barcode);
+    }
+
+    private boolean exists(String barcode, Predicate<String> query) {
+        checks.incrementAndGet();
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(barcode)) {
+            definiteMisses.incrementAndGet();
+            return false;
+        }
+        boolean exists = query.test(barcode);
+        if (current != null) {
+            confirmations.incrementAndGet();
+            if (!exists) falsePositives.incrementAndGet();
+        }
+        return exists;
+    }
+
+    public BarcodeFilterStats getStats() {
+        BloomFilter current = filter;
+        long confirmed = confirmations.get();
+        return new BarcodeFilterStats(
+                current != null,
+                current != null ? current.entries() : 0,
+                current != null ? current.bitCount() : 0,
+                current != null ? current.hashCount() : 0,
+                current != null ? current.sizeBytes() : 0,
+                current != null ? current.expectedFalsePositiveRate() : 1.0,
+                checks.get(),
+                definiteMisses.get(),
+                falsePositives.get(),
+                confirmed > 0 ? (double) falsePositives.get() / confirmed : 0.0,
+                builtAt);
+    }
+
+    // ── Warm-up and refresh ────────────────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${barcode-filter.refresh-interval-ms:300000}",
+               initialDelayString = "${barcode-filter.refresh-interval-ms:300000}")
+    public void refresh() {
+        rebuild();
+    }
+
+    /** Sizes a fresh filter for the current row counts, loads every barcode into it and swaps it in. */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        long started = System.currentTimeMillis();
+        try {
+            long rows = productRepository.count() + labelRepository.count();
+            // Headroom for the writes expected before the next rebuild.
+            BloomFilter next = BloomFilter.create(Math.max(minExpectedEntries, rows * 2), falsePositiveRate);
+            // Published before the first read: anything committed from here on reaches it via record().
+            building = next;
+            load(next, (afterId, page) -> productRepository.findBarcodesAfterId(afterId, page));
+            load(next, (afterId, page) -> labelRepository.findBarcodesAfterId(afterId, page));
+            filter = next;
+            builtAt = Instant.now();
+            checks.set(0);
+            definiteMisses.set(0);
+            confirmations.set(0);
+            falsePositives.set(0);
+            log.info("Barcode filter rebuilt — {} barcodes, {} KiB, expected false-positive rate {} in {} ms",
+                    next.entries(), next.sizeBytes() / 1024, String.format("%.5f", next.expectedFalsePositiveRate()),
+                    System.currentTimeMillis() - started);
+        } catch (RuntimeException ex) {
+            log.warn("Barcode filter rebuild failed, keeping previous filter: {}", ex.getMessage());
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    private interface BarcodePage {
+        List<Object[]> after(Long afterId, PageRequest page);
+    }
+
+    private void load(BloomFilter target, BarcodePage source) {
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = source.after(afterId, PageRequest.of(0, loadChunkSize));
+            for (Object[] row : rows) {
+                afterId = (Long) row[0];
+                target.add((String) row[1]);
+            }
+        } while (rows.size() == loadChunkSize);
+    }
+}
@@ -0,0 +1,336 @@
+package com.pos.service;
+
+import com.pos.config.DatabaseClock;
+import com.pos.dto.response.ProductResponse;
+import com.pos.entity.Customer;
+import com.pos.entity.Label;
+import com.pos.entity.Product;
+import com.pos.event.CatalogChangedEvent;
+import com.pos.event.CustomerChangedEvent;
+import com.pos.event.LabelChangedEvent;
+import com.pos.event.StockChangedEvent;
+import com.pos.repository.CustomerRepository;
+import com.pos.repository.InventoryRepository;
+import com.pos.repository.LabelRepository;
+import com.pos.repository.ProductRepository;
+import com.pos.search.LiveIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory scan index for the till: product barcode → product snapshot, printed label barcode →
+ * linked product, and member card → customer id. Lookups are lock-free map reads; a miss falls back
+ * to the database and populates the index. The index is warmed at startup, kept coherent from
+ * committed {@link CatalogChangedEvent}s / {@link LabelChangedEvent}s / {@link StockChangedEvent}s /
+ * {@link CustomerChangedEvent}s, and rebuilt periodically to pick up anything changed outside those
+ * paths (e.g. category renames). Stock counts are also reconciled every minute from the inventory
+ * rows changed since the last pass.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BarcodeIndexService {
+
+    /** How far behind the database clock each stock reconciliation pass stops. */
+    private static final Duration RECONCILE_LAG = Duration.ofSeconds(5);
+
+    private final ProductRepository   productRepository;
+    private final InventoryRepository inventoryRepository;
+    private final LabelRepository     labelRepository;
+    private final CustomerRepository  customerRepository;
+    private final DatabaseClock       databaseClock;
+
+    @Value("${barcode-index.load-chunk-size:1000}")
+    private int loadChunkSize = 1000;
+
+    /** Catalogue changes touching more products than this trigger a full rebuild instead. */
+    @Value("${barcode-index.full-reload-threshold:5000}")
+    private int fullReloadThreshold = 5000;
+
+    /** Keyed by product id. */
+    private final LiveIndex<Snapshot> products =
+            new LiveIndex<>("Barcode index", new Snapshot(), this::loadProducts, this::reloadProducts);
+    /** Keyed by customer id. */
+    private final LiveIndex<Cards> cards =
+            new LiveIndex<>("Member card index", new Cards(), this::loadCards, this::reloadCards);
+
+    /** One generation of the product side; a rebuild fills a fresh one and swaps it in. */
+    private static final class Snapshot {
+        final Map<String, Long>             productIdByBarcode      = new ConcurrentHashMap<>();
+        final Map<Long, String>             barcodeByProductId      = new ConcurrentHashMap<>();
+        final Map<Long, ProductResponse>    productsById            = new ConcurrentHashMap<>();
+        final Map<Long, Integer>            stockByProductId        = new ConcurrentHashMap<>();
+        final Map<String, Long>             productIdByLabelBarcode = new ConcurrentHashMap<>();
+        /** Product id → (label id → barcode) of the labels linked to it. */
+        final Map<Long, Map<Long, String>>  labelsByProductId       = new ConcurrentHashMap<>();
+        final Map<Long, Long>               productIdByLabelId      = new ConcurrentHashMap<>();
+        /** Inventory changes stamped up to this time are reflected in stockByProductId. */
+        volatile LocalDateTime stockReconciledUpTo;
+
+        synchronized void putProduct(Product product, int quantity) {
+            Long id = product.getId();
+            String previous = barcodeByProductId.remove(id);
+            if (previous != null) productIdByBarcode.remove(previous, id);
+            String barcode = product.getBarcode();
+            if (barcode != null && !barcode.isBlank()) {
+                productIdByBarcode.put(barcode, id);
+                barcodeByProductId.put(id, barcode);
+            }
+            productsById.put(id, ProductResponse.from(product, quantity));
+            stockByProductId.put(id, quantity);
+        }
+
+        synchronized void removeProduct(Long id) {
+            String previous = barcodeByProductId.remove(id);
+            if (previous != null) productIdByBarcode.remove(previous, id);
+            productsById.remove(id);
+            stockByProductId.remove(id);
+        }
+
+        /** Replaces every label linked to a product, so unlinked, deleted and re-barcoded ones drop out. */
+        synchronized void putLabels(Long productId, Map<Long, String> labels) {
+            Map<Long, String> previous = labels.isEmpty()
+                    ? labelsByProductId.remove(productId)
+                    : labelsByProductId.put(productId, labels);
+            if (previous != null) {
+                previous.forEach((labelId, barcode) -> {
+                    productIdByLabelBarcode.remove(barcode, productId);
+                    productIdByLabelId.remove(labelId, productId);
+                });
+            }
+            labels.forEach((labelId, barcode) -> {
+                productIdByLabelBarcode.put(barcode, productId);
+                productIdByLabelId.put(labelId, productId);
+            });
+        }
+    }
+
+    /** One generation of the member card side. */
+    private static final class Cards {
+        final Map<String, Long> customerIdByCard = new ConcurrentHashMap<>();
+        final Map<Long, String> cardByCustomerId = new ConcurrentHashMap<>();
+
+        synchronized void putCard(Long customerId, String card) {
+            String previous = card != null ? cardByCustomerId.put(customerId, card) : cardByCustomerId.remove(customerId);
+            if (previous != null && !previous.equals(card)) customerIdByCard.remove(previous, customerId);
+            if (card != null) customerIdByCard.put(card, customerId);
+        }
+    }
+
+    // ── Lookups ────────────────────────────────────────────────────────────────
+
+    /** Product for a scanned product or (linked) label barcode, with its current stock. */
+    public Optional<ProductResponse> findProduct(String barcode) {
+        if (barcode == null || barcode.isBlank()) return Optional.empty();
+        Optional<ProductResponse> cached = fromSnapshot(barcode);
+        if (cached.isPresent()) return cached;
+
+        log.debug("Barcode index miss: {}", barcode);
+        Optional<Long> productId = productRepository.findByBarcode(barcode).map(Product::getId)
+                .or(() -> labelRepository.findByBarcode(barcode)
+                        .map(Label::getProduct)
+                        .map(Product::getId));
+        if (productId.isEmpty()) return Optional.empty();
+        products.refresh(Set.of(productId.get()));
+        return fromSnapshot(barcode);
+    }
+
+    /** Customer id for a scanned member card. */
+    public Optional<Long> findCustomerId(String cardBarcode) {
+        if (cardBarcode == null || cardBarcode.isBlank()) return Optional.empty();
+        Long cached = cards.current().customerIdByCard.get(cardBarcode);
+        if (cached != null) return Optional.of(cached);
+
+        Optional<Customer> customer = customerRepository.findByMemberCardBarcode(cardBarcode);
+        customer.ifPresent(c -> cards.update(Set.of(c.getId()), g -> g.putCard(c.getId(), c.getMemberCardBarcode())));
+        return customer.map(Customer::getId);
+    }
+
+    private Optional<ProductResponse> fromSnapshot(String barcode) {
+        Snapshot s = products.current();
+        Long productId = s.productIdByBarcode.get(barcode);
+        if (productId == null) productId = s.productIdByLabelBarcode.get(barcode);
+        if (productId == null) return Optional.empty();
+        ProductResponse product = s.productsById.get(productId);
+        if (product == null) return Optional.empty();
+        // Snapshots are shared; hand out a copy carrying the live stock count.
+        return Optional.of(product.toBuilder()
+                .quantity(s.stockByProductId.getOrDefault(productId, product.getQuantity()))
+                .build());
+    }
+
+    // ── Coherence ──────────────────────────────────────────────────────────────
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        products.changed(event.productIds(), fullReloadThreshold);
+    }
+
+    /** Re-reads the products a changed label is linked to now and was linked to before. */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLabelChanged(LabelChangedEvent event) {
+        Set<Long> productIds = new HashSet<>(labelRepository.findLinkedProductIdsByIdIn(event.labelIds()));
+        Snapshot s = products.current();
+        for (Long labelId : event.labelIds()) {
+            Long previous = s.productIdByLabelId.get(labelId);
+            if (previous != null) productIds.add(previous);
+        }
+        products.refresh(productIds);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        Map<Long, Integer> quantities = event.quantities();
+        if (event.absolute()) {
+            products.update(quantities.keySet(), s -> quantities.forEach((productId, quantity) ->
+                    s.stockByProductId.computeIfPresent(productId, (id, current) -> quantity)));
+        } else {
+            products.adjust(quantities.keySet(), s -> {
+                quantities.forEach((productId, delta) ->
+                        s.stockByProductId.computeIfPresent(productId, (id, current) -> current + delta));
+                // Products not indexed yet are loaded on their first scan.
+                return List.of();
+            });
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        cards.refresh(Set.of(event.customerId()));
+    }
+
+    private void reloadProducts(Snapshot s, Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        for (int from = 0; from < ids.size(); from += loadChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + loadChunkSize, ids.size()));
+            Set<Long> missing = new HashSet<>(chunk);
+            for (Object[] row : productRepository.findWithStockByIdIn(chunk)) {
+                Product product = (Product) row[0];
+                s.putProduct(product, ((Number) row[1]).intValue());
+                missing.remove(product.getId());
+            }
+            missing.forEach(s::removeProduct);
+            Map<Long, Map<Long, String>> labels = groupLabels(labelRepository.findLinkedBarcodesByProductIdIn(chunk));
+            for (Long id : chunk) {
+                s.putLabels(id, labels.getOrDefault(id, Map.of()));
+            }
+        }
+    }
+
+    private void reloadCards(Cards c, Collection<Long> customerIds) {
+        for (Long customerId : customerIds) {
+            String card = customerRepository.findById(customerId)
+                    .map(Customer::getMemberCardBarcode)
+                    .orElse(null);
+            c.putCard(customerId, card);
+        }
+    }
+
+    // ── Warm-up and refresh ────────────────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${barcode-index.refresh-interval-ms:900000}",
+               initialDelayString = "${barcode-index.refresh-interval-ms:900000}")
+    public void refresh() {
+        rebuild();
+    }
+
+    /**
+     * Re-reads the stock of products whose inventory row changed since the last pass, so drift
+     * from missed or reordered stock events does not accumulate.
+     */
+    @Scheduled(fixedDelayString = "${barcode-index.stock-reconcile-interval-ms:60000}",
+               initialDelayString = "${barcode-index.stock-reconcile-interval-ms:60000}")
+    public void reconcileStock() {
+        Snapshot s = products.current();
+        LocalDateTime since = s.stockReconciledUpTo;
+        if (since == null) return;
+        LocalDateTime until = databaseClock.committedUpTo(RECONCILE_LAG);
+        if (!until.isAfter(since)) return;
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Object[] row : inventoryRepository.findQuantitiesUpdatedBetween(since, until)) {
+            quantities.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        products.update(quantities.keySet(), current -> quantities.forEach((productId, quantity) ->
+                current.stockByProductId.computeIfPresent(productId, (id, previous) -> quantity)));
+        s.stockReconciledUpTo = until;
+        log.debug("Barcode index stock reconciled — {} rows changed up to {}", quantities.size(), until);
+    }
+
+    /** Loads every product, linked label and member card into fresh generations and swaps them in. */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Snapshot next = products.rebuild();
+        Cards nextCards = cards.rebuild();
+        if (next == null || nextCards == null) return;
+        log.info("Barcode index rebuilt — {} products, {} label barcodes, {} member cards in {} ms",
+                next.productsById.size(), next.productIdByLabelBarcode.size(),
+                nextCards.customerIdByCard.size(), System.currentTimeMillis() - started);
+    }
+
+    private Snapshot loadProducts() {
+        Snapshot next = new Snapshot();
+        // Everything stamped up to here is committed, so the load below sees it.
+        next.stockReconciledUpTo = databaseClock.committedUpTo(RECONCILE_LAG);
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = productRepository.findWithStockAfterId(afterId, PageRequest.of(0, loadChunkSize));
+            for (Object[] row : rows) {
+                Product product = (Product) row[0];
+                next.putProduct(product, ((Number) row[1]).intValue());
+                afterId = product.getId();
+            }
+        } while (rows.size() == loadChunkSize);
+        groupLabels(labelRepository.findLinkedBarcodes()).forEach(next::putLabels);
+        return next;
+    }
+
+    private Cards loadCards() {
+        Cards next = new Cards();
+        for (Object[] row : customerRepository.findMemberCardBarcodes()) {
+            next.putCard((Long) row[1], (String) row[0]);
+        }
+        return next;
+    }
+
+    /** Rows: [label id, barcode, product id] → product id → (label id → barcode). */
+    private static Map<Long, Map<Long, String>> groupLabels(List<Object[]> rows) {
+        Map<Long, Map<Long, String>> byProduct = new HashMap<>();
+        for (Object[] row : rows) {
+            byProduct.computeIfAbsent((Long) row[2], id -> new ConcurrentHashMap<>()).put((Long) row[0], (String) row[1]);
+        }
+        return byProduct;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        products.shutdown();
+        cards.shutdown();
+    }
+}
@@ -0,0 +1,349 @@
+package com.pos.service;
+
+import com.pos.bulk.ImportProgress;
+import com.pos.dto.response.BulkUploadJobResponse;
+import com.pos.dto.response.BulkUploadResult;
+import com.pos.entity.BulkUploadJob;
+import com.pos.entity.BulkUploadJobError;
+import com.pos.enums.BulkUploadJobStatus;
+import com.pos.exception.BadRequestException;
+import com.pos.exception.ErrorCode;
+import com.pos.exception.ResourceNotFoundException;
+import com.pos.repository.BulkUploadJobErrorRepository;
+import com.pos.repository.BulkUploadJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs product bulk uploads as background jobs. The upload is stored under
+ * {@code bulk-upload.storage-dir} and a QUEUED job row returned at once; a single worker thread
+ * then imports it through {@link ProductBulkService#importFile}, which commits chunk by chunk and
+ * records each chunk's progress and rejected rows in the same transaction.
+ * <p>
+ * Jobs are picked up by polling and claimed with a conditional UPDATE. While a job runs, a separate
+ * timer refreshes its heartbeat every {@code bulk-upload.heartbeat-interval-ms}, so a slow chunk does
+ * not make a live job look abandoned. A RUNNING job whose heartbeat is older than
+ * {@code bulk-upload.stale-after-ms} — its worker died or the app restarted — is claimed again and
+ * resumes after its last committed row.
+ * <p>
+ * Resuming relies on the stored file outliving a restart, so {@code bulk-upload.storage-dir} should
+ * point at persistent disk. When it is unset, uploads go to {@code data/bulk-uploads} under
+ * {@code $HOME}, which is persistent on App Service, and a warning is logged. Startup fails only
+ * when the directory cannot be created or written.
+ */
+@Slf4j
+@Service
+public class BulkUploadJobService {
+
+    private static final int MAX_MESSAGE_LENGTH = 500;
+
+    private final BulkUploadJobRepository      jobRepository;
+    private final BulkUploadJobErrorRepository errorRepository;
+    private final ProductBulkService           productBulkService;
+    private final TransactionTemplate          transactionTemplate;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "bulk-upload-worker");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "bulk-upload-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private volatile boolean shuttingDown;
+
+    @Value("${bulk-upload.storage-dir:}")
+    private String storageDir;
+
+    @Value("${bulk-upload.stale-after-ms:120000}")
+    private long staleAfterMs = 120_000;
+
+    @Value("${bulk-upload.heartbeat-interval-ms:30000}")
+    private long heartbeatIntervalMs = 30_000;
+
+    @Value("${bulk-upload.max-reported-errors:200}")
+    private int maxReportedErrors = 200;
+
+    public BulkUploadJobService(BulkUploadJobRepository jobRepository,
+                                BulkUploadJobErrorRepository errorRepository,
+                                ProductBulkService productBulkService,
+                                PlatformTransactionManager transactionManager) {
+        this.jobRepository       = jobRepository;
+        this.errorRepository     = errorRepository;
+        this.productBulkService  = productBulkService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** Fails startup unless uploads can be kept on disk and heartbeats outpace staleness. */
+    @PostConstruct
+    void checkConfiguration() {
+        if (storageDir == null || storageDir.isBlank()) {
+            storageDir = defaultStorageDir().toString();
+            log.warn("bulk-upload.storage-dir (BULK_UPLOAD_STORAGE_DIR) is not set — using {}. Point it at " +
+                    "persistent disk so queued and interrupted uploads survive a restart", storageDir);
+        }
+        Path dir = Path.of(storageDir);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create bulk upload storage directory " + dir, e);
+        }
+        if (!Files.isWritable(dir)) {
+            throw new IllegalStateException("Bulk upload storage directory " + dir + " is not writable");
+        }
+        if (heartbeatIntervalMs <= 0 || heartbeatIntervalMs * 2 > staleAfterMs) {
+            throw new IllegalStateException("bulk-upload.heartbeat-interval-ms (" + heartbeatIntervalMs +
+                    ") must be positive and at most half of bulk-upload.stale-after-ms (" + staleAfterMs + ")");
+        }
+        log.info("Bulk upload storage directory: {}", dir.toAbsolutePath());
+    }
+
+    /** {@code data/bulk-uploads} under {@code $HOME} (App Service's persistent share), else the user's home. */
+    static Path defaultStorageDir() {
+        String home = System.getenv("HOME");
+        if (home == null || home.isBlank()) home = System.getProperty("user.home");
+        return Path.of(home, "data", "bulk-uploads");
+    }
+
+    /** Stores the upload and queues it; the returned job is polled for progress. */
+    public BulkUploadJobResponse submit(MultipartFile file, String submittedBy) {
+        String name = file.getOriginalFilename();
+        Path stored = store(file);
+
+        BulkUploadJob job = jobRepository.save(BulkUploadJob.builder()
+                .fileName(name)
+                .storedPath(stored.toString())
+                .submittedBy(submittedBy)
+                .build());
+        log.info("Bulk upload job id: {} queued — file: {}, size: {} bytes, by: {}",
+                job.getId(), name, file.getSize(), submittedBy);
+        poll();
+        return BulkUploadJobResponse.from(job, List.of());
+    }
+
+    /**
+     * Dry run of an upload, answered synchronously: every row is checked as the import would check
+     * it and nothing is written. The stored copy is deleted afterwards.
+     */
+    public BulkUploadResult validate(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        Path stored = store(file);
+        try {
+            return productBulkService.validateFile(stored, name);
+        } catch (IOException e) {
+            log.warn("[PR010] Bulk upload validation failed — file: {}, reason: {}", name, e.getMessage());
+            throw new BadRequestException(ErrorCode.PR010, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(stored);
+            } catch (IOException e) {
+                log.warn("Could not delete bulk upload file {}: {}", stored, e.getMessage());
+            }
+        }
+    }
+
+    private Path store(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        String lower = name != null ? name.toLowerCase() : "";
+        if (file.isEmpty() || !(lower.endsWith(".csv") || lower.endsWith(".xlsx"))) {
+            log.warn("[PR009] Bulk upload rejected — file: {}, size: {}", name, file.getSize());
+            throw new BadRequestException(ErrorCode.PR009);
+        }
+        try {
+            Path dir = Path.of(storageDir);
+            Files.createDirectories(dir);
+            Path stored = dir.resolve(UUID.randomUUID() + (lower.endsWith(".csv") ? ".csv" : ".xlsx"));
+            file.transferTo(stored);
+            return stored;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store bulk upload " + name, e);
+        }
+    }
+
+    public BulkUploadJobResponse getJob(Long jobId) {
+        BulkUploadJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.PR008, "id: " + jobId));
+        List<BulkUploadResult.RowError> errors = job.getErrorCount() == 0 ? List.of()
+                : errorRepository.findByJobIdOrderByRowNumAscIdAsc(jobId, PageRequest.of(0, maxReportedErrors))
+                        .stream()
+                        .map(e -> BulkUploadResult.RowError.builder()
+                                .row(e.getRowNum()).field(e.getField()).message(e.getMessage()).build())
+                        .toList();
+        return BulkUploadJobResponse.from(job, errors);
+    }
+
+    /** Starts the worker on queued or abandoned jobs unless it is already busy. */
+    @Scheduled(fixedDelayString = "${bulk-upload.poll-interval-ms:5000}")
+    public void poll() {
+        if (!busy.compareAndSet(false, true)) return;
+        try {
+            worker.submit(this::drain);
+        } catch (RejectedExecutionException e) {
+            busy.set(false);
+        }
+    }
+
+    private void drain() {
+        try {
+            Long jobId;
+            while ((jobId = claimNext()) != null) {
+                run(jobId);
+            }
+        } catch (RuntimeException e) {
+            log.error("Bulk upload worker crashed", e);
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    private Long claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(Duration.ofMillis(staleAfterMs));
+        for (Long id : jobRepository.findRunnableIds(staleBefore, PageRequest.of(0, 10))) {
+            Integer claimed = transactionTemplate.execute(status -> jobRepository.claim(id, now, staleBefore));
+            if (claimed != null && claimed == 1) return id;
+        }
+        return null;
+    }
+
+    void run(Long jobId) {
+        BulkUploadJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) return;
+        Path file = Path.of(job.getStoredPath());
+        if (!Files.exists(file)) {
+            finish(jobId, BulkUploadJobStatus.FAILED, "Uploaded file is no longer available", file);
+            return;
+        }
+
+        Set<Integer> rejectedRows = job.getLastCommittedRow() > 0
+                ? new HashSet<>(errorRepository.findRowNumsByJobId(jobId))
+                : Set.of();
+        if (job.getLastCommittedRow() > 0) {
+            log.info("Bulk upload job id: {} resuming after row {} (attempt {})",
+                    jobId, job.getLastCommittedRow(), job.getAttempts());
+        }
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleWithFixedDelay(() -> beat(jobId),
+                heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+        try {
+            BulkUploadResult result = productBulkService.importFile(
+                    file, job.getFileName(), job.getSubmittedBy(), new JobProgress(job, rejectedRows));
+            finish(jobId, BulkUploadJobStatus.COMPLETED,
+                    String.format("%d created, %d updated, %d rejected", result.getSuccessCount(),
+                            result.getUpdatedCount(), result.getFailCount()), file);
+        } catch (Exception e) {
+            if (shuttingDown) {
+                // Leave it RUNNING: the next start resumes it once the heartbeat goes stale.
+                log.warn("Bulk upload job id: {} interrupted by shutdown after row {}", jobId, job.getLastCommittedRow());
+                return;
+            }
+            log.error("Bulk upload job id: {} failed: {}", jobId, e.getMessage());
+            finish(jobId, BulkUploadJobStatus.FAILED, e.getMessage(), file);
+        } finally {
+            heartbeat.cancel(false);
+        }
+    }
+
+    /** Marks a running job as alive; independent of chunk progress, which can take longer than the stale limit. */
+    private void beat(Long jobId) {
+        try {
+            transactionTemplate.execute(status -> jobRepository.heartbeat(jobId, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            log.warn("Bulk upload job id: {} heartbeat failed: {}", jobId, e.getMessage());
+        }
+    }
+
+    private void finish(Long jobId, BulkUploadJobStatus status, String message, Path file) {
+        String text = message != null ? truncate(message) : status.name();
+        transactionTemplate.executeWithoutResult(s -> jobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(status);
+            job.setMessage(text);
+            job.setFinishedAt(LocalDateTime.now());
+            jobRepository.save(job);
+        }));
+        log.info("Bulk upload job id: {} {} — {}", jobId, status, text);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete bulk upload file {}: {}", file, e.getMessage());
+        }
+    }
+
+    /** Records each committed chunk on the job row; runs inside the chunk's transaction. */
+    private final class JobProgress implements ImportProgress {
+
+        private final BulkUploadJob job;
+        private final Set<Integer> rejectedRows;
+
+        JobProgress(BulkUploadJob job, Set<Integer> rejectedRows) {
+            this.job          = job;
+            this.rejectedRows = rejectedRows;
+        }
+
+        @Override
+        public int resumeAfterRow() {
+            return job.getLastCommittedRow();
+        }
+
+        @Override
+        public Set<Integer> rejectedRows() {
+            return rejectedRows;
+        }
+
+        @Override
+        public void chunkCommitted(Chunk chunk) {
+            if (!chunk.errors().isEmpty()) {
+                BulkUploadJob ref = jobRepository.getReferenceById(job.getId());
+                errorRepository.saveAll(chunk.errors().stream()
+                        .map(e -> BulkUploadJobError.builder()
+                                .job(ref)
+                                .rowNum(e.getRow())
+                                .field(e.getField())
+                                .message(truncate(e.getMessage()))
+                                .build())
+                        .toList());
+            }
+            jobRepository.recordChunk(job.getId(), chunk.throughRow(), chunk.rowsProcessed(),
+                    chunk.created(), chunk.updated(), chunk.errors().size(), LocalDateTime.now());
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_MESSAGE_LENGTH) return message;
+        return message.substring(0, MAX_MESSAGE_LENGTH);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        shuttingDown = true;
+        worker.shutdownNow();
+        heartbeats.shutdownNow();
+    }
+}
@@ -0,0 +1,281 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.pos.config.DatabaseClock;
+import com.pos.dto.response.ProductResponse;
+import com.pos.repository.CategoryRepository;
+import com.pos.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Full active-catalogue export for bootstrapping a till: one {@link ProductResponse} per line
+ * (NDJSON), gzip-compressed. The file is written from a server-side cursor straight to a temp file —
+ * the catalogue is never held in memory — and reused until the catalogue changes (product or
+ * category edits, activations) or its stock figures are older than {@code max-stock-age-ms}.
+ * <p>
+ * Each snapshot carries the {@code /api/products/changes} cursor taken when it was built, so a till
+ * can load the snapshot and then catch up with delta syncs. The cursor comes from
+ * {@link DatabaseClock#committedUpTo}, read before the catalogue cursor opens — the bound the delta
+ * sync uses — so every change stamped at or before it is already in the file. Its weak ETag is derived from the
+ * catalogue version alone: a rebuild that only refreshes stock figures keeps the ETag, and a till
+ * holding that version carries on from its own sync cursor.
+ * <p>
+ * Downloads stream a file {@link #open opened} for them. A rebuild retires the file it replaces, and
+ * a retired file is deleted once the last download reading it has closed its stream.
+ */
+@Slf4j
+@Service
+public class CatalogSnapshotService {
+
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    /** A built snapshot file and the metadata needed to serve it. */
+    public record Snapshot(Path file, String etag, long sizeBytes, int products,
+                           String syncCursor, String catalogVersion, long builtAtMillis) {
+
+        /** True when an If-None-Match header names this snapshot; ETags compare weakly. */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+            String opaque = opaque(etag);
+            for (String tag : ifNoneMatch.split(",")) {
+                String t = tag.trim();
+                if (t.equals("*") || opaque(t).equals(opaque)) return true;
+            }
+            return false;
+        }
+
+        private static String opaque(String tag) {
+            return tag.startsWith("W/") ? tag.substring(2) : tag;
+        }
+    }
+
+    /** A snapshot opened for one download; closing {@code body} releases the file. */
+    public record Download(Snapshot snapshot, InputStream body) {}
+
+    private final ProductRepository   productRepository;
+    private final CategoryRepository  categoryRepository;
+    private final ObjectMapper        objectMapper;
+    private final DatabaseClock       databaseClock;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${catalog-snapshot.max-stock-age-ms:300000}")
+    private long maxStockAgeMs = 300_000;
+
+    @Value("${catalog-sync.watermark-lag-ms:5000}")
+    private long watermarkLagMs = 5000;
+
+    private final Object buildLock = new Object();
+    private volatile Snapshot current;
+
+    /** Guards the two maps below; a file is deleted only while holding it. */
+    private final Object filesLock = new Object();
+    /** Open download streams per snapshot file. */
+    private final Map<Path, Integer> readers = new HashMap<>();
+    /** Replaced snapshot files still being read; deleted when their last reader closes. */
+    private final Set<Path> retired = new HashSet<>();
+
+    public CatalogSnapshotService(ProductRepository productRepository,
+                                  CategoryRepository categoryRepository,
+                                  ObjectMapper objectMapper,
+                                  DatabaseClock databaseClock,
+                                  PlatformTransactionManager transactionManager) {
+        this.productRepository   = productRepository;
+        this.categoryRepository  = categoryRepository;
+        this.objectMapper        = objectMapper;
+        this.databaseClock       = databaseClock;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /** The current snapshot, rebuilding it first if the catalogue has changed or stock is stale. */
+    public Snapshot getSnapshot() {
+        String version = catalogVersion();
+        Snapshot snapshot = current;
+        if (isFresh(snapshot, version)) return snapshot;
+        synchronized (buildLock) {
+            snapshot = current;
+            if (isFresh(snapshot, version)) return snapshot;
+            Snapshot built = build(version);
+            current = built;
+            retire(snapshot);
+            return built;
+        }
+    }
+
+    /**
+     * Opens the current snapshot, rebuilding it first if needed. The file stays on disk until the
+     * returned stream is closed, however many rebuilds happen meanwhile.
+     */
+    public Download open() {
+        getSnapshot();
+        synchronized (filesLock) {
+            // Taken under the lock: the current file cannot be retired before the reader is counted.
+            Snapshot snapshot = current;
+            Path file = snapshot.file();
+            InputStream in;
+            try {
+                in = Files.newInputStream(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            readers.merge(file, 1, Integer::sum);
+            return new Download(snapshot, new FilterInputStream(in) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (closed) return;
+                    closed = true;
+                    try {
+                        super.close();
+                    } finally {
+                        release(file);
+                    }
+                }
+            });
+        }
+    }
+
+    private void retire(Snapshot snapshot) {
+        if (snapshot == null) return;
+        synchronized (filesLock) {
+            if (readers.containsKey(snapshot.file())) {
+                retired.add(snapshot.file());
+            } else {
+                delete(snapshot.file());
+            }
+        }
+    }
+
+    private void release(Path file) {
+        synchronized (filesLock) {
+            if (readers.merge(file, -1, Integer::sum) > 0) return;
+            readers.remove(file);
+            if (retired.remove(file)) delete(file);
+        }
+    }
+
+    private boolean isFresh(Snapshot snapshot, String version) {
+        return snapshot != null
+                && snapshot.catalogVersion().equals(version)
+                && System.currentTimeMillis() - snapshot.builtAtMillis() < maxStockAgeMs
+                && Files.exists(snapshot.file());
+    }
+
+    /** Changes whenever a product or category is edited, added, activated or deactivated. */
+    private String catalogVersion() {
+        return productRepository.countByActiveTrue()
+                + "|" + productRepository.findMaxUpdatedAt()
+                + "|" + categoryRepository.findMaxUpdatedAt();
+    }
+
+    private Snapshot build(String version) {
+        long started = System.currentTimeMillis();
+        // Database time, taken before the catalogue is read: changes stamped up to here are committed.
+        long watermark = databaseClock.committedUpTo(Duration.ofMillis(watermarkLagMs))
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Path file;
+        try {
+            file = Files.createTempFile("catalog-snapshot-", ".ndjson.gz");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            Integer products = readOnlyTransaction.execute(status -> writeCatalog(file));
+            long size = Files.size(file);
+            String etag = "W/\"" + UUID.nameUUIDFromBytes(version.getBytes(StandardCharsets.UTF_8)) + "\"";
+            log.info("Catalogue snapshot built — {} products, {} bytes in {} ms",
+                    products, size, System.currentTimeMillis() - started);
+            return new Snapshot(file, etag, size, products != null ? products : 0,
+                    watermark + "-0-0", version, started);
+        } catch (IOException e) {
+            delete(file);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            delete(file);
+            log.error("Catalogue snapshot build failed: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    private int writeCatalog(Path file) {
+        int count = 0;
+        try (Stream<Object[]> rows = productRepository.streamActiveCatalog();
+             OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), GZIP_BUFFER);
+             SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            Iterator<Object[]> it = rows.iterator();
+            while (it.hasNext()) {
+                writer.write(toResponse(it.next()));
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    /** Row: [id, name, sku, barcode, size, color, price, categoryId, categoryName, imageUrl, quantity, updatedAt]. */
+    private static ProductResponse toResponse(Object[] row) {
+        return ProductResponse.builder()
+                .id((Long) row[0])
+                .name((String) row[1])
+                .sku((String) row[2])
+                .barcode((String) row[3])
+                .size((String) row[4])
+                .color((String) row[5])
+                .price((BigDecimal) row[6])
+                .categoryId((Long) row[7])
+                .categoryName((String) row[8])
+                .imageUrl((String) row[9])
+                .quantity(((Number) row[10]).intValue())
+                .updatedAt((LocalDateTime) row[11])
+                .active(true)
+                .build();
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete catalogue snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void cleanUp() {
+        synchronized (filesLock) {
+            retired.forEach(CatalogSnapshotService::delete);
+            retired.clear();
+            if (current != null) delete(current.file());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.pos.service;
+
+import com.pos.config.DatabaseClock;
+import com.pos.dto.response.CatalogChangesResponse;
+import com.pos.dto.response.ProductResponse;
+import com.pos.entity.Product;
+import com.pos.exception.BadRequestException;
+import com.pos.exception.ErrorCode;
+import com.pos.repository.InventoryRepository;
+import com.pos.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Delta catalogue sync for tills: products whose details, price, category or stock changed since a
+ * cursor, including deactivations.
+ * <p>
+ * A cursor is {@code since-afterId-watermark}, times in epoch millis. Each sync window covers
+ * changes stamped in {@code (since, watermark]}; pages within a window are keyset-paged on product
+ * id, and the final page hands back {@code watermark-0-0} as the start of the next window.
+ * Re-delivering a product is harmless — terminals upsert by id.
+ * <p>
+ * Rows are stamped with the database clock at their transaction's start, so a change can commit
+ * after later-stamped ones. The watermark, fixed on a window's first page, is therefore taken from
+ * {@link DatabaseClock#committedUpTo}: at least {@code catalog-sync.watermark-lag-ms} behind the
+ * database clock and, on PostgreSQL, no later than the oldest open transaction's start. On other
+ * databases the lag must exceed the longest transaction that writes products, stock or categories.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogSyncService {
+
+    private final ProductRepository   productRepository;
+    private final InventoryRepository inventoryRepository;
+    private final DatabaseClock       databaseClock;
+
+    @Value("${catalog-sync.max-page-size:1000}")
+    private int maxPageSize = 1000;
+
+    /** How far behind the database clock each window's upper bound is set, at least. */
+    @Value("${catalog-sync.watermark-lag-ms:5000}")
+    private long watermarkLagMs = 5000;
+
+    private record SyncCursor(long since, long afterId, long watermark) {
+
+        static SyncCursor parse(String cursor) {
+            if (cursor == null || cursor.isBlank()) return new SyncCursor(0, 0, 0);
+            try {
+                String[] parts = cursor.trim().split("-");
+                if (parts.length == 1) return new SyncCursor(Long.parseLong(parts[0]), 0, 0);
+                if (parts.length == 3) {
+                    return new SyncCursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                }
+            } catch (NumberFormatException ignored) {
+                // fall through
+            }
+            log.warn("[PR007] Invalid sync cursor: {}", cursor);
+            throw new BadRequestException(ErrorCode.PR007);
+        }
+
+        String encode() {
+            return since + "-" + afterId + "-" + watermark;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CatalogChangesResponse getChanges(String cursor, int limit) {
+        SyncCursor from = SyncCursor.parse(cursor);
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        long watermark = from.watermark() > 0
+                ? from.watermark()
+                : Math.max(from.since(), toEpochMillis(databaseClock.committedUpTo(Duration.ofMillis(watermarkLagMs))));
+        log.debug("Catalogue sync — since: {}, afterId: {}, watermark: {}", from.since(), from.afterId(), watermark);
+
+        // Each source is an index-friendly keyset query; one extra row each tells us whether more remain.
+        Pageable probe = PageRequest.of(0, size + 1);
+        TreeSet<Long> changed = new TreeSet<>();
+        if (from.since() == 0) {
+            changed.addAll(productRepository.findIdsAfterId(from.afterId(), probe));
+        } else {
+            LocalDateTime since = toDateTime(from.since());
+            LocalDateTime until = toDateTime(watermark);
+            changed.addAll(productRepository.findIdsUpdatedBetween(since, until, from.afterId(), probe));
+            changed.addAll(inventoryRepository.findProductIdsUpdatedBetween(since, until, from.afterId(), probe));
+            changed.addAll(productRepository.findIdsWithCategoryUpdatedBetween(since, until, from.afterId(), probe));
+        }
+
+        List<Long> ids = new ArrayList<>(size);
+        for (Long id : changed) {
+            if (ids.size() == size) break;
+            ids.add(id);
+        }
+        boolean hasMore = changed.size() > size;
+
+        Map<Long, ProductResponse> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Object[] row : productRepository.findWithStockByIdIn(ids)) {
+                Product product = (Product) row[0];
+                byId.put(product.getId(), ProductResponse.from(product, ((Number) row[1]).intValue()));
+            }
+        }
+        List<ProductResponse> items = ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+
+        SyncCursor next = hasMore
+                ? new SyncCursor(from.since(), ids.get(ids.size() - 1), watermark)
+                : new SyncCursor(watermark, 0, 0);
+        return CatalogChangesResponse.builder()
+                .items(items)
+                .nextCursor(next.encode())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -3,36 +3,66 @@ package com.pos.service;
 import com.pos.dto.request.CustomerRequest;
 import com.pos.dto.response.CustomerResponse;
 import com.pos.entity.Customer;
+import com.pos.event.CustomerChangedEvent;
 import com.pos.exception.BadRequestException;
 import com.pos.exception.ErrorCode;
 import com.pos.exception.ResourceNotFoundException;
 import com.pos.repository.CustomerRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
+    private final RewardLedgerService rewardLedgerService;
+    private final BarcodeIndexService barcodeIndexService;
+    private final SearchIndexService searchIndexService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BarcodeAllocator barcodeAllocator;
 
     public Page<CustomerResponse> getAll(String search, Pageable pageable) {
         log.debug("Fetching customers — search: '{}'", search);
+        Page<Customer> page;
         if (search != null && !search.isBlank()) {
-            return customerRepository.search(search, pageable).map(CustomerResponse::from);
+            page = searchIndexService.searchCustomers(search, pageable)
+                    .map(this::loadRanked)
+                    .orElseGet(() -> customerRepository.search(search, pageable));
+        } else {
+            page = customerRepository.findAll(pageable);
+        }
+        Map<Long, Integer> pending = rewardLedgerService.pendingPoints(
+                page.getContent().stream().map(Customer::getId).toList());
+        return page.map(c -> withBalance(c, pending.getOrDefault(c.getId(), 0)));
+    }
+
+    /** Loads a page of ranked search hits in one query, keeping the index's order. */
+    private Page<Customer> loadRanked(Page<Long> ids) {
+        Map<Long, Customer> byId = new HashMap<>();
+        if (!ids.getContent().isEmpty()) {
+            customerRepository.findAllById(ids.getContent()).forEach(c -> byId.put(c.getId(), c));
         }
-        return customerRepository.findAll(pageable).map(CustomerResponse::from);
+        List<Customer> content = ids.getContent().stream().map(byId::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
     }
 
     public CustomerResponse getById(Long id) {
         log.debug("Fetching customer id: {}", id);
-        return CustomerResponse.from(findById(id));
+        return withBalance(findById(id));
     }
 
     public CustomerResponse create(CustomerRequest request) {
@@ -48,6 +78,7 @@ public class CustomerService {
                 .updatedBy(currentUsername())
                 .build();
         CustomerResponse saved = CustomerResponse.from(customerRepository.save(customer));
+        eventPublisher.publishEvent(new CustomerChangedEvent(saved.getId()));
         log.info("Customer created — id: {}", saved.getId());
         return saved;
     }
@@ -67,13 +98,16 @@ public class CustomerService {
         customer.setEmail(request.getEmail());
         customer.setPhone(request.getPhone());
         customer.setUpdatedBy(currentUsername());
+        customer = customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
         log.info("Customer updated — id: {}", id);
-        return CustomerResponse.from(customerRepository.save(customer));
+        return withBalance(customer);
     }
 
     public void delete(Long id) {
         log.info("Deleting customer id: {}", id);
         customerRepository.delete(findById(id));
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
         log.info("Customer id: {} deleted", id);
     }
 
@@ -83,7 +117,8 @@ public class CustomerService {
     }
 
     /**
-     * Create a member card for the customer: assign a unique barcode (MC + zero-padded id).
+     * Create a member card for the customer: assign a unique in-store EAN-13 barcode from the
+     * {@link BarcodeAllocator}, so cards scan on any till scanner.
      * Idempotent: if customer already has a card, returns current customer with existing barcode.
      */
     public CustomerResponse createMemberCard(Long id) {
@@ -91,14 +126,15 @@ public class CustomerService {
         Customer customer = findById(id);
         if (customer.getMemberCardBarcode() != null && !customer.getMemberCardBarcode().isBlank()) {
             log.debug("Customer {} already has member card: {}", id, customer.getMemberCardBarcode());
-            return CustomerResponse.from(customer);
+            return withBalance(customer);
         }
-        String barcode = "MC" + String.format("%010d", customer.getId());
+        String barcode = barcodeAllocator.nextMemberCardBarcode();
         customer.setMemberCardBarcode(barcode);
         customer.setUpdatedBy(currentUsername());
         customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(id));
         log.info("Member card created — customer id: {}, barcode: {}", id, barcode);
-        return CustomerResponse.from(customer);
+        return withBalance(customer);
     }
 
     /**
@@ -106,11 +142,23 @@ public class CustomerService {
      */
     public CustomerResponse findByMemberCardBarcode(String barcode) {
         log.debug("Looking up customer by member card barcode: {}", barcode);
-        return customerRepository.findByMemberCardBarcode(barcode != null ? barcode.trim() : "")
-                .map(CustomerResponse::from)
+        return barcodeIndexService.findCustomerId(barcode != null ? barcode.trim() : "")
+                .flatMap(customerRepository::findById)
+                .map(this::withBalance)
                 .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.CM001));
     }
 
+    /** Snapshot balance plus reward-ledger entries not yet compacted into it. */
+    private CustomerResponse withBalance(Customer customer) {
+        return withBalance(customer, rewardLedgerService.pendingPoints(customer.getId()));
+    }
+
+    private CustomerResponse withBalance(Customer customer, int pendingPoints) {
+        CustomerResponse response = CustomerResponse.from(customer);
+        response.setRewardPoints(response.getRewardPoints() + pendingPoints);
+        return response;
+    }
+
     private Customer findById(Long id) {
         return customerRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.CM001));
@@ -3,12 +3,14 @@ package com.pos.service;
 import com.pos.dto.request.InventoryUpdateRequest;
 import com.pos.dto.response.InventoryResponse;
 import com.pos.entity.Inventory;
+import com.pos.event.StockChangedEvent;
 import com.pos.exception.ErrorCode;
 import com.pos.exception.ResourceNotFoundException;
 import com.pos.repository.InventoryRepository;
 import com.pos.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -25,6 +27,8 @@ public class InventoryService {
 
     private final InventoryRepository inventoryRepository;
     private final ProductRepository   productRepository;
+    private final StockStatusService  stockStatusService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<InventoryResponse> getAll(Pageable pageable) {
         log.debug("Fetching inventory page: {}", pageable);
@@ -33,7 +37,7 @@ public class InventoryService {
 
     public List<InventoryResponse> getLowStock() {
         log.debug("Fetching low-stock items");
-        List<InventoryResponse> items = inventoryRepository.findLowStockItems().stream()
+        List<InventoryResponse> items = stockStatusService.findLowStock().stream()
                 .map(InventoryResponse::from)
                 .collect(Collectors.toList());
         if (!items.isEmpty()) {
@@ -61,18 +65,14 @@ public class InventoryService {
         inventory.setLowStockThreshold(request.getLowStockThreshold());
         inventory.setUpdatedBy(currentUsername());
         InventoryResponse saved = InventoryResponse.from(inventoryRepository.save(inventory));
+        eventPublisher.publishEvent(StockChangedEvent.set(productId, request.getQuantity()));
         log.info("Stock updated for product id: {} — {} → {}", productId, oldQty, request.getQuantity());
         return saved;
     }
 
     public com.pos.dto.response.InventoryStats getStats() {
         log.debug("Fetching inventory stats");
-        return new com.pos.dto.response.InventoryStats(
-                inventoryRepository.count(),
-                inventoryRepository.countInStock(),
-                inventoryRepository.countLowStock(),
-                inventoryRepository.countOutOfStock()
-        );
+        return stockStatusService.getStats();
     }
 
     private String currentUsername() {
@@ -0,0 +1,228 @@
+package com.pos.service;
+
+import com.pos.dto.request.LabelPrintRequest;
+import com.pos.enums.LabelPrintFormat;
+import com.pos.exception.BadRequestException;
+import com.pos.exception.ErrorCode;
+import com.pos.print.LabelTemplate;
+import com.pos.repository.LabelRepository;
+import com.pos.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Server-side label printing: turns a list of label and product ids into one ZPL or EPL print job.
+ * <p>
+ * Ids are read in chunks with one projection query each, every chunk's labels are rendered in
+ * parallel from a cached {@link LabelTemplate}, and chunks are written to the output in request
+ * order while the next one is loaded and rendered — so memory holds at most two chunks, however
+ * many labels the job has. Products print their barcode, or their SKU when they have none; ids that
+ * no longer exist, or products with neither, are skipped.
+ * <p>
+ * Rendering runs on this service's own pool of {@code label-print.render-threads}, not the common
+ * ForkJoinPool, so large print jobs cannot starve other parallel work. Its queue is bounded; when it
+ * is full the request thread renders the slice itself, which slows concurrent jobs down instead of
+ * piling up work.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LabelPrintService {
+
+    private static final int DEFAULT_RENDER_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int RENDER_QUEUE_SIZE = 64;
+
+    private final LabelRepository   labelRepository;
+    private final ProductRepository productRepository;
+
+    @Value("${label-print.width-mm:50}")
+    private double widthMm = 50;
+
+    @Value("${label-print.height-mm:30}")
+    private double heightMm = 30;
+
+    @Value("${label-print.dpi:203}")
+    private int dpi = 203;
+
+    @Value("${label-print.max-labels:20000}")
+    private int maxLabels = 20_000;
+
+    @Value("${label-print.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /** Render threads; 0 uses the default of half the processors, at most 4. */
+    @Value("${label-print.render-threads:0}")
+    private int renderThreads = 0;
+
+    private final ThreadPoolExecutor renderer = renderPool(DEFAULT_RENDER_THREADS);
+
+    private final Map<LabelPrintFormat, LabelTemplate> templates = new ConcurrentHashMap<>();
+
+    /** A validated print request, ready to stream. */
+    public record PrintJob(List<Long> labelIds, List<Long> productIds, int copies, LabelTemplate template) {
+
+        public int size() {
+            return labelIds.size() + productIds.size();
+        }
+
+        public String fileName() {
+            return "labels-" + size() + "." + template.fileExtension();
+        }
+    }
+
+    /**
+     * Checks the request before anything is streamed, so problems still reach the client as an
+     * error response rather than a truncated print job.
+     */
+    public PrintJob prepare(LabelPrintRequest request) {
+        List<Long> labelIds = nonNull(request.getLabelIds());
+        List<Long> productIds = nonNull(request.getProductIds());
+        int total = labelIds.size() + productIds.size();
+        if (total == 0) {
+            throw new BadRequestException(ErrorCode.LB003);
+        }
+        if (total > maxLabels) {
+            log.warn("[LB004] Print job rejected — {} labels requested, limit {}", total, maxLabels);
+            throw new BadRequestException(ErrorCode.LB004, total + " requested, at most " + maxLabels);
+        }
+        LabelPrintFormat format = request.getFormat() != null ? request.getFormat() : LabelPrintFormat.ZPL;
+        return new PrintJob(labelIds, productIds, Math.max(1, request.getCopies()), template(format));
+    }
+
+    private static List<Long> nonNull(List<Long> ids) {
+        return ids != null ? ids.stream().filter(Objects::nonNull).toList() : List.of();
+    }
+
+    private static ThreadPoolExecutor renderPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(RENDER_QUEUE_SIZE),
+                r -> {
+                    Thread t = new Thread(r, "label-render-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (task, executor) -> {
+                    if (executor.isShutdown()) throw new RejectedExecutionException("Label rendering is shutting down");
+                    task.run();
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    @PostConstruct
+    void configureRenderer() {
+        if (renderThreads <= 0 || renderThreads == renderer.getMaximumPoolSize()) return;
+        // Grow the maximum first (or shrink the core first) so core never exceeds maximum.
+        if (renderThreads > renderer.getMaximumPoolSize()) {
+            renderer.setMaximumPoolSize(renderThreads);
+            renderer.setCorePoolSize(renderThreads);
+        } else {
+            renderer.setCorePoolSize(renderThreads);
+            renderer.setMaximumPoolSize(renderThreads);
+        }
+    }
+
+    /** Layouts are worked out once per format. */
+    LabelTemplate template(LabelPrintFormat format) {
+        return templates.computeIfAbsent(format, f -> LabelTemplate.of(f, widthMm, heightMm, dpi));
+    }
+
+    /** Streams the job to {@code out}; labels come out in request order, labels before products. */
+    public void write(PrintJob job, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        CompletableFuture<List<byte[]>> pending = null;
+        int printed = 0;
+        for (Chunk chunk : chunks(job)) {
+            CompletableFuture<List<byte[]>> next = render(job, chunk);
+            if (pending != null) printed += drain(pending, out);
+            pending = next;
+        }
+        if (pending != null) printed += drain(pending, out);
+        out.flush();
+        log.info("Printed {} of {} labels ({} copies, {}) in {} ms", printed, job.size(), job.copies(),
+                job.template().format(), System.currentTimeMillis() - started);
+    }
+
+    private record Chunk(List<Long> ids, Function<List<Long>, List<Object[]>> loader) {}
+
+    private List<Chunk> chunks(PrintJob job) {
+        List<Chunk> chunks = new ArrayList<>();
+        for (int from = 0; from < job.labelIds().size(); from += chunkSize) {
+            chunks.add(new Chunk(job.labelIds().subList(from, Math.min(from + chunkSize, job.labelIds().size())),
+                    labelRepository::findPrintRowsByIdIn));
+        }
+        for (int from = 0; from < job.productIds().size(); from += chunkSize) {
+            chunks.add(new Chunk(job.productIds().subList(from, Math.min(from + chunkSize, job.productIds().size())),
+                    productRepository::findPrintRowsByIdIn));
+        }
+        return chunks;
+    }
+
+    /**
+     * Loads the chunk on the calling thread, then renders its labels in the background, split into
+     * one contiguous slice per render thread so the results keep their order.
+     */
+    private CompletableFuture<List<byte[]>> render(PrintJob job, Chunk chunk) {
+        Map<Long, LabelTemplate.Item> byId = new HashMap<>();
+        for (Object[] row : chunk.loader().apply(List.copyOf(new LinkedHashSet<>(chunk.ids())))) {
+            String barcode = row[2] != null && !((String) row[2]).isBlank() ? (String) row[2] : (String) row[3];
+            if (barcode == null || barcode.isBlank()) continue;
+            byId.put((Long) row[0], new LabelTemplate.Item((String) row[1], barcode, (BigDecimal) row[4]));
+        }
+        List<LabelTemplate.Item> items = chunk.ids().stream().map(byId::get).filter(Objects::nonNull).toList();
+        LabelTemplate template = job.template();
+        int sliceSize = Math.max(1, (items.size() + renderer.getMaximumPoolSize() - 1) / renderer.getMaximumPoolSize());
+        List<CompletableFuture<List<byte[]>>> slices = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += sliceSize) {
+            List<LabelTemplate.Item> slice = items.subList(from, Math.min(from + sliceSize, items.size()));
+            slices.add(CompletableFuture.supplyAsync(() ->
+                    slice.stream().map(item -> template.render(item, job.copies())).toList(), renderer));
+        }
+        return CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            List<byte[]> labels = new ArrayList<>(items.size());
+            for (CompletableFuture<List<byte[]>> slice : slices) labels.addAll(slice.join());
+            return labels;
+        });
+    }
+
+    private static int drain(CompletableFuture<List<byte[]>> rendered, OutputStream out) throws IOException {
+        List<byte[]> labels;
+        try {
+            labels = rendered.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+        for (byte[] label : labels) out.write(label);
+        return labels.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderer.shutdownNow();
+    }
+}
@@ -7,6 +7,8 @@ import com.pos.entity.Category;
 import com.pos.entity.Inventory;
 import com.pos.entity.Label;
 import com.pos.entity.Product;
+import com.pos.event.CatalogChangedEvent;
+import com.pos.event.LabelChangedEvent;
 import com.pos.exception.BadRequestException;
 import com.pos.exception.ErrorCode;
 import com.pos.exception.ResourceNotFoundException;
@@ -16,15 +18,28 @@ import com.pos.repository.LabelRepository;
 import com.pos.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
 
 @Slf4j
 @Service
@@ -35,10 +50,16 @@ public class LabelService {
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
+    private final SearchIndexService searchIndexService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BarcodeAllocator barcodeAllocator;
+    private final BarcodeFilterService barcodeFilterService;
 
     public Page<LabelResponse> getAll(String search, Long categoryId, Pageable pageable) {
         log.debug("Fetching labels — search: '{}', categoryId: {}", search, categoryId);
         if (search != null && !search.isBlank()) {
+            Optional<Page<Long>> ranked = searchIndexService.searchLabels(search, categoryId, pageable);
+            if (ranked.isPresent()) return loadRanked(ranked.get());
             if (categoryId != null) {
                 return labelRepository.searchUnlinkedByCategory(search, categoryId, pageable)
                         .map(LabelResponse::from);
@@ -52,6 +73,17 @@ public class LabelService {
         return labelRepository.findAllUnlinked(pageable).map(LabelResponse::from);
     }
 
+    /** Loads a page of ranked search hits in one query, keeping the index's order. */
+    private Page<LabelResponse> loadRanked(Page<Long> ids) {
+        Map<Long, LabelResponse> byId = new HashMap<>();
+        List<Label> labels = ids.getContent().isEmpty() ? List.of() : labelRepository.findWithCategoryByIdIn(ids.getContent());
+        for (Label label : labels) {
+            byId.put(label.getId(), LabelResponse.from(label));
+        }
+        List<LabelResponse> content = ids.getContent().stream().map(byId::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
+    }
+
     public LabelResponse getById(Long id) {
         log.debug("Fetching label id: {}", id);
         return LabelResponse.from(findById(id));
@@ -71,54 +103,144 @@ public class LabelService {
                 .sku(request.getSku() != null ? request.getSku().trim() : null)
                 .category(category)
                 .build();
-        label = labelRepository.save(label);
+        label = saveUnique(barcode, label, labelRepository::save);
+        barcodeFilterService.record(barcode);
+        eventPublisher.publishEvent(LabelChangedEvent.of(label.getId()));
 
         log.info("Label created — id: {}, barcode: '{}'", label.getId(), label.getBarcode());
         return LabelResponse.from(label);
     }
 
+    /**
+     * Creates many labels at once, e.g. a shelf reset. Supplied barcodes are checked with one
+     * {@code IN} query against products and, for those the barcode filter cannot rule out, one
+     * against labels; missing ones are generated as a block and checked the same way. Categories
+     * are loaded once and the labels are inserted with one batched {@code saveAll}. Requests
+     * without a name are skipped; results follow the input order. A supplied barcode that is taken,
+     * or repeated in the request, rejects the whole batch.
+     */
     @Transactional
     public List<LabelResponse> createBulk(List<LabelRequest> requests) {
         log.info("Bulk creating {} labels", requests != null ? requests.size() : 0);
-        List<LabelResponse> results = new ArrayList<>();
         if (requests == null || requests.isEmpty()) {
-            return results;
+            return new ArrayList<>();
+        }
+        List<LabelRequest> named = requests.stream()
+                .filter(req -> req.getName() != null && !req.getName().isBlank())
+                .toList();
+        if (named.isEmpty()) return new ArrayList<>();
+
+        Set<String> supplied = new HashSet<>();
+        int toGenerate = 0;
+        for (LabelRequest req : named) {
+            String barcode = req.getBarcode() != null ? req.getBarcode().trim() : "";
+            if (barcode.isBlank()) {
+                toGenerate++;
+            } else if (!supplied.add(barcode)) {
+                throw new BadRequestException(ErrorCode.LB002, "Duplicate barcode in request: " + barcode);
+            }
+        }
+        Set<String> taken = takenBarcodes(supplied);
+        if (!taken.isEmpty()) {
+            log.warn("[LB002] Bulk label create rejected — barcodes already in use: {}", taken);
+            throw new BadRequestException(ErrorCode.LB002, String.join(", ", taken));
+        }
+        Iterator<String> generated = generateUniqueBarcodes(toGenerate, supplied).iterator();
+        Map<Long, Category> categories = resolveCategories(named);
+
+        List<Label> labels = new ArrayList<>(named.size());
+        for (LabelRequest req : named) {
+            String barcode = req.getBarcode() != null ? req.getBarcode().trim() : "";
+            labels.add(Label.builder()
+                    .barcode(barcode.isBlank() ? generated.next() : barcode)
+                    .name(req.getName().trim())
+                    .price(req.getPrice())
+                    .sku(req.getSku() != null ? req.getSku().trim() : null)
+                    .category(req.getCategoryId() != null ? categories.get(req.getCategoryId()) : null)
+                    .build());
+        }
+        labels = saveUnique(String.join(", ", supplied), labels, labelRepository::saveAll);
+        labels.forEach(l -> barcodeFilterService.record(l.getBarcode()));
+        eventPublisher.publishEvent(LabelChangedEvent.of(labels.stream().map(Label::getId).toList()));
+
+        log.info("Bulk created {} labels ({} generated barcodes)", labels.size(), toGenerate);
+        return labels.stream().map(LabelResponse::from).toList();
+    }
+
+    /**
+     * Barcodes from {@code candidates} already used by a label or a product. Labels are only queried
+     * for the barcodes the barcode filter cannot rule out; products always are, since no constraint
+     * keeps a label from reusing a product's barcode.
+     */
+    private Set<String> takenBarcodes(Collection<String> candidates) {
+        if (candidates.isEmpty()) return Set.of();
+        Set<String> taken = new TreeSet<>();
+        Set<String> possibleLabels = barcodeFilterService.possiblyPresent(candidates);
+        if (!possibleLabels.isEmpty()) taken.addAll(labelRepository.findBarcodesByBarcodeIn(possibleLabels));
+        for (Object[] row : productRepository.findIdsByBarcodeIn(candidates)) {
+            taken.add((String) row[0]);
+        }
+        return taken;
+    }
+
+    /**
+     * Saves and flushes, so a barcode the filter let through — another node wrote it since the last
+     * rebuild — is rejected by its unique constraint here and reported as LB002 rather than a 500.
+     */
+    private <T> T saveUnique(String barcodes, T entity, UnaryOperator<T> save) {
+        try {
+            T saved = save.apply(entity);
+            labelRepository.flush();
+            return saved;
+        } catch (DataIntegrityViolationException ex) {
+            if (!BarcodeFilterService.isDuplicateBarcode(ex)) throw ex;
+            log.warn("[LB002] Barcode taken by a concurrent write — barcode: '{}'", barcodes);
+            throw new BadRequestException(ErrorCode.LB002);
         }
+    }
+
+    /**
+     * {@code count} fresh barcodes from the {@link BarcodeAllocator}. Allocated codes never repeat;
+     * the one {@code IN} check per kind only guards against a hand-entered code in the same in-store
+     * range, and any such candidate is replaced.
+     */
+    private List<String> generateUniqueBarcodes(int count, Set<String> reserved) {
+        List<String> result = new ArrayList<>(count);
+        for (int round = 0; result.size() < count; round++) {
+            if (round > 10) throw new IllegalStateException("Could not generate " + count + " unique label barcodes");
+            Set<String> candidates = new LinkedHashSet<>(barcodeAllocator.nextLabelBarcodes(count - result.size()));
+            candidates.removeAll(reserved);
+            candidates.removeAll(takenBarcodes(candidates));
+            result.addAll(candidates);
+        }
+        return result;
+    }
+
+    private Map<Long, Category> resolveCategories(List<LabelRequest> requests) {
+        Set<Long> ids = new HashSet<>();
         for (LabelRequest req : requests) {
-            if (req.getName() == null || req.getName().isBlank()) continue;
-            results.add(create(req));
+            if (req.getCategoryId() != null) ids.add(req.getCategoryId());
+        }
+        if (ids.isEmpty()) return Map.of();
+        Map<Long, Category> byId = new HashMap<>();
+        for (Category c : categoryRepository.findAllById(ids)) byId.put(c.getId(), c);
+        for (Long id : ids) {
+            if (!byId.containsKey(id)) throw new ResourceNotFoundException(ErrorCode.CT001, "id: " + id);
         }
-        log.info("Bulk created {} labels", results.size());
-        return results;
+        return byId;
     }
 
     private String resolveBarcode(String provided) {
         String barcode = provided != null ? provided.trim() : "";
         if (barcode.isBlank()) {
-            barcode = generateUniqueBarcode();
+            return generateUniqueBarcodes(1, Set.of()).get(0);
         }
-        if (labelRepository.existsByBarcode(barcode) || productRepository.existsByBarcode(barcode)) {
+        if (barcodeFilterService.barcodeInUse(barcode)) {
             throw new BadRequestException(ErrorCode.LB002);
         }
         return barcode;
     }
 
-    private String generateUniqueBarcode() {
-        String candidate;
-        int attempts = 0;
-        do {
-            long base = System.currentTimeMillis() % 10_000_000_000L;
-            int suffix = ThreadLocalRandom.current().nextInt(100, 9999);
-            candidate = "LBL" + base + suffix;
-            attempts++;
-            if (attempts > 10) {
-                candidate = "LBL" + System.nanoTime() + ThreadLocalRandom.current().nextInt(100, 999);
-            }
-        } while ((labelRepository.existsByBarcode(candidate) || productRepository.existsByBarcode(candidate))
-                && attempts <= 10);
-        return candidate;
-    }
-
     @Transactional
     public LabelResponse update(Long id, LabelRequest request) {
         log.info("Updating label id: {}", id);
@@ -131,7 +253,7 @@ public class LabelService {
         if (newBarcode.isBlank()) {
             newBarcode = label.getBarcode();
         } else if (!newBarcode.equals(label.getBarcode())) {
-            if (labelRepository.existsByBarcode(newBarcode) || productRepository.existsByBarcode(newBarcode)) {
+            if (barcodeFilterService.barcodeInUse(newBarcode)) {
                 throw new BadRequestException(ErrorCode.LB002);
             }
         }
@@ -143,8 +265,11 @@ public class LabelService {
         label.setSku(request.getSku() != null ? request.getSku().trim() : null);
         label.setCategory(category);
 
+        label = saveUnique(newBarcode, label, labelRepository::save);
+        barcodeFilterService.record(newBarcode);
+        eventPublisher.publishEvent(LabelChangedEvent.of(id));
         log.info("Label updated — id: {}", id);
-        return LabelResponse.from(labelRepository.save(label));
+        return LabelResponse.from(label);
     }
 
     @Transactional
@@ -154,7 +279,7 @@ public class LabelService {
         if (label.getProduct() != null) {
             throw new BadRequestException(ErrorCode.LB001, "Label is already linked to a product");
         }
-        if (productRepository.existsByBarcode(label.getBarcode())) {
+        if (barcodeFilterService.productBarcodeExists(label.getBarcode())) {
             throw new BadRequestException(ErrorCode.LB002);
         }
         if (label.getSku() != null && !label.getSku().isBlank() && productRepository.existsBySku(label.getSku())) {
@@ -170,7 +295,7 @@ public class LabelService {
                 .active(true)
                 .updatedBy(currentUsername())
                 .build();
-        product = productRepository.save(product);
+        product = saveUnique(label.getBarcode(), product, productRepository::save);
 
         inventoryRepository.save(Inventory.builder()
                 .product(product)
@@ -181,8 +306,10 @@ public class LabelService {
         label.setProduct(product);
         labelRepository.save(label);
 
+        eventPublisher.publishEvent(CatalogChangedEvent.of(product.getId()));
+        eventPublisher.publishEvent(LabelChangedEvent.of(labelId));
         log.info("Label {} converted to product id: {}", labelId, product.getId());
-        return toProductResponse(product);
+        return ProductResponse.from(product, initialStock);
     }
 
     /**
@@ -234,6 +361,8 @@ public class LabelService {
         label.setProduct(product);
         labelRepository.save(label);
 
+        eventPublisher.publishEvent(CatalogChangedEvent.of(productId));
+        eventPublisher.publishEvent(LabelChangedEvent.of(labelId));
         log.info("Label {} attached to product {}", labelId, productId);
         return LabelResponse.from(label);
     }
@@ -246,6 +375,7 @@ public class LabelService {
             throw new BadRequestException(ErrorCode.LB001, "Cannot delete a label linked to a product");
         }
         labelRepository.delete(label);
+        eventPublisher.publishEvent(LabelChangedEvent.of(id));
     }
 
     private Label findById(Long id) {
@@ -263,25 +393,4 @@ public class LabelService {
         var auth = SecurityContextHolder.getContext().getAuthentication();
         return auth != null ? auth.getName() : "system";
     }
-
-    private ProductResponse toProductResponse(Product p) {
-        int qty = inventoryRepository.findByProductId(p.getId())
-                .map(Inventory::getQuantity)
-                .orElse(0);
-        return ProductResponse.builder()
-                .id(p.getId())
-                .name(p.getName())
-                .sku(p.getSku())
-                .barcode(p.getBarcode())
-                .price(p.getPrice())
-                .categoryId(p.getCategory() != null ? p.getCategory().getId() : null)
-                .categoryName(p.getCategory() != null ? p.getCategory().getName() : null)
-                .imageUrl(p.getImageUrl())
-                .active(p.isActive())
-                .quantity(qty)
-                .createdAt(p.getCreatedAt())
-                .updatedAt(p.getUpdatedAt())
-                .updatedBy(p.getUpdatedBy())
-                .build();
-    }
 }
@@ -0,0 +1,180 @@
+package com.pos.service;
+
+import com.pos.config.RewardConfig;
+import com.pos.entity.Order;
+import com.pos.entity.OrderEvent;
+import com.pos.entity.Payment;
+import com.pos.enums.OrderEventStatus;
+import com.pos.enums.OrderStatus;
+import com.pos.enums.PaymentStatus;
+import com.pos.repository.OrderEventRepository;
+import com.pos.repository.PaymentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Applies post-sale work recorded in the order_events outbox: the payment record and reward
+ * accrual. Pending events are polled in batches and handled on virtual threads, each in its own
+ * transaction. Delivery is at-least-once; an event is claimed with a conditional UPDATE and its
+ * effects are idempotent, so a redelivery after a crash does not double-apply.
+ */
+@Slf4j
+@Service
+public class OrderEventDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OrderEventRepository orderEventRepository;
+    private final PaymentRepository    paymentRepository;
+    private final RewardLedgerService  rewardLedgerService;
+    private final RewardConfig         rewardConfig;
+    private final TransactionTemplate  transactionTemplate;
+    private final ExecutorService      executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${order-events.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${order-events.concurrency:8}")
+    private int concurrency = 8;
+
+    @Value("${order-events.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    public OrderEventDispatcher(OrderEventRepository orderEventRepository,
+                                PaymentRepository paymentRepository,
+                                RewardLedgerService rewardLedgerService,
+                                RewardConfig rewardConfig,
+                                PlatformTransactionManager transactionManager) {
+        this.orderEventRepository = orderEventRepository;
+        this.paymentRepository    = paymentRepository;
+        this.rewardLedgerService  = rewardLedgerService;
+        this.rewardConfig         = rewardConfig;
+        this.transactionTemplate  = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(fixedDelayString = "${order-events.poll-interval-ms:1000}")
+    public void poll() {
+        dispatchBatch();
+    }
+
+    /**
+     * Handles everything currently pending. Called before figures that depend on the payment rows
+     * (e.g. closing a shift) are computed, so they do not lag behind the poll interval.
+     */
+    public void drain() {
+        while (dispatchBatch() >= batchSize) {
+            // keep going until a short batch; failing events stop being pending after maxAttempts
+        }
+    }
+
+    /** Dispatches up to one batch of pending events and returns how many were picked up. */
+    public int dispatchBatch() {
+        List<Long> ids = orderEventRepository.findIdsByStatus(
+                OrderEventStatus.PENDING, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) return 0;
+
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        List<Future<?>> running = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            permits.acquireUninterruptibly();
+            running.add(executor.submit(() -> {
+                try {
+                    dispatch(id);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.error("Order event dispatch crashed", e.getCause());
+            }
+        }
+        log.debug("Dispatched {} order event(s)", ids.size());
+        return ids.size();
+    }
+
+    void dispatch(Long eventId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (orderEventRepository.markProcessed(eventId) == 0) return;
+                orderEventRepository.findById(eventId).ifPresent(this::apply);
+            });
+        } catch (RuntimeException ex) {
+            recordFailure(eventId, ex);
+        }
+    }
+
+    private void apply(OrderEvent event) {
+        switch (event.getType()) {
+            case ORDER_COMPLETED -> applyOrderCompleted(event.getOrder());
+        }
+    }
+
+    private void applyOrderCompleted(Order order) {
+        if (paymentRepository.findByOrderId(order.getId()).isEmpty()) {
+            // Stamped with the sale time so shift cash totals are bucketed by when the sale happened.
+            paymentRepository.save(Payment.builder()
+                    .order(order).method(order.getPaymentMethod()).amount(order.getTotal())
+                    .status(order.getStatus() == OrderStatus.CANCELLED ? PaymentStatus.FAILED : PaymentStatus.COMPLETED)
+                    .createdAt(order.getCreatedAt())
+                    .build());
+        }
+
+        if (order.getCustomer() != null && order.getStatus() == OrderStatus.COMPLETED) {
+            int pointsPerDollar = rewardConfig.getPointsPerDollar();
+            if (pointsPerDollar > 0) {
+                int earned = order.getSubtotal().multiply(BigDecimal.valueOf(pointsPerDollar)).intValue();
+                if (earned > 0 && rewardLedgerService.earn(order, earned)) {
+                    log.info("Order id: {} — customer {} earned {} reward points",
+                            order.getId(), order.getCustomer().getId(), earned);
+                }
+            }
+        }
+    }
+
+    private void recordFailure(Long eventId, RuntimeException ex) {
+        String message = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+        String error = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        transactionTemplate.executeWithoutResult(status ->
+                orderEventRepository.findById(eventId).ifPresent(event -> {
+                    event.setAttempts(event.getAttempts() + 1);
+                    event.setLastError(error);
+                    if (event.getAttempts() >= maxAttempts) {
+                        event.setStatus(OrderEventStatus.FAILED);
+                        log.error("Order event id: {} failed permanently after {} attempts: {}",
+                                eventId, event.getAttempts(), error);
+                    } else {
+                        log.warn("Order event id: {} failed (attempt {}): {}", eventId, event.getAttempts(), error);
+                    }
+                    orderEventRepository.save(event);
+                }));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,195 @@
+package com.pos.service;
+
+import com.pos.dto.request.OfflineOrderRequest;
+import com.pos.dto.request.OrderItemRequest;
+import com.pos.dto.request.OrderRequest;
+import com.pos.dto.response.OrderResponse;
+import com.pos.entity.Order;
+import com.pos.entity.OrderIdempotencyKey;
+import com.pos.exception.BadRequestException;
+import com.pos.exception.ConflictException;
+import com.pos.exception.ErrorCode;
+import com.pos.repository.OrderIdempotencyKeyRepository;
+import com.pos.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Backs the Idempotency-Key header on checkout: a bounded in-memory LRU of recent responses in
+ * front of the order_idempotency_keys table. A replayed key returns the original order without
+ * re-running the checkout transaction.
+ * <p>
+ * Keys belong to the cashier who sent them, so two tills that happen to pick the same key each get
+ * their own order. Each key also remembers a fingerprint of the request it was first used with; the
+ * same key arriving with a different basket is rejected rather than answered with the old order.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderIdempotencyService {
+
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final OrderIdempotencyKeyRepository idempotencyKeyRepository;
+    private final OrderRepository               orderRepository;
+
+    @Value("${order.idempotency.cache-size:1000}")
+    private int cacheSize = 1000;
+
+    @Value("${order.idempotency.retention-hours:24}")
+    private int retentionHours = 24;
+
+    private record Completed(String requestHash, OrderResponse response) {}
+
+    private final Map<String, Completed> recent = Collections.synchronizedMap(
+            new LinkedHashMap<String, Completed>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    /** Returns null for a missing or blank key; rejects keys that do not fit the column. */
+    public String normalize(String key) {
+        if (key == null || key.isBlank()) return null;
+        String trimmed = key.trim();
+        if (trimmed.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(ErrorCode.OR006);
+        }
+        return trimmed;
+    }
+
+    /**
+     * SHA-256 over the fields that decide what the order is: customer, payment method, discount,
+     * points, the lines in the order sent and, for offline sales, the sale time.
+     */
+    public String fingerprint(OrderRequest request) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(request.getCustomerId()).append('|')
+          .append(request.getPaymentMethod()).append('|')
+          .append(canonical(request.getDiscount())).append('|')
+          .append(request.getPointsToRedeem()).append('|');
+        List<OrderItemRequest> items = request.getItems() != null ? request.getItems() : List.of();
+        for (OrderItemRequest item : items) {
+            sb.append(item.getProductId()).append('x').append(item.getQuantity()).append(',');
+        }
+        if (request instanceof OfflineOrderRequest offline) {
+            sb.append('|').append(offline.getSoldAt());
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** 10, 10.0 and 10.00 are the same discount; a missing one is no discount. */
+    private static String canonical(BigDecimal amount) {
+        if (amount == null || amount.signum() == 0) return "0";
+        return amount.stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * The original response for this cashier's key, if its order has already been committed.
+     * Rejects the request when the key was used for a different request body.
+     */
+    @Transactional(readOnly = true)
+    public Optional<OrderResponse> findReplay(String username, String key, String requestHash) {
+        String cacheKey = cacheKey(username, key);
+        Completed cached = recent.get(cacheKey);
+        if (cached != null) {
+            checkSameRequest(cached.requestHash(), requestHash, username, key);
+            log.info("Idempotent replay (cache) — user: '{}', key: '{}', order id: {}", username, key, cached.response().getId());
+            return Optional.of(cached.response());
+        }
+        List<Object[]> stored = idempotencyKeyRepository.findCompleted(username, key);
+        if (stored.isEmpty()) return Optional.empty();
+        String storedHash = (String) stored.get(0)[1];
+        checkSameRequest(storedHash, requestHash, username, key);
+        Optional<OrderResponse> replay = orderRepository.findById((Long) stored.get(0)[0]).map(OrderResponse::from);
+        replay.ifPresent(r -> {
+            log.info("Idempotent replay (db) — user: '{}', key: '{}', order id: {}", username, key, r.getId());
+            recent.put(cacheKey, new Completed(storedHash, r));
+        });
+        return replay;
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash, String username, String key) {
+        if (!storedHash.equals(requestHash)) {
+            log.warn("[OR007] Idempotency key reused with a different request — user: '{}', key: '{}'", username, key);
+            throw new ConflictException(ErrorCode.OR007);
+        }
+    }
+
+    /**
+     * Inserts the key row inside the caller's transaction. A concurrent request from the same
+     * cashier holding the same key makes this insert wait on the unique index; if that request
+     * commits, this one is rejected so the client retries and gets the replay instead of a second
+     * order.
+     */
+    @Transactional
+    public OrderIdempotencyKey claim(String username, String key, String requestHash) {
+        try {
+            return idempotencyKeyRepository.saveAndFlush(OrderIdempotencyKey.builder()
+                    .username(username)
+                    .idempotencyKey(key)
+                    .requestHash(requestHash)
+                    .build());
+        } catch (DataIntegrityViolationException ex) {
+            log.warn("[OR005] Idempotency key already in use — user: '{}', key: '{}'", username, key);
+            throw new ConflictException(ErrorCode.OR005);
+        }
+    }
+
+    /** Links the claimed key to its order; the response is cached only once the order commits. */
+    public void complete(OrderIdempotencyKey claim, Order order, OrderResponse response) {
+        claim.setOrder(order);
+        idempotencyKeyRepository.save(claim);
+        String cacheKey = cacheKey(claim.getUsername(), claim.getIdempotencyKey());
+        Completed completed = new Completed(claim.getRequestHash(), response);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recent.put(cacheKey, completed);
+                }
+            });
+        } else {
+            recent.put(cacheKey, completed);
+        }
+    }
+
+    private static String cacheKey(String username, String key) {
+        return username + '\n' + key;
+    }
+
+    /** Runs hourly; keys only need to outlive a till's retry window. */
+    @Scheduled(cron = "0 15 * * * *")
+    @Transactional
+    public void purgeExpired() {
+        int removed = idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (removed > 0) {
+            log.info("Purged {} expired idempotency key(s)", removed);
+        }
+    }
+}
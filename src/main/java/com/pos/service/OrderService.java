@@ -1,28 +1,44 @@
 package com.pos.service;
 
 import com.pos.config.RewardConfig;
+import com.pos.dto.request.OfflineOrderRequest;
 import com.pos.dto.request.OrderItemRequest;
 import com.pos.dto.request.OrderRequest;
+import com.pos.dto.response.OrderBatchResponse;
 import com.pos.dto.response.OrderResponse;
 import com.pos.entity.*;
+import com.pos.enums.OrderEventType;
+import com.pos.event.StockChangedEvent;
 import com.pos.enums.OrderStatus;
 import com.pos.enums.PaymentStatus;
 import com.pos.exception.BadRequestException;
+import com.pos.exception.ConflictException;
 import com.pos.exception.ErrorCode;
 import com.pos.exception.ResourceNotFoundException;
 import com.pos.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Slf4j
 @Service
@@ -38,7 +54,12 @@ public class OrderService {
     private final CustomerRepository  customerRepository;
     private final UserRepository      userRepository;
     private final PaymentRepository   paymentRepository;
+    private final OrderEventRepository orderEventRepository;
     private final RewardConfig        rewardConfig;
+    private final OrderIdempotencyService idempotencyService;
+    private final RewardLedgerService     rewardLedgerService;
+    private final TransactionTemplate     transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<OrderResponse> getAll(Pageable pageable) {
         log.debug("Fetching orders — page: {}", pageable.getPageNumber());
@@ -52,12 +73,29 @@ public class OrderService {
 
     @Transactional
     public OrderResponse create(OrderRequest request) {
+        return create(request, null);
+    }
+
+    /**
+     * Places an order. When the cashier's till sends an Idempotency-Key that has already produced an
+     * order for the same request, that order is returned as-is and nothing is written.
+     */
+    @Transactional
+    public OrderResponse create(OrderRequest request, String idempotencyKey) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        String key = idempotencyService.normalize(idempotencyKey);
+        OrderIdempotencyKey claim = null;
+        if (key != null) {
+            String requestHash = idempotencyService.fingerprint(request);
+            Optional<OrderResponse> replay = idempotencyService.findReplay(username, key, requestHash);
+            if (replay.isPresent()) return replay.get();
+            claim = idempotencyService.claim(username, key, requestHash);
+        }
+
         log.info("Creating order — cashier: '{}', items: {}", username,
                 request.getItems() != null ? request.getItems().size() : 0);
 
-        User cashier = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.US001));
+        User cashier = findCashier(username);
 
         Customer customer = null;
         if (request.getCustomerId() != null) {
@@ -65,57 +103,130 @@ public class OrderService {
                     .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.CM001));
         }
 
+        Set<Long> productIds = productIds(List.of(request));
+        return placeOrder(request, cashier, customer, null, claim,
+                loadProducts(productIds), loadInventories(productIds));
+    }
+
+    /**
+     * Ingests sales captured by a till while offline. Products and customers for the whole batch are
+     * loaded up front in set-based queries; each order is then placed in its own transaction so one
+     * rejected sale does not roll back the rest. Stock is re-read inside each order's transaction,
+     * since earlier orders in the batch have already decremented it. Every order gets a result, even
+     * one that fails unexpectedly. The client order id doubles as the idempotency key, so re-sending
+     * a batch after a dropped response is safe.
+     */
+    public OrderBatchResponse createBatch(List<OfflineOrderRequest> requests) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        log.info("Ingesting offline order batch — cashier: '{}', orders: {}", username, requests.size());
+        User cashier = findCashier(username);
+
+        Map<Long, Product>  products  = loadProducts(productIds(requests));
+        Map<Long, Customer> customers = new HashMap<>();
+        Set<Long> customerIds = new HashSet<>();
+        for (OfflineOrderRequest request : requests) {
+            if (request.getCustomerId() != null) customerIds.add(request.getCustomerId());
+        }
+        for (Customer customer : customerRepository.findAllById(customerIds)) {
+            customers.put(customer.getId(), customer);
+        }
+
+        List<OrderBatchResponse.OrderResult> results = new ArrayList<>(requests.size());
+        for (OfflineOrderRequest request : requests) {
+            results.add(placeOfflineOrder(request, cashier, customers, products));
+        }
+        OrderBatchResponse response = OrderBatchResponse.of(results);
+        log.info("Offline order batch done — created: {}, replayed: {}, failed: {}",
+                response.getCreatedCount(), response.getReplayedCount(), response.getFailCount());
+        return response;
+    }
+
+    private OrderBatchResponse.OrderResult placeOfflineOrder(OfflineOrderRequest request, User cashier,
+                                                             Map<Long, Customer> customers,
+                                                             Map<Long, Product> products) {
+        String clientOrderId = request.getClientOrderId();
+        try {
+            return transactionTemplate.execute(status -> {
+                String key = idempotencyService.normalize(clientOrderId);
+                String requestHash = idempotencyService.fingerprint(request);
+                Optional<OrderResponse> replay = idempotencyService.findReplay(cashier.getUsername(), key, requestHash);
+                if (replay.isPresent()) {
+                    return OrderBatchResponse.OrderResult.builder()
+                            .clientOrderId(clientOrderId)
+                            .outcome(OrderBatchResponse.Outcome.REPLAYED)
+                            .order(replay.get()).build();
+                }
+                OrderIdempotencyKey claim = idempotencyService.claim(cashier.getUsername(), key, requestHash);
+
+                Customer customer = null;
+                if (request.getCustomerId() != null) {
+                    customer = customers.get(request.getCustomerId());
+                    if (customer == null) throw new ResourceNotFoundException(ErrorCode.CM001);
+                }
+                // A till clock running ahead must not produce orders dated in the future.
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime soldAt = request.getSoldAt().isAfter(now) ? now : request.getSoldAt();
+
+                Map<Long, Inventory> inventories = loadInventories(productIds(List.of(request)));
+                return OrderBatchResponse.OrderResult.builder()
+                        .clientOrderId(clientOrderId)
+                        .outcome(OrderBatchResponse.Outcome.CREATED)
+                        .order(placeOrder(request, cashier, customer, soldAt, claim, products, inventories))
+                        .build();
+            });
+        } catch (BadRequestException | ResourceNotFoundException | ConflictException ex) {
+            ErrorCode code = errorCodeOf(ex);
+            log.warn("[{}] Offline order '{}' rejected: {}", code != null ? code.getCode() : "-", clientOrderId, ex.getMessage());
+            return failed(clientOrderId, code != null ? code.getCode() : null, ex.getMessage());
+        } catch (RuntimeException ex) {
+            // Constraint violations, lock timeouts and the like: this order rolled back, but the ones
+            // before it have committed, so the till still needs a result for every order.
+            log.error("[SV001] Offline order '{}' failed: {}", clientOrderId, ex.getMessage(), ex);
+            return failed(clientOrderId, ErrorCode.SV001.getCode(), ErrorCode.SV001.getMessage());
+        }
+    }
+
+    private static OrderBatchResponse.OrderResult failed(String clientOrderId, String errorCode, String message) {
+        return OrderBatchResponse.OrderResult.builder()
+                .clientOrderId(clientOrderId)
+                .outcome(OrderBatchResponse.Outcome.FAILED)
+                .errorCode(errorCode)
+                .message(message).build();
+    }
+
+    /**
+     * The shared checkout pipeline: prices the cart, reserves stock, writes the order, its items and
+     * the outbox event. {@code soldAt} overrides the order timestamp for offline sales (null = now).
+     */
+    private OrderResponse placeOrder(OrderRequest request, User cashier, Customer customer,
+                                     LocalDateTime soldAt, OrderIdempotencyKey claim,
+                                     Map<Long, Product> products, Map<Long, Inventory> inventories) {
         BigDecimal discount = request.getDiscount() != null ? request.getDiscount() : BigDecimal.ZERO;
-        Integer pointsToRedeem = request.getPointsToRedeem();
-        if (customer != null && pointsToRedeem != null && pointsToRedeem > 0) {
-            int balance = customer.getRewardPoints() != null ? customer.getRewardPoints() : 0;
-            if (balance < pointsToRedeem) {
-                log.warn("[RW001] Insufficient reward points: has {}, requested {}", balance, pointsToRedeem);
-                throw new BadRequestException(ErrorCode.RW001);
-            }
+        int pointsToRedeem = customer != null && request.getPointsToRedeem() != null
+                ? Math.max(request.getPointsToRedeem(), 0) : 0;
+        if (pointsToRedeem > 0) {
             int rate = rewardConfig.getRedemptionRate();
             if (rate <= 0) rate = 100;
             BigDecimal redemptionDollars = BigDecimal.valueOf(pointsToRedeem).divide(BigDecimal.valueOf(rate), 2, RoundingMode.DOWN);
             discount = discount.add(redemptionDollars);
-            customer.setRewardPoints(balance - pointsToRedeem);
-            customerRepository.save(customer);
         }
 
-        List<OrderItem> items           = new ArrayList<>();
-        List<Inventory> inventoriesToSave = new ArrayList<>();
-        BigDecimal      subtotal       = BigDecimal.ZERO;
-
-        for (OrderItemRequest itemReq : request.getItems()) {
-            Product product = productRepository.findById(itemReq.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.PR001));
-
-            if (!product.isActive()) {
-                log.warn("[PR004] Order rejected — product not available: '{}'", product.getName());
-                throw new BadRequestException(ErrorCode.PR004, product.getName());
-            }
-
-            Inventory inventory = inventoryRepository.findByProductId(product.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.IN001));
-
-            if (inventory.getQuantity() < itemReq.getQuantity()) {
-                log.warn("[OR002] Insufficient stock for '{}': available {}, requested {}",
-                        product.getName(), inventory.getQuantity(), itemReq.getQuantity());
-                throw new BadRequestException(ErrorCode.OR002,
-                        product.getName() + " — available: " + inventory.getQuantity());
-            }
+        List<CartLine>  cart     = resolveCart(request.getItems(), products, inventories);
+        List<OrderItem> items    = new ArrayList<>(cart.size());
+        BigDecimal      subtotal = BigDecimal.ZERO;
 
+        for (CartLine line : cart) {
+            Product product = line.product();
             BigDecimal itemSubtotal = product.getPrice()
-                    .multiply(BigDecimal.valueOf(itemReq.getQuantity()));
+                    .multiply(BigDecimal.valueOf(line.quantity()));
             items.add(OrderItem.builder()
-                    .product(product).quantity(itemReq.getQuantity())
+                    .product(product).quantity(line.quantity())
                     .unitPrice(product.getPrice()).subtotal(itemSubtotal).build());
 
             subtotal = subtotal.add(itemSubtotal);
-            inventory.setQuantity(inventory.getQuantity() - itemReq.getQuantity());
-            inventoriesToSave.add(inventory);
         }
 
-        inventoryRepository.saveAll(inventoriesToSave);
+        reserveStock(cart);
 
         BigDecimal afterDiscount = subtotal.subtract(discount).max(BigDecimal.ZERO);
         BigDecimal tax          = afterDiscount.multiply(TAX_RATE).setScale(2, RoundingMode.HALF_UP);
@@ -126,31 +237,29 @@ public class OrderService {
                 .subtotal(subtotal).tax(tax).discount(discount).total(total)
                 .status(OrderStatus.COMPLETED)
                 .paymentMethod(request.getPaymentMethod())
+                .createdAt(soldAt)
                 .build());
 
         for (OrderItem item : items) item.setOrder(order);
         orderItemRepository.saveAll(items);
         order.setItems(items);
 
-        paymentRepository.save(Payment.builder()
-                .order(order).method(request.getPaymentMethod())
-                .amount(total).status(PaymentStatus.COMPLETED).build());
-
-        if (customer != null) {
-            int pointsPerDollar = rewardConfig.getPointsPerDollar();
-            if (pointsPerDollar > 0) {
-                int earned = subtotal.multiply(BigDecimal.valueOf(pointsPerDollar)).intValue();
-                if (earned > 0) {
-                    int current = customer.getRewardPoints() != null ? customer.getRewardPoints() : 0;
-                    customer.setRewardPoints(current + earned);
-                    customerRepository.save(customer);
-                    log.info("Order id: {} — customer {} earned {} reward points", order.getId(), customer.getId(), earned);
-                }
-            }
+        // Deducted last so the member's row is locked for as little of the transaction as possible;
+        // an insufficient balance still rolls the whole order back.
+        if (pointsToRedeem > 0) {
+            rewardLedgerService.redeem(customer, order, pointsToRedeem);
         }
 
+        // Payment record and reward accrual are applied by OrderEventDispatcher after commit.
+        orderEventRepository.save(OrderEvent.builder()
+                .order(order).type(OrderEventType.ORDER_COMPLETED).build());
+
         log.info("Order created — id: {}, total: {}", order.getId(), total);
-        return OrderResponse.from(order);
+        OrderResponse response = OrderResponse.from(order);
+        if (claim != null) {
+            idempotencyService.complete(claim, order, response);
+        }
+        return response;
     }
 
     @Transactional
@@ -167,12 +276,12 @@ public class OrderService {
             throw new BadRequestException(ErrorCode.OR004);
         }
 
+        Map<Long, Integer> restock = new TreeMap<>();
         for (OrderItem item : order.getItems()) {
-            inventoryRepository.findByProductId(item.getProduct().getId()).ifPresent(inv -> {
-                inv.setQuantity(inv.getQuantity() + item.getQuantity());
-                inventoryRepository.save(inv);
-            });
+            restock.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
         }
+        restock.forEach(inventoryRepository::incrementStock);
+        eventPublisher.publishEvent(StockChangedEvent.adjusted(restock));
 
         order.setStatus(OrderStatus.CANCELLED);
         paymentRepository.findByOrderId(id).ifPresent(p -> {
@@ -196,8 +305,115 @@ public class OrderService {
         );
     }
 
+    private User findCashier(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.US001));
+    }
+
+    private static Set<Long> productIds(List<? extends OrderRequest> requests) {
+        Set<Long> ids = new HashSet<>();
+        for (OrderRequest request : requests) {
+            if (request.getItems() == null) continue;
+            for (OrderItemRequest item : request.getItems()) ids.add(item.getProductId());
+        }
+        return ids;
+    }
+
+    private Map<Long, Product> loadProducts(Set<Long> productIds) {
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        return products;
+    }
+
+    private Map<Long, Inventory> loadInventories(Set<Long> productIds) {
+        Map<Long, Inventory> inventories = new HashMap<>();
+        for (Inventory inventory : inventoryRepository.findByProductIdIn(productIds)) {
+            inventories.put(inventory.getProduct().getId(), inventory);
+        }
+        return inventories;
+    }
+
+    private static ErrorCode errorCodeOf(RuntimeException ex) {
+        if (ex instanceof BadRequestException e) return e.getErrorCode();
+        if (ex instanceof ResourceNotFoundException e) return e.getErrorCode();
+        if (ex instanceof ConflictException e) return e.getErrorCode();
+        return null;
+    }
+
+    /**
+     * Resolves the basket against products and inventory rows loaded set-based (two queries for a
+     * single order; products once per offline batch, stock once per order) instead of two lookups
+     * per line. Lines for the same
+     * product are merged so stock is validated against the total requested quantity; the first-seen
+     * line order is preserved for the receipt.
+     */
+    private List<CartLine> resolveCart(List<OrderItemRequest> itemRequests,
+                                       Map<Long, Product> products, Map<Long, Inventory> inventories) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItemRequest itemReq : itemRequests) {
+            quantities.merge(itemReq.getProductId(), itemReq.getQuantity(), Integer::sum);
+        }
+
+        List<CartLine> cart = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new ResourceNotFoundException(ErrorCode.PR001);
+            }
+            if (!product.isActive()) {
+                log.warn("[PR004] Order rejected — product not available: '{}'", product.getName());
+                throw new BadRequestException(ErrorCode.PR004, product.getName());
+            }
+
+            Inventory inventory = inventories.get(product.getId());
+            if (inventory == null) {
+                throw new ResourceNotFoundException(ErrorCode.IN001);
+            }
+
+            int requested = entry.getValue();
+            if (inventory.getQuantity() < requested) {
+                log.warn("[OR002] Insufficient stock for '{}': available {}, requested {}",
+                        product.getName(), inventory.getQuantity(), requested);
+                throw new BadRequestException(ErrorCode.OR002,
+                        product.getName() + " — available: " + inventory.getQuantity());
+            }
+            cart.add(new CartLine(product, requested));
+        }
+        return cart;
+    }
+
+    /**
+     * Decrements stock with one conditional UPDATE per product, in product-id order so two tills
+     * locking overlapping baskets cannot deadlock. The in-memory check in {@link #resolveCart} is
+     * only a fast path; these updates are what actually guard against overselling. If any line
+     * loses the race the whole order is rejected and the transaction rolls back the other lines.
+     */
+    private void reserveStock(List<CartLine> cart) {
+        List<CartLine> ordered = new ArrayList<>(cart);
+        ordered.sort(Comparator.comparing(line -> line.product().getId()));
+
+        List<String> failed = new ArrayList<>();
+        for (CartLine line : ordered) {
+            if (inventoryRepository.decrementStock(line.product().getId(), line.quantity()) == 0) {
+                failed.add(line.product().getName());
+            }
+        }
+        if (!failed.isEmpty()) {
+            log.warn("[OR002] Stock reservation failed for {} line(s): {}", failed.size(), failed);
+            throw new BadRequestException(ErrorCode.OR002, String.join(", ", failed));
+        }
+
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (CartLine line : cart) deltas.put(line.product().getId(), -line.quantity());
+        eventPublisher.publishEvent(StockChangedEvent.adjusted(deltas));
+    }
+
     private Order findById(Long id) {
         return orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.OR001));
     }
+
+    private record CartLine(Product product, int quantity) {}
 }
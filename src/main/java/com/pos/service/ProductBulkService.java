@@ -1,34 +1,65 @@
 package com.pos.service;
 
+import com.pos.bulk.CsvRowReader;
+import com.pos.bulk.ImportProgress;
+import com.pos.bulk.RowHandler;
+import com.pos.bulk.XlsxRowReader;
 import com.pos.dto.response.BulkUploadResult;
 import com.pos.entity.Category;
 import com.pos.entity.Inventory;
 import com.pos.entity.Product;
+import com.pos.event.CatalogChangedEvent;
 import com.pos.repository.CategoryRepository;
 import com.pos.repository.InventoryRepository;
 import com.pos.repository.ProductRepository;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * Product bulk import from CSV or .xlsx. Rows are streamed from the file and processed in chunks of
+ * {@code bulk-upload.chunk-size}; each chunk is mapped, saved and committed in its own transaction,
+ * so an import never holds one transaction (or the whole file) open. Reading and cell parsing run
+ * ahead of the database writes on other threads (see {@link ChunkReader}), while chunks are still
+ * written one at a time in file order. Long imports run as jobs —
+ * see {@link BulkUploadJobService}, which records progress through {@link ImportProgress}.
+ * <p>
+ * Cell parsing runs on this service's own pool of {@code bulk-upload.parse-threads}, not the common
+ * ForkJoinPool. Its queue is bounded; when it is full the reader thread parses the chunk itself.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ProductBulkService {
 
@@ -41,179 +72,372 @@ public class ProductBulkService {
     private static final int COL_INITIAL_STOCK = 5;
     private static final int COL_LOW_STOCK_THRESHOLD = 6;
 
+    private static final int DEFAULT_PARSE_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int PARSE_QUEUE_SIZE = 32;
+
     private final ProductRepository   productRepository;
     private final CategoryRepository  categoryRepository;
     private final InventoryRepository inventoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductCopyImporter copyImporter;
+    private final BarcodeFilterService barcodeFilterService;
+    private final TransactionTemplate chunkTransaction;
+    private final TransactionTemplate validateTransaction;
+
+    /** Rows mapped, saved and committed per transaction. */
+    @Value("${bulk-upload.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /** Parsed chunks the reader may run ahead of the writer. */
+    @Value("${bulk-upload.pipeline-depth:4}")
+    private int pipelineDepth = 4;
+
+    /** Chunk size when rows are merged through {@link ProductCopyImporter}. */
+    @Value("${bulk-upload.copy-chunk-size:5000}")
+    private int copyChunkSize = 5000;
+
+    /** Chunk size for dry-run validation, which only reads. */
+    @Value("${bulk-upload.validate-chunk-size:2000}")
+    private int validateChunkSize = 2000;
+
+    /** Parse threads; 0 uses the default of half the processors, at most 4. */
+    @Value("${bulk-upload.parse-threads:0}")
+    private int parseThreads = 0;
+
+    private final ThreadPoolExecutor parser = parsePool(DEFAULT_PARSE_THREADS);
+
+    public ProductBulkService(ProductRepository productRepository,
+                              CategoryRepository categoryRepository,
+                              InventoryRepository inventoryRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              ProductCopyImporter copyImporter,
+                              BarcodeFilterService barcodeFilterService,
+                              PlatformTransactionManager transactionManager) {
+        this.productRepository   = productRepository;
+        this.categoryRepository  = categoryRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.eventPublisher      = eventPublisher;
+        this.copyImporter        = copyImporter;
+        this.barcodeFilterService = barcodeFilterService;
+        this.chunkTransaction    = new TransactionTemplate(transactionManager);
+        this.validateTransaction = new TransactionTemplate(transactionManager);
+        this.validateTransaction.setReadOnly(true);
+    }
 
-    @Transactional
-    public BulkUploadResult processUpload(MultipartFile file, String updatedBy) {
-        String name = file.getOriginalFilename();
-        boolean isCsv = name != null && name.toLowerCase().endsWith(".csv");
-        log.info("Bulk upload started: file={}, size={} bytes, format={}, updatedBy={}",
-                name, file.getSize(), isCsv ? "CSV" : "Excel", updatedBy);
-
-        try (InputStream is = file.getInputStream()) {
-            BulkUploadResult result = isCsv ? processCsv(is, updatedBy) : processExcel(is, updatedBy);
-            log.info("Bulk upload finished: totalRows={}, successCount={}, updatedCount={}, failCount={}",
-                    result.getTotalRows(), result.getSuccessCount(), result.getUpdatedCount(), result.getFailCount());
-            return result;
-        } catch (Exception e) {
-            log.error("Bulk upload failed", e);
-            return BulkUploadResult.builder()
-                    .totalRows(0)
-                    .successCount(0)
-                    .failCount(1)
-                    .errors(List.of(BulkUploadResult.RowError.builder()
-                            .row(0)
-                            .field("file")
-                            .message("Failed to read file: " + e.getMessage())
-                            .build()))
-                    .build();
-        }
+    private static ThreadPoolExecutor parsePool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PARSE_QUEUE_SIZE),
+                r -> {
+                    Thread t = new Thread(r, "bulk-upload-parse-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (task, executor) -> {
+                    if (executor.isShutdown()) throw new RejectedExecutionException("Bulk upload parsing is shutting down");
+                    task.run();
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
     }
 
-    private BulkUploadResult processExcel(InputStream is, String updatedBy) throws Exception {
-        List<BulkUploadResult.RowError> errors = new ArrayList<>();
-        List<RowResult> toUpdate = new ArrayList<>();
-        List<RowResult> toCreate = new ArrayList<>();
+    @PostConstruct
+    void configureParser() {
+        if (parseThreads <= 0 || parseThreads == parser.getMaximumPoolSize()) return;
+        // Grow the maximum first (or shrink the core first) so core never exceeds maximum.
+        if (parseThreads > parser.getMaximumPoolSize()) {
+            parser.setMaximumPoolSize(parseThreads);
+            parser.setCorePoolSize(parseThreads);
+        } else {
+            parser.setCorePoolSize(parseThreads);
+            parser.setMaximumPoolSize(parseThreads);
+        }
+    }
 
-        Workbook workbook = WorkbookFactory.create(is);
-        Sheet sheet = workbook.getSheetAt(0);
-        int lastRow = sheet.getLastRowNum();
-        workbook.close();
+    @PreDestroy
+    void shutdown() {
+        parser.shutdownNow();
+    }
 
-        if (lastRow < 1) {
-            return BulkUploadResult.builder()
-                    .totalRows(0)
-                    .successCount(0)
-                    .updatedCount(0)
-                    .failCount(1)
-                    .errors(List.of(BulkUploadResult.RowError.builder()
-                            .row(1)
-                            .field("file")
-                            .message("No data rows. Use row 1 for headers, data from row 2.")
-                            .build()))
-                    .build();
-        }
+    /**
+     * Imports a stored upload, committing chunk by chunk. Rows up to
+     * {@link ImportProgress#resumeAfterRow()} are skipped. Row-level problems are returned as errors;
+     * an unreadable file or a failed chunk save throws, leaving earlier chunks committed.
+     */
+    public BulkUploadResult importFile(Path file, String fileName, String updatedBy, ImportProgress progress)
+            throws IOException {
+        return process(file, fileName, updatedBy, progress, false);
+    }
 
-        int totalRows = lastRow;
-        log.info("Bulk upload Excel: parsing {} data rows", lastRow);
-        for (int r = 1; r <= lastRow; r++) {
-            Row row = sheet.getRow(r);
-            if (row == null) continue;
-            if (!excelRowHasAnyValue(row)) continue;
+    /**
+     * Dry run of {@link #importFile}: the same parsing, chunk lookups and row checks, returning the
+     * creates, updates and per-row errors the import would produce. Each chunk runs in a read-only
+     * transaction that is rolled back, nothing is saved and inventories are not loaded.
+     */
+    public BulkUploadResult validateFile(Path file, String fileName) throws IOException {
+        return process(file, fileName, null, ImportProgress.NONE, true);
+    }
 
-            RowResult rowResult = mapRowToProduct(row, r + 1, errors, updatedBy);
-            if (rowResult != null) {
-                if (rowResult.isUpdate() && rowResult.existingInventory() != null) {
-                    toUpdate.add(rowResult);
-                } else {
-                    toCreate.add(rowResult);
+    private BulkUploadResult process(Path file, String fileName, String updatedBy, ImportProgress progress,
+                                     boolean validateOnly) throws IOException {
+        boolean isCsv = fileName != null && fileName.toLowerCase().endsWith(".csv");
+        log.info("Bulk upload {} started: file={}, size={} bytes, format={}, updatedBy={}, resumeAfterRow={}",
+                validateOnly ? "validation" : "import", fileName, Files.size(file), isCsv ? "CSV" : "Excel",
+                updatedBy, progress.resumeAfterRow());
+
+        UploadBatch batch = new UploadBatch(updatedBy, progress, !validateOnly && copyImporter.isActive(), validateOnly);
+        ChunkReader reader = new ChunkReader(batch.rowsPerChunk, progress);
+        Thread readerThread = Thread.ofPlatform().name("bulk-upload-reader").daemon().start(() -> reader.run(handler -> {
+            if (isCsv) {
+                try (InputStream is = Files.newInputStream(file)) {
+                    CsvRowReader.read(is, handler);
                 }
+            } else {
+                XlsxRowReader.read(file, COL_LOW_STOCK_THRESHOLD + 1, handler);
             }
+        }));
+        int totalRows;
+        try {
+            totalRows = batch.drain(reader.chunks);
+        } finally {
+            reader.cancel();
+            readerThread.interrupt();
+        }
+        if (!isCsv && totalRows == 0) {
+            throw new IOException("No data rows. Use row 1 for headers, data from row 2.");
         }
-        log.info("Bulk upload Excel: parsed toUpdate={}, toCreate={}, mappingErrors={}",
-                toUpdate.size(), toCreate.size(), errors.size());
 
-        return flushBatches(toUpdate, toCreate, totalRows, errors);
+        BulkUploadResult result = batch.finish(totalRows);
+        log.info("Bulk upload {} finished: totalRows={}, successCount={}, updatedCount={}, failCount={}",
+                validateOnly ? "validation" : "import",
+                result.getTotalRows(), result.getSuccessCount(), result.getUpdatedCount(), result.getFailCount());
+        return result;
     }
 
-    private static boolean excelRowHasAnyValue(Row row) {
-        for (int c = 0; c <= COL_LOW_STOCK_THRESHOLD; c++) {
-            String v = getCellString(row.getCell(c));
-            if (v != null && !v.isBlank()) return true;
+    private static boolean rowHasAnyValue(String[] cells) {
+        for (String c : cells) {
+            if (c != null && !c.isBlank()) return true;
         }
         return false;
     }
 
-    private static final int SAVE_BATCH_SIZE = 50;
-
-    private BulkUploadResult processCsv(InputStream is, String updatedBy) {
-        List<BulkUploadResult.RowError> errors = new ArrayList<>();
-        List<RowResult> toUpdate = new ArrayList<>();
-        List<RowResult> toCreate = new ArrayList<>();
-        int totalRows = 0;
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-            String line;
-            int rowNum = 0;
-            reader.readLine(); // skip header
-            while ((line = reader.readLine()) != null) {
-                rowNum++;
-                if (line.isBlank()) continue;
-                String[] cells = parseCsvLine(line);
-                if (cells.length == 0) continue;
-                if (!rowHasAnyValue(cells)) continue;
-
-                RowResult rowResult = mapCsvRowToProduct(cells, rowNum + 1, errors, updatedBy);
-                if (rowResult != null) {
-                    if (rowResult.isUpdate() && rowResult.existingInventory() != null) {
-                        toUpdate.add(rowResult);
-                    } else {
-                        toCreate.add(rowResult);
-                    }
+    /** A file reader that pushes every row it streams into a {@link RowHandler}. */
+    @FunctionalInterface
+    private interface RowSource {
+        void read(RowHandler handler) throws IOException;
+    }
+
+    /**
+     * Reader and parse stages of the import pipeline. It runs on its own thread, cuts the streamed
+     * rows into chunks and hands each chunk to the parse pool for cell parsing; the pending results
+     * go into a queue of {@code bulk-upload.pipeline-depth} in file order, so up to that many chunks
+     * are read and parsed while the writer is still saving an earlier one, and the reader blocks
+     * when the writer falls behind.
+     */
+    private final class ChunkReader implements RowHandler {
+
+        private final BlockingQueue<Future<ParsedChunk>> chunks = new ArrayBlockingQueue<>(Math.max(1, pipelineDepth));
+        private final int rowsPerChunk;
+        private final int resumeAfterRow;
+        private final Set<Integer> rejectedRows;
+        private List<PendingRow> pending = new ArrayList<>();
+        private int totalRows;
+        private volatile boolean cancelled;
+
+        ChunkReader(int rowsPerChunk, ImportProgress progress) {
+            this.rowsPerChunk   = rowsPerChunk;
+            this.resumeAfterRow = progress.resumeAfterRow();
+            this.rejectedRows   = progress.rejectedRows();
+        }
+
+        void run(RowSource source) {
+            try {
+                source.read(this);
+                submit(true);
+            } catch (Exception e) {
+                if (cancelled) return;
+                try {
+                    put(CompletableFuture.failedFuture(e));
+                } catch (CancellationException ignored) {
+                    // the writer has already stopped
                 }
-                totalRows = rowNum;
             }
-            log.info("Bulk upload CSV: parsed totalRows={}, toUpdate={}, toCreate={}, mappingErrors={}",
-                    totalRows, toUpdate.size(), toCreate.size(), errors.size());
-        } catch (Exception e) {
-            log.error("CSV parse failed", e);
-            errors.add(BulkUploadResult.RowError.builder()
-                    .row(0)
-                    .field("file")
-                    .message("Failed to read CSV: " + e.getMessage())
-                    .build());
-            return BulkUploadResult.builder()
-                    .totalRows(totalRows)
-                    .successCount(0)
-                    .updatedCount(0)
-                    .failCount(errors.size())
-                    .errors(errors)
-                    .build();
         }
 
-        return flushBatches(toUpdate, toCreate, totalRows, errors);
-    }
+        @Override
+        public void row(int rowNum, String[] cells) {
+            if (rowNum <= HEADER_ROW + 1) return; // rowNum is 1-based
+            if (cells.length == 0 || !rowHasAnyValue(cells)) return;
+            totalRows = rowNum - 1;
+            pending.add(new PendingRow(rowNum, cells));
+            if (pending.size() >= rowsPerChunk) submit(false);
+        }
 
-    private static boolean rowHasAnyValue(String[] cells) {
-        for (String c : cells) {
-            if (c != null && !c.isBlank()) return true;
+        private void submit(boolean last) {
+            List<PendingRow> rows = pending;
+            int rowsSoFar = totalRows;
+            pending = new ArrayList<>();
+            put(CompletableFuture.supplyAsync(() -> parse(rows, rowsSoFar, last), parser));
+        }
+
+        private void put(Future<ParsedChunk> chunk) {
+            if (cancelled) throw new CancellationException("Bulk upload writer stopped");
+            try {
+                chunks.put(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Bulk upload reader interrupted");
+            }
+        }
+
+        /** Parse stage: pure cell work, safe to run for several chunks at once. */
+        private ParsedChunk parse(List<PendingRow> rows, int rowsSoFar, boolean last) {
+            List<ParsedRow> parsed = new ArrayList<>(rows.size());
+            Set<String> skus = new HashSet<>();
+            Set<String> barcodes = new HashSet<>();
+            Set<String> categories = new HashSet<>();
+            for (PendingRow row : rows) {
+                boolean committed = row.rowNum() <= resumeAfterRow;
+                // On resume, committed rows only feed the duplicate memory; rejected ones are dropped.
+                if (committed && rejectedRows.contains(row.rowNum())) continue;
+                ParsedRow p = ParsedRow.of(row, committed);
+                parsed.add(p);
+                if (committed) continue;
+                addIfPresent(skus, p.sku());
+                addIfPresent(barcodes, p.barcode());
+                addIfPresent(categories, p.category());
+            }
+            return new ParsedChunk(parsed, skus, barcodes, categories, rowsSoFar, last);
+        }
+
+        void cancel() {
+            cancelled = true;
+            chunks.clear();
         }
-        return false;
     }
 
-    private BulkUploadResult flushBatches(List<RowResult> toUpdate, List<RowResult> toCreate,
-                                          int totalRows, List<BulkUploadResult.RowError> errors) {
-        log.info("Bulk upload flush: toUpdate={}, toCreate={}, batchSize={}", toUpdate.size(), toCreate.size(), SAVE_BATCH_SIZE);
-        if (!toUpdate.isEmpty()) {
-            String sampleUpdateSkus = toUpdate.stream().map(RowResult::product).limit(5)
-                    .map(p -> p.getSku() != null ? p.getSku() : "(no SKU)").toList().toString();
-            log.info("Bulk upload saving updates (sample SKUs): {}", sampleUpdateSkus);
+    /**
+     * Writer stage: takes parsed chunks in file order on the calling thread and processes each in its
+     * own transaction — the chunk's SKUs, barcodes, categories and inventories are resolved with a
+     * few {@code IN} queries, its rows are mapped against those maps, and the result is saved and
+     * committed together with the caller's progress record — so memory, query count and
+     * transaction size follow the chunk, not the file.
+     * <p>
+     * SKUs and barcodes accepted so far are remembered for the whole file, so a repeat on a later row
+     * is reported against that row instead of failing the batch insert. On resume, rows already
+     * committed are skipped but still feed that memory. Because this stage is single-threaded and
+     * ordered, errors come out in row order whatever the parse stage's scheduling.
+     */
+    private final class UploadBatch {
+
+        private final String updatedBy;
+        private final ImportProgress progress;
+        private final boolean useCopy;
+        private final boolean validateOnly;
+        private final int rowsPerChunk;
+        private final List<BulkUploadResult.RowError> errors = new ArrayList<>();
+        private final List<RowResult> toUpdate = new ArrayList<>();
+        private final List<RowResult> toCreate = new ArrayList<>();
+        /** SKU / barcode → file row that first used it. */
+        private final Map<String, Integer> skusInFile = new HashMap<>();
+        private final Map<String, Integer> barcodesInFile = new HashMap<>();
+        private int created;
+        private int updated;
+
+        UploadBatch(String updatedBy, ImportProgress progress, boolean useCopy, boolean validateOnly) {
+            this.updatedBy      = updatedBy;
+            this.progress       = progress;
+            this.useCopy        = useCopy;
+            this.validateOnly   = validateOnly;
+            this.rowsPerChunk   = validateOnly ? validateChunkSize : useCopy ? copyChunkSize : chunkSize;
         }
-        if (!toCreate.isEmpty()) {
-            String sampleCreateSkus = toCreate.stream().map(RowResult::product).limit(5)
-                    .map(p -> p.getSku() != null ? p.getSku() : "(no SKU)").toList().toString();
-            log.info("Bulk upload saving new products (sample SKUs): {}", sampleCreateSkus);
+
+        /** Writes chunks until the reader's last one; returns the number of data rows read. */
+        int drain(BlockingQueue<Future<ParsedChunk>> chunks) throws IOException {
+            while (true) {
+                ParsedChunk chunk;
+                try {
+                    chunk = chunks.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Bulk upload interrupted", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) throw io;
+                    if (e.getCause() instanceof RuntimeException re) throw re;
+                    throw new IllegalStateException(e.getCause());
+                }
+                flush(chunk);
+                if (chunk.last()) return chunk.totalRows();
+            }
         }
-        try {
-            for (int i = 0; i < toUpdate.size(); i += SAVE_BATCH_SIZE) {
-                int end = Math.min(i + SAVE_BATCH_SIZE, toUpdate.size());
-                List<RowResult> chunk = toUpdate.subList(i, end);
-                List<Product> products = chunk.stream().map(RowResult::product).toList();
-                List<Inventory> inventories = chunk.stream().map(RowResult::existingInventory).toList();
+
+        private void remember(String sku, String barcode, int rowNum) {
+            if (sku != null) skusInFile.putIfAbsent(sku, rowNum);
+            if (barcode != null) barcodesInFile.putIfAbsent(barcode, rowNum);
+        }
+
+        private void flush(ParsedChunk chunk) {
+            List<ParsedRow> rows = new ArrayList<>(chunk.rows().size());
+            for (ParsedRow row : chunk.rows()) {
+                if (row.committed()) {
+                    remember(row.sku(), row.barcode(), row.rowNum());
+                } else {
+                    rows.add(row);
+                }
+            }
+            if (rows.isEmpty()) return;
+            int throughRow = rows.get(rows.size() - 1).rowNum();
+            int errorsBefore = errors.size();
+            try {
+                (validateOnly ? validateTransaction : chunkTransaction).executeWithoutResult(status -> {
+                    ChunkLookup lookup = resolve(chunk, !validateOnly);
+                    for (ParsedRow row : rows) {
+                        RowResult rowResult = mapRowToProduct(row, lookup, this);
+                        if (rowResult == null) continue;
+                        if (rowResult.isUpdate() && rowResult.existingInventory() != null) {
+                            toUpdate.add(rowResult);
+                        } else {
+                            toCreate.add(rowResult);
+                        }
+                    }
+                    log.debug("Bulk upload chunk: toUpdate={}, toCreate={}, throughRow={}", toUpdate.size(), toCreate.size(), throughRow);
+                    if (validateOnly) {
+                        // Mapping touched the loaded products; make sure none of it is written.
+                        status.setRollbackOnly();
+                        return;
+                    }
+                    if (useCopy) {
+                        saveByCopy();
+                    } else {
+                        save();
+                    }
+                    progress.chunkCommitted(new ImportProgress.Chunk(throughRow, chunk.totalRows(), toCreate.size(), toUpdate.size(),
+                            List.copyOf(errors.subList(errorsBefore, errors.size()))));
+                });
+            } catch (RuntimeException e) {
+                log.warn("Bulk save failed for rows up to {}: {}", throughRow, e.getMessage());
+                throw new IllegalStateException("Bulk save failed for rows up to " + throughRow + ": " + e.getMessage(), e);
+            }
+            updated += toUpdate.size();
+            created += toCreate.size();
+            toUpdate.clear();
+            toCreate.clear();
+        }
+
+        private void save() {
+            List<Long> changedIds = new ArrayList<>(toUpdate.size() + toCreate.size());
+            if (!toUpdate.isEmpty()) {
+                List<Product> products = toUpdate.stream().map(RowResult::product).toList();
                 productRepository.saveAll(products);
-                inventoryRepository.saveAll(inventories);
-                log.debug("Bulk upload: saved update batch rows {}-{} ({} products, {} inventories)", i + 1, end, products.size(), inventories.size());
+                inventoryRepository.saveAll(toUpdate.stream().map(RowResult::existingInventory).toList());
+                products.forEach(p -> changedIds.add(p.getId()));
             }
-            for (int i = 0; i < toCreate.size(); i += SAVE_BATCH_SIZE) {
-                int end = Math.min(i + SAVE_BATCH_SIZE, toCreate.size());
-                List<RowResult> createChunk = toCreate.subList(i, end);
-                List<Product> newProducts = createChunk.stream().map(RowResult::product).toList();
-                List<Product> saved = productRepository.saveAll(newProducts);
+            if (!toCreate.isEmpty()) {
+                List<Product> saved = productRepository.saveAll(toCreate.stream().map(RowResult::product).toList());
                 List<Inventory> newInventories = new ArrayList<>(saved.size());
                 for (int j = 0; j < saved.size(); j++) {
-                    RowResult r = createChunk.get(j);
+                    RowResult r = toCreate.get(j);
                     newInventories.add(Inventory.builder()
                             .product(saved.get(j))
                             .quantity(r.initialStock())
@@ -221,302 +445,281 @@ public class ProductBulkService {
                             .build());
                 }
                 inventoryRepository.saveAll(newInventories);
-                log.debug("Bulk upload: saved create batch rows {}-{} ({} products, {} inventories)", i + 1, end, saved.size(), newInventories.size());
+                saved.forEach(p -> changedIds.add(p.getId()));
             }
-            log.info("Bulk upload flush done: saved {} updates, {} creates", toUpdate.size(), toCreate.size());
-        } catch (Exception e) {
-            log.warn("Bulk save failed: {}", e.getMessage());
+            // Listeners run after this chunk commits.
+            if (!changedIds.isEmpty()) {
+                eventPublisher.publishEvent(CatalogChangedEvent.of(changedIds));
+            }
+        }
+
+        /** Same outcome as {@link #save()}, merged set-based through COPY on PostgreSQL. */
+        private void saveByCopy() {
+            List<ProductCopyImporter.StageRow> rows = new ArrayList<>(toUpdate.size() + toCreate.size());
+            for (RowResult r : toUpdate) rows.add(stageRow(r, r.product().getId()));
+            for (RowResult r : toCreate) rows.add(stageRow(r, null));
+            ProductCopyImporter.MergeResult merged = copyImporter.merge(rows);
+            if (!merged.productIds().isEmpty()) {
+                eventPublisher.publishEvent(CatalogChangedEvent.of(merged.productIds()));
+            }
+        }
+
+        private ProductCopyImporter.StageRow stageRow(RowResult r, Long productId) {
+            Product p = r.product();
+            return new ProductCopyImporter.StageRow(productId, p.getSku(), p.getName(), p.getBarcode(), p.getPrice(),
+                    p.getCategory() != null ? p.getCategory().getId() : null,
+                    r.initialStock(), r.lowStockThreshold(), updatedBy);
+        }
+
+        private void rowError(int rowNum, String field, String message) {
             errors.add(BulkUploadResult.RowError.builder()
-                    .row(0)
-                    .field("save")
-                    .message("Bulk save failed: " + e.getMessage())
+                    .row(rowNum)
+                    .field(field)
+                    .message(message)
                     .build());
         }
 
-        return BulkUploadResult.builder()
-                .totalRows(totalRows)
-                .successCount(toCreate.size())
-                .updatedCount(toUpdate.size())
-                .failCount(errors.size())
-                .errors(errors)
-                .build();
+        BulkUploadResult finish(int totalRows) {
+            log.info("Bulk upload flush done: {} {} updates, {} creates, mappingErrors={}",
+                    validateOnly ? "validated" : "saved", updated, created, errors.size());
+            return BulkUploadResult.builder()
+                    .totalRows(totalRows)
+                    .successCount(created)
+                    .updatedCount(updated)
+                    .failCount(errors.size())
+                    .errors(errors)
+                    .build();
+        }
     }
 
-    private static String[] parseCsvLine(String line) {
-        List<String> out = new ArrayList<>();
-        StringBuilder cur = new StringBuilder();
-        boolean inQuotes = false;
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                out.add(cur.toString().trim().replace("\"\"", "\""));
-                cur = new StringBuilder();
-            } else if (c == '\n' || c == '\r') {
-                break;
-            } else {
-                cur.append(c);
-            }
+    private record PendingRow(int rowNum, String[] cells) {}
+
+    /**
+     * A row's cells, trimmed and with numbers parsed; {@code committed} rows were saved by an earlier
+     * run. A parsed number is {@code null} when its cell is empty or not a valid value.
+     */
+    private record ParsedRow(int rowNum, boolean committed, String name, String sku, String barcode,
+                             String priceCell, BigDecimal price, String category,
+                             String initialStockCell, Integer initialStock,
+                             String lowStockThresholdCell, Integer lowStockThreshold) {
+
+        static ParsedRow of(PendingRow row, boolean committed) {
+            String[] cells = row.cells();
+            String priceCell = cellAt(cells, COL_PRICE);
+            String initialStockCell = cellAt(cells, COL_INITIAL_STOCK);
+            String lowStockThresholdCell = cellAt(cells, COL_LOW_STOCK_THRESHOLD);
+            return new ParsedRow(row.rowNum(), committed,
+                    cellAt(cells, COL_NAME),
+                    cellAt(cells, COL_SKU),
+                    cellAt(cells, COL_BARCODE),
+                    priceCell,
+                    committed ? null : parseBigDecimal(priceCell),
+                    cellAt(cells, COL_CATEGORY),
+                    initialStockCell,
+                    committed ? null : parseInt(initialStockCell),
+                    lowStockThresholdCell,
+                    committed ? null : parseInt(lowStockThresholdCell));
         }
-        out.add(cur.toString().trim().replace("\"\"", "\""));
-        return out.toArray(new String[0]);
     }
 
-    private static String cellAt(String[] cells, int index) {
-        if (index >= cells.length) return null;
-        String s = cells[index];
-        return s == null || s.isBlank() ? null : s.trim();
+    /** One parsed chunk with the keys its rows look up; {@code totalRows} counts data rows read so far. */
+    private record ParsedChunk(List<ParsedRow> rows, Set<String> skus, Set<String> barcodes,
+                               Set<String> categories, int totalRows, boolean last) {}
+
+    /** Everything a chunk's rows reference, loaded up front. */
+    private record ChunkLookup(Map<String, Product> productsBySku,
+                               Map<Long, Inventory> inventoriesByProductId,
+                               Map<String, Long> productIdsByBarcode,
+                               Map<String, Category> categoriesByName,
+                               Map<Long, Category> categoriesById) {
+
+        Category category(String categoryStr) {
+            if (categoryStr == null) return null;
+            Category byName = categoriesByName.get(categoryStr);
+            if (byName != null) return byName;
+            Long id = parseId(categoryStr);
+            return id != null ? categoriesById.get(id) : null;
+        }
     }
 
-    private RowResult mapCsvRowToProduct(String[] cells, int rowNum, List<BulkUploadResult.RowError> errors, String updatedBy) {
-        String nameCell = cellAt(cells, COL_NAME);
-        String sku = cellAt(cells, COL_SKU);
-        String barcodeCell = cellAt(cells, COL_BARCODE);
-        String priceCell = cellAt(cells, COL_PRICE);
-        BigDecimal price = parseBigDecimal(priceCell);
-        Category category = resolveCategory(cellAt(cells, COL_CATEGORY));
-        int initialStock = parseInt(cellAt(cells, COL_INITIAL_STOCK), 0);
-        int lowStockThreshold = parseInt(cellAt(cells, COL_LOW_STOCK_THRESHOLD), 10);
-
-        // If SKU exists, treat row as an update: add quantity and only override fields that are supplied.
-        if (sku != null && !sku.isBlank()) {
-            Optional<Product> existingOpt = productRepository.findBySku(sku.trim());
-            if (existingOpt.isPresent()) {
-                Product existing = existingOpt.get();
-
-                if (nameCell != null && !nameCell.isBlank()) {
-                    existing.setName(nameCell.trim());
-                }
-                if (barcodeCell != null && !barcodeCell.isBlank()) {
-                    existing.setBarcode(barcodeCell.trim());
+    /**
+     * Resolves a chunk's references with one {@code IN} query per kind. Barcodes are always looked
+     * up rather than screened by the barcode filter: a duplicate the filter missed would only surface
+     * as a constraint violation failing the whole chunk, where the lookup rejects just its row.
+     */
+    private ChunkLookup resolve(ParsedChunk chunk, boolean withInventories) {
+        Set<String> skus = chunk.skus();
+        Set<String> barcodes = chunk.barcodes();
+        Set<String> categoryNames = chunk.categories();
+
+        Map<String, Product> productsBySku = new HashMap<>();
+        Map<Long, Inventory> inventoriesByProductId = new HashMap<>();
+        if (!skus.isEmpty()) {
+            for (Product p : productRepository.findBySkuIn(skus)) productsBySku.put(p.getSku(), p);
+            if (withInventories && !productsBySku.isEmpty()) {
+                List<Long> productIds = productsBySku.values().stream().map(Product::getId).toList();
+                for (Inventory inv : inventoryRepository.findByProductIdIn(productIds)) {
+                    inventoriesByProductId.put(inv.getProduct().getId(), inv);
                 }
-                if (priceCell != null && !priceCell.isBlank()) {
-                    if (price == null || price.compareTo(BigDecimal.ZERO) < 0) {
-                        errors.add(BulkUploadResult.RowError.builder()
-                                .row(rowNum)
-                                .field("Price")
-                                .message("Invalid price")
-                                .build());
-                        return null;
-                    }
-                    existing.setPrice(price);
-                }
-                if (category != null) {
-                    existing.setCategory(category);
-                }
-                existing.setUpdatedBy(updatedBy);
-                existing.setUpdatedAt(LocalDateTime.now());
-
-                Optional<Inventory> invOpt = inventoryRepository.findByProductId(existing.getId());
-                Inventory inv = invOpt.orElseGet(() -> Inventory.builder()
-                        .product(existing)
-                        .quantity(0)
-                        .lowStockThreshold(lowStockThreshold)
-                        .updatedBy(updatedBy)
-                        .build());
-
-                inv.setQuantity(inv.getQuantity() + initialStock);
-                inv.setLowStockThreshold(lowStockThreshold);
-                inv.setUpdatedBy(updatedBy);
-
-                return new RowResult(existing, initialStock, lowStockThreshold, true, inv);
             }
         }
 
-        // New product path: require name and a valid price.
-        if (nameCell == null || nameCell.isBlank()) return null;
-        if (price == null || price.compareTo(BigDecimal.ZERO) < 0) {
-            errors.add(BulkUploadResult.RowError.builder()
-                    .row(rowNum)
-                    .field("Price")
-                    .message("Invalid or missing price")
-                    .build());
-            return null;
+        Map<String, Long> productIdsByBarcode = new HashMap<>();
+        if (!barcodes.isEmpty()) {
+            for (Object[] row : productRepository.findIdsByBarcodeIn(barcodes)) {
+                productIdsByBarcode.put((String) row[0], (Long) row[1]);
+            }
         }
 
-        if (barcodeCell != null && !barcodeCell.isBlank() && productRepository.existsByBarcode(barcodeCell)) {
-            errors.add(BulkUploadResult.RowError.builder()
-                    .row(rowNum)
-                    .field("Barcode")
-                    .message("Barcode already exists: " + barcodeCell)
-                    .build());
-            return null;
+        // Category cells hold a name or, failing that, a numeric id.
+        Map<String, Category> categoriesByName = new HashMap<>();
+        Map<Long, Category> categoriesById = new HashMap<>();
+        if (!categoryNames.isEmpty()) {
+            for (Category c : categoryRepository.findByNameIn(categoryNames)) categoriesByName.put(c.getName(), c);
+            Set<Long> ids = new HashSet<>();
+            for (String name : categoryNames) {
+                Long id = categoriesByName.containsKey(name) ? null : parseId(name);
+                if (id != null) ids.add(id);
+            }
+            if (!ids.isEmpty()) {
+                for (Category c : categoryRepository.findAllById(ids)) categoriesById.put(c.getId(), c);
+            }
         }
+        return new ChunkLookup(productsBySku, inventoriesByProductId, productIdsByBarcode,
+                categoriesByName, categoriesById);
+    }
 
-        Product product = Product.builder()
-                .name(nameCell.trim())
-                .sku(sku != null && !sku.isBlank() ? sku.trim() : null)
-                .barcode(barcodeCell != null && !barcodeCell.isBlank() ? barcodeCell.trim() : null)
-                .price(price)
-                .category(category)
-                .active(true)
-                .updatedBy(updatedBy)
-                .build();
-        return new RowResult(product, initialStock, lowStockThreshold);
+    private static void addIfPresent(Set<String> values, String value) {
+        if (value != null) values.add(value);
     }
 
-    private static BigDecimal parseBigDecimal(String s) {
-        if (s == null || s.isBlank()) return null;
+    private static Long parseId(String s) {
         try {
-            return new BigDecimal(s.trim());
-        } catch (Exception e) {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
             return null;
         }
     }
 
-    private static int parseInt(String s, int defaultValue) {
-        if (s == null || s.isBlank()) return defaultValue;
-        try {
-            return Integer.parseInt(s.trim());
-        } catch (Exception e) {
-            return defaultValue;
-        }
+    private static String cellAt(String[] cells, int index) {
+        if (index >= cells.length) return null;
+        String s = cells[index];
+        return s == null || s.isBlank() ? null : s.trim();
     }
 
-    private RowResult mapRowToProduct(Row row, int rowNum, List<BulkUploadResult.RowError> errors, String updatedBy) {
-        String nameCell = getCellString(row.getCell(COL_NAME));
-        String sku = getCellString(row.getCell(COL_SKU));
-        String barcodeCell = getCellString(row.getCell(COL_BARCODE));
-        BigDecimal price = getCellBigDecimal(row.getCell(COL_PRICE));
-        Category category = resolveCategory(getCellString(row.getCell(COL_CATEGORY)));
-        int initialStock = getCellInt(row.getCell(COL_INITIAL_STOCK), 0);
-        int lowStockThreshold = getCellInt(row.getCell(COL_LOW_STOCK_THRESHOLD), 10);
+    private RowResult mapRowToProduct(ParsedRow row, ChunkLookup lookup, UploadBatch batch) {
+        int rowNum = row.rowNum();
+        String nameCell = row.name();
+        String sku = row.sku();
+        String barcodeCell = row.barcode();
+        String priceCell = row.priceCell();
+        BigDecimal price = row.price();
+        Category category = lookup.category(row.category());
+        int initialStock = row.initialStock() != null ? row.initialStock() : 0;
+        int lowStockThreshold = row.lowStockThreshold() != null ? row.lowStockThreshold() : 10;
+
+        if (sku != null && batch.skusInFile.containsKey(sku)) {
+            batch.rowError(rowNum, "SKU", "Duplicate SKU in file (first on row " + batch.skusInFile.get(sku) + "): " + sku);
+            return null;
+        }
+        if (barcodeCell != null && batch.barcodesInFile.containsKey(barcodeCell)) {
+            batch.rowError(rowNum, "Barcode", "Duplicate barcode in file (first on row " + batch.barcodesInFile.get(barcodeCell) + "): " + barcodeCell);
+            return null;
+        }
+        // A quantity that is not a whole number in int range would be added to stock as something else.
+        if (row.initialStockCell() != null && row.initialStock() == null) {
+            batch.rowError(rowNum, "Initial Stock", "Invalid initial stock (whole number expected): " + row.initialStockCell());
+            return null;
+        }
+        if (row.lowStockThresholdCell() != null && row.lowStockThreshold() == null) {
+            batch.rowError(rowNum, "Low Stock Threshold", "Invalid low stock threshold (whole number expected): " + row.lowStockThresholdCell());
+            return null;
+        }
 
         // If SKU exists, treat row as an update: add quantity and only override fields that are supplied.
-        if (sku != null && !sku.isBlank()) {
-            Optional<Product> existingOpt = productRepository.findBySku(sku.trim());
-            if (existingOpt.isPresent()) {
-                Product existing = existingOpt.get();
+        Product existing = sku != null ? lookup.productsBySku().get(sku) : null;
+        RowResult result;
+        if (existing != null) {
+            if (priceCell != null && (price == null || price.compareTo(BigDecimal.ZERO) < 0)) {
+                batch.rowError(rowNum, "Price", "Invalid price");
+                return null;
+            }
+            Long barcodeOwner = barcodeCell != null ? lookup.productIdsByBarcode().get(barcodeCell) : null;
+            if (barcodeOwner != null && !barcodeOwner.equals(existing.getId())) {
+                batch.rowError(rowNum, "Barcode", "Barcode already exists: " + barcodeCell);
+                return null;
+            }
 
-                if (nameCell != null && !nameCell.isBlank()) {
-                    existing.setName(nameCell.trim());
-                }
-                if (barcodeCell != null && !barcodeCell.isBlank()) {
-                    existing.setBarcode(barcodeCell.trim());
-                }
-                if (getCellString(row.getCell(COL_PRICE)) != null && !getCellString(row.getCell(COL_PRICE)).isBlank()) {
-                    if (price == null || price.compareTo(BigDecimal.ZERO) < 0) {
-                        errors.add(BulkUploadResult.RowError.builder()
-                                .row(rowNum)
-                                .field("Price")
-                                .message("Invalid price")
-                                .build());
-                        return null;
-                    }
-                    existing.setPrice(price);
-                }
-                if (category != null) {
-                    existing.setCategory(category);
-                }
-                existing.setUpdatedBy(updatedBy);
-                existing.setUpdatedAt(LocalDateTime.now());
+            if (nameCell != null) existing.setName(nameCell);
+            if (barcodeCell != null) existing.setBarcode(barcodeCell);
+            if (priceCell != null) existing.setPrice(price);
+            if (category != null) existing.setCategory(category);
+            existing.setUpdatedBy(batch.updatedBy);
 
-                Optional<Inventory> invOpt = inventoryRepository.findByProductId(existing.getId());
-                Inventory inv = invOpt.orElseGet(() -> Inventory.builder()
+            Inventory inv = lookup.inventoriesByProductId().get(existing.getId());
+            if (inv == null) {
+                inv = Inventory.builder()
                         .product(existing)
                         .quantity(0)
                         .lowStockThreshold(lowStockThreshold)
-                        .updatedBy(updatedBy)
-                        .build());
-
-                inv.setQuantity(inv.getQuantity() + initialStock);
-                inv.setLowStockThreshold(lowStockThreshold);
-                inv.setUpdatedBy(updatedBy);
-
-                return new RowResult(existing, initialStock, lowStockThreshold, true, inv);
+                        .updatedBy(batch.updatedBy)
+                        .build();
+            }
+            inv.setQuantity(inv.getQuantity() + initialStock);
+            inv.setLowStockThreshold(lowStockThreshold);
+            inv.setUpdatedBy(batch.updatedBy);
+
+            result = new RowResult(existing, initialStock, lowStockThreshold, true, inv);
+        } else {
+            // New product path: require name and a valid price.
+            if (nameCell == null) return null;
+            if (price == null || price.compareTo(BigDecimal.ZERO) < 0) {
+                batch.rowError(rowNum, "Price", "Invalid or missing price");
+                return null;
+            }
+            if (barcodeCell != null && lookup.productIdsByBarcode().containsKey(barcodeCell)) {
+                batch.rowError(rowNum, "Barcode", "Barcode already exists: " + barcodeCell);
+                return null;
             }
-        }
-
-        // New product path: require name and a valid price.
-        if (nameCell == null || nameCell.isBlank()) return null;
-        if (price == null || price.compareTo(BigDecimal.ZERO) < 0) {
-            errors.add(BulkUploadResult.RowError.builder()
-                    .row(rowNum)
-                    .field("Price")
-                    .message("Invalid or missing price")
-                    .build());
-            return null;
-        }
-
-        if (barcodeCell != null && !barcodeCell.isBlank() && productRepository.existsByBarcode(barcodeCell)) {
-            errors.add(BulkUploadResult.RowError.builder()
-                    .row(rowNum)
-                    .field("Barcode")
-                    .message("Barcode already exists: " + barcodeCell)
-                    .build());
-            return null;
-        }
-
-        Product product = Product.builder()
-                .name(nameCell.trim())
-                .sku(sku != null && !sku.isBlank() ? sku.trim() : null)
-                .barcode(barcodeCell != null && !barcodeCell.isBlank() ? barcodeCell.trim() : null)
-                .price(price)
-                .category(category)
-                .active(true)
-                .updatedBy(updatedBy)
-                .build();
-
-        return new RowResult(product, initialStock, lowStockThreshold);
-    }
 
-    private Category resolveCategory(String categoryStr) {
-        if (categoryStr == null || categoryStr.isBlank()) return null;
-        categoryStr = categoryStr.trim();
-        Optional<Category> byName = categoryRepository.findByName(categoryStr);
-        if (byName.isPresent()) return byName.get();
-        try {
-            Long id = Long.parseLong(categoryStr);
-            return categoryRepository.findById(id).orElse(null);
-        } catch (NumberFormatException e) {
-            return null;
+            Product product = Product.builder()
+                    .name(nameCell)
+                    .sku(sku)
+                    .barcode(barcodeCell)
+                    .price(price)
+                    .category(category)
+                    .active(true)
+                    .updatedBy(batch.updatedBy)
+                    .build();
+            result = new RowResult(product, initialStock, lowStockThreshold);
         }
-    }
 
-    private static String getCellString(Cell cell) {
-        if (cell == null) return null;
-        return switch (cell.getCellType()) {
-            case STRING -> cell.getStringCellValue();
-            case NUMERIC -> String.valueOf((long) cell.getNumericCellValue());
-            case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
-            case FORMULA -> cell.getCellFormula();
-            default -> null;
-        };
+        batch.remember(sku, barcodeCell, rowNum);
+        if (!batch.validateOnly) barcodeFilterService.record(barcodeCell);
+        return result;
     }
 
-    private static BigDecimal getCellBigDecimal(Cell cell) {
-        if (cell == null) return null;
+    private static BigDecimal parseBigDecimal(String s) {
+        if (s == null || s.isBlank()) return null;
         try {
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return BigDecimal.valueOf(cell.getNumericCellValue());
-            }
-            if (cell.getCellType() == CellType.STRING) {
-                String s = cell.getStringCellValue();
-                if (s == null || s.isBlank()) return null;
-                return new BigDecimal(s.trim());
-            }
+            return new BigDecimal(s.trim());
         } catch (Exception e) {
             return null;
         }
-        return null;
     }
 
-    private static int getCellInt(Cell cell, int defaultValue) {
-        if (cell == null) return defaultValue;
+    /**
+     * A whole number, or {@code null} when {@code s} is empty, has a fractional part or is out of
+     * {@code int} range. Spreadsheet cells can hold {@code 12.0} or {@code 1E+2}, so the text is read
+     * as a decimal first and then converted exactly.
+     */
+    private static Integer parseInt(String s) {
+        if (s == null || s.isBlank()) return null;
         try {
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return (int) cell.getNumericCellValue();
-            }
-            if (cell.getCellType() == CellType.STRING) {
-                String s = cell.getStringCellValue();
-                if (s == null || s.isBlank()) return defaultValue;
-                return Integer.parseInt(s.trim());
-            }
-        } catch (Exception e) {
-            return defaultValue;
+            return new BigDecimal(s.trim()).intValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
         }
-        return defaultValue;
     }
 
     public byte[] generateExcelTemplate() {
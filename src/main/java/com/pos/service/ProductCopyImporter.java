@@ -0,0 +1,198 @@
+package com.pos.service;
+
+import com.pos.config.DatabaseDialect;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * PostgreSQL fast path for product bulk imports, enabled with {@code bulk-upload.copy-import=true}.
+ * A chunk of already-validated rows is streamed with {@code COPY} into a session temp table and
+ * merged with two set-based statements — {@code INSERT ... ON CONFLICT (sku) DO UPDATE} into
+ * {@code products}, then an upsert into {@code inventory} that adds the stock delta — instead of
+ * one entity lifecycle, dirty check and IDENTITY round trip per row.
+ * <p>
+ * It runs on the connection of the caller's transaction, so the merge commits or rolls back with
+ * the rest of the chunk. On any other database (H2 in tests) it reports itself inactive and the
+ * JPA path is used.
+ */
+@Slf4j
+@Service
+public class ProductCopyImporter {
+
+    private static final String CREATE_STAGE =
+            "CREATE TEMP TABLE IF NOT EXISTS bulk_product_stage (" +
+            "id bigint, inventory_id bigint, sku varchar(255), name varchar(255), barcode varchar(255), " +
+            "price numeric(10,2), category_id bigint, stock_delta int, low_stock_threshold int, updated_by varchar(255)" +
+            ") ON COMMIT DELETE ROWS";
+
+    private static final String COPY_STAGE =
+            "COPY bulk_product_stage (id, inventory_id, sku, name, barcode, price, category_id, stock_delta, " +
+            "low_stock_threshold, updated_by) FROM STDIN WITH (FORMAT csv)";
+
+    // Same sequence and block semantics as the entities' pooled generators: each nextval reserves
+    // the increment_by ids ending at the returned value, so ids taken here never collide with ids
+    // Hibernate hands out from its own blocks.
+    private static final String ID_INCREMENT =
+            "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?";
+
+    private static final String NEXT_ID_BLOCKS =
+            "SELECT nextval(?::regclass) FROM generate_series(1, ?)";
+
+    // Rows without a SKU never conflict and keep their pre-assigned id.
+    private static final String MERGE_PRODUCTS =
+            "INSERT INTO products (id, name, sku, barcode, price, category_id, active, created_at, updated_at, updated_by) " +
+            "SELECT id, name, sku, barcode, price, category_id, true, LOCALTIMESTAMP, LOCALTIMESTAMP, updated_by " +
+            "FROM bulk_product_stage " +
+            "ON CONFLICT (sku) DO UPDATE SET name = EXCLUDED.name, barcode = EXCLUDED.barcode, " +
+            "price = EXCLUDED.price, category_id = EXCLUDED.category_id, " +
+            "updated_at = EXCLUDED.updated_at, updated_by = EXCLUDED.updated_by " +
+            "RETURNING id, (xmax = 0) AS inserted";
+
+    // inventory.id has no default once IdSequenceAligner has moved it to inventory_seq, so every
+    // staged row carries a pre-assigned id; rows that hit the conflict just leave theirs unused.
+    private static final String MERGE_INVENTORY =
+            "INSERT INTO inventory (id, product_id, quantity, low_stock_threshold, updated_at, updated_by) " +
+            "SELECT s.inventory_id, COALESCE(p.id, s.id), s.stock_delta, s.low_stock_threshold, LOCALTIMESTAMP, s.updated_by " +
+            "FROM bulk_product_stage s LEFT JOIN products p ON p.sku = s.sku " +
+            "ON CONFLICT (product_id) DO UPDATE SET quantity = inventory.quantity + EXCLUDED.quantity, " +
+            "low_stock_threshold = EXCLUDED.low_stock_threshold, " +
+            "updated_at = EXCLUDED.updated_at, updated_by = EXCLUDED.updated_by";
+
+    /**
+     * Final state of one product row plus the stock to add. {@code productId} is set for rows that
+     * update an existing product and null for new ones.
+     */
+    public record StageRow(Long productId, String sku, String name, String barcode, BigDecimal price,
+                           Long categoryId, int stockDelta, int lowStockThreshold, String updatedBy) {}
+
+    public record MergeResult(int inserted, int updated, List<Long> productIds) {}
+
+    private final EntityManager   entityManager;
+    private final DatabaseDialect databaseDialect;
+
+    @Value("${bulk-upload.copy-import:false}")
+    private boolean enabled;
+
+    private volatile boolean warned;
+
+    public ProductCopyImporter(EntityManager entityManager, DatabaseDialect databaseDialect) {
+        this.entityManager   = entityManager;
+        this.databaseDialect = databaseDialect;
+    }
+
+    /** True when the fast path is switched on and the database is PostgreSQL. */
+    public boolean isActive() {
+        if (!enabled) return false;
+        if (databaseDialect.isPostgres()) return true;
+        if (!warned) {
+            warned = true;
+            log.info("bulk-upload.copy-import is on but the database is not PostgreSQL — using JPA import");
+        }
+        return false;
+    }
+
+    /**
+     * Stages and merges the rows inside the current transaction. The persistence context is cleared
+     * first, discarding changes the caller made to entities it loaded for validation — the staged
+     * rows already carry their final state.
+     */
+    public MergeResult merge(List<StageRow> rows) {
+        if (rows.isEmpty()) return new MergeResult(0, 0, List.of());
+        entityManager.clear();
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement st = connection.createStatement()) {
+                st.execute(CREATE_STAGE);
+            }
+            Deque<Long> productIds = nextIds(connection, "products_seq",
+                    (int) rows.stream().filter(r -> r.productId() == null).count());
+            Deque<Long> inventoryIds = nextIds(connection, "inventory_seq", rows.size());
+            long copied;
+            try {
+                copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_STAGE, new StringReader(toCsv(rows, productIds, inventoryIds)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            List<Long> ids = new ArrayList<>(rows.size());
+            int inserted = 0;
+            try (PreparedStatement ps = connection.prepareStatement(MERGE_PRODUCTS);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                    if (rs.getBoolean(2)) inserted++;
+                }
+            }
+            try (Statement st = connection.createStatement()) {
+                st.executeUpdate(MERGE_INVENTORY);
+            }
+            log.debug("COPY import merged {} staged rows — {} inserted, {} updated", copied, inserted, ids.size() - inserted);
+            return new MergeResult(inserted, ids.size() - inserted, ids);
+        });
+    }
+
+    /** {@code count} unused ids from {@code sequence}, taken a whole block per nextval. */
+    private static Deque<Long> nextIds(Connection connection, String sequence, int count) throws SQLException {
+        Deque<Long> ids = new ArrayDeque<>(count);
+        if (count == 0) return ids;
+        long increment;
+        try (PreparedStatement ps = connection.prepareStatement(ID_INCREMENT)) {
+            ps.setString(1, sequence);
+            try (ResultSet rs = ps.executeQuery()) {
+                increment = rs.next() ? rs.getLong(1) : 1;
+            }
+        }
+        try (PreparedStatement ps = connection.prepareStatement(NEXT_ID_BLOCKS)) {
+            ps.setString(1, sequence);
+            ps.setInt(2, (int) ((count + increment - 1) / increment));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long hi = rs.getLong(1);
+                    for (long id = hi - increment + 1; id <= hi && ids.size() < count; id++) ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String toCsv(List<StageRow> rows, Deque<Long> productIds, Deque<Long> inventoryIds) {
+        StringBuilder sb = new StringBuilder(rows.size() * 112);
+        for (StageRow r : rows) {
+            sb.append(r.productId() != null ? r.productId() : productIds.removeFirst()).append(',');
+            sb.append(inventoryIds.removeFirst()).append(',');
+            text(sb, r.sku()).append(',');
+            text(sb, r.name()).append(',');
+            text(sb, r.barcode()).append(',');
+            sb.append(r.price() != null ? r.price().toPlainString() : "").append(',');
+            sb.append(r.categoryId() != null ? r.categoryId() : "").append(',');
+            sb.append(r.stockDelta()).append(',');
+            sb.append(r.lowStockThreshold()).append(',');
+            text(sb, r.updatedBy()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** CSV-quotes a value; null stays an unquoted empty field, which COPY reads as NULL. */
+    private static StringBuilder text(StringBuilder sb, String value) {
+        if (value == null) return sb;
+        return sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
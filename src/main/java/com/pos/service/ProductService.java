@@ -5,6 +5,7 @@ import com.pos.dto.response.ProductResponse;
 import com.pos.entity.Category;
 import com.pos.entity.Inventory;
 import com.pos.entity.Product;
+import com.pos.event.CatalogChangedEvent;
 import com.pos.exception.BadRequestException;
 import com.pos.exception.ErrorCode;
 import com.pos.exception.ResourceNotFoundException;
@@ -13,7 +14,10 @@ import com.pos.repository.InventoryRepository;
 import com.pos.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,6 +26,11 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -32,16 +41,38 @@ public class ProductService {
     private final CategoryRepository  categoryRepository;
     private final InventoryRepository inventoryRepository;
     private final ImageStorageService imageStorageService;
+    private final BarcodeIndexService barcodeIndexService;
+    private final SearchIndexService  searchIndexService;
+    private final BarcodeFilterService barcodeFilterService;
+    private final StockStatusService  stockStatusService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<ProductResponse> getAll(String search, Long categoryId, Pageable pageable) {
         log.debug("Fetching products — search: '{}', categoryId: {}", search, categoryId);
+        Page<Object[]> rows;
         if (search != null && !search.isBlank()) {
-            return productRepository.searchActive(search, pageable).map(this::toResponse);
+            Optional<Page<Long>> ranked = searchIndexService.searchProducts(search, pageable);
+            if (ranked.isPresent()) return loadRanked(ranked.get());
+            rows = productRepository.searchActiveWithStock(search, pageable);
+        } else if (categoryId != null) {
+            rows = productRepository.findActiveWithStockByCategoryId(categoryId, pageable);
+        } else {
+            rows = productRepository.findActiveWithStock(pageable);
         }
-        if (categoryId != null) {
-            return productRepository.findByCategoryIdAndActiveTrue(categoryId, pageable).map(this::toResponse);
+        // One query per page: product, its category and stock come back together.
+        return rows.map(row -> ProductResponse.from((Product) row[0], ((Number) row[1]).intValue()));
+    }
+
+    /** Loads a page of ranked search hits in one query, keeping the index's order. */
+    private Page<ProductResponse> loadRanked(Page<Long> ids) {
+        Map<Long, ProductResponse> byId = new HashMap<>();
+        List<Object[]> rows = ids.getContent().isEmpty() ? List.of() : productRepository.findWithStockByIdIn(ids.getContent());
+        for (Object[] row : rows) {
+            Product product = (Product) row[0];
+            byId.put(product.getId(), ProductResponse.from(product, ((Number) row[1]).intValue()));
         }
-        return productRepository.findByActiveTrue(pageable).map(this::toResponse);
+        List<ProductResponse> content = ids.getContent().stream().map(byId::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
     }
 
     public ProductResponse getById(Long id) {
@@ -51,8 +82,8 @@ public class ProductService {
 
     public ProductResponse getByBarcode(String barcode) {
         log.debug("Fetching product by barcode: {}", barcode);
-        return toResponse(productRepository.findByBarcode(barcode)
-                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.PR001, "barcode: " + barcode)));
+        return barcodeIndexService.findProduct(barcode)
+                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.PR001, "barcode: " + barcode));
     }
 
     @Transactional
@@ -62,7 +93,7 @@ public class ProductService {
             log.warn("[PR002] SKU already exists: {}", request.getSku());
             throw new BadRequestException(ErrorCode.PR002);
         }
-        if (request.getBarcode() != null && productRepository.existsByBarcode(request.getBarcode())) {
+        if (request.getBarcode() != null && barcodeFilterService.productBarcodeExists(request.getBarcode())) {
             log.warn("[PR003] Barcode already exists: {}", request.getBarcode());
             throw new BadRequestException(ErrorCode.PR003);
         }
@@ -81,7 +112,16 @@ public class ProductService {
                 .active(request.isActive())
                 .updatedBy(currentUsername())
                 .build();
-        product = productRepository.save(product);
+        try {
+            product = productRepository.save(product);
+            // The filter can miss another node's recent barcode; the unique constraint cannot.
+            productRepository.flush();
+        } catch (DataIntegrityViolationException ex) {
+            if (!BarcodeFilterService.isDuplicateBarcode(ex)) throw ex;
+            log.warn("[PR003] Barcode already exists: {}", request.getBarcode());
+            throw new BadRequestException(ErrorCode.PR003);
+        }
+        barcodeFilterService.record(product.getBarcode());
 
         inventoryRepository.save(Inventory.builder()
                 .product(product)
@@ -89,6 +129,7 @@ public class ProductService {
                 .lowStockThreshold(request.getLowStockThreshold())
                 .build());
 
+        eventPublisher.publishEvent(CatalogChangedEvent.of(product.getId()));
         log.info("Product created — id: {}, name: '{}'", product.getId(), product.getName());
         return toResponse(product);
     }
@@ -118,8 +159,11 @@ public class ProductService {
         product.setActive(request.isActive());
         product.setUpdatedBy(currentUsername());
 
+        product = productRepository.save(product);
+        barcodeFilterService.record(product.getBarcode());
+        eventPublisher.publishEvent(CatalogChangedEvent.of(id));
         log.info("Product updated — id: {}", id);
-        return toResponse(productRepository.save(product));
+        return toResponse(product);
     }
 
     public void delete(Long id) {
@@ -127,6 +171,7 @@ public class ProductService {
         Product product = findById(id);
         product.setActive(false);
         productRepository.save(product);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(id));
     }
 
     @Transactional
@@ -145,7 +190,9 @@ public class ProductService {
             product.setImageUrl(imageUrl);
             product.setUpdatedBy(currentUsername());
             log.info("Image uploaded for product id: {} — url: {}", id, imageUrl);
-            return toResponse(productRepository.save(product));
+            product = productRepository.save(product);
+            eventPublisher.publishEvent(CatalogChangedEvent.of(id));
+            return toResponse(product);
         } catch (IOException ex) {
             log.error("[SV002] Failed to store image for product id: {}", id, ex);
             throw new RuntimeException(ErrorCode.SV002.getMessage(), ex);
@@ -164,7 +211,7 @@ public class ProductService {
                 productRepository.count(),
                 productRepository.countByActiveTrue(),
                 productRepository.countByActiveFalse(),
-                inventoryRepository.countOutOfStock()
+                stockStatusService.countOutOfStock()
         );
     }
 
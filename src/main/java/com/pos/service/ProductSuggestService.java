@@ -0,0 +1,178 @@
+package com.pos.service;
+
+import com.pos.dto.response.ProductSuggestion;
+import com.pos.dto.response.SuggestStats;
+import com.pos.event.CatalogChangedEvent;
+import com.pos.repository.ProductRepository;
+import com.pos.search.LiveIndex;
+import com.pos.search.PrefixTrie;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Type-ahead for the POS search box: a {@link PrefixTrie} over every word of each active product's
+ * name plus its SKU and barcode. Requests are answered entirely from memory, with no count query;
+ * the trie is kept current from committed {@link CatalogChangedEvent}s and rebuilt periodically.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSuggestService {
+
+    /** Rough retained size of one cached {@link ProductSuggestion} excluding its strings. */
+    private static final int SUGGESTION_OVERHEAD_BYTES = 160;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ProductRepository productRepository;
+
+    @Value("${product-suggest.max-limit:50}")
+    private int maxLimit = 50;
+
+    @Value("${product-suggest.load-chunk-size:1000}")
+    private int loadChunkSize = 1000;
+
+    /** Catalogue changes touching more products than this trigger a full rebuild instead. */
+    @Value("${product-suggest.full-reload-threshold:5000}")
+    private int fullReloadThreshold = 5000;
+
+    /** Trie and entries are swapped together on rebuild. */
+    private record Generation(PrefixTrie trie, Map<Long, ProductSuggestion> suggestions) {}
+
+    private final LiveIndex<Generation> generation = new LiveIndex<>("Suggestion trie",
+            new Generation(new PrefixTrie(), new ConcurrentHashMap<>()), this::load, this::reload);
+
+    /** Up to {@code limit} active products whose name word, SKU or barcode starts with {@code prefix}. */
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) return List.of();
+        Generation current = generation.current();
+        int capped = Math.max(1, Math.min(limit, maxLimit));
+        return current.trie().complete(prefix, capped).stream()
+                .map(current.suggestions()::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public SuggestStats getStats() {
+        Generation current = generation.current();
+        long entryBytes = 0;
+        for (ProductSuggestion s : current.suggestions().values()) {
+            entryBytes += SUGGESTION_OVERHEAD_BYTES
+                    + 2L * (length(s.name()) + length(s.sku()) + length(s.barcode()));
+        }
+        PrefixTrie trie = current.trie();
+        return new SuggestStats(trie.size(), trie.keyCount(), trie.nodeCount(), trie.estimatedBytes() + entryBytes);
+    }
+
+    // ── Coherence ──────────────────────────────────────────────────────────────
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        generation.changed(event.productIds(), fullReloadThreshold);
+    }
+
+    private void reload(Generation current, Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        for (int from = 0; from < ids.size(); from += loadChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + loadChunkSize, ids.size()));
+            Set<Long> missing = new HashSet<>(chunk);
+            for (Object[] row : productRepository.findSearchFieldsByIdIn(chunk)) {
+                missing.remove((Long) row[0]);
+                apply(current, row);
+            }
+            for (Long id : missing) {
+                current.trie().remove(id);
+                current.suggestions().remove(id);
+            }
+        }
+    }
+
+    // ── Warm-up and refresh ────────────────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${product-suggest.refresh-interval-ms:3600000}",
+               initialDelayString = "${product-suggest.refresh-interval-ms:3600000}")
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Generation next = generation.rebuild();
+        if (next != null) {
+            log.info("Suggestion trie rebuilt — {} products, {} nodes in {} ms",
+                    next.trie().size(), next.trie().nodeCount(), System.currentTimeMillis() - started);
+        }
+    }
+
+    private Generation load() {
+        Generation next = new Generation(new PrefixTrie(), new ConcurrentHashMap<>());
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = productRepository.findSearchFieldsAfterId(afterId, PageRequest.of(0, loadChunkSize));
+            for (Object[] row : rows) {
+                apply(next, row);
+                afterId = (Long) row[0];
+            }
+        } while (rows.size() == loadChunkSize);
+        return next;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        generation.shutdown();
+    }
+
+    /** Row: [id, name, sku, active, barcode, price]. Inactive products are dropped. */
+    private static void apply(Generation target, Object[] row) {
+        Long id = (Long) row[0];
+        if (!Boolean.TRUE.equals(row[3])) {
+            target.trie().remove(id);
+            target.suggestions().remove(id);
+            return;
+        }
+        String name = (String) row[1];
+        String sku = (String) row[2];
+        String barcode = (String) row[4];
+        target.suggestions().put(id, new ProductSuggestion(id, name, sku, barcode, (BigDecimal) row[5]));
+        target.trie().put(id, keys(name, sku, barcode));
+    }
+
+    /** Every word-suffix of the name ("laptop stand", "stand"), so any name word can be typed first. */
+    private static List<String> keys(String name, String sku, String barcode) {
+        List<String> keys = new ArrayList<>();
+        if (name != null) {
+            String[] words = WORD_SEPARATOR.split(name.trim());
+            for (int i = 0; i < words.length; i++) {
+                keys.add(String.join(" ", List.of(words).subList(i, words.length)));
+            }
+        }
+        if (sku != null) keys.add(sku);
+        if (barcode != null) keys.add(barcode);
+        return keys;
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+}
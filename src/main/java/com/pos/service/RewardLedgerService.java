@@ -0,0 +1,131 @@
+package com.pos.service;
+
+import com.pos.entity.Customer;
+import com.pos.entity.Order;
+import com.pos.entity.RewardLedgerEntry;
+import com.pos.enums.RewardReason;
+import com.pos.exception.BadRequestException;
+import com.pos.exception.ErrorCode;
+import com.pos.exception.ResourceNotFoundException;
+import com.pos.repository.CustomerRepository;
+import com.pos.repository.RewardLedgerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reward points as an append-only ledger over a compacted snapshot ({@code customers.reward_points}).
+ * Earning only inserts a ledger row, so concurrent orders for the same member never contend on the
+ * customer row. Redemption is a single conditional UPDATE on the snapshot; pending earned points are
+ * folded in first only when the snapshot alone does not cover the request.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RewardLedgerService {
+
+    private final RewardLedgerRepository ledgerRepository;
+    private final CustomerRepository     customerRepository;
+    private final TransactionTemplate    transactionTemplate;
+
+    @Value("${reward.ledger.compaction-batch-size:200}")
+    private int compactionBatchSize = 200;
+
+    /** Records points earned on an order. Returns false if the order has already been credited. */
+    @Transactional
+    public boolean earn(Order order, int points) {
+        if (ledgerRepository.existsByOrderIdAndReason(order.getId(), RewardReason.EARN)) {
+            log.debug("Order id: {} already credited with reward points", order.getId());
+            return false;
+        }
+        ledgerRepository.save(RewardLedgerEntry.builder()
+                .customer(order.getCustomer()).order(order)
+                .delta(points).reason(RewardReason.EARN)
+                .build());
+        return true;
+    }
+
+    /**
+     * Redeems points against an order with an atomic conditional deduction. The ledger entry is
+     * written already compacted because the snapshot has been updated directly.
+     */
+    @Transactional
+    public void redeem(Customer customer, Order order, int points) {
+        Long customerId = customer.getId();
+        if (customerRepository.deductRewardPoints(customerId, points) == 0
+                && (compact(customerId) <= 0 || customerRepository.deductRewardPoints(customerId, points) == 0)) {
+            log.warn("[RW001] Insufficient reward points: customer {}, requested {}", customerId, points);
+            throw new BadRequestException(ErrorCode.RW001);
+        }
+        ledgerRepository.save(RewardLedgerEntry.builder()
+                .customer(customer).order(order)
+                .delta(-points).reason(RewardReason.REDEEM).compacted(true)
+                .build());
+    }
+
+    /**
+     * Folds a customer's pending entries into the snapshot under a row lock, so two compactions
+     * for the same customer cannot both apply the same entries. Returns the points folded in.
+     */
+    @Transactional
+    public int compact(Long customerId) {
+        customerRepository.findByIdForUpdate(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.CM001));
+        List<RewardLedgerEntry> pending = ledgerRepository.findByCustomerIdAndCompactedFalse(customerId);
+        if (pending.isEmpty()) return 0;
+
+        int total = pending.stream().mapToInt(RewardLedgerEntry::getDelta).sum();
+        ledgerRepository.markCompacted(pending.stream().map(RewardLedgerEntry::getId).toList());
+        if (total != 0) {
+            customerRepository.addRewardPoints(customerId, total);
+        }
+        log.debug("Compacted {} reward ledger entries for customer {} ({} points)", pending.size(), customerId, total);
+        return total;
+    }
+
+    /** Points earned but not yet folded into the customer's snapshot. */
+    @Transactional(readOnly = true)
+    public int pendingPoints(Long customerId) {
+        Long sum = ledgerRepository.sumPending(customerId);
+        return sum != null ? sum.intValue() : 0;
+    }
+
+    /** Pending points for a page of customers in one grouped query; customers with none are absent. */
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> pendingPoints(Collection<Long> customerIds) {
+        Map<Long, Integer> pending = new HashMap<>();
+        if (customerIds.isEmpty()) return pending;
+        for (Object[] row : ledgerRepository.sumPendingByCustomerIds(customerIds)) {
+            pending.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return pending;
+    }
+
+    /** Periodically folds pending entries into snapshots, one customer per transaction. */
+    @Scheduled(fixedDelayString = "${reward.ledger.compaction-interval-ms:60000}")
+    public void compactPending() {
+        List<Long> customerIds = ledgerRepository.findCustomerIdsWithPending(PageRequest.of(0, compactionBatchSize));
+        int compacted = 0;
+        for (Long customerId : customerIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> compact(customerId));
+                compacted++;
+            } catch (RuntimeException ex) {
+                log.warn("Reward ledger compaction failed for customer {}: {}", customerId, ex.getMessage());
+            }
+        }
+        if (compacted > 0) {
+            log.info("Reward ledger compaction — {} customer(s) updated", compacted);
+        }
+    }
+}
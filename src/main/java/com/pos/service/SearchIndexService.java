@@ -0,0 +1,219 @@
+package com.pos.service;
+
+import com.pos.event.CatalogChangedEvent;
+import com.pos.event.CustomerChangedEvent;
+import com.pos.event.LabelChangedEvent;
+import com.pos.repository.CustomerRepository;
+import com.pos.repository.LabelRepository;
+import com.pos.repository.ProductRepository;
+import com.pos.search.LiveIndex;
+import com.pos.search.TrigramIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Free-text search for the product, unlinked-label and customer lists, served from in-memory
+ * {@link TrigramIndex}es instead of {@code LIKE '%q%'} scans. Results are ranked by relevance and
+ * returned as a page of ids for the caller to load.
+ * <p>
+ * Searches fall back to the database (the callers' original queries) until the first build has
+ * finished and whenever the client asks for an explicit sort, since ranking replaces ordering.
+ */
+@Slf4j
+@Service
+public class SearchIndexService {
+
+    @Value("${search-index.load-chunk-size:1000}")
+    private int loadChunkSize = 1000;
+
+    /** Changes touching more records than this trigger a full rebuild instead. */
+    @Value("${search-index.full-reload-threshold:5000}")
+    private int fullReloadThreshold = 5000;
+
+    private final Corpus products;
+    private final Corpus labels;
+    private final Corpus customers;
+
+    public SearchIndexService(ProductRepository productRepository,
+                              LabelRepository labelRepository,
+                              CustomerRepository customerRepository) {
+        // Active products: name, SKU.
+        this.products = new Corpus("products",
+                productRepository::findSearchFieldsAfterId,
+                productRepository::findSearchFieldsByIdIn,
+                row -> Boolean.TRUE.equals(row[3])
+                        ? new TrigramIndex.Document((Long) row[0], null, (String) row[1], (String) row[2])
+                        : null);
+        // Labels not yet linked to a product: name, barcode, SKU; filterable by category.
+        this.labels = new Corpus("labels",
+                labelRepository::findSearchFieldsAfterId,
+                labelRepository::findSearchFieldsByIdIn,
+                row -> row[5] == null
+                        ? new TrigramIndex.Document((Long) row[0], (Long) row[4],
+                                (String) row[1], (String) row[2], (String) row[3])
+                        : null);
+        // Customers: name, email, phone.
+        this.customers = new Corpus("customers",
+                customerRepository::findSearchFieldsAfterId,
+                customerRepository::findSearchFieldsByIdIn,
+                row -> new TrigramIndex.Document((Long) row[0], null,
+                        (String) row[1], (String) row[2], (String) row[3]));
+    }
+
+    // ── Searches ───────────────────────────────────────────────────────────────
+
+    /** Ranked ids of active products matching {@code query}; empty when the caller should query the database. */
+    public Optional<Page<Long>> searchProducts(String query, Pageable pageable) {
+        return products.search(query, null, pageable);
+    }
+
+    /** Ranked ids of unlinked labels matching {@code query}, optionally within one category. */
+    public Optional<Page<Long>> searchLabels(String query, Long categoryId, Pageable pageable) {
+        return labels.search(query, categoryId, pageable);
+    }
+
+    public Optional<Page<Long>> searchCustomers(String query, Pageable pageable) {
+        return customers.search(query, null, pageable);
+    }
+
+    // ── Coherence ──────────────────────────────────────────────────────────────
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        products.changed(event.productIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLabelChanged(LabelChangedEvent event) {
+        labels.changed(event.labelIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        customers.changed(Set.of(event.customerId()));
+    }
+
+    // ── Warm-up and refresh ────────────────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /** Picks up rows changed outside the application (imports, manual SQL). */
+    @Scheduled(fixedDelayString = "${search-index.refresh-interval-ms:3600000}",
+               initialDelayString = "${search-index.refresh-interval-ms:3600000}")
+    public void rebuild() {
+        products.rebuild();
+        labels.rebuild();
+        customers.rebuild();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        products.live.shutdown();
+        labels.live.shutdown();
+        customers.live.shutdown();
+    }
+
+    /** One searchable entity type: its live index plus the queries that (re)load it. */
+    private final class Corpus {
+
+        private final String name;
+        private final BiFunction<Long, Pageable, List<Object[]>> chunkLoader;
+        private final Function<Collection<Long>, List<Object[]>> idLoader;
+        /** Maps a loaded row to its document, or null when the row should not be searchable. */
+        private final Function<Object[], TrigramIndex.Document> toDocument;
+        /** No index until the first build completes. */
+        private final LiveIndex<TrigramIndex> live;
+
+        Corpus(String name,
+               BiFunction<Long, Pageable, List<Object[]>> chunkLoader,
+               Function<Collection<Long>, List<Object[]>> idLoader,
+               Function<Object[], TrigramIndex.Document> toDocument) {
+            this.name = name;
+            this.chunkLoader = chunkLoader;
+            this.idLoader = idLoader;
+            this.toDocument = toDocument;
+            this.live = new LiveIndex<>("Search " + name, null, this::load, this::reload);
+        }
+
+        Optional<Page<Long>> search(String query, Long filterKey, Pageable pageable) {
+            TrigramIndex current = live.current();
+            if (current == null || pageable.getSort().isSorted()) return Optional.empty();
+            long[] ids = current.search(query, filterKey);
+            if (pageable.isUnpaged()) {
+                return Optional.of(new PageImpl<>(Arrays.stream(ids).boxed().toList(), pageable, ids.length));
+            }
+            int from = (int) Math.min(pageable.getOffset(), ids.length);
+            int to = Math.min(from + pageable.getPageSize(), ids.length);
+            List<Long> page = Arrays.stream(ids, from, to).boxed().toList();
+            return Optional.of(new PageImpl<>(page, pageable, ids.length));
+        }
+
+        void changed(Set<Long> ids) {
+            live.changed(ids, fullReloadThreshold);
+        }
+
+        private void reload(TrigramIndex current, Collection<Long> ids) {
+            List<Long> all = new ArrayList<>(ids);
+            for (int from = 0; from < all.size(); from += loadChunkSize) {
+                List<Long> chunk = all.subList(from, Math.min(from + loadChunkSize, all.size()));
+                Set<Long> missing = new HashSet<>(chunk);
+                for (Object[] row : idLoader.apply(chunk)) {
+                    Long id = (Long) row[0];
+                    missing.remove(id);
+                    TrigramIndex.Document document = toDocument.apply(row);
+                    if (document != null) current.put(document);
+                    else current.remove(id);
+                }
+                missing.forEach(current::remove);
+            }
+        }
+
+        private TrigramIndex load() {
+            TrigramIndex next = new TrigramIndex();
+            long afterId = 0;
+            List<Object[]> rows;
+            do {
+                rows = chunkLoader.apply(afterId, PageRequest.of(0, loadChunkSize));
+                for (Object[] row : rows) {
+                    TrigramIndex.Document document = toDocument.apply(row);
+                    if (document != null) next.put(document);
+                    afterId = (Long) row[0];
+                }
+            } while (rows.size() == loadChunkSize);
+            return next;
+        }
+
+        void rebuild() {
+            long started = System.currentTimeMillis();
+            TrigramIndex next = live.rebuild();
+            if (next != null) {
+                log.info("Search index for {} rebuilt — {} documents in {} ms",
+                        name, next.size(), System.currentTimeMillis() - started);
+            }
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class ShiftService {
     private final ShiftRepository shiftRepository;
     private final PaymentRepository paymentRepository;
     private final UserRepository userRepository;
+    private final OrderEventDispatcher orderEventDispatcher;
 
     @Transactional
     public ShiftResponse open(OpenShiftRequest request) {
@@ -77,6 +78,9 @@ public class ShiftService {
         Shift shift = shiftRepository.findByCashierAndStatus(cashier, ShiftStatus.OPEN)
                 .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.OR001, "No open shift"));
 
+        // Payment rows are written by the order-events outbox; apply anything still pending first.
+        orderEventDispatcher.drain();
+
         LocalDateTime now = LocalDateTime.now();
         BigDecimal cashSales = paymentRepository.sumByMethodAndStatusAndCashierAndCreatedAtBetween(
                 PaymentMethod.CASH, PaymentStatus.COMPLETED,
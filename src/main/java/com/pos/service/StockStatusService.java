@@ -0,0 +1,247 @@
+package com.pos.service;
+
+import com.pos.dto.response.InventoryStats;
+import com.pos.entity.Inventory;
+import com.pos.event.CatalogChangedEvent;
+import com.pos.event.StockChangedEvent;
+import com.pos.repository.InventoryRepository;
+import com.pos.search.LiveIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stock status index: every product's quantity and low-stock threshold, classified as
+ * in stock, low or out, with a counter per bucket and the set of products at or under their
+ * threshold. Dashboard stats are read from the counters and the low-stock list from the set, so
+ * neither scans {@code inventory}.
+ * <p>
+ * Each committed change reclassifies only the products it touched: sale and cancellation deltas
+ * from {@link StockChangedEvent}s are applied in memory, while manual stock updates and
+ * {@link CatalogChangedEvent}s (product create, bulk upload, label conversion) re-read just those
+ * rows, since they may also change the threshold. A periodic rebuild reconciles the index with the
+ * database. Until the first build, callers fall back to the repository queries.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockStatusService {
+
+    private final InventoryRepository inventoryRepository;
+
+    @Value("${stock-status.load-chunk-size:5000}")
+    private int loadChunkSize = 5000;
+
+    /** Catalogue changes touching more products than this trigger a full rebuild instead. */
+    @Value("${stock-status.full-reload-threshold:5000}")
+    private int fullReloadThreshold = 5000;
+
+    enum Bucket { IN_STOCK, LOW, OUT }
+
+    record Level(int quantity, int threshold) {
+
+        /** Same buckets as the {@code count*} queries in {@link InventoryRepository}. */
+        Bucket bucket() {
+            if (quantity <= 0) return Bucket.OUT;
+            return quantity <= threshold ? Bucket.LOW : Bucket.IN_STOCK;
+        }
+
+        /** Matches {@link InventoryRepository#findLowStockItems()}: out of stock counts as low too. */
+        boolean lowStock() {
+            return quantity <= threshold;
+        }
+    }
+
+    /** One generation of the index; a rebuild fills a fresh one and swaps it in. */
+    private static final class Index {
+        final Map<Long, Level> levels = new ConcurrentHashMap<>();
+        final Set<Long> lowStockIds = ConcurrentHashMap.newKeySet();
+        final AtomicLong inStock = new AtomicLong();
+        final AtomicLong low = new AtomicLong();
+        final AtomicLong out = new AtomicLong();
+
+        // Counters and the low-stock set change inside the map's per-key compute, so concurrent
+        // changes to one product are applied one at a time.
+
+        void put(Long productId, Level level) {
+            levels.compute(productId, (id, previous) -> reclassify(id, previous, level));
+        }
+
+        void remove(Long productId) {
+            levels.computeIfPresent(productId, (id, previous) -> reclassify(id, previous, null));
+        }
+
+        /** Applies a sale or cancellation delta; false when the product is not indexed. */
+        boolean adjust(Long productId, int delta) {
+            return levels.computeIfPresent(productId, (id, previous) ->
+                    reclassify(id, previous, new Level(previous.quantity() + delta, previous.threshold()))) != null;
+        }
+
+        private Level reclassify(Long productId, Level previous, Level level) {
+            if (previous != null) count(previous, -1);
+            if (level != null) count(level, 1);
+            if (level != null && level.lowStock()) lowStockIds.add(productId); else lowStockIds.remove(productId);
+            return level;
+        }
+
+        private void count(Level level, int by) {
+            switch (level.bucket()) {
+                case IN_STOCK -> inStock.addAndGet(by);
+                case LOW -> low.addAndGet(by);
+                case OUT -> out.addAndGet(by);
+            }
+        }
+    }
+
+    /** No index until the first build completes. */
+    private final LiveIndex<Index> index = new LiveIndex<>("Stock status", null, this::load, this::reload);
+
+    // ── Reads ──────────────────────────────────────────────────────────────────
+
+    public InventoryStats getStats() {
+        Index current = index.current();
+        if (current == null) {
+            return new InventoryStats(inventoryRepository.count(), inventoryRepository.countInStock(),
+                    inventoryRepository.countLowStock(), inventoryRepository.countOutOfStock());
+        }
+        return new InventoryStats(current.levels.size(), current.inStock.get(), current.low.get(), current.out.get());
+    }
+
+    public long countOutOfStock() {
+        Index current = index.current();
+        return current != null ? current.out.get() : inventoryRepository.countOutOfStock();
+    }
+
+    /** Inventory rows at or under their low-stock threshold, lowest quantity first. */
+    public List<Inventory> findLowStock() {
+        Index current = index.current();
+        if (current == null) return inventoryRepository.findLowStockItems();
+        if (current.lowStockIds.isEmpty()) return List.of();
+        List<Inventory> items = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(current.lowStockIds);
+        for (int from = 0; from < ids.size(); from += loadChunkSize) {
+            items.addAll(inventoryRepository.findWithProductByProductIdIn(
+                    ids.subList(from, Math.min(from + loadChunkSize, ids.size()))));
+        }
+        // The rows are current; drop any that recovered since the index last heard about them.
+        items.removeIf(i -> i.getQuantity() > i.getLowStockThreshold());
+        items.sort(Comparator.comparingInt(Inventory::getQuantity).thenComparing(i -> i.getProduct().getId()));
+        return items;
+    }
+
+    // ── Coherence ──────────────────────────────────────────────────────────────
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        if (event.absolute()) {
+            index.refresh(event.quantities().keySet());
+            return;
+        }
+        index.adjust(event.quantities().keySet(), current -> {
+            Set<Long> unknown = new HashSet<>();
+            event.quantities().forEach((productId, delta) -> {
+                if (!current.adjust(productId, delta)) unknown.add(productId);
+            });
+            return unknown;
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        index.changed(event.productIds(), fullReloadThreshold);
+    }
+
+    /** Re-reads the given products' levels; products without an inventory row drop out. */
+    private void reload(Index current, Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        for (int from = 0; from < ids.size(); from += loadChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + loadChunkSize, ids.size()));
+            Map<Long, Level> found = new HashMap<>();
+            for (Object[] row : inventoryRepository.findLevelsByProductIdIn(chunk)) {
+                found.put((Long) row[0], level(row));
+            }
+            for (Long id : chunk) {
+                Level level = found.get(id);
+                if (level != null) current.put(id, level); else current.remove(id);
+            }
+        }
+    }
+
+    // ── Warm-up and reconciliation ─────────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${stock-status.reconcile-interval-ms:300000}",
+               initialDelayString = "${stock-status.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    /** Loads every inventory row into a fresh index and swaps it in. */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Index previous = index.current();
+        Index next = index.rebuild();
+        if (next == null) return;
+        logDrift(previous, next);
+        log.info("Stock status index rebuilt — {} products: {} in stock, {} low, {} out in {} ms",
+                next.levels.size(), next.inStock.get(), next.low.get(), next.out.get(),
+                System.currentTimeMillis() - started);
+    }
+
+    private Index load() {
+        Index next = new Index();
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = inventoryRepository.findLevelsAfterProductId(afterId, PageRequest.of(0, loadChunkSize));
+            for (Object[] row : rows) {
+                afterId = (Long) row[0];
+                next.put(afterId, level(row));
+            }
+        } while (rows.size() == loadChunkSize);
+        return next;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        index.shutdown();
+    }
+
+    /** Reports counters that had drifted from the database, e.g. through missed events. */
+    private static void logDrift(Index previous, Index next) {
+        if (previous == null) return;
+        if (previous.inStock.get() != next.inStock.get() || previous.low.get() != next.low.get()
+                || previous.out.get() != next.out.get()) {
+            log.debug("Stock status drift corrected — in stock {} → {}, low {} → {}, out {} → {}",
+                    previous.inStock.get(), next.inStock.get(), previous.low.get(), next.low.get(),
+                    previous.out.get(), next.out.get());
+        }
+    }
+
+    private static Level level(Object[] row) {
+        return new Level(((Number) row[1]).intValue(), ((Number) row[2]).intValue());
+    }
+}
@@ -1,7 +1,10 @@
 package com.pos.controller;
 
+import com.pos.dto.response.BulkUploadJobResponse;
 import com.pos.dto.response.BulkUploadResult;
 import com.pos.dto.response.ProductResponse;
+import com.pos.enums.BulkUploadJobStatus;
+import com.pos.service.BulkUploadJobService;
 import com.pos.service.ProductBulkService;
 import com.pos.service.ProductService;
 import org.junit.jupiter.api.Test;
@@ -36,29 +39,68 @@ class ProductControllerTest {
     private ProductService productService;
     @MockBean
     private ProductBulkService productBulkService;
+    @MockBean
+    private BulkUploadJobService bulkUploadJobService;
 
     @Test
     @WithMockUser(authorities = "ADMIN")
-    void bulkUpload_csv_returnsResult() throws Exception {
+    void bulkUpload_csv_queuesJobAndReturnsAccepted() throws Exception {
         String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
                 + "Product A,A-001,,9.99,Electronics,10,5";
         MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csv.getBytes());
 
-        BulkUploadResult result = BulkUploadResult.builder()
-                .totalRows(1)
-                .successCount(1)
-                .updatedCount(0)
-                .failCount(0)
+        BulkUploadJobResponse job = BulkUploadJobResponse.builder()
+                .id(42L)
+                .fileName("test.csv")
+                .status(BulkUploadJobStatus.QUEUED)
                 .errors(List.of())
                 .build();
-        when(productBulkService.processUpload(any(), eq("user"))).thenReturn(result);
+        when(bulkUploadJobService.submit(any(), eq("user"))).thenReturn(job);
 
         mockMvc.perform(multipart("/api/products/bulk-upload").file(file).with(csrf()))
-                .andExpect(status().isOk())
+                .andExpect(status().isAccepted())
                 .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.id").value(42))
+                .andExpect(jsonPath("$.data.status").value("QUEUED"));
+    }
+
+    @Test
+    @WithMockUser(authorities = "MANAGER")
+    void bulkUploadStatus_returnsProgress() throws Exception {
+        BulkUploadJobResponse job = BulkUploadJobResponse.builder()
+                .id(42L)
+                .status(BulkUploadJobStatus.RUNNING)
+                .rowsProcessed(1500)
+                .createdCount(1490)
+                .errorCount(1)
+                .errors(List.of(BulkUploadResult.RowError.builder().row(7).field("Price").message("Invalid price").build()))
+                .build();
+        when(bulkUploadJobService.getJob(42L)).thenReturn(job);
+
+        mockMvc.perform(get("/api/products/bulk-upload/42"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("RUNNING"))
+                .andExpect(jsonPath("$.data.rowsProcessed").value(1500))
+                .andExpect(jsonPath("$.data.errors[0].row").value(7));
+    }
+
+    @Test
+    @WithMockUser(authorities = "MANAGER")
+    void bulkUploadValidate_returnsDryRunResult() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv",
+                "Name,SKU\nProduct A,A-001".getBytes());
+        BulkUploadResult dryRun = BulkUploadResult.builder()
+                .totalRows(2)
+                .successCount(1)
+                .failCount(1)
+                .errors(List.of(BulkUploadResult.RowError.builder().row(3).field("Price").message("Invalid or missing price").build()))
+                .build();
+        when(bulkUploadJobService.validate(any())).thenReturn(dryRun);
+
+        mockMvc.perform(multipart("/api/products/bulk-upload/validate").file(file).with(csrf()))
+                .andExpect(status().isOk())
                 .andExpect(jsonPath("$.data.successCount").value(1))
-                .andExpect(jsonPath("$.data.updatedCount").value(0))
-                .andExpect(jsonPath("$.data.failCount").value(0));
+                .andExpect(jsonPath("$.data.errors[0].row").value(3));
     }
 
     @Test
@@ -0,0 +1,178 @@
+package com.pos.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveIndexTest {
+
+    /** Stands in for the table the index is loaded from. */
+    private final Map<Long, Integer> table = new ConcurrentHashMap<>(Map.of(1L, 10, 2L, 20));
+
+    private LiveIndex<Map<Long, Integer>> index;
+
+    @AfterEach
+    void tearDown() {
+        if (index != null) index.shutdown();
+    }
+
+    @Test
+    void rebuild_swapsInFreshGeneration() {
+        index = new LiveIndex<>("Test", null, this::load, this::refresh);
+        assertThat(index.current()).isNull();
+
+        Map<Long, Integer> built = index.rebuild();
+
+        assertThat(built).isSameAs(index.current()).containsExactlyInAnyOrderEntriesOf(Map.of(1L, 10, 2L, 20));
+    }
+
+    @Test
+    void changeCommittedDuringLoad_isReplayedIntoNewGeneration() {
+        index = new LiveIndex<>("Test", null, () -> {
+            Map<Long, Integer> generation = load();
+            // Commits after the load read row 1; its listener can only reach the old generation.
+            table.put(1L, 11);
+            index.refresh(List.of(1L));
+            return generation;
+        }, this::refresh);
+
+        index.rebuild();
+
+        assertThat(index.current()).containsEntry(1L, 11);
+    }
+
+    @Test
+    void changeInFlightAtSwap_completesBeforeSwapAndIsReplayed() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch changeEntered = new CountDownLatch(1);
+        CountDownLatch finishLoad = new CountDownLatch(1);
+        CountDownLatch finishChange = new CountDownLatch(1);
+        index = new LiveIndex<>("Test", new ConcurrentHashMap<>(table), () -> {
+            loading.countDown();
+            await(finishLoad);
+            return load();
+        }, this::refresh);
+
+        Thread rebuild = new Thread(index::rebuild);
+        rebuild.start();
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // A change that picked up the old generation and is still writing to it when the load ends.
+        Thread change = new Thread(() -> index.update(List.of(2L), generation -> {
+            changeEntered.countDown();
+            await(finishChange);
+            table.put(2L, 21);
+            generation.put(2L, 21);
+        }));
+        change.start();
+        assertThat(changeEntered.await(5, TimeUnit.SECONDS)).isTrue();
+        finishLoad.countDown();
+        Thread.sleep(100);
+        assertThat(index.current().get(2L)).as("swap waits for the change").isEqualTo(20);
+
+        finishChange.countDown();
+        change.join(5000);
+        rebuild.join(5000);
+
+        assertThat(index.current()).containsEntry(2L, 21);
+    }
+
+    @Test
+    void adjust_appliesDeltaAndRereadsRowsTheGenerationLacks() {
+        index = new LiveIndex<>("Test", new ConcurrentHashMap<>(Map.of(1L, 10)), this::load, this::refresh);
+
+        index.adjust(List.of(1L, 2L), generation -> {
+            generation.computeIfPresent(1L, (id, q) -> q - 3);
+            return generation.containsKey(2L) ? List.of() : List.of(2L);
+        });
+
+        assertThat(index.current()).containsExactlyInAnyOrderEntriesOf(Map.of(1L, 7, 2L, 20));
+    }
+
+    @Test
+    void adjustDuringLoad_rereadsInsteadOfApplyingDelta() {
+        index = new LiveIndex<>("Test", new ConcurrentHashMap<>(table), () -> {
+            Map<Long, Integer> generation = load();
+            // A sale the load may or may not have seen commits meanwhile.
+            table.put(1L, 7);
+            index.adjust(List.of(1L), current -> {
+                current.computeIfPresent(1L, (id, q) -> q - 3);
+                return List.of();
+            });
+            return generation;
+        }, this::refresh);
+
+        index.rebuild();
+
+        assertThat(index.current()).containsEntry(1L, 7);
+    }
+
+    @Test
+    void failedLoad_keepsPreviousGeneration() {
+        Map<Long, Integer> initial = new ConcurrentHashMap<>(Map.of(1L, 10));
+        index = new LiveIndex<>("Test", initial, () -> {
+            throw new IllegalStateException("database down");
+        }, this::refresh);
+
+        assertThat(index.rebuild()).isNull();
+        assertThat(index.current()).isSameAs(initial);
+    }
+
+    @Test
+    void changedOverThreshold_rebuildsOffTheCallingThread() throws Exception {
+        AtomicReference<String> loadedOn = new AtomicReference<>();
+        CountDownLatch loaded = new CountDownLatch(1);
+        index = new LiveIndex<>("Test index", null, () -> {
+            loadedOn.set(Thread.currentThread().getName());
+            loaded.countDown();
+            return load();
+        }, this::refresh);
+
+        index.changed(Set.of(1L, 2L), 1);
+
+        assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(loadedOn.get()).isEqualTo("test-index-rebuild");
+    }
+
+    @Test
+    void changedUnderThreshold_rereadsOnlyThoseRows() {
+        index = new LiveIndex<>("Test", new ConcurrentHashMap<>(Map.of(1L, 10)), () -> {
+            throw new AssertionError("no rebuild expected");
+        }, this::refresh);
+        table.remove(1L);
+        table.put(3L, 30);
+
+        index.changed(List.of(1L, 3L), 10);
+
+        assertThat(index.current()).containsExactlyInAnyOrderEntriesOf(Map.of(3L, 30));
+    }
+
+    private Map<Long, Integer> load() {
+        return new ConcurrentHashMap<>(table);
+    }
+
+    private void refresh(Map<Long, Integer> generation, Collection<Long> ids) {
+        for (Long id : ids) {
+            Integer value = table.get(id);
+            if (value != null) generation.put(id, value); else generation.remove(id);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
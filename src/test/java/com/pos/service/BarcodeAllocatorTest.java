@@ -0,0 +1,77 @@
+package com.pos.service;
+
+import com.pos.config.DatabaseDialect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BarcodeAllocatorTest {
+
+    @Mock private DataSource dataSource;
+    @Mock private DatabaseDialect databaseDialect;
+    @Mock private Connection connection;
+    @Mock private Statement statement;
+    @Mock private ResultSet resultSet;
+
+    @InjectMocks
+    private BarcodeAllocator barcodeAllocator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(databaseDialect.nextValueQuery("barcode_block_seq")).thenReturn("select nextval('barcode_block_seq')");
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(5L, 6L);
+    }
+
+    @Test
+    void checkDigit_matchesEan13() {
+        assertThat(BarcodeAllocator.checkDigit("400638133393")).isEqualTo(1);
+        assertThat(BarcodeAllocator.ean13("20", 1000)).isEqualTo("2000000010007");
+    }
+
+    @Test
+    void nextLabelBarcodes_handsOutOneBlockBeforeReservingTheNext() throws Exception {
+        List<String> first = barcodeAllocator.nextLabelBarcodes(BarcodeAllocator.BLOCK_SIZE);
+        String next = barcodeAllocator.nextLabelBarcodes(1).get(0);
+
+        assertThat(first.get(0)).isEqualTo(BarcodeAllocator.ean13("20", 5000));
+        assertThat(first.get(first.size() - 1)).isEqualTo(BarcodeAllocator.ean13("20", 5999));
+        assertThat(new HashSet<>(first)).hasSize(BarcodeAllocator.BLOCK_SIZE);
+        assertThat(next).isEqualTo(BarcodeAllocator.ean13("20", 6000));
+        verify(statement, times(2)).executeQuery("select nextval('barcode_block_seq')");
+        // The sequence belongs to the schema; the request path never issues DDL.
+        verify(statement, never()).execute(anyString());
+    }
+
+    @Test
+    void nextMemberCardBarcode_usesMemberCardPrefix() {
+        String barcode = barcodeAllocator.nextMemberCardBarcode();
+
+        assertThat(barcode).hasSize(13).startsWith("29");
+        assertThat(barcode).isEqualTo(BarcodeAllocator.ean13("29", 5000));
+    }
+}
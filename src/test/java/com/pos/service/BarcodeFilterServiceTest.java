@@ -0,0 +1,156 @@
+package com.pos.service;
+
+import com.pos.dto.response.BarcodeFilterStats;
+import com.pos.repository.LabelRepository;
+import com.pos.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BarcodeFilterServiceTest {
+
+    @Mock private ProductRepository productRepository;
+    @Mock private LabelRepository labelRepository;
+
+    @InjectMocks
+    private BarcodeFilterService barcodeFilterService;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.count()).thenReturn(1L);
+        when(labelRepository.count()).thenReturn(1L);
+        when(productRepository.findBarcodesAfterId(any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, "5000112637922"}));
+        when(labelRepository.findBarcodesAfterId(any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, "2000000000015"}));
+        when(productRepository.existsByBarcode("5000112637922")).thenReturn(true);
+        when(labelRepository.existsByBarcode("2000000000015")).thenReturn(true);
+    }
+
+    @Test
+    void beforeFirstBuild_everyCheckGoesToTheDatabase() {
+        assertThat(barcodeFilterService.barcodeInUse("4006381333931")).isFalse();
+        assertThat(barcodeFilterService.possiblyPresent(List.of("4006381333931"))).containsExactly("4006381333931");
+        verify(labelRepository).existsByBarcode("4006381333931");
+        assertThat(barcodeFilterService.getStats().ready()).isFalse();
+    }
+
+    @Test
+    void unknownBarcode_answeredWithoutQuery() {
+        barcodeFilterService.rebuild();
+
+        assertThat(barcodeFilterService.productBarcodeExists("4006381333931")).isFalse();
+        verify(productRepository, never()).existsByBarcode(anyString());
+    }
+
+    @Test
+    void barcodeInUse_alwaysQueriesProducts_sinceNoConstraintSpansBothTables() {
+        barcodeFilterService.rebuild();
+        when(productRepository.existsByBarcode("4006381333931")).thenReturn(true);
+
+        assertThat(barcodeFilterService.barcodeInUse("4006381333931")).isTrue();
+        verify(labelRepository, never()).existsByBarcode(anyString());
+    }
+
+    @Test
+    void loadedBarcodes_confirmedAgainstTheDatabase() {
+        barcodeFilterService.rebuild();
+
+        assertThat(barcodeFilterService.productBarcodeExists("5000112637922")).isTrue();
+        assertThat(barcodeFilterService.barcodeInUse("2000000000015")).isTrue();
+        assertThat(barcodeFilterService.possiblyPresent(List.of("4006381333931", "5000112637922")))
+                .containsExactly("5000112637922");
+    }
+
+    @Test
+    void record_makesNewBarcodePossiblyPresent() {
+        barcodeFilterService.rebuild();
+        assertThat(barcodeFilterService.possiblyPresent(Set.of("4006381333931"))).isEmpty();
+
+        barcodeFilterService.record("4006381333931");
+
+        assertThat(barcodeFilterService.possiblyPresent(Set.of("4006381333931"))).containsExactly("4006381333931");
+    }
+
+    @Test
+    void record_insideTransaction_addsBarcodeOnlyOnCommit() {
+        barcodeFilterService.rebuild();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            barcodeFilterService.record("4006381333931");
+            assertThat(barcodeFilterService.possiblyPresent(Set.of("4006381333931"))).isEmpty();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(barcodeFilterService.possiblyPresent(Set.of("4006381333931"))).containsExactly("4006381333931");
+    }
+
+    @Test
+    void rebuild_keepsBarcodeRecordedBeforeItStartedButCommittedAfterTheLoadReadPastIt() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            barcodeFilterService.record("4006381333931");
+            // The write commits while the label pages are loading, after the product pages were read.
+            when(labelRepository.findBarcodesAfterId(any(), any())).thenAnswer(inv -> {
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+                return List.<Object[]>of(new Object[]{1L, "2000000000015"});
+            });
+
+            barcodeFilterService.rebuild();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(barcodeFilterService.possiblyPresent(Set.of("4006381333931"))).containsExactly("4006381333931");
+    }
+
+    @Test
+    void isDuplicateBarcode_onlyForBarcodeConstraints() {
+        assertThat(BarcodeFilterService.isDuplicateBarcode(new DataIntegrityViolationException(
+                "duplicate key value violates unique constraint \"uk_products_barcode\""))).isTrue();
+        assertThat(BarcodeFilterService.isDuplicateBarcode(new DataIntegrityViolationException(
+                "duplicate key value violates unique constraint \"uk_products_sku\""))).isFalse();
+    }
+
+    @Test
+    void stats_reportSizeAndRates() {
+        barcodeFilterService.rebuild();
+        barcodeFilterService.barcodeInUse("4006381333931");
+        barcodeFilterService.barcodeInUse("2000000000015");
+
+        BarcodeFilterStats stats = barcodeFilterService.getStats();
+
+        assertThat(stats.ready()).isTrue();
+        assertThat(stats.barcodes()).isEqualTo(2);
+        assertThat(stats.bits()).isPositive();
+        assertThat(stats.sizeBytes()).isEqualTo(stats.bits() / 8);
+        assertThat(stats.expectedFalsePositiveRate()).isLessThan(0.01);
+        assertThat(stats.checks()).isEqualTo(2);
+        assertThat(stats.definiteMisses()).isEqualTo(1);
+        assertThat(stats.falsePositives()).isZero();
+        assertThat(stats.builtAt()).isNotNull();
+    }
+}
@@ -0,0 +1,192 @@
+package com.pos.service;
+
+import com.pos.config.DatabaseClock;
+import com.pos.dto.response.ProductResponse;
+import com.pos.entity.Customer;
+import com.pos.entity.Label;
+import com.pos.entity.Product;
+import com.pos.event.CatalogChangedEvent;
+import com.pos.event.CustomerChangedEvent;
+import com.pos.event.LabelChangedEvent;
+import com.pos.event.StockChangedEvent;
+import com.pos.repository.CustomerRepository;
+import com.pos.repository.InventoryRepository;
+import com.pos.repository.LabelRepository;
+import com.pos.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BarcodeIndexServiceTest {
+
+    @Mock private ProductRepository productRepository;
+    @Mock private InventoryRepository inventoryRepository;
+    @Mock private LabelRepository labelRepository;
+    @Mock private CustomerRepository customerRepository;
+    @Mock private DatabaseClock databaseClock;
+
+    @InjectMocks
+    private BarcodeIndexService barcodeIndexService;
+
+    private static final LocalDateTime LOADED_AT = LocalDateTime.of(2026, 10, 16, 9, 0);
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        product = Product.builder().id(1L).name("Cola 330ml").barcode("5000112637922")
+                .price(new BigDecimal("1.20")).active(true).build();
+        when(productRepository.findWithStockAfterId(any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[]{product, 24}));
+        when(labelRepository.findLinkedBarcodes())
+                .thenReturn(List.<Object[]>of(new Object[]{21L, "2000000000015", 1L}));
+        when(customerRepository.findMemberCardBarcodes())
+                .thenReturn(List.<Object[]>of(new Object[]{"MC0000000007", 7L}));
+        when(databaseClock.committedUpTo(any())).thenReturn(LOADED_AT);
+        barcodeIndexService.rebuild();
+    }
+
+    @Test
+    void findProduct_warmIndex_servesWithoutQueryingDatabase() {
+        Optional<ProductResponse> hit = barcodeIndexService.findProduct("5000112637922");
+
+        assertThat(hit).isPresent();
+        assertThat(hit.get().getName()).isEqualTo("Cola 330ml");
+        assertThat(hit.get().getQuantity()).isEqualTo(24);
+        verify(productRepository, never()).findByBarcode(anyString());
+    }
+
+    @Test
+    void findProduct_linkedLabelBarcode_resolvesToProduct() {
+        assertThat(barcodeIndexService.findProduct("2000000000015"))
+                .map(ProductResponse::getId).contains(1L);
+    }
+
+    @Test
+    void findProduct_miss_fallsBackToDatabaseAndCachesResult() {
+        Product added = Product.builder().id(2L).name("Water").barcode("111").price(BigDecimal.ONE).active(true).build();
+        when(productRepository.findByBarcode("111")).thenReturn(Optional.of(added));
+        when(productRepository.findWithStockByIdIn(any())).thenReturn(List.<Object[]>of(new Object[]{added, 3}));
+
+        assertThat(barcodeIndexService.findProduct("111")).map(ProductResponse::getQuantity).contains(3);
+        assertThat(barcodeIndexService.findProduct("111")).isPresent();
+
+        verify(productRepository).findByBarcode("111");
+    }
+
+    @Test
+    void findProduct_unknownBarcode_returnsEmpty() {
+        when(productRepository.findByBarcode("999")).thenReturn(Optional.empty());
+        when(labelRepository.findByBarcode("999")).thenReturn(Optional.of(Label.builder().id(4L).barcode("999").build()));
+
+        assertThat(barcodeIndexService.findProduct("999")).isEmpty();
+    }
+
+    @Test
+    void onStockChanged_appliesDeltasAndAbsoluteValues() {
+        barcodeIndexService.onStockChanged(StockChangedEvent.adjusted(Map.of(1L, -4)));
+        assertThat(barcodeIndexService.findProduct("5000112637922")).map(ProductResponse::getQuantity).contains(20);
+
+        barcodeIndexService.onStockChanged(StockChangedEvent.set(1L, 50));
+        assertThat(barcodeIndexService.findProduct("5000112637922")).map(ProductResponse::getQuantity).contains(50);
+    }
+
+    @Test
+    void onCatalogChanged_barcodeEdited_dropsOldBarcode() {
+        Product edited = Product.builder().id(1L).name("Cola 330ml").barcode("5000112999999")
+                .price(new BigDecimal("1.20")).active(true).build();
+        when(productRepository.findWithStockByIdIn(any())).thenReturn(List.<Object[]>of(new Object[]{edited, 24}));
+        when(productRepository.findByBarcode("5000112637922")).thenReturn(Optional.empty());
+
+        barcodeIndexService.onCatalogChanged(CatalogChangedEvent.of(1L));
+
+        assertThat(barcodeIndexService.findProduct("5000112999999")).isPresent();
+        assertThat(barcodeIndexService.findProduct("5000112637922")).isEmpty();
+    }
+
+    @Test
+    void onLabelChanged_labelUnlinkedOrDeleted_barcodeStopsResolving() {
+        when(labelRepository.findLinkedProductIdsByIdIn(Set.of(21L))).thenReturn(List.of());
+        when(productRepository.findWithStockByIdIn(any())).thenReturn(List.<Object[]>of(new Object[]{product, 24}));
+        when(labelRepository.findLinkedBarcodesByProductIdIn(any())).thenReturn(List.of());
+        when(productRepository.findByBarcode("2000000000015")).thenReturn(Optional.empty());
+        when(labelRepository.findByBarcode("2000000000015")).thenReturn(Optional.empty());
+
+        barcodeIndexService.onLabelChanged(LabelChangedEvent.of(21L));
+
+        assertThat(barcodeIndexService.findProduct("2000000000015")).isEmpty();
+        verify(productRepository).findWithStockByIdIn(List.of(1L));
+    }
+
+    @Test
+    void onCatalogChanged_labelRebarcoded_dropsOldLabelBarcode() {
+        when(productRepository.findWithStockByIdIn(any())).thenReturn(List.<Object[]>of(new Object[]{product, 24}));
+        when(labelRepository.findLinkedBarcodesByProductIdIn(any()))
+                .thenReturn(List.<Object[]>of(new Object[]{21L, "2000000000022", 1L}));
+        when(productRepository.findByBarcode("2000000000015")).thenReturn(Optional.empty());
+        when(labelRepository.findByBarcode("2000000000015")).thenReturn(Optional.empty());
+
+        barcodeIndexService.onCatalogChanged(CatalogChangedEvent.of(1L));
+
+        assertThat(barcodeIndexService.findProduct("2000000000022")).map(ProductResponse::getId).contains(1L);
+        assertThat(barcodeIndexService.findProduct("2000000000015")).isEmpty();
+    }
+
+    @Test
+    void reconcileStock_readsOnlyRowsChangedSinceLastPass() {
+        LocalDateTime first = LOADED_AT.plusMinutes(1);
+        LocalDateTime second = LOADED_AT.plusMinutes(2);
+        when(databaseClock.committedUpTo(any())).thenReturn(first, second);
+        when(inventoryRepository.findQuantitiesUpdatedBetween(LOADED_AT, first))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 9}));
+        when(inventoryRepository.findQuantitiesUpdatedBetween(first, second)).thenReturn(List.of());
+
+        barcodeIndexService.reconcileStock();
+        barcodeIndexService.reconcileStock();
+
+        assertThat(barcodeIndexService.findProduct("5000112637922")).map(ProductResponse::getQuantity).contains(9);
+        verify(inventoryRepository).findQuantitiesUpdatedBetween(LOADED_AT, first);
+        verify(inventoryRepository).findQuantitiesUpdatedBetween(first, second);
+    }
+
+    @Test
+    void findCustomerId_memberCard_servedFromIndexAndDroppedWhenCustomerRemoved() {
+        assertThat(barcodeIndexService.findCustomerId("MC0000000007")).contains(7L);
+        verify(customerRepository, never()).findByMemberCardBarcode(anyString());
+
+        when(customerRepository.findById(7L)).thenReturn(Optional.empty());
+        when(customerRepository.findByMemberCardBarcode("MC0000000007")).thenReturn(Optional.empty());
+        barcodeIndexService.onCustomerChanged(new CustomerChangedEvent(7L));
+
+        assertThat(barcodeIndexService.findCustomerId("MC0000000007")).isEmpty();
+    }
+
+    @Test
+    void findCustomerId_miss_fallsBackToDatabase() {
+        Customer customer = Customer.builder().id(8L).name("Ann").memberCardBarcode("MC0000000008").build();
+        when(customerRepository.findByMemberCardBarcode("MC0000000008")).thenReturn(Optional.of(customer));
+
+        assertThat(barcodeIndexService.findCustomerId("MC0000000008")).contains(8L);
+    }
+}
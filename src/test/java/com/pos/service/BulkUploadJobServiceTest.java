@@ -0,0 +1,228 @@
+package com.pos.service;
+
+import com.pos.bulk.ImportProgress;
+import com.pos.dto.response.BulkUploadJobResponse;
+import com.pos.dto.response.BulkUploadResult;
+import com.pos.entity.BulkUploadJob;
+import com.pos.enums.BulkUploadJobStatus;
+import com.pos.exception.BadRequestException;
+import com.pos.exception.ResourceNotFoundException;
+import com.pos.repository.BulkUploadJobErrorRepository;
+import com.pos.repository.BulkUploadJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BulkUploadJobServiceTest {
+
+    @Mock private BulkUploadJobRepository jobRepository;
+    @Mock private BulkUploadJobErrorRepository errorRepository;
+    @Mock private ProductBulkService productBulkService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BulkUploadJobService bulkUploadJobService;
+
+    @TempDir
+    Path tempDir;
+
+    private BulkUploadJob job;
+    private Path stored;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(bulkUploadJobService, "storageDir", tempDir.toString());
+        stored = Files.writeString(tempDir.resolve("upload.csv"), "Name,SKU\nCola,COL-1");
+        job = BulkUploadJob.builder()
+                .id(5L)
+                .fileName("products.csv")
+                .storedPath(stored.toString())
+                .status(BulkUploadJobStatus.RUNNING)
+                .submittedBy("admin")
+                .build();
+        when(jobRepository.findById(5L)).thenReturn(Optional.of(job));
+        when(jobRepository.findRunnableIds(any(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void submit_storesFileAndReturnsQueuedJob() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "products.csv", "text/csv",
+                "Name,SKU\nCola,COL-1".getBytes(StandardCharsets.UTF_8));
+        when(jobRepository.save(any(BulkUploadJob.class))).thenAnswer(inv -> {
+            BulkUploadJob saved = inv.getArgument(0);
+            saved.setId(9L);
+            return saved;
+        });
+
+        BulkUploadJobResponse response = bulkUploadJobService.submit(file, "manager");
+
+        assertThat(response.getId()).isEqualTo(9L);
+        assertThat(response.getStatus()).isEqualTo(BulkUploadJobStatus.QUEUED);
+        ArgumentCaptor<BulkUploadJob> saved = ArgumentCaptor.forClass(BulkUploadJob.class);
+        verify(jobRepository).save(saved.capture());
+        Path copy = Path.of(saved.getValue().getStoredPath());
+        assertThat(copy.getParent()).isEqualTo(tempDir);
+        assertThat(Files.readString(copy)).contains("COL-1");
+    }
+
+    @Test
+    void submit_unsupportedFile_throwsBadRequest() {
+        MockMultipartFile file = new MockMultipartFile("file", "products.pdf", "application/pdf", new byte[]{1});
+
+        assertThatThrownBy(() -> bulkUploadJobService.submit(file, "manager"))
+                .isInstanceOf(BadRequestException.class);
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void validate_runsDryRunAndDeletesStoredCopy() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "products.csv", "text/csv",
+                "Name,SKU\nCola,COL-1".getBytes(StandardCharsets.UTF_8));
+        BulkUploadResult dryRun = BulkUploadResult.builder().totalRows(1).successCount(1).errors(List.of()).build();
+        when(productBulkService.validateFile(any(), eq("products.csv"))).thenReturn(dryRun);
+
+        BulkUploadResult result = bulkUploadJobService.validate(file);
+
+        assertThat(result).isSameAs(dryRun);
+        ArgumentCaptor<Path> copy = ArgumentCaptor.forClass(Path.class);
+        verify(productBulkService).validateFile(copy.capture(), eq("products.csv"));
+        assertThat(copy.getValue()).doesNotExist();
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void validate_unreadableFile_throwsBadRequest() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "products.xlsx", "application/octet-stream", new byte[]{1, 2});
+        when(productBulkService.validateFile(any(), any())).thenThrow(new java.io.IOException("Not a readable .xlsx file"));
+
+        assertThatThrownBy(() -> bulkUploadJobService.validate(file))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Not a readable .xlsx file");
+    }
+
+    @Test
+    void run_recordsEachChunkAndCompletes() throws Exception {
+        BulkUploadResult.RowError rejected = BulkUploadResult.RowError.builder()
+                .row(7).field("Price").message("Invalid price").build();
+        when(productBulkService.importFile(eq(stored), eq("products.csv"), eq("admin"), any())).thenAnswer(inv -> {
+            ImportProgress progress = inv.getArgument(3);
+            progress.chunkCommitted(new ImportProgress.Chunk(501, 500, 490, 9, List.of(rejected)));
+            return BulkUploadResult.builder().totalRows(500).successCount(490).updatedCount(9).failCount(1)
+                    .errors(List.of(rejected)).build();
+        });
+
+        bulkUploadJobService.run(5L);
+
+        verify(errorRepository).saveAll(anyList());
+        verify(jobRepository).recordChunk(eq(5L), eq(501), eq(500), eq(490), eq(9), eq(1), any());
+        assertThat(job.getStatus()).isEqualTo(BulkUploadJobStatus.COMPLETED);
+        assertThat(job.getMessage()).isEqualTo("490 created, 9 updated, 1 rejected");
+        assertThat(job.getFinishedAt()).isNotNull();
+        assertThat(stored).doesNotExist();
+    }
+
+    @Test
+    void run_resumedJob_passesLastCommittedRowAndRejectedRows() throws Exception {
+        job.setLastCommittedRow(501);
+        when(errorRepository.findRowNumsByJobId(5L)).thenReturn(List.of(7, 42));
+        when(productBulkService.importFile(any(), any(), any(), any()))
+                .thenReturn(BulkUploadResult.builder().errors(List.of()).build());
+
+        bulkUploadJobService.run(5L);
+
+        ArgumentCaptor<ImportProgress> progress = ArgumentCaptor.forClass(ImportProgress.class);
+        verify(productBulkService).importFile(any(), any(), any(), progress.capture());
+        assertThat(progress.getValue().resumeAfterRow()).isEqualTo(501);
+        assertThat(progress.getValue().rejectedRows()).containsExactlyInAnyOrder(7, 42);
+    }
+
+    @Test
+    void run_importFails_marksJobFailedWithReason() throws Exception {
+        when(productBulkService.importFile(any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("Bulk save failed for rows up to 1001: duplicate key"));
+
+        bulkUploadJobService.run(5L);
+
+        assertThat(job.getStatus()).isEqualTo(BulkUploadJobStatus.FAILED);
+        assertThat(job.getMessage()).contains("rows up to 1001");
+    }
+
+    @Test
+    void run_chunkSlowerThanHeartbeatInterval_keepsJobAlive() throws Exception {
+        ReflectionTestUtils.setField(bulkUploadJobService, "heartbeatIntervalMs", 10L);
+        when(productBulkService.importFile(any(), any(), any(), any())).thenAnswer(inv -> {
+            Thread.sleep(200);
+            return BulkUploadResult.builder().errors(List.of()).build();
+        });
+
+        bulkUploadJobService.run(5L);
+
+        verify(jobRepository, atLeastOnce()).heartbeat(eq(5L), any());
+        verify(jobRepository, never()).recordChunk(any(), anyInt(), anyInt(), anyInt(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void checkConfiguration_storageDirIsAFile_failsStartup() throws Exception {
+        Path file = Files.createFile(tempDir.resolve("not-a-dir"));
+        ReflectionTestUtils.setField(bulkUploadJobService, "storageDir", file.toString());
+
+        assertThatThrownBy(() -> bulkUploadJobService.checkConfiguration())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("storage directory");
+    }
+
+    @Test
+    void defaultStorageDir_isUnderHome() {
+        String home = System.getenv("HOME") != null && !System.getenv("HOME").isBlank()
+                ? System.getenv("HOME") : System.getProperty("user.home");
+
+        assertThat(BulkUploadJobService.defaultStorageDir())
+                .isEqualTo(Path.of(home, "data", "bulk-uploads"));
+    }
+
+    @Test
+    void checkConfiguration_heartbeatNotWellInsideStaleLimit_failsStartup() {
+        ReflectionTestUtils.setField(bulkUploadJobService, "heartbeatIntervalMs", 90_000L);
+
+        assertThatThrownBy(() -> bulkUploadJobService.checkConfiguration())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("heartbeat-interval-ms");
+    }
+
+    @Test
+    void getJob_unknownId_throwsNotFound() {
+        when(jobRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> bulkUploadJobService.getJob(99L))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+}
@@ -0,0 +1,169 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pos.config.DatabaseClock;
+import com.pos.repository.CategoryRepository;
+import com.pos.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CatalogSnapshotServiceTest {
+
+    private static final LocalDateTime EDITED = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+    @Mock private ProductRepository productRepository;
+    @Mock private CategoryRepository categoryRepository;
+    @Mock private DatabaseClock databaseClock;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        catalogSnapshotService = new CatalogSnapshotService(
+                productRepository, categoryRepository, objectMapper, databaseClock, transactionManager);
+        when(databaseClock.committedUpTo(any(Duration.class))).thenReturn(LocalDateTime.now().minusSeconds(5));
+        when(productRepository.countByActiveTrue()).thenReturn(2L);
+        when(productRepository.findMaxUpdatedAt()).thenReturn(EDITED);
+        when(categoryRepository.findMaxUpdatedAt()).thenReturn(EDITED);
+        when(productRepository.streamActiveCatalog()).thenAnswer(inv -> Stream.of(
+                new Object[]{1L, "Cola", "COL-1", "5000112637922", null, null, new BigDecimal("1.20"),
+                        3L, "Drinks", null, 24, EDITED},
+                new Object[]{2L, "Crisps", "CRS-1", null, null, null, new BigDecimal("0.90"),
+                        null, null, null, 0, EDITED}));
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalogSnapshotService.cleanUp();
+    }
+
+    @Test
+    void getSnapshot_writesGzippedNdjsonWithStockAndSyncCursor() throws Exception {
+        CatalogSnapshotService.Snapshot snapshot = catalogSnapshotService.getSnapshot();
+
+        assertThat(snapshot.products()).isEqualTo(2);
+        assertThat(snapshot.sizeBytes()).isEqualTo(Files.size(snapshot.file()));
+        assertThat(snapshot.syncCursor()).endsWith("-0-0");
+        List<JsonNode> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(snapshot.file())), StandardCharsets.UTF_8))) {
+            lines = reader.lines().map(line -> {
+                try {
+                    return objectMapper.readTree(line);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).toList();
+        }
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0).get("barcode").asText()).isEqualTo("5000112637922");
+        assertThat(lines.get(0).get("categoryName").asText()).isEqualTo("Drinks");
+        assertThat(lines.get(0).get("quantity").asInt()).isEqualTo(24);
+        assertThat(lines.get(1).get("active").asBoolean()).isTrue();
+    }
+
+    @Test
+    void getSnapshot_databaseClockBehindAppClock_cursorFollowsTheDatabase() {
+        // The database runs ten minutes behind the app server, and a write started before that is still open.
+        LocalDateTime committedUpTo = LocalDateTime.now().minusMinutes(10);
+        when(databaseClock.committedUpTo(Duration.ofMillis(5000))).thenReturn(committedUpTo);
+
+        CatalogSnapshotService.Snapshot snapshot = catalogSnapshotService.getSnapshot();
+
+        long expected = committedUpTo.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        assertThat(snapshot.syncCursor()).isEqualTo(expected + "-0-0");
+        InOrder order = inOrder(databaseClock, productRepository);
+        order.verify(databaseClock).committedUpTo(any());
+        order.verify(productRepository).streamActiveCatalog();
+    }
+
+    @Test
+    void getSnapshot_catalogueUnchanged_reusesBuiltFile() {
+        CatalogSnapshotService.Snapshot first = catalogSnapshotService.getSnapshot();
+        CatalogSnapshotService.Snapshot second = catalogSnapshotService.getSnapshot();
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.matches(first.etag())).isTrue();
+        verify(productRepository, times(1)).streamActiveCatalog();
+    }
+
+    @Test
+    void getSnapshot_catalogueChanged_rebuildsWithNewEtag() throws Exception {
+        CatalogSnapshotService.Snapshot first = catalogSnapshotService.getSnapshot();
+        Thread.sleep(2);
+        when(productRepository.findMaxUpdatedAt()).thenReturn(EDITED.plusMinutes(1));
+
+        CatalogSnapshotService.Snapshot second = catalogSnapshotService.getSnapshot();
+
+        assertThat(second.etag()).isNotEqualTo(first.etag());
+        assertThat(second.matches(first.etag())).isFalse();
+        verify(productRepository, times(2)).streamActiveCatalog();
+    }
+
+    @Test
+    void getSnapshot_stockRefreshOnly_keepsEtag() {
+        ReflectionTestUtils.setField(catalogSnapshotService, "maxStockAgeMs", 0L);
+
+        CatalogSnapshotService.Snapshot first = catalogSnapshotService.getSnapshot();
+        CatalogSnapshotService.Snapshot second = catalogSnapshotService.getSnapshot();
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.etag()).isEqualTo(first.etag()).startsWith("W/");
+        assertThat(second.matches(first.etag().substring(2))).isTrue();
+    }
+
+    @Test
+    void open_snapshotReplacedMidDownload_fileLivesUntilStreamIsClosed() throws Exception {
+        ReflectionTestUtils.setField(catalogSnapshotService, "maxStockAgeMs", 0L);
+        CatalogSnapshotService.Download download = catalogSnapshotService.open();
+        Path downloading = download.snapshot().file();
+
+        CatalogSnapshotService.Snapshot rebuilt = catalogSnapshotService.getSnapshot();
+
+        assertThat(rebuilt.file()).isNotEqualTo(downloading);
+        assertThat(Files.exists(downloading)).isTrue();
+        try (InputStream body = download.body()) {
+            assertThat(new GZIPInputStream(body).readAllBytes()).isNotEmpty();
+        }
+        assertThat(Files.exists(downloading)).isFalse();
+
+        // Nobody is reading it: the next rebuild deletes the replaced file straight away.
+        catalogSnapshotService.getSnapshot();
+        assertThat(Files.exists(rebuilt.file())).isFalse();
+    }
+}
@@ -0,0 +1,128 @@
+package com.pos.service;
+
+import com.pos.config.DatabaseClock;
+import com.pos.dto.response.CatalogChangesResponse;
+import com.pos.dto.response.ProductResponse;
+import com.pos.entity.Product;
+import com.pos.exception.BadRequestException;
+import com.pos.repository.InventoryRepository;
+import com.pos.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSyncServiceTest {
+
+    @Mock private ProductRepository productRepository;
+    @Mock private InventoryRepository inventoryRepository;
+    @Mock private DatabaseClock databaseClock;
+
+    @InjectMocks
+    private CatalogSyncService catalogSyncService;
+
+    @Test
+    void getChanges_noCursor_fullSyncPagesByIdAndKeepsWatermark() {
+        LocalDateTime committed = LocalDateTime.of(2026, 10, 16, 12, 0);
+        when(databaseClock.committedUpTo(Duration.ofMillis(5000))).thenReturn(committed);
+        when(productRepository.findIdsAfterId(eq(0L), any())).thenReturn(List.of(1L, 2L, 3L));
+        when(productRepository.findWithStockByIdIn(List.of(1L, 2L)))
+                .thenReturn(List.of(row(2L, true, 4), row(1L, true, 7)));
+
+        CatalogChangesResponse page = catalogSyncService.getChanges(null, 2);
+
+        assertThat(page.getItems()).extracting(ProductResponse::getId).containsExactly(1L, 2L);
+        assertThat(page.isHasMore()).isTrue();
+        String[] cursor = page.getNextCursor().split("-");
+        assertThat(cursor[0]).isEqualTo("0");
+        assertThat(cursor[1]).isEqualTo("2");
+        assertThat(Long.parseLong(cursor[2]))
+                .isEqualTo(committed.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        verifyNoInteractions(inventoryRepository);
+    }
+
+    @Test
+    void getChanges_delta_mergesProductStockAndCategoryChangesIncludingDeactivations() {
+        LocalDateTime until = toDateTime(1700000900000L);
+        when(productRepository.findIdsUpdatedBetween(any(LocalDateTime.class), eq(until), eq(0L), any())).thenReturn(List.of(5L));
+        when(inventoryRepository.findProductIdsUpdatedBetween(any(LocalDateTime.class), eq(until), eq(0L), any()))
+                .thenReturn(List.of(3L, 5L));
+        when(productRepository.findIdsWithCategoryUpdatedBetween(any(LocalDateTime.class), eq(until), eq(0L), any()))
+                .thenReturn(List.of(9L));
+        when(productRepository.findWithStockByIdIn(List.of(3L, 5L, 9L)))
+                .thenReturn(List.of(row(3L, true, 0), row(5L, false, 2), row(9L, true, 1)));
+
+        CatalogChangesResponse page = catalogSyncService.getChanges("1700000000000-0-1700000900000", 100);
+
+        assertThat(page.getItems()).extracting(ProductResponse::getId).containsExactly(3L, 5L, 9L);
+        assertThat(page.getItems().get(1).isActive()).isFalse();
+        assertThat(page.isHasMore()).isFalse();
+        // Window closed: the watermark becomes the start of the next window.
+        assertThat(page.getNextCursor()).isEqualTo("1700000900000-0-0");
+        verify(productRepository, never()).findIdsAfterId(anyLong(), any());
+        verifyNoInteractions(databaseClock);
+    }
+
+    @Test
+    void getChanges_nothingChanged_returnsEmptyPageWithoutLoadingRows() {
+        when(databaseClock.committedUpTo(any())).thenReturn(toDateTime(1700000300000L));
+        when(productRepository.findIdsUpdatedBetween(any(), any(), eq(0L), any())).thenReturn(List.of());
+        when(inventoryRepository.findProductIdsUpdatedBetween(any(), any(), eq(0L), any())).thenReturn(List.of());
+        when(productRepository.findIdsWithCategoryUpdatedBetween(any(), any(), eq(0L), any())).thenReturn(List.of());
+
+        CatalogChangesResponse page = catalogSyncService.getChanges("1700000000000", 100);
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isEqualTo("1700000300000-0-0");
+        verify(productRepository, never()).findWithStockByIdIn(any());
+    }
+
+    @Test
+    void getChanges_openTransactionHoldsWatermarkBack_windowNeverMovesBackwards() {
+        // The database reports nothing settled after an old, still-open transaction's start.
+        when(databaseClock.committedUpTo(any())).thenReturn(toDateTime(1699999000000L));
+        when(productRepository.findIdsUpdatedBetween(any(), any(), eq(0L), any())).thenReturn(List.of());
+        when(inventoryRepository.findProductIdsUpdatedBetween(any(), any(), eq(0L), any())).thenReturn(List.of());
+        when(productRepository.findIdsWithCategoryUpdatedBetween(any(), any(), eq(0L), any())).thenReturn(List.of());
+
+        CatalogChangesResponse page = catalogSyncService.getChanges("1700000000000", 100);
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getNextCursor()).isEqualTo("1700000000000-0-0");
+    }
+
+    @Test
+    void getChanges_malformedCursor_throwsBadRequest() {
+        assertThatThrownBy(() -> catalogSyncService.getChanges("yesterday", 100))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static Object[] row(Long id, boolean active, int quantity) {
+        Product product = Product.builder().id(id).name("P" + id).price(BigDecimal.ONE).active(active).build();
+        return new Object[]{product, quantity};
+    }
+}
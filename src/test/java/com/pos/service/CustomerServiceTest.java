@@ -12,6 +12,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -30,6 +31,11 @@ import static org.mockito.Mockito.when;
 class CustomerServiceTest {
 
     @Mock private CustomerRepository customerRepository;
+    @Mock private RewardLedgerService rewardLedgerService;
+    @Mock private BarcodeIndexService barcodeIndexService;
+    @Mock private SearchIndexService searchIndexService;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private BarcodeAllocator barcodeAllocator;
 
     @InjectMocks
     private CustomerService customerService;
@@ -65,6 +71,17 @@ class CustomerServiceTest {
         assertThat(response.getEmail()).isEqualTo("john@example.com");
     }
 
+    @Test
+    void getById_includesRewardPointsNotYetCompacted() {
+        customer.setRewardPoints(120);
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(rewardLedgerService.pendingPoints(1L)).thenReturn(35);
+
+        CustomerResponse response = customerService.getById(1L);
+
+        assertThat(response.getRewardPoints()).isEqualTo(155);
+    }
+
     @Test
     void getById_notFound_throws() {
         when(customerRepository.findById(99L)).thenReturn(Optional.empty());
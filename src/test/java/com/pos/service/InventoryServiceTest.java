@@ -2,8 +2,10 @@ package com.pos.service;
 
 import com.pos.dto.request.InventoryUpdateRequest;
 import com.pos.dto.response.InventoryResponse;
+import com.pos.dto.response.InventoryStats;
 import com.pos.entity.Inventory;
 import com.pos.entity.Product;
+import com.pos.event.StockChangedEvent;
 import com.pos.exception.ResourceNotFoundException;
 import com.pos.repository.InventoryRepository;
 import com.pos.repository.ProductRepository;
@@ -13,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -33,6 +36,8 @@ class InventoryServiceTest {
 
     @Mock private InventoryRepository inventoryRepository;
     @Mock private ProductRepository productRepository;
+    @Mock private StockStatusService stockStatusService;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private InventoryService inventoryService;
@@ -102,14 +107,12 @@ class InventoryServiceTest {
         assertThat(inventory.getQuantity()).isEqualTo(100);
         assertThat(inventory.getLowStockThreshold()).isEqualTo(10);
         verify(inventoryRepository).save(inventory);
+        verify(eventPublisher).publishEvent(StockChangedEvent.set(1L, 100));
     }
 
     @Test
     void getStats_returnsCounts() {
-        when(inventoryRepository.count()).thenReturn(50L);
-        when(inventoryRepository.countInStock()).thenReturn(40L);
-        when(inventoryRepository.countLowStock()).thenReturn(5L);
-        when(inventoryRepository.countOutOfStock()).thenReturn(5L);
+        when(stockStatusService.getStats()).thenReturn(new InventoryStats(50L, 40L, 5L, 5L));
         var stats = inventoryService.getStats();
         assertThat(stats).isNotNull();
         assertThat(stats.total()).isEqualTo(50L);
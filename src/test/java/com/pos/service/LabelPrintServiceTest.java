@@ -0,0 +1,142 @@
+package com.pos.service;
+
+import com.pos.dto.request.LabelPrintRequest;
+import com.pos.enums.LabelPrintFormat;
+import com.pos.exception.BadRequestException;
+import com.pos.repository.LabelRepository;
+import com.pos.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LabelPrintServiceTest {
+
+    @Mock private LabelRepository labelRepository;
+    @Mock private ProductRepository productRepository;
+
+    @InjectMocks
+    private LabelPrintService labelPrintService;
+
+    @Test
+    void prepare_noIds_throwsBadRequest() {
+        assertThatThrownBy(() -> labelPrintService.prepare(new LabelPrintRequest()))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void prepare_overLimit_throwsBadRequest() {
+        ReflectionTestUtils.setField(labelPrintService, "maxLabels", 2);
+        LabelPrintRequest request = request(List.of(1L, 2L), List.of(3L), LabelPrintFormat.ZPL);
+
+        assertThatThrownBy(() -> labelPrintService.prepare(request))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("at most 2");
+    }
+
+    @Test
+    void write_zpl_printsInRequestOrderWithSymbologyPerBarcode() throws Exception {
+        when(labelRepository.findPrintRowsByIdIn(List.of(2L, 1L))).thenReturn(List.of(
+                new Object[]{1L, "Cola 330ml", "5000112637922", null, new BigDecimal("1.2")},
+                new Object[]{2L, "Shelf ^ tag", "LBL123", null, new BigDecimal("3.50")}));
+        when(productRepository.findPrintRowsByIdIn(List.of(9L)))
+                .thenReturn(List.<Object[]>of(new Object[]{9L, "Loose onions", null, "VEG-9", null}));
+
+        String zpl = print(request(List.of(2L, 1L), List.of(9L), LabelPrintFormat.ZPL));
+
+        assertThat(zpl.split("\\^XZ")).hasSize(4); // three labels and the trailing newline
+        assertThat(zpl.indexOf("Shelf \\5E tag")).isLessThan(zpl.indexOf("Cola 330ml"));
+        assertThat(zpl).contains("^BEN,").contains("^FD500011263792^FS");     // EAN-13, check digit left to the printer
+        assertThat(zpl).contains("^BCN,").contains("^FH\\^FDLBL123^FS");      // Code 128
+        assertThat(zpl).contains("^FH\\^FDVEG-9^FS");                         // SKU when there is no barcode
+        assertThat(zpl).contains("^FD1.20^FS").doesNotContain("^PQ");
+    }
+
+    @Test
+    void write_epl_escapesQuotesAndRepeatsCopies() throws Exception {
+        when(labelRepository.findPrintRowsByIdIn(List.of(1L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, "12\" pizza", "2000000010007", null, new BigDecimal("9.99")}));
+        LabelPrintRequest request = request(List.of(1L), List.of(), LabelPrintFormat.EPL);
+        request.setCopies(3);
+
+        String epl = print(request);
+
+        assertThat(epl).contains("\"12\\\" pizza\"");
+        assertThat(epl).contains(",E30,").contains("\"200000001000\"");
+        assertThat(epl).endsWith("P3\n");
+        verify(productRepository, never()).findPrintRowsByIdIn(anyList());
+    }
+
+    @Test
+    void write_largeJob_loadsOneChunkAtATimeAndSkipsMissingIds() throws Exception {
+        ReflectionTestUtils.setField(labelPrintService, "chunkSize", 2);
+        when(labelRepository.findPrintRowsByIdIn(anyList())).thenAnswer(inv -> {
+            List<Long> ids = inv.getArgument(0);
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : ids) {
+                if (id != 3L) rows.add(new Object[]{id, "Label " + id, "CODE-" + id, null, BigDecimal.ONE});
+            }
+            return rows;
+        });
+
+        String zpl = print(request(List.of(1L, 2L, 3L, 4L, 5L), List.of(), LabelPrintFormat.ZPL));
+
+        verify(labelRepository, times(3)).findPrintRowsByIdIn(anyList());
+        assertThat(zpl).contains("CODE-1", "CODE-2", "CODE-4", "CODE-5").doesNotContain("CODE-3");
+        assertThat(zpl.indexOf("CODE-4")).isLessThan(zpl.indexOf("CODE-5"));
+    }
+
+    @Test
+    void write_chunkSplitAcrossRenderThreads_keepsRequestOrder() throws Exception {
+        ReflectionTestUtils.setField(labelPrintService, "renderThreads", 3);
+        labelPrintService.configureRenderer();
+        List<Long> ids = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 40; id > 0; id--) {
+            ids.add(id);
+            rows.add(new Object[]{id, "Label " + id, "CODE-" + id + "X", null, BigDecimal.ONE});
+        }
+        when(labelRepository.findPrintRowsByIdIn(ids)).thenReturn(rows);
+
+        String zpl = print(request(ids, List.of(), LabelPrintFormat.ZPL));
+
+        int last = -1;
+        for (Long id : ids) {
+            int at = zpl.indexOf("CODE-" + id + "X");
+            assertThat(at).as("label %d", id).isGreaterThan(last);
+            last = at;
+        }
+    }
+
+    private String print(LabelPrintRequest request) throws Exception {
+        LabelPrintService.PrintJob job = labelPrintService.prepare(request);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        labelPrintService.write(job, out);
+        return out.toString(job.template().charset());
+    }
+
+    private static LabelPrintRequest request(List<Long> labelIds, List<Long> productIds, LabelPrintFormat format) {
+        LabelPrintRequest request = new LabelPrintRequest();
+        request.setLabelIds(labelIds);
+        request.setProductIds(productIds);
+        request.setFormat(format);
+        return request;
+    }
+}
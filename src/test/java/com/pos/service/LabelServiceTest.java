@@ -18,10 +18,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import java.math.BigDecimal;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,6 +40,10 @@ class LabelServiceTest {
     @Mock private CategoryRepository categoryRepository;
     @Mock private ProductRepository productRepository;
     @Mock private InventoryRepository inventoryRepository;
+    @Mock private SearchIndexService searchIndexService;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private BarcodeAllocator barcodeAllocator;
+    @Mock private BarcodeFilterService barcodeFilterService;
 
     @InjectMocks
     private LabelService labelService;
@@ -67,8 +74,7 @@ class LabelServiceTest {
         request.setSku("SKU-E001");
         request.setCategoryId(1L);
 
-        when(labelRepository.existsByBarcode("4901234560011")).thenReturn(false);
-        when(productRepository.existsByBarcode("4901234560011")).thenReturn(false);
+        when(barcodeFilterService.barcodeInUse("4901234560011")).thenReturn(false);
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(sampleCategory));
         when(labelRepository.save(any(Label.class))).thenAnswer(inv -> {
             Label l = inv.getArgument(0);
@@ -81,6 +87,7 @@ class LabelServiceTest {
         assertThat(response.getBarcode()).isEqualTo("4901234560011");
         assertThat(response.getName()).isEqualTo("Wireless Earbuds");
         assertThat(response.getPrice()).isEqualByComparingTo("49.99");
+        verify(barcodeFilterService).record("4901234560011");
     }
 
     @Test
@@ -90,12 +97,30 @@ class LabelServiceTest {
         request.setName("Test");
         request.setPrice(new BigDecimal("9.99"));
 
-        when(labelRepository.existsByBarcode("4901234560011")).thenReturn(true);
+        when(barcodeFilterService.barcodeInUse("4901234560011")).thenReturn(true);
 
         assertThatThrownBy(() -> labelService.create(request))
                 .isInstanceOf(BadRequestException.class);
     }
 
+    @Test
+    void create_barcodeTakenOnAnotherNode_constraintViolationBecomesBadRequest() {
+        LabelRequest request = new LabelRequest();
+        request.setBarcode("4901234560011");
+        request.setName("Test");
+        request.setPrice(new BigDecimal("9.99"));
+
+        when(barcodeFilterService.barcodeInUse("4901234560011")).thenReturn(false);
+        when(labelRepository.save(any(Label.class))).thenAnswer(inv -> inv.getArgument(0));
+        doThrow(new DataIntegrityViolationException(
+                "duplicate key value violates unique constraint \"uk_labels_barcode\" Key (barcode)=(4901234560011)"))
+                .when(labelRepository).flush();
+
+        assertThatThrownBy(() -> labelService.create(request))
+                .isInstanceOf(BadRequestException.class);
+        verify(barcodeFilterService, never()).record(any());
+    }
+
     @Test
     void create_blankBarcode_autoGenerates() {
         LabelRequest request = new LabelRequest();
@@ -103,8 +128,10 @@ class LabelServiceTest {
         request.setName("Auto Label");
         request.setPrice(new BigDecimal("9.99"));
 
-        when(labelRepository.existsByBarcode(anyString())).thenReturn(false);
-        when(productRepository.existsByBarcode(anyString())).thenReturn(false);
+        when(barcodeAllocator.nextLabelBarcodes(1)).thenReturn(List.of("2000000010007"));
+        when(barcodeFilterService.possiblyPresent(anyCollection())).thenAnswer(inv -> new LinkedHashSet<String>(inv.getArgument(0)));
+        when(labelRepository.findBarcodesByBarcodeIn(anyCollection())).thenReturn(List.of());
+        when(productRepository.findIdsByBarcodeIn(anyCollection())).thenReturn(List.of());
         when(labelRepository.save(any(Label.class))).thenAnswer(inv -> {
             Label l = inv.getArgument(0);
             l.setId(2L);
@@ -114,8 +141,74 @@ class LabelServiceTest {
         LabelResponse response = labelService.create(request);
 
         assertThat(response.getName()).isEqualTo("Auto Label");
-        assertThat(response.getBarcode()).isNotBlank();
-        assertThat(response.getBarcode()).startsWith("LBL");
+        assertThat(response.getBarcode()).isEqualTo("2000000010007");
+        verify(labelRepository, never()).existsByBarcode(anyString());
+    }
+
+    @Test
+    void createBulk_checksBarcodesOnceAndSavesInInputOrder() {
+        LabelRequest supplied = labelRequest("4901234560028", "Shelf A", 1L);
+        LabelRequest generated = labelRequest(null, "Shelf B", 1L);
+        LabelRequest unnamed = labelRequest(null, " ", null);
+
+        when(barcodeFilterService.possiblyPresent(anyCollection())).thenAnswer(inv -> new LinkedHashSet<String>(inv.getArgument(0)));
+        when(labelRepository.findBarcodesByBarcodeIn(anyCollection())).thenReturn(List.of());
+        when(productRepository.findIdsByBarcodeIn(anyCollection())).thenReturn(List.of());
+        when(barcodeAllocator.nextLabelBarcodes(1)).thenReturn(List.of("2000000010007"));
+        when(categoryRepository.findAllById(java.util.Set.of(1L))).thenReturn(List.of(sampleCategory));
+        when(labelRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Label> labels = inv.getArgument(0);
+            for (int i = 0; i < labels.size(); i++) labels.get(i).setId(100L + i);
+            return labels;
+        });
+
+        List<LabelResponse> responses = labelService.createBulk(List.of(supplied, unnamed, generated));
+
+        assertThat(responses).extracting(LabelResponse::getName).containsExactly("Shelf A", "Shelf B");
+        assertThat(responses.get(0).getBarcode()).isEqualTo("4901234560028");
+        assertThat(responses.get(1).getBarcode()).isEqualTo("2000000010007");
+        verify(labelRepository, times(2)).findBarcodesByBarcodeIn(anyCollection()); // supplied, then generated block
+        verify(labelRepository, never()).existsByBarcode(anyString());
+        verify(categoryRepository, never()).findById(any());
+        verify(labelRepository).saveAll(anyList());
+    }
+
+    @Test
+    void createBulk_suppliedBarcodeTaken_rejectsBatch() {
+        when(barcodeFilterService.possiblyPresent(anyCollection())).thenAnswer(inv -> new LinkedHashSet<String>(inv.getArgument(0)));
+        when(labelRepository.findBarcodesByBarcodeIn(anyCollection())).thenReturn(List.of());
+        when(productRepository.findIdsByBarcodeIn(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{"4901234560028", 7L}));
+
+        assertThatThrownBy(() -> labelService.createBulk(List.of(labelRequest("4901234560028", "Shelf A", null))))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("4901234560028");
+        verify(labelRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createBulk_filterRulesOutEveryBarcode_skipsLabelLookupButStillChecksProducts() {
+        when(barcodeFilterService.possiblyPresent(anyCollection())).thenReturn(java.util.Set.of());
+        when(barcodeAllocator.nextLabelBarcodes(1)).thenReturn(List.of("2000000010007"));
+        when(labelRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        List<LabelResponse> responses = labelService.createBulk(
+                List.of(labelRequest("4901234560028", "Shelf A", null), labelRequest(null, "Shelf B", null)));
+
+        assertThat(responses).extracting(LabelResponse::getBarcode).containsExactly("4901234560028", "2000000010007");
+        verify(labelRepository, never()).findBarcodesByBarcodeIn(anyCollection());
+        verify(productRepository, times(2)).findIdsByBarcodeIn(anyCollection()); // no constraint spans both tables
+        verify(barcodeFilterService).record("4901234560028");
+        verify(barcodeFilterService).record("2000000010007");
+    }
+
+    private static LabelRequest labelRequest(String barcode, String name, Long categoryId) {
+        LabelRequest request = new LabelRequest();
+        request.setBarcode(barcode);
+        request.setName(name);
+        request.setPrice(new BigDecimal("4.99"));
+        request.setCategoryId(categoryId);
+        return request;
     }
 
     @Test
@@ -139,7 +232,7 @@ class LabelServiceTest {
     @Test
     void addAsProduct_validLabel_createsProduct() {
         when(labelRepository.findById(1L)).thenReturn(Optional.of(sampleLabel));
-        when(productRepository.existsByBarcode("4901234560011")).thenReturn(false);
+        when(barcodeFilterService.productBarcodeExists("4901234560011")).thenReturn(false);
         when(productRepository.existsBySku("SKU-E001")).thenReturn(false);
 
         Product savedProduct = Product.builder()
@@ -154,12 +247,12 @@ class LabelServiceTest {
 
         Inventory savedInv = Inventory.builder().product(savedProduct).quantity(5).build();
         when(inventoryRepository.save(any(Inventory.class))).thenReturn(savedInv);
-        when(inventoryRepository.findByProductId(10L)).thenReturn(Optional.of(savedInv));
 
         var response = labelService.addAsProduct(1L, 5);
 
         assertThat(response.getId()).isEqualTo(10L);
         assertThat(response.getName()).isEqualTo("Wireless Earbuds");
+        assertThat(response.getQuantity()).isEqualTo(5);
     }
 
     @Test
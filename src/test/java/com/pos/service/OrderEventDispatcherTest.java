@@ -0,0 +1,122 @@
+package com.pos.service;
+
+import com.pos.config.RewardConfig;
+import com.pos.entity.Customer;
+import com.pos.entity.Order;
+import com.pos.entity.OrderEvent;
+import com.pos.entity.Payment;
+import com.pos.enums.OrderEventStatus;
+import com.pos.enums.OrderEventType;
+import com.pos.enums.OrderStatus;
+import com.pos.enums.PaymentMethod;
+import com.pos.enums.PaymentStatus;
+import com.pos.repository.OrderEventRepository;
+import com.pos.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OrderEventDispatcherTest {
+
+    @Mock private OrderEventRepository orderEventRepository;
+    @Mock private PaymentRepository paymentRepository;
+    @Mock private RewardLedgerService rewardLedgerService;
+    @Mock private RewardConfig rewardConfig;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private OrderEventDispatcher dispatcher;
+
+    private Order order;
+    private OrderEvent event;
+
+    @BeforeEach
+    void setUp() {
+        when(rewardConfig.getPointsPerDollar()).thenReturn(1);
+        order = Order.builder()
+                .id(7L)
+                .customer(Customer.builder().id(3L).name("Jane").build())
+                .subtotal(new BigDecimal("42.50"))
+                .total(new BigDecimal("46.75"))
+                .status(OrderStatus.COMPLETED)
+                .paymentMethod(PaymentMethod.CARD)
+                .createdAt(LocalDateTime.of(2024, 5, 1, 10, 15))
+                .build();
+        event = OrderEvent.builder().id(1L).order(order).type(OrderEventType.ORDER_COMPLETED).build();
+        when(orderEventRepository.findIdsByStatus(any(), any())).thenReturn(List.of(1L));
+        when(orderEventRepository.findById(1L)).thenReturn(Optional.of(event));
+        when(paymentRepository.findByOrderId(7L)).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void dispatchBatch_completedOrder_createsPaymentAtSaleTimeAndAccruesPoints() {
+        when(orderEventRepository.markProcessed(1L)).thenReturn(1);
+
+        int dispatched = dispatcher.dispatchBatch();
+
+        assertThat(dispatched).isEqualTo(1);
+        ArgumentCaptor<Payment> payment = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentRepository).save(payment.capture());
+        assertThat(payment.getValue().getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(payment.getValue().getAmount()).isEqualByComparingTo("46.75");
+        assertThat(payment.getValue().getCreatedAt()).isEqualTo(order.getCreatedAt());
+        verify(rewardLedgerService).earn(order, 42);
+    }
+
+    @Test
+    void dispatchBatch_eventAlreadyClaimed_appliesNothing() {
+        when(orderEventRepository.markProcessed(1L)).thenReturn(0);
+
+        dispatcher.dispatchBatch();
+
+        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(rewardLedgerService, never()).earn(any(), anyInt());
+    }
+
+    @Test
+    void dispatchBatch_orderCancelledBeforeDispatch_recordsFailedPaymentWithoutPoints() {
+        order.setStatus(OrderStatus.CANCELLED);
+        when(orderEventRepository.markProcessed(1L)).thenReturn(1);
+
+        dispatcher.dispatchBatch();
+
+        ArgumentCaptor<Payment> payment = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentRepository).save(payment.capture());
+        assertThat(payment.getValue().getStatus()).isEqualTo(PaymentStatus.FAILED);
+        verify(rewardLedgerService, never()).earn(any(), anyInt());
+    }
+
+    @Test
+    void dispatchBatch_effectFails_recordsAttemptAndKeepsEventPending() {
+        when(orderEventRepository.markProcessed(1L)).thenReturn(1);
+        when(paymentRepository.save(any(Payment.class))).thenThrow(new IllegalStateException("db down"));
+
+        dispatcher.dispatchBatch();
+
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getLastError()).isEqualTo("db down");
+        assertThat(event.getStatus()).isEqualTo(OrderEventStatus.PENDING);
+        verify(orderEventRepository).save(event);
+    }
+}
@@ -0,0 +1,154 @@
+package com.pos.service;
+
+import com.pos.dto.request.OrderItemRequest;
+import com.pos.dto.request.OrderRequest;
+import com.pos.dto.response.OrderResponse;
+import com.pos.entity.Order;
+import com.pos.entity.OrderIdempotencyKey;
+import com.pos.entity.User;
+import com.pos.enums.OrderStatus;
+import com.pos.enums.PaymentMethod;
+import com.pos.exception.BadRequestException;
+import com.pos.exception.ConflictException;
+import com.pos.repository.OrderIdempotencyKeyRepository;
+import com.pos.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderIdempotencyServiceTest {
+
+    @Mock private OrderIdempotencyKeyRepository idempotencyKeyRepository;
+    @Mock private OrderRepository orderRepository;
+
+    @InjectMocks
+    private OrderIdempotencyService idempotencyService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        User cashier = new User();
+        cashier.setId(1L);
+        cashier.setUsername("cashier1");
+        order = Order.builder()
+                .id(7L)
+                .cashier(cashier)
+                .subtotal(new BigDecimal("10.00"))
+                .total(new BigDecimal("11.00"))
+                .status(OrderStatus.COMPLETED)
+                .paymentMethod(PaymentMethod.CASH)
+                .build();
+    }
+
+    @Test
+    void normalize_blank_returnsNull() {
+        assertThat(idempotencyService.normalize("  ")).isNull();
+        assertThat(idempotencyService.normalize(null)).isNull();
+    }
+
+    @Test
+    void normalize_tooLong_throwsBadRequest() {
+        assertThatThrownBy(() -> idempotencyService.normalize("k".repeat(101)))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void findReplay_storedKey_loadsOrderOnceThenServesFromCache() {
+        when(idempotencyKeyRepository.findCompleted("cashier1", "abc")).thenReturn(List.<Object[]>of(new Object[]{7L, "h1"}));
+        when(orderRepository.findById(7L)).thenReturn(Optional.of(order));
+
+        Optional<OrderResponse> first = idempotencyService.findReplay("cashier1", "abc", "h1");
+        Optional<OrderResponse> second = idempotencyService.findReplay("cashier1", "abc", "h1");
+
+        assertThat(first).isPresent();
+        assertThat(first.get().getId()).isEqualTo(7L);
+        assertThat(second.get()).isSameAs(first.get());
+        verify(orderRepository, times(1)).findById(7L);
+    }
+
+    @Test
+    void findReplay_unknownKey_returnsEmpty() {
+        when(idempotencyKeyRepository.findCompleted("cashier1", "new")).thenReturn(List.of());
+        assertThat(idempotencyService.findReplay("cashier1", "new", "h1")).isEmpty();
+    }
+
+    @Test
+    void findReplay_sameKeyDifferentRequest_throwsConflict() {
+        when(idempotencyKeyRepository.findCompleted("cashier1", "abc")).thenReturn(List.<Object[]>of(new Object[]{7L, "h1"}));
+
+        assertThatThrownBy(() -> idempotencyService.findReplay("cashier1", "abc", "h2"))
+                .isInstanceOf(ConflictException.class)
+                .hasMessageContaining("different order");
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void findReplay_keyIsScopedToTheCashier() {
+        OrderIdempotencyKey claim = OrderIdempotencyKey.builder().id(1L)
+                .username("cashier1").idempotencyKey("abc").requestHash("h1").build();
+        idempotencyService.complete(claim, order, OrderResponse.from(order));
+        when(idempotencyKeyRepository.findCompleted("cashier2", "abc")).thenReturn(List.of());
+
+        assertThat(idempotencyService.findReplay("cashier2", "abc", "h1")).isEmpty();
+    }
+
+    @Test
+    void claim_keyAlreadyCommittedByConcurrentRequest_throwsConflict() {
+        when(idempotencyKeyRepository.saveAndFlush(any(OrderIdempotencyKey.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertThatThrownBy(() -> idempotencyService.claim("cashier1", "abc", "h1"))
+                .isInstanceOf(ConflictException.class);
+    }
+
+    @Test
+    void complete_withoutTransaction_cachesResponseImmediately() {
+        OrderIdempotencyKey claim = OrderIdempotencyKey.builder().id(1L)
+                .username("cashier1").idempotencyKey("abc").requestHash("h1").build();
+        OrderResponse response = OrderResponse.from(order);
+
+        idempotencyService.complete(claim, order, response);
+
+        assertThat(claim.getOrder()).isSameAs(order);
+        verify(idempotencyKeyRepository).save(claim);
+        assertThat(idempotencyService.findReplay("cashier1", "abc", "h1")).containsSame(response);
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void fingerprint_sameBasketMatches_differentBasketDoesNot() {
+        OrderRequest first = request(new BigDecimal("1.0"), 2);
+        OrderRequest retry = request(new BigDecimal("1.00"), 2);
+        OrderRequest other = request(new BigDecimal("1.00"), 3);
+
+        assertThat(idempotencyService.fingerprint(first)).hasSize(64)
+                .isEqualTo(idempotencyService.fingerprint(retry))
+                .isNotEqualTo(idempotencyService.fingerprint(other));
+    }
+
+    private static OrderRequest request(BigDecimal discount, int quantity) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(10L);
+        item.setQuantity(quantity);
+        OrderRequest request = new OrderRequest();
+        request.setItems(List.of(item));
+        request.setPaymentMethod(PaymentMethod.CASH);
+        request.setDiscount(discount);
+        return request;
+    }
+}
@@ -1,14 +1,18 @@
 package com.pos.service;
 
 import com.pos.config.RewardConfig;
+import com.pos.dto.request.OfflineOrderRequest;
 import com.pos.dto.request.OrderItemRequest;
 import com.pos.dto.request.OrderRequest;
+import com.pos.dto.response.OrderBatchResponse;
 import com.pos.dto.response.OrderResponse;
 import com.pos.entity.*;
+import com.pos.enums.OrderEventType;
 import com.pos.enums.OrderStatus;
 import com.pos.enums.PaymentMethod;
 import com.pos.enums.PaymentStatus;
 import com.pos.exception.BadRequestException;
+import com.pos.exception.ErrorCode;
 import com.pos.exception.ResourceNotFoundException;
 import com.pos.repository.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,19 +21,29 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -48,7 +62,12 @@ class OrderServiceTest {
     @Mock private CustomerRepository customerRepository;
     @Mock private UserRepository userRepository;
     @Mock private PaymentRepository paymentRepository;
+    @Mock private OrderEventRepository orderEventRepository;
     @Mock private RewardConfig rewardConfig;
+    @Mock private OrderIdempotencyService idempotencyService;
+    @Mock private RewardLedgerService rewardLedgerService;
+    @Mock private TransactionTemplate transactionTemplate;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private OrderService orderService;
@@ -62,6 +81,9 @@ class OrderServiceTest {
     void setUp() {
         lenient().when(rewardConfig.getPointsPerDollar()).thenReturn(1);
         lenient().when(rewardConfig.getRedemptionRate()).thenReturn(100);
+        lenient().when(inventoryRepository.decrementStock(any(), anyInt())).thenReturn(1);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
         SecurityContextHolder.getContext().setAuthentication(
                 new UsernamePasswordAuthenticationToken("cashier1", null, List.of()));
         cashier = new User();
@@ -116,23 +138,245 @@ class OrderServiceTest {
         request.setDiscount(BigDecimal.ZERO);
 
         when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
-        when(productRepository.findById(10L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProductId(10L)).thenReturn(Optional.of(inventory));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory));
         when(orderRepository.save(any(Order.class))).thenAnswer(inv -> {
             Order o = inv.getArgument(0);
             o.setId(2L);
             return o;
         });
         when(orderItemRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(inventoryRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
 
         OrderResponse response = orderService.create(request);
 
         assertThat(response).isNotNull();
         verify(orderRepository).save(any(Order.class));
-        verify(inventoryRepository).saveAll(any());
-        assertThat(inventory.getQuantity()).isEqualTo(98);
+        verify(inventoryRepository).decrementStock(10L, 2);
+        verify(orderEventRepository).save(argThat(e ->
+                e.getType() == OrderEventType.ORDER_COMPLETED && e.getOrder().getId().equals(2L)));
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
+    @Test
+    void create_duplicateLinesForSameProduct_areMergedIntoOneItem() {
+        OrderItemRequest first = new OrderItemRequest();
+        first.setProductId(10L);
+        first.setQuantity(2);
+        OrderItemRequest second = new OrderItemRequest();
+        second.setProductId(10L);
+        second.setQuantity(3);
+        OrderRequest request = new OrderRequest();
+        request.setItems(List.of(first, second));
+        request.setPaymentMethod(PaymentMethod.CASH);
+        request.setDiscount(BigDecimal.ZERO);
+
+        when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory));
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(orderItemRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        OrderResponse response = orderService.create(request);
+
+        assertThat(response.getItems()).hasSize(1);
+        assertThat(response.getItems().get(0).getQuantity()).isEqualTo(5);
+        assertThat(response.getSubtotal()).isEqualByComparingTo("50.00");
+        verify(inventoryRepository).decrementStock(10L, 5);
+        verify(productRepository, times(1)).findAllById(any());
+        verify(inventoryRepository, times(1)).findByProductIdIn(any());
+    }
+
+    @Test
+    void create_stockTakenByConcurrentTill_throwsBadRequest() {
+        OrderItemRequest itemReq = new OrderItemRequest();
+        itemReq.setProductId(10L);
+        itemReq.setQuantity(2);
+        OrderRequest request = new OrderRequest();
+        request.setItems(List.of(itemReq));
+        request.setPaymentMethod(PaymentMethod.CASH);
+
+        when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory));
+        when(inventoryRepository.decrementStock(10L, 2)).thenReturn(0);
+
+        assertThatThrownBy(() -> orderService.create(request))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Widget");
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void cancel_completedOrder_restocksEachProductOnce() {
+        OrderItem first = OrderItem.builder().order(order).product(product).quantity(2)
+                .unitPrice(new BigDecimal("10.00")).subtotal(new BigDecimal("20.00")).build();
+        OrderItem second = OrderItem.builder().order(order).product(product).quantity(3)
+                .unitPrice(new BigDecimal("10.00")).subtotal(new BigDecimal("30.00")).build();
+        order.setItems(new java.util.ArrayList<>(List.of(first, second)));
+
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(paymentRepository.findByOrderId(1L)).thenReturn(Optional.empty());
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        OrderResponse response = orderService.cancel(1L);
+
+        assertThat(response.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        verify(inventoryRepository, times(1)).incrementStock(10L, 5);
+    }
+
+    @Test
+    void create_replayedIdempotencyKey_returnsOriginalOrderWithoutWriting() {
+        OrderRequest request = new OrderRequest();
+        request.setItems(List.of());
+        request.setPaymentMethod(PaymentMethod.CASH);
+        OrderResponse original = OrderResponse.from(order);
+
+        when(idempotencyService.normalize("till-7-0042")).thenReturn("till-7-0042");
+        when(idempotencyService.findReplay(eq("cashier1"), eq("till-7-0042"), any())).thenReturn(Optional.of(original));
+
+        OrderResponse response = orderService.create(request, "till-7-0042");
+
+        assertThat(response).isSameAs(original);
+        verify(idempotencyService, never()).claim(any(), any(), any());
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(inventoryRepository, never()).decrementStock(any(), anyInt());
+    }
+
+    @Test
+    void create_newIdempotencyKey_claimsAndCompletesKey() {
+        OrderItemRequest itemReq = new OrderItemRequest();
+        itemReq.setProductId(10L);
+        itemReq.setQuantity(1);
+        OrderRequest request = new OrderRequest();
+        request.setItems(List.of(itemReq));
+        request.setPaymentMethod(PaymentMethod.CASH);
+        OrderIdempotencyKey claim = OrderIdempotencyKey.builder().id(5L).idempotencyKey("till-7-0043").build();
+
+        when(idempotencyService.normalize("till-7-0043")).thenReturn("till-7-0043");
+        when(idempotencyService.findReplay(eq("cashier1"), eq("till-7-0043"), any())).thenReturn(Optional.empty());
+        when(idempotencyService.claim(eq("cashier1"), eq("till-7-0043"), any())).thenReturn(claim);
+        when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory));
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(orderItemRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        OrderResponse response = orderService.create(request, "till-7-0043");
+
+        verify(idempotencyService).complete(any(OrderIdempotencyKey.class), any(Order.class), any(OrderResponse.class));
+        assertThat(response.getTotal()).isEqualByComparingTo("11.00");
+    }
+
+    @Test
+    void createBatch_keepsSaleTimeAndReportsEachOrderSeparately() {
+        LocalDateTime soldAt = LocalDateTime.of(2024, 3, 2, 14, 30);
+        OfflineOrderRequest good = offlineOrder("till-3-0001", 10L, 2, soldAt);
+        OfflineOrderRequest unknown = offlineOrder("till-3-0002", 77L, 1, soldAt);
+
+        when(idempotencyService.normalize(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory));
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        OrderBatchResponse result = orderService.createBatch(List.of(good, unknown));
+
+        assertThat(result.getCreatedCount()).isEqualTo(1);
+        assertThat(result.getFailCount()).isEqualTo(1);
+        assertThat(result.getResults().get(0).getOrder().getCreatedAt()).isEqualTo(soldAt);
+        assertThat(result.getResults().get(1).getOutcome()).isEqualTo(OrderBatchResponse.Outcome.FAILED);
+        assertThat(result.getResults().get(1).getErrorCode()).isEqualTo("PR001");
+        // The catalogue is loaded once for the whole batch; stock is re-read for each order
+        verify(productRepository, times(1)).findAllById(any());
+        verify(inventoryRepository, times(2)).findByProductIdIn(any());
+        verify(idempotencyService).claim(eq("cashier1"), eq("till-3-0001"), any());
+    }
+
+    @Test
+    void createBatch_laterOrderSeesStockLeftByEarlierOrders() {
+        LocalDateTime soldAt = LocalDateTime.of(2024, 3, 2, 14, 30);
+        OfflineOrderRequest first = offlineOrder("till-3-0001", 10L, 60, soldAt);
+        OfflineOrderRequest second = offlineOrder("till-3-0002", 10L, 60, soldAt);
+        Inventory afterFirst = Inventory.builder().id(1L).product(product).quantity(40).lowStockThreshold(5).build();
+
+        when(idempotencyService.normalize(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory), List.of(afterFirst));
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        OrderBatchResponse result = orderService.createBatch(List.of(first, second));
+
+        assertThat(result.getCreatedCount()).isEqualTo(1);
+        assertThat(result.getResults().get(1).getErrorCode()).isEqualTo("OR002");
+        verify(inventoryRepository, times(1)).decrementStock(10L, 60);
+    }
+
+    @Test
+    void createBatch_unexpectedFailure_isReportedPerOrderAndLaterOrdersStillRun() {
+        LocalDateTime soldAt = LocalDateTime.of(2024, 3, 2, 14, 30);
+        OfflineOrderRequest broken = offlineOrder("till-3-0001", 10L, 1, soldAt);
+        OfflineOrderRequest good = offlineOrder("till-3-0002", 10L, 1, soldAt);
+
+        when(idempotencyService.normalize(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory));
+        when(orderRepository.save(any(Order.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        OrderBatchResponse result = orderService.createBatch(List.of(broken, good));
+
+        assertThat(result.getResults().get(0).getOutcome()).isEqualTo(OrderBatchResponse.Outcome.FAILED);
+        assertThat(result.getResults().get(0).getErrorCode()).isEqualTo("SV001");
+        assertThat(result.getResults().get(1).getOutcome()).isEqualTo(OrderBatchResponse.Outcome.CREATED);
+    }
+
+    @Test
+    void createBatch_alreadyIngestedOrder_isReplayedWithoutWriting() {
+        OfflineOrderRequest resent = offlineOrder("till-3-0001", 10L, 2, LocalDateTime.now().minusHours(1));
+        OrderResponse original = OrderResponse.from(order);
+
+        when(idempotencyService.normalize(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(idempotencyService.findReplay(eq("cashier1"), eq("till-3-0001"), any())).thenReturn(Optional.of(original));
+        when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
+
+        OrderBatchResponse result = orderService.createBatch(List.of(resent));
+
+        assertThat(result.getReplayedCount()).isEqualTo(1);
+        assertThat(result.getResults().get(0).getOrder()).isSameAs(original);
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    private static OfflineOrderRequest offlineOrder(String clientOrderId, Long productId, int quantity,
+                                                    LocalDateTime soldAt) {
+        OrderItemRequest itemReq = new OrderItemRequest();
+        itemReq.setProductId(productId);
+        itemReq.setQuantity(quantity);
+        OfflineOrderRequest request = new OfflineOrderRequest();
+        request.setClientOrderId(clientOrderId);
+        request.setSoldAt(soldAt);
+        request.setItems(List.of(itemReq));
+        request.setPaymentMethod(PaymentMethod.CASH);
+        return request;
+    }
+
+    @Test
+    void create_unknownProduct_throwsNotFound() {
+        OrderItemRequest itemReq = new OrderItemRequest();
+        itemReq.setProductId(77L);
+        itemReq.setQuantity(1);
+        OrderRequest request = new OrderRequest();
+        request.setItems(List.of(itemReq));
+        request.setPaymentMethod(PaymentMethod.CASH);
+
+        when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
+        when(productRepository.findAllById(any())).thenReturn(List.of());
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of());
+
+        assertThatThrownBy(() -> orderService.create(request))
+                .isInstanceOf(ResourceNotFoundException.class);
     }
 
     @Test
@@ -146,8 +390,8 @@ class OrderServiceTest {
         request.setPaymentMethod(PaymentMethod.CASH);
 
         when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
-        when(productRepository.findById(10L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProductId(10L)).thenReturn(Optional.of(inventory));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory));
 
         assertThatThrownBy(() -> orderService.create(request))
                 .isInstanceOf(BadRequestException.class);
@@ -168,25 +412,23 @@ class OrderServiceTest {
 
         when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
         when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
-        when(productRepository.findById(10L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProductId(10L)).thenReturn(Optional.of(inventory));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory));
         when(orderRepository.save(any(Order.class))).thenAnswer(inv -> {
             Order o = inv.getArgument(0);
             o.setId(2L);
             return o;
         });
         when(orderItemRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(inventoryRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
-        when(customerRepository.save(any(Customer.class))).thenAnswer(inv -> inv.getArgument(0));
 
         OrderResponse response = orderService.create(request);
 
         assertThat(response).isNotNull();
-        // 500 - 200 redeem + 10 earned (subtotal 10 * 1 point per dollar) = 310
-        assertThat(customer.getRewardPoints()).isEqualTo(310);
-        // Save called twice: once after deducting redemption, once after adding earned points
-        verify(customerRepository, times(2)).save(any(Customer.class));
+        // 200 points at 100 points per dollar = $2.00 off
+        assertThat(response.getDiscount()).isEqualByComparingTo("2.00");
+        verify(rewardLedgerService).redeem(eq(customer), any(Order.class), eq(200));
+        verify(customerRepository, never()).save(any(Customer.class));
+        verify(orderEventRepository).save(any(OrderEvent.class));
     }
 
     @Test
@@ -203,8 +445,11 @@ class OrderServiceTest {
 
         when(userRepository.findByUsername("cashier1")).thenReturn(Optional.of(cashier));
         when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
-        when(productRepository.findById(10L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByProductId(10L)).thenReturn(Optional.of(inventory));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
+        when(inventoryRepository.findByProductIdIn(any())).thenReturn(List.of(inventory));
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+        doThrow(new BadRequestException(ErrorCode.RW001))
+                .when(rewardLedgerService).redeem(eq(customer), any(Order.class), eq(100));
 
         assertThatThrownBy(() -> orderService.create(request))
                 .isInstanceOf(BadRequestException.class);
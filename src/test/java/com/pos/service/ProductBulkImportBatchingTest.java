@@ -0,0 +1,59 @@
+package com.pos.service;
+
+import com.pos.bulk.ImportProgress;
+import com.pos.dto.response.BulkUploadResult;
+import com.pos.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs a bulk import against the test database with the production batching settings and checks
+ * that product and inventory inserts go out in JDBC batches rather than one statement per row.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ProductBulkImportBatchingTest {
+
+    private static final int ROWS = 120;
+
+    @Autowired private ProductBulkService productBulkService;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void importFile_insertsProductsAndInventoryInBatches() throws Exception {
+        StringBuilder csv = new StringBuilder("Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n");
+        for (int i = 1; i <= ROWS; i++) {
+            csv.append("Batch product ").append(i).append(",BATCH-").append(i).append(",,1.99,,5,2\n");
+        }
+        Path file = Files.writeString(tempDir.resolve("batch.csv"), csv);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        BulkUploadResult result = productBulkService.importFile(file, "batch.csv", "admin", ImportProgress.NONE);
+
+        assertThat(result.getSuccessCount()).isEqualTo(ROWS);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(2L * ROWS);
+        // One statement per row would be 2 * ROWS; batches of 50 leave room for lookups and sequences.
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(ROWS / 2);
+        assertThat(productRepository.findBySku("BATCH-7")).get()
+                .satisfies(p -> assertThat(p.getUpdatedAt()).isNotNull());
+    }
+}
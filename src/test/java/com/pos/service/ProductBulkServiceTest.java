@@ -1,5 +1,6 @@
 package com.pos.service;
 
+import com.pos.bulk.ImportProgress;
 import com.pos.dto.response.BulkUploadResult;
 import com.pos.entity.Category;
 import com.pos.entity.Inventory;
@@ -7,21 +8,37 @@ import com.pos.entity.Product;
 import com.pos.repository.CategoryRepository;
 import com.pos.repository.InventoryRepository;
 import com.pos.repository.ProductRepository;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,10 +48,17 @@ class ProductBulkServiceTest {
     @Mock private ProductRepository productRepository;
     @Mock private CategoryRepository categoryRepository;
     @Mock private InventoryRepository inventoryRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private ProductCopyImporter copyImporter;
+    @Mock private BarcodeFilterService barcodeFilterService;
+    @Mock private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private ProductBulkService productBulkService;
 
+    @TempDir
+    Path tempDir;
+
     private Product existingProduct;
     private Inventory existingInventory;
     private Category category;
@@ -101,18 +125,18 @@ class ProductBulkServiceTest {
     }
 
     @Test
-    void processUpload_csvNewProduct_savesProductAndInventory() {
+    void importFile_csvNewProduct_savesProductAndInventory() throws Exception {
         String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
                 + "New Item,NEW-001,,19.99,Electronics,25,5";
-        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
 
-        when(categoryRepository.findByName("Electronics")).thenReturn(Optional.of(category));
-        when(productRepository.findBySku("NEW-001")).thenReturn(Optional.empty());
+        when(categoryRepository.findByNameIn(Set.of("Electronics"))).thenReturn(List.of(category));
+        when(productRepository.findBySkuIn(Set.of("NEW-001"))).thenReturn(List.of());
         Product savedProduct = Product.builder().id(99L).name("New Item").sku("NEW-001").price(new BigDecimal("19.99")).build();
         when(productRepository.saveAll(anyList())).thenReturn(List.of(savedProduct));
         when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
 
-        BulkUploadResult result = productBulkService.processUpload(file, "admin");
+        BulkUploadResult result = importFile(file);
 
         assertThat(result.getTotalRows()).isEqualTo(1);
         assertThat(result.getSuccessCount()).isEqualTo(1);
@@ -124,18 +148,18 @@ class ProductBulkServiceTest {
     }
 
     @Test
-    void processUpload_csvUpdateBySku_addsQuantityAndSaves() {
+    void importFile_csvUpdateBySku_addsQuantityAndSaves() throws Exception {
         String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
                 + "Laptop Updated,SKU-100,,999.99,Electronics,10,10";
-        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
 
-        when(categoryRepository.findByName("Electronics")).thenReturn(Optional.of(category));
-        when(productRepository.findBySku("SKU-100")).thenReturn(Optional.of(existingProduct));
-        when(inventoryRepository.findByProductId(10L)).thenReturn(Optional.of(existingInventory));
+        when(categoryRepository.findByNameIn(Set.of("Electronics"))).thenReturn(List.of(category));
+        when(productRepository.findBySkuIn(Set.of("SKU-100"))).thenReturn(List.of(existingProduct));
+        when(inventoryRepository.findByProductIdIn(List.of(10L))).thenReturn(List.of(existingInventory));
         when(productRepository.saveAll(anyList())).thenReturn(List.of(existingProduct));
         when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
 
-        BulkUploadResult result = productBulkService.processUpload(file, "admin");
+        BulkUploadResult result = importFile(file);
 
         assertThat(result.getSuccessCount()).isEqualTo(0);
         assertThat(result.getUpdatedCount()).isEqualTo(1);
@@ -145,14 +169,14 @@ class ProductBulkServiceTest {
     }
 
     @Test
-    void processUpload_csvInvalidPrice_returnsError() {
+    void importFile_csvInvalidPrice_returnsError() throws Exception {
         String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
                 + "Bad Price,BAD-001,,,Electronics,0,10";
-        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
 
-        when(productRepository.findBySku("BAD-001")).thenReturn(Optional.empty());
+        when(productRepository.findBySkuIn(Set.of("BAD-001"))).thenReturn(List.of());
 
-        BulkUploadResult result = productBulkService.processUpload(file, "admin");
+        BulkUploadResult result = importFile(file);
 
         assertThat(result.getSuccessCount()).isEqualTo(0);
         assertThat(result.getUpdatedCount()).isEqualTo(0);
@@ -161,27 +185,49 @@ class ProductBulkServiceTest {
     }
 
     @Test
-    void processUpload_csvDuplicateBarcode_returnsError() {
+    void importFile_csvFractionalOrOutOfRangeQuantities_rejectsRowsWithoutTouchingStock() throws Exception {
+        String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
+                + "Laptop,SKU-100,,999.99,,99999999999,10\n"
+                + "Mouse,NEW-1,,5.00,,12.7,5\n"
+                + "Cable,NEW-2,,2.00,,3,1e10\n"
+                + "Hub,NEW-3,,8.00,,4.0,2";
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        when(productRepository.findBySkuIn(Set.of("SKU-100", "NEW-1", "NEW-2", "NEW-3"))).thenReturn(List.of(existingProduct));
+        when(inventoryRepository.findByProductIdIn(List.of(10L))).thenReturn(List.of(existingInventory));
+        when(productRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        BulkUploadResult result = importFile(file);
+
+        assertThat(result.getErrors()).extracting(BulkUploadResult.RowError::getRow, BulkUploadResult.RowError::getField)
+                .containsExactly(tuple(2, "Initial Stock"), tuple(3, "Initial Stock"), tuple(4, "Low Stock Threshold"));
+        assertThat(existingInventory.getQuantity()).isEqualTo(50);
+        assertThat(result.getSuccessCount()).isEqualTo(1); // "4.0" is a whole number
+    }
+
+    @Test
+    void importFile_csvDuplicateBarcode_returnsError() throws Exception {
         String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
                 + "Dup,DUPE-001,1234567890,9.99,Electronics,0,10";
-        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
 
-        when(productRepository.findBySku("DUPE-001")).thenReturn(Optional.empty());
-        when(categoryRepository.findByName("Electronics")).thenReturn(Optional.of(category));
-        when(productRepository.existsByBarcode("1234567890")).thenReturn(true);
+        when(productRepository.findBySkuIn(Set.of("DUPE-001"))).thenReturn(List.of());
+        when(categoryRepository.findByNameIn(Set.of("Electronics"))).thenReturn(List.of(category));
+        when(productRepository.findIdsByBarcodeIn(Set.of("1234567890"))).thenReturn(List.<Object[]>of(new Object[]{"1234567890", 77L}));
 
-        BulkUploadResult result = productBulkService.processUpload(file, "admin");
+        BulkUploadResult result = importFile(file);
 
         assertThat(result.getSuccessCount()).isEqualTo(0);
         assertThat(result.getErrors()).anyMatch(e -> e.getMessage().contains("Barcode already exists"));
     }
 
     @Test
-    void processUpload_csvEmptyFile_returnsZeroRows() {
+    void importFile_csvEmptyFile_returnsZeroRows() throws Exception {
         String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n";
-        MockMultipartFile file = new MockMultipartFile("file", "empty.csv", "text/csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        Path file = write("empty.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
 
-        BulkUploadResult result = productBulkService.processUpload(file, "admin");
+        BulkUploadResult result = importFile(file);
 
         assertThat(result.getTotalRows()).isEqualTo(0);
         assertThat(result.getSuccessCount()).isEqualTo(0);
@@ -189,19 +235,269 @@ class ProductBulkServiceTest {
     }
 
     @Test
-    void processUpload_csvSkunOnlyRow_updatesExistingAndAddsStock() {
+    void importFile_csvSkunOnlyRow_updatesExistingAndAddsStock() throws Exception {
         String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
                 + ",SKU-100,,, ,20,5";
-        MockMultipartFile file = new MockMultipartFile("file", "sku-only.csv", "text/csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        Path file = write("sku-only.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
 
-        when(productRepository.findBySku("SKU-100")).thenReturn(Optional.of(existingProduct));
-        when(inventoryRepository.findByProductId(10L)).thenReturn(Optional.of(existingInventory));
+        when(productRepository.findBySkuIn(Set.of("SKU-100"))).thenReturn(List.of(existingProduct));
+        when(inventoryRepository.findByProductIdIn(List.of(10L))).thenReturn(List.of(existingInventory));
         when(productRepository.saveAll(anyList())).thenReturn(List.of(existingProduct));
         when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
 
-        BulkUploadResult result = productBulkService.processUpload(file, "admin");
+        BulkUploadResult result = importFile(file);
 
         assertThat(result.getUpdatedCount()).isEqualTo(1);
         assertThat(existingInventory.getQuantity()).isEqualTo(70); // 50 + 20
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importFile_xlsx_streamsRowsKeepingNumericBarcodesAndPrices() throws Exception {
+        byte[] xlsx;
+        try (XSSFWorkbook wb = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = wb.createSheet("Products");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Name");
+            header.createCell(1).setCellValue("SKU");
+            Row created = sheet.createRow(1);
+            created.createCell(0).setCellValue("Cola 330ml");
+            created.createCell(1).setCellValue("COLA-330");
+            created.createCell(2).setCellValue(5000112637922d);
+            created.createCell(3).setCellValue(1.2);
+            created.createCell(4).setCellValue("Electronics");
+            created.createCell(5).setCellValue(24);
+            Row update = sheet.createRow(3); // row 3 left empty
+            update.createCell(1).setCellValue("SKU-100");
+            update.createCell(5).setCellValue(5);
+            wb.write(out);
+            xlsx = out.toByteArray();
+        }
+        Path file = write("products.xlsx", xlsx);
+
+        when(categoryRepository.findByNameIn(Set.of("Electronics"))).thenReturn(List.of(category));
+        when(productRepository.findIdsByBarcodeIn(Set.of("5000112637922"))).thenReturn(List.of());
+        when(productRepository.findBySkuIn(Set.of("COLA-330", "SKU-100"))).thenReturn(List.of(existingProduct));
+        when(inventoryRepository.findByProductIdIn(List.of(10L))).thenReturn(List.of(existingInventory));
+        when(productRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        BulkUploadResult result = importFile(file);
+
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getTotalRows()).isEqualTo(3);
+        assertThat(result.getSuccessCount()).isEqualTo(1);
+        assertThat(result.getUpdatedCount()).isEqualTo(1);
+        assertThat(existingInventory.getQuantity()).isEqualTo(55);
+        ArgumentCaptor<List<Product>> saved = ArgumentCaptor.forClass(List.class);
+        verify(productRepository, times(2)).saveAll(saved.capture());
+        Product cola = saved.getAllValues().get(1).get(0);
+        assertThat(cola.getBarcode()).isEqualTo("5000112637922");
+        assertThat(cola.getPrice()).isEqualByComparingTo("1.20");
+    }
+
+    @Test
+    void importFile_moreRowsThanChunkSize_commitsEachChunkSeparately() throws Exception {
+        ReflectionTestUtils.setField(productBulkService, "chunkSize", 1);
+        String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
+                + "First,NEW-001,,1.00,,1,5\n"
+                + "Second,NEW-002,,2.00,,2,5";
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        when(productRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        BulkUploadResult result = importFile(file);
+
+        assertThat(result.getSuccessCount()).isEqualTo(2);
+        verify(productRepository, times(2)).saveAll(anyList());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void importFile_chunksParsedAhead_reportsErrorsInRowOrder() throws Exception {
+        ReflectionTestUtils.setField(productBulkService, "chunkSize", 2);
+        ReflectionTestUtils.setField(productBulkService, "pipelineDepth", 1);
+        StringBuilder csv = new StringBuilder("Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n");
+        for (int i = 1; i <= 9; i++) {
+            csv.append("Item ").append(i).append(",NEW-").append(i).append(",,")
+                    .append(i % 2 == 1 ? "bad" : i + ".00").append(",,1,5\n");
+        }
+        Path file = write("test.csv", csv.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        when(productRepository.findBySkuIn(any())).thenReturn(List.of());
+        when(productRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        BulkUploadResult result = importFile(file);
+
+        assertThat(result.getTotalRows()).isEqualTo(9);
+        assertThat(result.getSuccessCount()).isEqualTo(4);
+        assertThat(result.getErrors()).extracting(BulkUploadResult.RowError::getRow).containsExactly(2, 4, 6, 8, 10);
+        verify(transactionManager, times(5)).commit(any());
+    }
+
+    @Test
+    void importFile_chunksSplitAcrossParseThreads_keepsFileOrder() throws Exception {
+        ReflectionTestUtils.setField(productBulkService, "chunkSize", 1);
+        ReflectionTestUtils.setField(productBulkService, "parseThreads", 3);
+        productBulkService.configureParser();
+        StringBuilder csv = new StringBuilder("Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n");
+        for (int i = 1; i <= 12; i++) {
+            csv.append("Item ").append(i).append(",NEW-").append(i).append(",,")
+                    .append(i % 3 == 0 ? "bad" : i + ".00").append(",,1,5\n");
+        }
+        Path file = write("test.csv", csv.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        when(productRepository.findBySkuIn(any())).thenReturn(List.of());
+        when(productRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        BulkUploadResult result = importFile(file);
+
+        assertThat(result.getSuccessCount()).isEqualTo(8);
+        assertThat(result.getErrors()).extracting(BulkUploadResult.RowError::getRow).containsExactly(4, 7, 10, 13);
+        ArgumentCaptor<List<Product>> saved = ArgumentCaptor.forClass(List.class);
+        verify(productRepository, times(8)).saveAll(saved.capture());
+        assertThat(saved.getAllValues()).extracting(chunk -> chunk.get(0).getSku())
+                .containsExactly("NEW-1", "NEW-2", "NEW-4", "NEW-5", "NEW-7", "NEW-8", "NEW-10", "NEW-11");
+    }
+
+    @Test
+    void importFile_duplicateSkuAndBarcodeInFile_reportsLaterRowsWithOneLookupPerKind() throws Exception {
+        String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
+                + "First,NEW-001,111,1.00,Electronics,1,5\n"
+                + "Again,NEW-001,,2.00,Electronics,2,5\n"
+                + "Other,NEW-002,111,3.00,Electronics,3,5";
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        when(categoryRepository.findByNameIn(Set.of("Electronics"))).thenReturn(List.of(category));
+        when(productRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        BulkUploadResult result = importFile(file);
+
+        assertThat(result.getSuccessCount()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(BulkUploadResult.RowError::getRow).containsExactly(3, 4);
+        assertThat(result.getErrors().get(0).getMessage()).contains("Duplicate SKU in file (first on row 2)");
+        assertThat(result.getErrors().get(1).getField()).isEqualTo("Barcode");
+        verify(productRepository).findBySkuIn(Set.of("NEW-001", "NEW-002"));
+        verify(productRepository).findIdsByBarcodeIn(Set.of("111"));
+        verify(categoryRepository).findByNameIn(Set.of("Electronics"));
+    }
+
+    @Test
+    void importFile_resumed_skipsCommittedRowsButRemembersTheirSkus() throws Exception {
+        String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
+                + "Done,OLD-001,,1.00,,1,5\n"
+                + "Rejected,BAD-001,,,,1,5\n"
+                + "Repeat,OLD-001,,2.00,,2,5\n"
+                + "Retry,BAD-001,,3.00,,3,5";
+        Path file = write("resume.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        List<ImportProgress.Chunk> chunks = new java.util.ArrayList<>();
+        ImportProgress progress = new ImportProgress() {
+            @Override public int resumeAfterRow() { return 3; }
+            @Override public Set<Integer> rejectedRows() { return Set.of(3); }
+            @Override public void chunkCommitted(Chunk chunk) { chunks.add(chunk); }
+        };
+        when(productRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        BulkUploadResult result = productBulkService.importFile(file, "resume.csv", "admin", progress);
+
+        assertThat(result.getSuccessCount()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(BulkUploadResult.RowError::getRow).containsExactly(4);
+        verify(productRepository).findBySkuIn(Set.of("OLD-001", "BAD-001"));
+        assertThat(chunks).hasSize(1);
+        assertThat(chunks.get(0).throughRow()).isEqualTo(5);
+        assertThat(chunks.get(0).rowsProcessed()).isEqualTo(4);
+        assertThat(chunks.get(0).created()).isEqualTo(1);
+        assertThat(chunks.get(0).errors()).hasSize(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importFile_csvWithBomSemicolonsAndMultiLineQuotedName_parsesRecords() throws Exception {
+        String csv = "\uFEFFName;SKU;Barcode;Price;Category;Initial Stock;Low Stock Threshold\r\n"
+                + "\"Gift box; \"\"deluxe\"\"\r\nred\";GFT-1;;12.50;Electronics;3;1\r\n"
+                + "Broken;BRK-1;;abc;Electronics;0;1\r\n";
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        when(categoryRepository.findByNameIn(Set.of("Electronics"))).thenReturn(List.of(category));
+        when(productRepository.findBySkuIn(Set.of("GFT-1", "BRK-1"))).thenReturn(List.of());
+        when(productRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        BulkUploadResult result = importFile(file);
+
+        assertThat(result.getTotalRows()).isEqualTo(2);
+        assertThat(result.getSuccessCount()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(BulkUploadResult.RowError::getRow).containsExactly(3);
+        ArgumentCaptor<List<Product>> saved = ArgumentCaptor.forClass(List.class);
+        verify(productRepository).saveAll(saved.capture());
+        assertThat(saved.getValue().get(0).getName()).isEqualTo("Gift box; \"deluxe\"\r\nred");
+        assertThat(saved.getValue().get(0).getPrice()).isEqualByComparingTo("12.50");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importFile_copyImportActive_mergesStagedRowsInsteadOfSavingEntities() throws Exception {
+        String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
+                + "Laptop Updated,SKU-100,,899.00,Electronics,10,10\n"
+                + "New Item,NEW-001,4006381333931,19.99,Electronics,25,5";
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        when(copyImporter.isActive()).thenReturn(true);
+        when(categoryRepository.findByNameIn(Set.of("Electronics"))).thenReturn(List.of(category));
+        when(productRepository.findBySkuIn(Set.of("SKU-100", "NEW-001"))).thenReturn(List.of(existingProduct));
+        when(productRepository.findIdsByBarcodeIn(Set.of("4006381333931"))).thenReturn(List.of());
+        when(inventoryRepository.findByProductIdIn(List.of(10L))).thenReturn(List.of(existingInventory));
+        when(copyImporter.merge(anyList())).thenReturn(new ProductCopyImporter.MergeResult(1, 1, List.of(10L, 11L)));
+
+        BulkUploadResult result = importFile(file);
+
+        assertThat(result.getSuccessCount()).isEqualTo(1);
+        assertThat(result.getUpdatedCount()).isEqualTo(1);
+        ArgumentCaptor<List<ProductCopyImporter.StageRow>> rows = ArgumentCaptor.forClass(List.class);
+        verify(copyImporter).merge(rows.capture());
+        assertThat(rows.getValue()).extracting(ProductCopyImporter.StageRow::productId).containsExactly(10L, null);
+        assertThat(rows.getValue()).extracting(ProductCopyImporter.StageRow::stockDelta).containsExactly(10, 25);
+        assertThat(rows.getValue().get(0).price()).isEqualByComparingTo("899.00");
+        assertThat(rows.getValue().get(1).categoryId()).isEqualTo(1L);
+        verify(productRepository, never()).saveAll(anyList());
+        verify(inventoryRepository, never()).saveAll(anyList());
+        verify(eventPublisher).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void validateFile_reportsCreatesUpdatesAndErrorsWithoutSaving() throws Exception {
+        String csv = "Name,SKU,Barcode,Price,Category,Initial Stock,Low Stock Threshold\n"
+                + "Laptop Updated,SKU-100,,899.00,Electronics,10,10\n"
+                + "New Item,NEW-001,,19.99,Electronics,25,5\n"
+                + "Broken,BRK-001,,abc,Electronics,1,5";
+        Path file = write("test.csv", csv.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(categoryRepository.findByNameIn(Set.of("Electronics"))).thenReturn(List.of(category));
+        when(productRepository.findBySkuIn(Set.of("SKU-100", "NEW-001", "BRK-001"))).thenReturn(List.of(existingProduct));
+
+        BulkUploadResult result = productBulkService.validateFile(file, "test.csv");
+
+        assertThat(result.getTotalRows()).isEqualTo(3);
+        assertThat(result.getSuccessCount()).isEqualTo(1);
+        assertThat(result.getUpdatedCount()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(BulkUploadResult.RowError::getRow).containsExactly(4);
+        verify(productRepository, never()).saveAll(anyList());
+        verify(inventoryRepository, never()).findByProductIdIn(any());
+        verify(inventoryRepository, never()).saveAll(anyList());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private Path write(String fileName, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(fileName), content);
+    }
+
+    private BulkUploadResult importFile(Path file) throws IOException {
+        return productBulkService.importFile(file, file.getFileName().toString(), "admin", ImportProgress.NONE);
+    }
 }
@@ -0,0 +1,126 @@
+package com.pos.service;
+
+import com.pos.config.DatabaseDialect;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the COPY merge against a real PostgreSQL, with the tables as they look after
+ * {@code IdSequenceAligner}: pooled sequences and no identity default on {@code id}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProductCopyImporterTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Mock private EntityManager entityManager;
+    @Mock private Session session;
+    @Mock private DatabaseDialect databaseDialect;
+
+    private Connection connection;
+    private ProductCopyImporter importer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS inventory, products");
+            st.execute("DROP SEQUENCE IF EXISTS products_seq, inventory_seq");
+            st.execute("CREATE SEQUENCE products_seq INCREMENT BY 50");
+            st.execute("CREATE SEQUENCE inventory_seq INCREMENT BY 50");
+            st.execute("CREATE TABLE products (id bigint PRIMARY KEY, name varchar(255) NOT NULL, " +
+                    "sku varchar(255) UNIQUE, barcode varchar(255) UNIQUE, price numeric(10,2) NOT NULL, " +
+                    "category_id bigint, active boolean NOT NULL, created_at timestamp, updated_at timestamp, " +
+                    "updated_by varchar(255))");
+            st.execute("CREATE TABLE inventory (id bigint PRIMARY KEY, " +
+                    "product_id bigint NOT NULL UNIQUE REFERENCES products (id), quantity int NOT NULL, " +
+                    "low_stock_threshold int NOT NULL, updated_at timestamp, updated_by varchar(255))");
+        }
+        connection.setAutoCommit(false);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(session.doReturningWork(any())).thenAnswer(inv -> inv.<ReturningWork<?>>getArgument(0).execute(connection));
+        importer = new ProductCopyImporter(entityManager, databaseDialect);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    void merge_newProduct_insertsProductAndInventoryWithSequenceIds() throws Exception {
+        ProductCopyImporter.MergeResult result = importer.merge(List.of(
+                row(null, "NEW-1", 25, 4)));
+        connection.commit();
+
+        assertThat(result.inserted()).isEqualTo(1);
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT i.id, i.product_id, i.quantity, i.low_stock_threshold, p.sku " +
+                     "FROM inventory i JOIN products p ON p.id = i.product_id")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getLong(1)).isPositive();
+            assertThat(rs.getLong(2)).isEqualTo(result.productIds().get(0));
+            assertThat(rs.getInt(3)).isEqualTo(25);
+            assertThat(rs.getInt(4)).isEqualTo(4);
+            assertThat(rs.getString(5)).isEqualTo("NEW-1");
+            assertThat(rs.next()).isFalse();
+        }
+    }
+
+    @Test
+    void merge_existingProduct_addsStockDeltaToItsInventoryRow() throws Exception {
+        Long productId = importer.merge(List.of(row(null, "OLD-1", 10, 5))).productIds().get(0);
+        connection.commit();
+
+        ProductCopyImporter.MergeResult result = importer.merge(List.of(
+                row(productId, "OLD-1", 15, 8),
+                row(null, "NEW-2", 3, 1)));
+        connection.commit();
+
+        assertThat(result.inserted()).isEqualTo(1);
+        assertThat(result.updated()).isEqualTo(1);
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT quantity, low_stock_threshold FROM inventory WHERE product_id = " + productId)) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getInt(1)).isEqualTo(25);
+            assertThat(rs.getInt(2)).isEqualTo(8);
+        }
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*), COUNT(DISTINCT id) FROM inventory")) {
+            rs.next();
+            assertThat(rs.getInt(1)).isEqualTo(2);
+            assertThat(rs.getInt(2)).isEqualTo(2);
+        }
+    }
+
+    private static ProductCopyImporter.StageRow row(Long productId, String sku, int stockDelta, int threshold) {
+        return new ProductCopyImporter.StageRow(productId, sku, "Product " + sku, null, new BigDecimal("9.99"),
+                null, stockDelta, threshold, "admin");
+    }
+}
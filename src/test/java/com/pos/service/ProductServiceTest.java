@@ -16,8 +16,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -31,6 +38,11 @@ class ProductServiceTest {
     @Mock private ProductRepository productRepository;
     @Mock private CategoryRepository categoryRepository;
     @Mock private InventoryRepository inventoryRepository;
+    @Mock private BarcodeIndexService barcodeIndexService;
+    @Mock private SearchIndexService searchIndexService;
+    @Mock private BarcodeFilterService barcodeFilterService;
+    @Mock private StockStatusService stockStatusService;
+    @Mock private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private ProductService productService;
@@ -69,6 +81,66 @@ class ProductServiceTest {
         assertThat(response.getQuantity()).isEqualTo(50);
     }
 
+    @Test
+    void getAll_usesSingleProjectionQueryWithoutPerRowInventoryLookups() {
+        Pageable pageable = PageRequest.of(0, 20);
+        when(productRepository.findActiveWithStock(pageable))
+                .thenReturn(new PageImpl<>(List.<Object[]>of(new Object[]{sampleProduct, 50}), pageable, 1));
+
+        Page<ProductResponse> page = productService.getAll(null, null, pageable);
+
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getContent().get(0).getQuantity()).isEqualTo(50);
+        verifyNoInteractions(inventoryRepository);
+    }
+
+    @Test
+    void getAll_withSearch_usesSearchProjection() {
+        Pageable pageable = PageRequest.of(0, 20);
+        when(productRepository.searchActiveWithStock("lap", pageable))
+                .thenReturn(new PageImpl<>(List.<Object[]>of(new Object[]{sampleProduct, 0}), pageable, 1));
+
+        Page<ProductResponse> page = productService.getAll("lap", 5L, pageable);
+
+        assertThat(page.getContent().get(0).getName()).isEqualTo("Laptop");
+        verify(productRepository, never()).findActiveWithStockByCategoryId(any(), any());
+    }
+
+    @Test
+    void getAll_withSearch_indexReady_loadsRankedPageInIndexOrder() {
+        Pageable pageable = PageRequest.of(0, 20);
+        Product other = Product.builder().id(2L).name("Laptop Stand").price(BigDecimal.TEN).active(true).build();
+        when(searchIndexService.searchProducts("lap", pageable))
+                .thenReturn(Optional.of(new PageImpl<>(List.of(2L, 1L), pageable, 2)));
+        when(productRepository.findWithStockByIdIn(List.of(2L, 1L)))
+                .thenReturn(List.<Object[]>of(new Object[]{sampleProduct, 5}, new Object[]{other, 3}));
+
+        Page<ProductResponse> page = productService.getAll("lap", null, pageable);
+
+        assertThat(page.getContent()).extracting(ProductResponse::getId).containsExactly(2L, 1L);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        verify(productRepository, never()).searchActiveWithStock(any(), any());
+    }
+
+    @Test
+    void getByBarcode_servedFromIndex() {
+        ProductResponse indexed = ProductResponse.from(sampleProduct, 50);
+        when(barcodeIndexService.findProduct("4006381333931")).thenReturn(Optional.of(indexed));
+
+        ProductResponse response = productService.getByBarcode("4006381333931");
+
+        assertThat(response).isSameAs(indexed);
+        verifyNoInteractions(productRepository, inventoryRepository);
+    }
+
+    @Test
+    void getByBarcode_unknown_throwsNotFound() {
+        when(barcodeIndexService.findProduct("0000")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> productService.getByBarcode("0000"))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
     @Test
     void getById_nonExistingProduct_throwsNotFound() {
         when(productRepository.findById(99L)).thenReturn(Optional.empty());
@@ -111,6 +183,39 @@ class ProductServiceTest {
         verify(inventoryRepository).save(any(Inventory.class));
     }
 
+    @Test
+    void create_barcodeTakenOnAnotherNode_constraintViolationBecomesBadRequest() {
+        ProductRequest request = new ProductRequest();
+        request.setName("Mouse");
+        request.setBarcode("5000112637922");
+        request.setPrice(new BigDecimal("29.99"));
+
+        when(barcodeFilterService.productBarcodeExists("5000112637922")).thenReturn(false);
+        when(productRepository.save(any())).thenReturn(sampleProduct);
+        doThrow(new DataIntegrityViolationException("Unique index or primary key violation: PUBLIC.PRODUCTS(BARCODE)"))
+                .when(productRepository).flush();
+
+        assertThatThrownBy(() -> productService.create(request))
+                .isInstanceOf(BadRequestException.class);
+        verify(inventoryRepository, never()).save(any());
+    }
+
+    @Test
+    void create_otherConstraintViolation_isNotReportedAsDuplicateBarcode() {
+        ProductRequest request = new ProductRequest();
+        request.setName("Mouse");
+        request.setSku("MOU-001");
+        request.setPrice(new BigDecimal("29.99"));
+
+        when(productRepository.existsBySku("MOU-001")).thenReturn(false);
+        when(productRepository.save(any())).thenReturn(sampleProduct);
+        doThrow(new DataIntegrityViolationException("Unique index or primary key violation: PUBLIC.PRODUCTS(SKU)"))
+                .when(productRepository).flush();
+
+        assertThatThrownBy(() -> productService.create(request))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
     @Test
     void delete_existingProduct_deactivatesProduct() {
         when(productRepository.findById(1L)).thenReturn(Optional.of(sampleProduct));
@@ -126,7 +231,7 @@ class ProductServiceTest {
         when(productRepository.count()).thenReturn(10L);
         when(productRepository.countByActiveTrue()).thenReturn(7L);
         when(productRepository.countByActiveFalse()).thenReturn(3L);
-        when(inventoryRepository.countOutOfStock()).thenReturn(2L);
+        when(stockStatusService.countOutOfStock()).thenReturn(2L);
 
         var stats = productService.getStats();
 
@@ -0,0 +1,92 @@
+package com.pos.service;
+
+import com.pos.dto.response.ProductSuggestion;
+import com.pos.dto.response.SuggestStats;
+import com.pos.event.CatalogChangedEvent;
+import com.pos.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProductSuggestServiceTest {
+
+    @Mock private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductSuggestService productSuggestService;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findSearchFieldsAfterId(any(), any())).thenReturn(List.of(
+                row(1L, "Laptop Stand Aluminium", "ACC-STAND", true, "4006381333931"),
+                row(2L, "Laptop", "LAP-001", true, "4006381333948"),
+                row(3L, "Lapel Pin", "PIN-7", true, null),
+                row(4L, "Laptop Sleeve", "ACC-SLV", false, null)));
+        productSuggestService.rebuild();
+        clearInvocations(productRepository);
+    }
+
+    @Test
+    void suggest_returnsShortestCompletionsFirstWithoutTouchingDatabase() {
+        List<ProductSuggestion> hits = productSuggestService.suggest("lap", 10);
+
+        assertThat(hits).extracting(ProductSuggestion::id).containsExactly(2L, 3L, 1L);
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void suggest_matchesLaterNameWordsSkuAndBarcode() {
+        assertThat(productSuggestService.suggest("alu", 10)).extracting(ProductSuggestion::id).containsExactly(1L);
+        assertThat(productSuggestService.suggest("acc-st", 10)).extracting(ProductSuggestion::id).containsExactly(1L);
+        assertThat(productSuggestService.suggest("400638133394", 10)).extracting(ProductSuggestion::id).containsExactly(2L);
+    }
+
+    @Test
+    void suggest_honoursLimitAndSkipsInactive() {
+        assertThat(productSuggestService.suggest("lap", 2)).hasSize(2);
+        assertThat(productSuggestService.suggest("sleeve", 10)).isEmpty();
+        assertThat(productSuggestService.suggest("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void onCatalogChanged_renamesAndDeactivationsAreApplied() {
+        when(productRepository.findSearchFieldsByIdIn(any())).thenReturn(List.of(
+                row(2L, "Notebook", "LAP-001", true, null),
+                row(3L, "Lapel Pin", "PIN-7", false, null)));
+
+        productSuggestService.onCatalogChanged(CatalogChangedEvent.of(List.of(2L, 3L)));
+
+        assertThat(productSuggestService.suggest("lap", 10)).extracting(ProductSuggestion::id).containsExactly(2L, 1L);
+        assertThat(productSuggestService.suggest("note", 10)).extracting(ProductSuggestion::name).containsExactly("Notebook");
+    }
+
+    @Test
+    void getStats_reportsSizeAndFootprint() {
+        SuggestStats stats = productSuggestService.getStats();
+
+        assertThat(stats.products()).isEqualTo(3);
+        assertThat(stats.keys()).isGreaterThan(stats.products());
+        assertThat(stats.nodes()).isGreaterThan(1);
+        assertThat(stats.estimatedBytes()).isPositive();
+    }
+
+    private static Object[] row(Long id, String name, String sku, boolean active, String barcode) {
+        return new Object[]{id, name, sku, active, barcode, new BigDecimal("9.99")};
+    }
+}
@@ -0,0 +1,108 @@
+package com.pos.service;
+
+import com.pos.entity.Customer;
+import com.pos.entity.Order;
+import com.pos.entity.RewardLedgerEntry;
+import com.pos.enums.RewardReason;
+import com.pos.exception.BadRequestException;
+import com.pos.repository.CustomerRepository;
+import com.pos.repository.RewardLedgerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RewardLedgerServiceTest {
+
+    @Mock private RewardLedgerRepository ledgerRepository;
+    @Mock private CustomerRepository customerRepository;
+    @Mock private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private RewardLedgerService rewardLedgerService;
+
+    private Customer customer;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        customer = Customer.builder().id(1L).name("Jane").rewardPoints(100).build();
+        order = Order.builder().id(9L).customer(customer).build();
+    }
+
+    @Test
+    void earn_appendsPendingEntryWithoutTouchingCustomer() {
+        when(ledgerRepository.existsByOrderIdAndReason(9L, RewardReason.EARN)).thenReturn(false);
+
+        assertThat(rewardLedgerService.earn(order, 25)).isTrue();
+
+        ArgumentCaptor<RewardLedgerEntry> entry = ArgumentCaptor.forClass(RewardLedgerEntry.class);
+        verify(ledgerRepository).save(entry.capture());
+        assertThat(entry.getValue().getDelta()).isEqualTo(25);
+        assertThat(entry.getValue().isCompacted()).isFalse();
+        verify(customerRepository, never()).addRewardPoints(anyLong(), anyInt());
+    }
+
+    @Test
+    void earn_orderAlreadyCredited_isNoOp() {
+        when(ledgerRepository.existsByOrderIdAndReason(9L, RewardReason.EARN)).thenReturn(true);
+
+        assertThat(rewardLedgerService.earn(order, 25)).isFalse();
+
+        verify(ledgerRepository, never()).save(any());
+    }
+
+    @Test
+    void redeem_snapshotCoversPoints_deductsAtomicallyAndRecordsCompactedEntry() {
+        when(customerRepository.deductRewardPoints(1L, 80)).thenReturn(1);
+
+        rewardLedgerService.redeem(customer, order, 80);
+
+        ArgumentCaptor<RewardLedgerEntry> entry = ArgumentCaptor.forClass(RewardLedgerEntry.class);
+        verify(ledgerRepository).save(entry.capture());
+        assertThat(entry.getValue().getDelta()).isEqualTo(-80);
+        assertThat(entry.getValue().isCompacted()).isTrue();
+        verify(customerRepository, never()).findByIdForUpdate(any());
+    }
+
+    @Test
+    void redeem_pendingPointsCoverShortfall_compactsThenDeducts() {
+        RewardLedgerEntry pending = RewardLedgerEntry.builder().id(5L).customer(customer).delta(50).build();
+        when(customerRepository.deductRewardPoints(1L, 120)).thenReturn(0, 1);
+        when(customerRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(customer));
+        when(ledgerRepository.findByCustomerIdAndCompactedFalse(1L)).thenReturn(List.of(pending));
+
+        rewardLedgerService.redeem(customer, order, 120);
+
+        verify(ledgerRepository).markCompacted(List.of(5L));
+        verify(customerRepository).addRewardPoints(1L, 50);
+    }
+
+    @Test
+    void redeem_insufficientEvenAfterCompaction_throwsBadRequest() {
+        when(customerRepository.deductRewardPoints(1L, 500)).thenReturn(0);
+        when(customerRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(customer));
+        when(ledgerRepository.findByCustomerIdAndCompactedFalse(1L)).thenReturn(List.of());
+
+        assertThatThrownBy(() -> rewardLedgerService.redeem(customer, order, 500))
+                .isInstanceOf(BadRequestException.class);
+        verify(ledgerRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,132 @@
+package com.pos.service;
+
+import com.pos.event.CatalogChangedEvent;
+import com.pos.event.LabelChangedEvent;
+import com.pos.repository.CustomerRepository;
+import com.pos.repository.LabelRepository;
+import com.pos.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SearchIndexServiceTest {
+
+    @Mock private ProductRepository productRepository;
+    @Mock private LabelRepository labelRepository;
+    @Mock private CustomerRepository customerRepository;
+
+    @InjectMocks
+    private SearchIndexService searchIndexService;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findSearchFieldsAfterId(any(), any())).thenReturn(List.of(
+                new Object[]{1L, "Laptop Stand Aluminium", "ACC-STAND", true},
+                new Object[]{2L, "Laptop", "LAP-001", true},
+                new Object[]{3L, "Clapper Board", "FLM-009", true},
+                new Object[]{4L, "Laptop Sleeve", "ACC-SLV", false}));
+        when(labelRepository.findSearchFieldsAfterId(any(), any())).thenReturn(List.of(
+                new Object[]{10L, "Crème Brûlée", "2000000000015", null, 5L, null},
+                new Object[]{11L, "Creme Caramel", "2000000000022", null, 6L, null},
+                new Object[]{12L, "Creme Linked", "2000000000039", null, 5L, 2L}));
+        when(customerRepository.findSearchFieldsAfterId(any(), any())).thenReturn(List.of(
+                new Object[]{20L, "Jane Doe", "jane@example.com", "555-0100"},
+                new Object[]{21L, "Janet Smith", "janet@example.com", null}));
+        searchIndexService.rebuild();
+    }
+
+    @Test
+    void searchProducts_ranksExactNameWordAboveSubstringAndSkipsInactive() {
+        Page<Long> page = searchIndexService.searchProducts("lap", PageRequest.of(0, 10)).orElseThrow();
+
+        // "Laptop" (shorter name) before "Laptop Stand…", prefix matches before the substring hit in "Clapper".
+        assertThat(page.getContent()).containsExactly(2L, 1L, 3L);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void searchProducts_allTokensMustMatch() {
+        Page<Long> page = searchIndexService.searchProducts("laptop alu", PageRequest.of(0, 10)).orElseThrow();
+
+        assertThat(page.getContent()).containsExactly(1L);
+    }
+
+    @Test
+    void searchProducts_matchesSkuAndPagesResults() {
+        assertThat(searchIndexService.searchProducts("acc", PageRequest.of(0, 10)).orElseThrow().getContent())
+                .containsExactly(1L);
+
+        Page<Long> second = searchIndexService.searchProducts("lap", PageRequest.of(1, 2)).orElseThrow();
+        assertThat(second.getContent()).containsExactly(3L);
+        assertThat(second.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void searchProducts_explicitSort_defersToDatabase() {
+        assertThat(searchIndexService.searchProducts("lap", PageRequest.of(0, 10, Sort.by("name")))).isEmpty();
+    }
+
+    @Test
+    void searchLabels_foldsAccentsFiltersByCategoryAndSkipsLinked() {
+        assertThat(searchIndexService.searchLabels("creme", null, PageRequest.of(0, 10)).orElseThrow().getContent())
+                .containsExactlyInAnyOrder(10L, 11L);
+        assertThat(searchIndexService.searchLabels("creme", 5L, PageRequest.of(0, 10)).orElseThrow().getContent())
+                .containsExactly(10L);
+    }
+
+    @Test
+    void searchCustomers_matchesEmailAndPhone() {
+        assertThat(searchIndexService.searchCustomers("janet", PageRequest.of(0, 10)).orElseThrow().getContent())
+                .containsExactly(21L);
+        assertThat(searchIndexService.searchCustomers("555 0100", PageRequest.of(0, 10)).orElseThrow().getContent())
+                .containsExactly(20L);
+    }
+
+    @Test
+    void onCatalogChanged_reindexesEditedAndDeactivatedProducts() {
+        when(productRepository.findSearchFieldsByIdIn(any())).thenReturn(List.of(
+                new Object[]{2L, "Notebook", "LAP-001", true},
+                new Object[]{1L, "Laptop Stand Aluminium", "ACC-STAND", false}));
+
+        searchIndexService.onCatalogChanged(CatalogChangedEvent.of(List.of(1L, 2L)));
+
+        assertThat(searchIndexService.searchProducts("laptop", PageRequest.of(0, 10)).orElseThrow().getContent())
+                .isEmpty();
+        assertThat(searchIndexService.searchProducts("note", PageRequest.of(0, 10)).orElseThrow().getContent())
+                .containsExactly(2L);
+    }
+
+    @Test
+    void onLabelChanged_deletedLabelIsDropped() {
+        when(labelRepository.findSearchFieldsByIdIn(any())).thenReturn(List.of());
+
+        searchIndexService.onLabelChanged(LabelChangedEvent.of(11L));
+
+        assertThat(searchIndexService.searchLabels("caramel", null, PageRequest.of(0, 10)))
+                .map(Page::getContent).contains(List.of());
+    }
+
+    @Test
+    void search_beforeFirstBuild_defersToDatabase() {
+        SearchIndexService cold = new SearchIndexService(productRepository, labelRepository, customerRepository);
+
+        assertThat(cold.searchCustomers("jane", PageRequest.of(0, 10))).isEqualTo(Optional.empty());
+    }
+}
@@ -36,6 +36,8 @@ class ShiftServiceTest {
     private PaymentRepository paymentRepository;
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private OrderEventDispatcher orderEventDispatcher;
 
     @InjectMocks
     private ShiftService shiftService;
@@ -112,6 +114,7 @@ class ShiftServiceTest {
         assertEquals(new BigDecimal("350.00"), resp.getExpectedCash());
         assertEquals(new BigDecimal("10.00"), resp.getDifference());
         assertEquals(ShiftStatus.CLOSED, resp.getStatus());
+        verify(orderEventDispatcher).drain();
     }
 }
 
@@ -0,0 +1,135 @@
+package com.pos.service;
+
+import com.pos.dto.response.InventoryStats;
+import com.pos.entity.Inventory;
+import com.pos.entity.Product;
+import com.pos.event.CatalogChangedEvent;
+import com.pos.event.StockChangedEvent;
+import com.pos.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StockStatusServiceTest {
+
+    @Mock private InventoryRepository inventoryRepository;
+
+    @InjectMocks
+    private StockStatusService stockStatusService;
+
+    @BeforeEach
+    void setUp() {
+        // Product 1 in stock, 2 low, 3 out.
+        when(inventoryRepository.findLevelsAfterProductId(any(), any())).thenReturn(List.of(
+                new Object[]{1L, 40, 10},
+                new Object[]{2L, 5, 10},
+                new Object[]{3L, 0, 10}));
+    }
+
+    @Test
+    void beforeFirstBuild_fallsBackToCountQueries() {
+        when(inventoryRepository.count()).thenReturn(3L);
+        when(inventoryRepository.countInStock()).thenReturn(1L);
+        when(inventoryRepository.countLowStock()).thenReturn(1L);
+        when(inventoryRepository.countOutOfStock()).thenReturn(1L);
+
+        assertThat(stockStatusService.getStats()).isEqualTo(new InventoryStats(3, 1, 1, 1));
+        verify(inventoryRepository).countOutOfStock();
+    }
+
+    @Test
+    void rebuild_classifiesEveryProduct_statsWithoutQueries() {
+        stockStatusService.rebuild();
+
+        assertThat(stockStatusService.getStats()).isEqualTo(new InventoryStats(3, 1, 1, 1));
+        assertThat(stockStatusService.countOutOfStock()).isEqualTo(1);
+        verify(inventoryRepository, never()).countInStock();
+        verify(inventoryRepository, never()).countOutOfStock();
+    }
+
+    @Test
+    void negativeQuantity_countsAsOutOfStock_likeTheCountQuery() {
+        when(inventoryRepository.findLevelsAfterProductId(any(), any())).thenReturn(List.of(
+                new Object[]{1L, 40, 10},
+                new Object[]{2L, -2, 10},
+                new Object[]{3L, 0, 0}));
+
+        stockStatusService.rebuild();
+
+        assertThat(stockStatusService.getStats()).isEqualTo(new InventoryStats(3, 1, 0, 2));
+    }
+
+    @Test
+    void saleDelta_reclassifiesOnlyTouchedProducts() {
+        stockStatusService.rebuild();
+
+        stockStatusService.onStockChanged(StockChangedEvent.adjusted(Map.of(1L, -35, 2L, -5)));
+
+        assertThat(stockStatusService.getStats()).isEqualTo(new InventoryStats(3, 0, 1, 2));
+        verify(inventoryRepository, never()).findLevelsByProductIdIn(anyCollection());
+
+        stockStatusService.onStockChanged(StockChangedEvent.adjusted(Map.of(3L, 20)));
+
+        assertThat(stockStatusService.getStats()).isEqualTo(new InventoryStats(3, 1, 1, 1));
+    }
+
+    @Test
+    void manualUpdate_rereadsThresholdFromDatabase() {
+        stockStatusService.rebuild();
+        when(inventoryRepository.findLevelsByProductIdIn(List.of(1L)))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 40, 50}));
+
+        stockStatusService.onStockChanged(StockChangedEvent.set(1L, 40));
+
+        assertThat(stockStatusService.getStats()).isEqualTo(new InventoryStats(3, 0, 2, 1));
+    }
+
+    @Test
+    void catalogChange_addsNewProductsAndDropsRemovedOnes() {
+        stockStatusService.rebuild();
+        when(inventoryRepository.findLevelsByProductIdIn(any()))
+                .thenReturn(List.<Object[]>of(new Object[]{4L, 100, 10}));
+
+        stockStatusService.onCatalogChanged(CatalogChangedEvent.of(List.of(3L, 4L)));
+
+        assertThat(stockStatusService.getStats()).isEqualTo(new InventoryStats(3, 2, 1, 0));
+    }
+
+    @Test
+    void findLowStock_loadsOnlyWatchedProducts() {
+        stockStatusService.rebuild();
+        Inventory low = inventory(2L, 5);
+        Inventory out = inventory(3L, 0);
+        when(inventoryRepository.findWithProductByProductIdIn(anyCollection())).thenReturn(List.of(low, out));
+
+        List<Inventory> items = stockStatusService.findLowStock();
+
+        assertThat(items).containsExactly(out, low);
+        verify(inventoryRepository, never()).findLowStockItems();
+    }
+
+    private static Inventory inventory(Long productId, int quantity) {
+        return Inventory.builder()
+                .product(Product.builder().id(productId).name("P" + productId).build())
+                .quantity(quantity)
+                .lowStockThreshold(10)
+                .build();
+    }
+}